@@ -0,0 +1,100 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures serialize(), serializeInto() and deserialize() of every {@link BindingType}, for objects of different
+ * sizes. The size only changes the types that contain a String.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindingBenchmark
+{
+
+	private static final int OBJECTS = 1024;
+
+	@Param
+	public BindingType binding;
+
+	@Param({ "16", "1024" })
+	public int size;
+
+	private EntryBinding<Object> entryBinding;
+	private Object[] objects;
+	private byte[][] serialized;
+
+	@Setup
+	public void createObjects()
+	{
+		entryBinding = binding.createBinding();
+		objects = new Object[OBJECTS];
+		serialized = new byte[OBJECTS][];
+		for (int i = 0; i < OBJECTS; i++)
+		{
+			objects[i] = binding.createObject(i, size);
+			serialized[i] = entryBinding.serialize(objects[i]);
+		}
+	}
+
+	@Benchmark
+	public byte[] serialize(Position position)
+	{
+		return entryBinding.serialize(objects[position.next(OBJECTS - 1)]);
+	}
+
+	@Benchmark
+	public int serializeInto(Position position)
+	{
+		FastOutputStream out = FastOutputStream.acquire();
+		try
+		{
+			entryBinding.serializeInto(objects[position.next(OBJECTS - 1)], out);
+			return out.getSize();
+		}
+		finally
+		{
+			out.release();
+		}
+	}
+
+	@Benchmark
+	public Object deserialize(Position position)
+	{
+		return entryBinding.deserialize(serialized[position.next(OBJECTS - 1)]);
+	}
+
+}
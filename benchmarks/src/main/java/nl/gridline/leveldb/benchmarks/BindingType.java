@@ -0,0 +1,149 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.function.Supplier;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.OrderPreservingBinding;
+import nl.gridline.leveldb.bindings.CompactBinding;
+import nl.gridline.leveldb.bindings.CompressingBinding;
+import nl.gridline.leveldb.bindings.DoubleBinding;
+import nl.gridline.leveldb.bindings.FloatBinding;
+import nl.gridline.leveldb.bindings.IntegerBinding;
+import nl.gridline.leveldb.bindings.LongBinding;
+import nl.gridline.leveldb.bindings.ObjectExternalizableBinding;
+import nl.gridline.leveldb.bindings.ObjectSerializableBinding;
+import nl.gridline.leveldb.bindings.PrefixedBinding;
+import nl.gridline.leveldb.bindings.SortableDoubleBinding;
+import nl.gridline.leveldb.bindings.SortableFloatBinding;
+import nl.gridline.leveldb.bindings.SortableIntegerBinding;
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.bindings.SortableVarIntegerBinding;
+import nl.gridline.leveldb.bindings.SortableVarLongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.bindings.Tuple;
+import nl.gridline.leveldb.bindings.TupleBinding;
+import nl.gridline.leveldb.bindings.Utf8Binding;
+import nl.gridline.leveldb.bindings.VarIntegerBinding;
+import nl.gridline.leveldb.bindings.VarLongBinding;
+
+/**
+ * The bindings that are benchmarked, each with the objects it is benchmarked with. The object with index i sorts
+ * before the object with index i + 1, so the types that can be used as keys of a sorted map (all types except the
+ * Records) give ordered keys. The size only applies to the types that contain a String, the numbers always have the
+ * same size.
+ */
+public enum BindingType
+{
+
+	STRING(StringBinding::new, BindingType::text),
+	UTF8(Utf8Binding::new, BindingType::text),
+	SORTABLE_STRING(SortableStringBinding::new, BindingType::text),
+	PREFIXED(() -> new PrefixedBinding<String>(new byte[] { 1, 2 }, new StringBinding()), BindingType::text),
+	COMPRESSING(() -> new CompressingBinding<String>(new Utf8Binding()), BindingType::text),
+	INTEGER(IntegerBinding::new, (index, size) -> index),
+	SORTABLE_INTEGER(SortableIntegerBinding::new, (index, size) -> index),
+	VAR_INTEGER(VarIntegerBinding::new, (index, size) -> index),
+	SORTABLE_VAR_INTEGER(SortableVarIntegerBinding::new, (index, size) -> index),
+	LONG(LongBinding::new, (index, size) -> (long) index),
+	SORTABLE_LONG(SortableLongBinding::new, (index, size) -> (long) index),
+	VAR_LONG(VarLongBinding::new, (index, size) -> (long) index),
+	SORTABLE_VAR_LONG(SortableVarLongBinding::new, (index, size) -> (long) index),
+	FLOAT(FloatBinding::new, (index, size) -> (float) index),
+	SORTABLE_FLOAT(SortableFloatBinding::new, (index, size) -> (float) index),
+	DOUBLE(DoubleBinding::new, (index, size) -> (double) index),
+	SORTABLE_DOUBLE(SortableDoubleBinding::new, (index, size) -> (double) index),
+	TUPLE(TupleBinding::new, (index, size) -> Tuple.of("tuple", (long) index, text(index, size))),
+	COMPACT(() -> new CompactBinding<Record>().register(1, Record.class), BindingType::record),
+	SERIALIZABLE(ObjectSerializableBinding<Record>::new, BindingType::record),
+	EXTERNALIZABLE(() -> new ObjectExternalizableBinding<ExternalizableRecord>(ExternalizableRecord.class),
+			(index, size) -> new ExternalizableRecord(text(index, size), index, 1370000000000L + index));
+
+	private static final int DIGITS = 10;
+	private static final String FILLER = "{\"name\":\"value\",\"count\":42,\"tags\":[\"leveldb\",\"map\"]},";
+
+	private interface ObjectFactory
+	{
+		Object create(int index, int size);
+	}
+
+	private final Supplier<EntryBinding<?>> bindingFactory;
+	private final ObjectFactory objectFactory;
+
+	private BindingType(Supplier<EntryBinding<?>> bindingFactory, ObjectFactory objectFactory)
+	{
+		this.bindingFactory = bindingFactory;
+		this.objectFactory = objectFactory;
+	}
+
+	/**
+	 * Creates a new instance of the binding
+	 * @return the binding
+	 */
+	@SuppressWarnings("unchecked")
+	public EntryBinding<Object> createBinding()
+	{
+		return (EntryBinding<Object>) bindingFactory.get();
+	}
+
+	/**
+	 * Returns whether the binding is an {@link OrderPreservingBinding}, so its keys can be compared as bytes
+	 * @return true if the bytes sort like the objects
+	 */
+	public boolean isOrderPreserving()
+	{
+		return createBinding() instanceof OrderPreservingBinding;
+	}
+
+	/**
+	 * Creates the object with the given index
+	 * @param index the index of the object, different indexes give different objects
+	 * @param size the approximate number of bytes of the serialized object, if the type has a variable size
+	 * @return the object
+	 */
+	public Object createObject(int index, int size)
+	{
+		return objectFactory.create(index, size);
+	}
+
+	/**
+	 * Returns the index, padded with zeros to {@value #DIGITS} digits so the Strings sort like the indexes, followed by
+	 * compressible JSON up to the size.
+	 */
+	private static String text(int index, int size)
+	{
+		StringBuilder text = new StringBuilder(Math.max(size, DIGITS));
+		String number = Integer.toString(index);
+		for (int i = number.length(); i < DIGITS; i++)
+		{
+			text.append('0');
+		}
+		text.append(number);
+		while (text.length() < size)
+		{
+			text.append(FILLER, 0, Math.min(FILLER.length(), size - text.length()));
+		}
+		return text.toString();
+	}
+
+	private static Record record(int index, int size)
+	{
+		return new Record(text(index, size), index, 1370000000000L + index);
+	}
+
+}
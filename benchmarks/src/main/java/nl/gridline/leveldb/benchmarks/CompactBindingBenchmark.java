@@ -0,0 +1,80 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.bindings.CompactBinding;
+import nl.gridline.leveldb.bindings.ObjectExternalizableBinding;
+import nl.gridline.leveldb.bindings.ObjectSerializableBinding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link CompactBinding} with the {@link ObjectSerializableBinding} and the
+ * {@link ObjectExternalizableBinding}, which write the same {@link Record}. A round trip serializes a record and reads
+ * it back, as a put() followed by a get() of the same value does; {@link BindingBenchmark} measures both directions
+ * on their own. CompactBindingTest checks that the compact form is several times smaller than Java serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactBindingBenchmark
+{
+
+	private static final int OBJECTS = 1024;
+
+	@Param({ "COMPACT", "SERIALIZABLE", "EXTERNALIZABLE" })
+	public BindingType binding;
+
+	@Param({ "16", "100" })
+	public int size;
+
+	private EntryBinding<Object> entryBinding;
+	private Object[] objects;
+
+	@Setup
+	public void createObjects()
+	{
+		entryBinding = binding.createBinding();
+		objects = new Object[OBJECTS];
+		for (int i = 0; i < OBJECTS; i++)
+		{
+			objects[i] = binding.createObject(i, size);
+		}
+	}
+
+	@Benchmark
+	public Object roundTrip(Position position)
+	{
+		return entryBinding.deserialize(entryBinding.serialize(objects[position.next(OBJECTS - 1)]));
+	}
+
+}
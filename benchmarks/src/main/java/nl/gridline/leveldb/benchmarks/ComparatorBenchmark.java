@@ -0,0 +1,104 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.LevelDBStoredSortedMap;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DBComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link BytewiseDBComparator} with the {@link LevelDBStoredSortedMap.BindedDBComparator}, which
+ * deserializes both keys, on the keys of the order preserving bindings. LevelDB calls the comparator for every key it
+ * passes while writing, seeking and compacting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparatorBenchmark
+{
+
+	private static final int KEYS = 1024;
+
+	public enum ComparatorType
+	{
+		BYTEWISE, BINDED
+	}
+
+	@Param({ "SORTABLE_STRING", "SORTABLE_LONG", "SORTABLE_VAR_LONG", "SORTABLE_DOUBLE", "TUPLE" })
+	public BindingType keyBinding;
+
+	@Param
+	public ComparatorType comparator;
+
+	@Param({ "16" })
+	public int keySize;
+
+	private DBComparator dbcomparator;
+	private byte[][] keys;
+
+	@Setup
+	public void createKeys()
+	{
+		EntryBinding<Object> binding = keyBinding.createBinding();
+		if (comparator == ComparatorType.BYTEWISE)
+		{
+			dbcomparator = new BytewiseDBComparator();
+		}
+		else
+		{
+			dbcomparator = new LevelDBStoredSortedMap.BindedDBComparator<Object>(binding);
+		}
+
+		// Shuffled, so the comparisons do not always go the same way
+		List<byte[]> serialized = new ArrayList<byte[]>(KEYS);
+		for (int i = 0; i < KEYS; i++)
+		{
+			serialized.add(binding.serialize(keyBinding.createObject(i, keySize)));
+		}
+		Collections.shuffle(serialized, new Random(42));
+		keys = serialized.toArray(new byte[KEYS][]);
+	}
+
+	@Benchmark
+	public int compare(Position position)
+	{
+		int index = position.next(KEYS - 1);
+		return dbcomparator.compare(keys[index], keys[(index + 1) & (KEYS - 1)]);
+	}
+
+}
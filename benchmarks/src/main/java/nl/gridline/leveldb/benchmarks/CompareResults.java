@@ -0,0 +1,171 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two CSV result files written by {@link Main}, for example of the last release and the current build:
+ * 
+ * <pre>
+ * java -cp benchmarks.jar nl.gridline.leveldb.benchmarks.CompareResults old.csv new.csv [threshold %]
+ * </pre>
+ * 
+ * Prints the score of every benchmark that is in both files, and of its allocations per operation, with the relative
+ * change. A change is reported as a regression when the score is worse by more than the threshold (10% by default)
+ * and by more than the errors of both scores together. The exit status is 1 when there is a regression, so a build
+ * can fail on it.
+ */
+public class CompareResults
+{
+
+	private static final double DEFAULT_THRESHOLD = 10.0;
+	private static final String ALLOCATIONS = ":gc.alloc.rate.norm";
+	private static final String PARAM = "Param: ";
+	private static final String PACKAGE = CompareResults.class.getPackage().getName() + ".";
+
+	private static class Score
+	{
+		final double score;
+		final double error;
+		final String unit;
+
+		Score(double score, double error, String unit)
+		{
+			this.score = score;
+			this.error = Double.isNaN(error) ? 0 : error;
+			this.unit = unit;
+		}
+
+		boolean lowerIsBetter()
+		{
+			return unit.endsWith("/op");
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 2)
+		{
+			System.err.println("Usage: CompareResults <old.csv> <new.csv> [threshold %]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+		Map<String, Score> before = read(args[0]);
+		Map<String, Score> after = read(args[1]);
+
+		int regressions = 0;
+		System.out.println(String.format("%-100s %14s %14s %9s", "Benchmark", "Old", "New", "Change"));
+		for (Map.Entry<String, Score> entry : after.entrySet())
+		{
+			Score o = before.get(entry.getKey());
+			if (o == null)
+			{
+				continue;
+			}
+			Score n = entry.getValue();
+			double change = o.score == 0 ? 0 : 100.0 * (n.score - o.score) / o.score;
+			double worse = o.lowerIsBetter() ? change : -change;
+			boolean regression = worse > threshold && Math.abs(n.score - o.score) > o.error + n.error;
+			if (regression)
+			{
+				regressions++;
+			}
+			System.out.println(String.format("%-100s %14.3f %14.3f %8.1f%% %s%s", entry.getKey(), o.score, n.score,
+					change, n.unit, regression ? "  REGRESSION" : ""));
+		}
+		System.out.println(regressions + " regressions");
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Reads the scores of a file, by the name of the benchmark followed by its mode, number of threads and parameters.
+	 * Of the secondary results of the profilers only the allocations per operation are kept; the others depend on the
+	 * length of the run.
+	 */
+	private static Map<String, Score> read(String file) throws IOException
+	{
+		List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		Map<String, Score> scores = new LinkedHashMap<String, Score>();
+		if (lines.isEmpty())
+		{
+			return scores;
+		}
+		List<String> header = split(lines.get(0));
+		for (String line : lines.subList(1, lines.size()))
+		{
+			List<String> columns = split(line);
+			String benchmark = columns.get(0);
+			if (benchmark.indexOf(':') >= 0 && !benchmark.endsWith(ALLOCATIONS))
+			{
+				continue;
+			}
+			if (benchmark.startsWith(PACKAGE))
+			{
+				benchmark = benchmark.substring(PACKAGE.length());
+			}
+
+			// Sorted by name, so files with the parameters in another order still match
+			Map<String, String> params = new TreeMap<String, String>();
+			for (int i = 7; i < columns.size() && i < header.size(); i++)
+			{
+				if (header.get(i).startsWith(PARAM) && !columns.get(i).isEmpty())
+				{
+					params.put(header.get(i).substring(PARAM.length()), columns.get(i));
+				}
+			}
+			String key = benchmark + " " + columns.get(1) + " t=" + columns.get(2) + " " + params;
+			scores.put(key, new Score(Double.parseDouble(columns.get(4)), Double.parseDouble(columns.get(5)),
+					columns.get(6)));
+		}
+		return scores;
+	}
+
+	private static List<String> split(String line)
+	{
+		List<String> columns = new ArrayList<String>();
+		StringBuilder column = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++)
+		{
+			char c = line.charAt(i);
+			if (c == '"')
+			{
+				quoted = !quoted;
+			}
+			else if (c == ',' && !quoted)
+			{
+				columns.add(column.toString());
+				column.setLength(0);
+			}
+			else
+			{
+				column.append(c);
+			}
+		}
+		columns.add(column.toString());
+		return columns;
+	}
+
+}
@@ -0,0 +1,182 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.LevelDBStoredMap;
+import nl.gridline.leveldb.StoredMap;
+import nl.gridline.leveldb.bindings.CompressingBinding;
+import nl.gridline.leveldb.bindings.SortableIntegerBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.CompressionType;
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.iq80.leveldb.util.Snappy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link CompressingBinding} with the block compression of LevelDB. Every invocation writes
+ * {@value #ENTRIES} small JSON documents to a new database and reads them all back; the size of the tables of the
+ * last database is printed at the end. The values are compressed one by one by the binding, with and without a
+ * dictionary, and a block of about 4 KB at a time by Snappy. The write-ahead log is never compressed by LevelDB, so
+ * only the binding makes it smaller; it is left out of the size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompressionBenchmark
+{
+
+	private static final int ENTRIES = 20000;
+
+	public enum Compression
+	{
+		NONE, SNAPPY_BLOCKS, DEFLATE, DEFLATE_DICTIONARY
+	}
+
+	@Param
+	public Compression compression;
+
+	private String[] documents;
+	private EntryBinding<String> valueBinding;
+	private File directory;
+	private DB db;
+	private long tableSize;
+
+	@Setup
+	public void createDocuments()
+	{
+		if (compression == Compression.SNAPPY_BLOCKS && !Snappy.available())
+		{
+			throw new IllegalStateException("Snappy is not on the classpath");
+		}
+
+		// The dictionary is trained on other documents than the benchmark writes
+		Random random = new Random(7);
+		StringBinding binding = new StringBinding();
+		List<byte[]> samples = new ArrayList<byte[]>();
+		for (int i = 0; i < 1000; i++)
+		{
+			samples.add(binding.serialize(document(random, i)));
+		}
+		switch (compression)
+		{
+			case DEFLATE:
+				valueBinding = new CompressingBinding<String>(binding);
+				break;
+			case DEFLATE_DICTIONARY:
+				valueBinding = new CompressingBinding<String>(binding, 0, Deflater.BEST_SPEED,
+						CompressingBinding.trainDictionary(samples, 8 << 10));
+				break;
+			default:
+				valueBinding = binding;
+		}
+
+		random = new Random(42);
+		documents = new String[ENTRIES];
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			documents[i] = document(random, i);
+		}
+	}
+
+	private static String document(Random random, int i)
+	{
+		return "{\"id\":" + i + ",\"device\":\"sensor-" + random.nextInt(100) + "\",\"type\":\"temperature\""
+				+ ",\"unit\":\"celsius\",\"value\":" + random.nextInt(4000) / 100.0 + ",\"timestamp\":"
+				+ (1370000000000L + i * 1000L + random.nextInt(1000)) + ",\"status\":\""
+				+ (random.nextInt(10) == 0 ? "warning" : "ok") + "\"}";
+	}
+
+	@Setup(Level.Invocation)
+	public void openDB() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.compressionType(compression == Compression.SNAPPY_BLOCKS ? CompressionType.SNAPPY
+				: CompressionType.NONE);
+		options.writeBufferSize(256 * 1024);
+		db = factory.open(directory, options);
+	}
+
+	@TearDown(Level.Invocation)
+	public void closeDB() throws IOException
+	{
+		tableSize = 0;
+		for (File file : directory.listFiles())
+		{
+			if (file.getName().endsWith(".sst"))
+			{
+				tableSize += file.length();
+			}
+		}
+		db.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@TearDown
+	public void printTableSize()
+	{
+		System.out.println("Table size with " + compression + ": " + tableSize + " bytes");
+	}
+
+	@Benchmark
+	public int writeAndRead()
+	{
+		StoredMap<Integer, String> map = new LevelDBStoredMap<Integer, String>(db, new SortableIntegerBinding(),
+				valueBinding);
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			map.set(i, documents[i]);
+		}
+		int length = 0;
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			length += map.get(i).length();
+		}
+		return length;
+	}
+
+}
@@ -0,0 +1,96 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.LevelDBMapFactory;
+import nl.gridline.leveldb.MapOptions;
+import nl.gridline.leveldb.StoredMap;
+import nl.gridline.leveldb.bindings.LongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures merge() under contention: the threads increment the same {@link #keys} counters, so with few keys they
+ * regularly wait for the lock of a key. The map uses {@link #lockStripes} locks. Run with -t to change the number of
+ * threads, for example -t 1 and -t 16.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentMapBenchmark
+{
+
+	@Param({ "16", "1024" })
+	public int keys;
+
+	@Param({ "64" })
+	public int lockStripes;
+
+	private File directory;
+	private StoredMap<String, Long> map;
+	private String[] counters;
+
+	@Setup
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createMap(directory, new StringBinding(), new LongBinding(),
+				new MapOptions().lockStripes(lockStripes));
+		counters = new String[keys];
+		for (int i = 0; i < keys; i++)
+		{
+			counters[i] = "counter" + i;
+		}
+	}
+
+	@TearDown
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Benchmark
+	public Long merge()
+	{
+		return map.merge(counters[ThreadLocalRandom.current().nextInt(keys)], 1L, Long::sum);
+	}
+
+}
@@ -0,0 +1,55 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * A {@link Record} that writes its own fields, for the
+ * {@link nl.gridline.leveldb.bindings.ObjectExternalizableBinding}.
+ */
+public class ExternalizableRecord extends Record implements Externalizable
+{
+
+	public ExternalizableRecord()
+	{
+	}
+
+	public ExternalizableRecord(String name, int count, long timestamp)
+	{
+		super(name, count, timestamp);
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException
+	{
+		out.writeUTF(name);
+		out.writeInt(count);
+		out.writeLong(timestamp);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException
+	{
+		name = in.readUTF();
+		count = in.readInt();
+		timestamp = in.readLong();
+	}
+
+}
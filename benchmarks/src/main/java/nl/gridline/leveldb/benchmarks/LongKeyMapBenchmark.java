@@ -0,0 +1,109 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.LongKeyStoredMap;
+import nl.gridline.leveldb.bindings.IntegerBinding;
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the lookups of a {@link LongKeyStoredMap} by a primitive key and by a boxed key with direct reads of the
+ * serialized keys. The keys are too large for the Long cache, so every boxed lookup boxes; the GC profiler shows what
+ * get(long) saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongKeyMapBenchmark
+{
+
+	private static final int ENTRIES = 1 << 16;
+	private static final long FIRST_KEY = 1000000L;
+
+	private File directory;
+	private DB db;
+	private LongKeyStoredMap<Integer> map;
+	private byte[][] keys;
+
+	@Setup
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		Options options = new Options();
+		options.createIfMissing(true);
+		db = factory.open(directory, options);
+		map = new LongKeyStoredMap<Integer>(db, new IntegerBinding());
+
+		SortableLongBinding binding = new SortableLongBinding();
+		keys = new byte[ENTRIES][];
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			map.set(FIRST_KEY + i, Integer.valueOf(i));
+			keys[i] = binding.serialize(FIRST_KEY + i);
+		}
+	}
+
+	@TearDown
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Benchmark
+	public byte[] dbGet(Position position)
+	{
+		return db.get(keys[position.next(ENTRIES - 1)]);
+	}
+
+	@Benchmark
+	public Integer getBoxed(Position position)
+	{
+		return map.get((Object) (FIRST_KEY + position.next(ENTRIES - 1)));
+	}
+
+	@Benchmark
+	public Integer getPrimitive(Position position)
+	{
+		return map.get(FIRST_KEY + position.next(ENTRIES - 1));
+	}
+
+}
@@ -0,0 +1,77 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.Locale;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the command line options of JMH, see {@code java -jar benchmarks.jar -h}. Unless the
+ * command line says otherwise, the {@link GCProfiler} reports the allocations of every benchmark and the results are
+ * written as CSV to {@code jmh-result-<version>.csv}, so the results of two releases can be compared with
+ * {@link CompareResults}.
+ */
+public class Main
+{
+
+	public static void main(String[] args) throws Exception
+	{
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+				|| commandLine.shouldListProfilers() || commandLine.shouldListResultFormats())
+		{
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+		if (commandLine.getProfilers().isEmpty())
+		{
+			options.addProfiler(GCProfiler.class);
+		}
+		ResultFormatType format = ResultFormatType.CSV;
+		if (commandLine.getResultFormat().hasValue())
+		{
+			format = commandLine.getResultFormat().get();
+		}
+		else
+		{
+			options.resultFormat(format);
+		}
+		if (!commandLine.getResult().hasValue())
+		{
+			options.result("jmh-result-" + version() + "." + format.name().toLowerCase(Locale.ROOT));
+		}
+		new Runner(options.build()).run();
+	}
+
+	/**
+	 * Returns the version of leveldb-mapapi the benchmarks were built against, which the build writes into the
+	 * manifest of benchmarks.jar
+	 */
+	private static String version()
+	{
+		String version = Main.class.getPackage().getImplementationVersion();
+		return version != null ? version : "dev";
+	}
+
+}
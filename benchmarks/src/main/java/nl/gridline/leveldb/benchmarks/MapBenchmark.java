@@ -0,0 +1,263 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.LevelDBMapFactory;
+import nl.gridline.leveldb.LevelDBStoredSortedMap;
+import nl.gridline.leveldb.MapOptions;
+import nl.gridline.leveldb.StoredSortedMap;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the operations of a {@link StoredSortedMap} on a database that is filled with {@link #entries} entries
+ * before the measurement. The keys of the reads and writes are chosen at random; the writes overwrite existing keys,
+ * and the removes put the key back, so the size of the database does not depend on the length of the run. put() and
+ * remove() read the old value, set() and delete() do not. dbGet() reads the same keys directly from the
+ * DB, as a baseline for the cost of the bindings and the map. Run with -t to measure a map that is shared by several
+ * threads.
+ * <p>
+ * The database is opened with the {@link BytewiseDBComparator} when the key binding preserves the order, and with a
+ * {@link LevelDBStoredSortedMap.BindedDBComparator} otherwise, like
+ * {@link LevelDBMapFactory#createSortedMap(File, EntryBinding, EntryBinding)} does. The keys must be Comparable, so
+ * the Record types cannot be used as key binding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark
+{
+
+	private static final int MISSING_KEYS = 1024;
+	private static final int BATCHES = 64;
+	private static final int BATCH_SIZE = 100;
+	private static final int SCAN_LENGTH = 100;
+
+	@Param({ "100000" })
+	public int entries;
+
+	@Param({ "STRING", "SORTABLE_STRING", "SORTABLE_LONG" })
+	public BindingType keyBinding;
+
+	@Param({ "16" })
+	public int keySize;
+
+	@Param({ "STRING" })
+	public BindingType valueBinding;
+
+	@Param({ "100", "1000" })
+	public int valueSize;
+
+	@Param({ "false" })
+	public boolean streamingIterators;
+
+	private File directory;
+	private DB db;
+	private StoredSortedMap<Object, Object> map;
+	private Object[] keys;
+	private byte[][] serializedKeys;
+	private Object[] values;
+	private Object[] missingKeys;
+	private Map<Object, Object>[] batches;
+
+	@Setup
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+
+		EntryBinding<Object> kb = keyBinding.createBinding();
+		EntryBinding<Object> vb = valueBinding.createBinding();
+		DBComparator dbcomparator;
+		if (keyBinding.isOrderPreserving())
+		{
+			dbcomparator = new BytewiseDBComparator();
+		}
+		else
+		{
+			dbcomparator = new LevelDBStoredSortedMap.BindedDBComparator<Object>(kb);
+		}
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.comparator(dbcomparator);
+		db = factory.open(directory, options);
+		map = LevelDBMapFactory.createSortedMapForDB(db, dbcomparator, kb, vb, null,
+				new MapOptions().streamingIterators(streamingIterators));
+
+		keys = new Object[entries];
+		serializedKeys = new byte[entries][];
+		values = new Object[entries];
+		for (int i = 0; i < entries; i++)
+		{
+			keys[i] = keyBinding.createObject(i, keySize);
+			serializedKeys[i] = kb.serialize(keys[i]);
+			values[i] = valueBinding.createObject(i, valueSize);
+			map.set(keys[i], values[i]);
+		}
+
+		missingKeys = new Object[MISSING_KEYS];
+		for (int i = 0; i < MISSING_KEYS; i++)
+		{
+			missingKeys[i] = keyBinding.createObject(entries + i, keySize);
+		}
+
+		@SuppressWarnings("unchecked")
+		Map<Object, Object>[] batches = new Map[BATCHES];
+		for (int b = 0; b < BATCHES; b++)
+		{
+			batches[b] = new HashMap<Object, Object>();
+			for (int i = 0; i < BATCH_SIZE; i++)
+			{
+				int index = ThreadLocalRandom.current().nextInt(entries);
+				batches[b].put(keys[index], values[index]);
+			}
+		}
+		this.batches = batches;
+	}
+
+	@TearDown
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private int randomIndex()
+	{
+		return ThreadLocalRandom.current().nextInt(entries);
+	}
+
+	@Benchmark
+	public Object get()
+	{
+		return map.get(keys[randomIndex()]);
+	}
+
+	@Benchmark
+	public Object getMissing()
+	{
+		return map.get(missingKeys[randomIndex() & (MISSING_KEYS - 1)]);
+	}
+
+	@Benchmark
+	public byte[] dbGet()
+	{
+		return db.get(serializedKeys[randomIndex()]);
+	}
+
+	@Benchmark
+	public Object put()
+	{
+		int index = randomIndex();
+		return map.put(keys[index], values[index]);
+	}
+
+	@Benchmark
+	public void set()
+	{
+		int index = randomIndex();
+		map.set(keys[index], values[index]);
+	}
+
+	/**
+	 * Removes a key with remove(), which reads and deserializes the old value, and puts it back with set()
+	 */
+	@Benchmark
+	public Object removeAndSet()
+	{
+		int index = randomIndex();
+		Object old = map.remove(keys[index]);
+		map.set(keys[index], values[index]);
+		return old;
+	}
+
+	/**
+	 * Removes a key with delete(), which does not read the old value, and puts it back with set()
+	 */
+	@Benchmark
+	public void deleteAndSet()
+	{
+		int index = randomIndex();
+		map.delete(keys[index]);
+		map.set(keys[index], values[index]);
+	}
+
+	@Benchmark
+	public void putAll()
+	{
+		map.putAll(batches[randomIndex() & (BATCHES - 1)]);
+	}
+
+	/**
+	 * Reads {@value #SCAN_LENGTH} entries from a random key on, through subMap()
+	 */
+	@Benchmark
+	public void subMapScan(Blackhole blackhole)
+	{
+		int index = ThreadLocalRandom.current().nextInt(entries - SCAN_LENGTH);
+		for (Entry<Object, Object> entry : map.subMap(keys[index], keys[index + SCAN_LENGTH]).entrySet())
+		{
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+	/**
+	 * Reads all entries. The time is reported per iteration over the whole map.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Measurement(iterations = 10)
+	public void iterate(Blackhole blackhole)
+	{
+		for (Entry<Object, Object> entry : map.entrySet())
+		{
+			blackhole.consume(entry.getValue());
+		}
+	}
+
+}
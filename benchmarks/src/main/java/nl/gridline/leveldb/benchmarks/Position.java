@@ -0,0 +1,41 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The position of a thread in the prepared objects of a benchmark, so every invocation uses the next object without
+ * the cost of a random number.
+ */
+@State(Scope.Thread)
+public class Position
+{
+
+	private int next;
+
+	/**
+	 * Returns the next index
+	 * @param mask the number of prepared objects minus one, which must be a power of two minus one
+	 * @return the next index, between 0 and mask
+	 */
+	public int next(int mask)
+	{
+		return next++ & mask;
+	}
+
+}
@@ -0,0 +1,64 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.io.Serializable;
+
+import nl.gridline.leveldb.bindings.CompactBinding.Tag;
+
+/**
+ * The object that the object bindings of {@link BindingType} write: a String of about the requested size and two
+ * numbers.
+ */
+public class Record implements Serializable
+{
+
+	private static final long serialVersionUID = 1L;
+
+	@Tag(1)
+	protected String name;
+	@Tag(2)
+	protected int count;
+	@Tag(3)
+	protected long timestamp;
+
+	public Record()
+	{
+	}
+
+	public Record(String name, int count, long timestamp)
+	{
+		this.name = name;
+		this.count = count;
+		this.timestamp = timestamp;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int getCount()
+	{
+		return count;
+	}
+
+	public long getTimestamp()
+	{
+		return timestamp;
+	}
+
+}
@@ -0,0 +1,178 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.LevelDBMapFactory;
+import nl.gridline.leveldb.StoredSortedMap;
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.impl.DbImpl;
+import org.iq80.leveldb.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares a database whose comparator shortens the keys in the index blocks with one that stores them in full. Both
+ * databases contain the same long keys, so the difference in the size of their tables is the difference in the size
+ * of their index blocks, give or take the progress of the compactions. The size is printed when the database is
+ * created; the random reads show what the smaller index blocks do for lookups. The iq80 implementation has no block
+ * cache, so the lookup time stands in for its hit rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeparatorBenchmark
+{
+
+	private static final int ENTRIES = 200000;
+	private static final int KEYS = 1024;
+
+	public enum IndexKeys
+	{
+		SHORTENED, FULL
+	}
+
+	@Param
+	public IndexKeys indexKeys;
+
+	private File directory;
+	private DB db;
+	private StoredSortedMap<String, String> map;
+	private String[] keys;
+
+	@Setup
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		DBComparator comparator = new BytewiseDBComparator();
+		if (indexKeys == IndexKeys.FULL)
+		{
+			comparator = new BytewiseDBComparator()
+			{
+				@Override
+				public byte[] findShortestSeparator(byte[] start, byte[] limit)
+				{
+					return start;
+				}
+
+				@Override
+				public byte[] findShortSuccessor(byte[] key)
+				{
+					return key;
+				}
+			};
+		}
+
+		// Small blocks and write buffers, so the index blocks are a noticeable part of the tables
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.comparator(comparator);
+		options.blockSize(1024);
+		options.writeBufferSize(256 * 1024);
+		db = factory.open(directory, options);
+		map = LevelDBMapFactory.createSortedMapForDB(db, comparator, new SortableStringBinding(),
+				new StringBinding());
+
+		EntryBinding<String> keyBinding = new SortableStringBinding();
+		EntryBinding<String> valueBinding = new StringBinding();
+		for (int i = 0; i < ENTRIES; i++)
+		{
+			db.put(keyBinding.serialize(key(i)), valueBinding.serialize("value" + i));
+		}
+
+		// The iq80 implementation can fail to find a table which a running compaction has just removed, so nothing is
+		// read until the compactions are finished
+		try
+		{
+			((DbImpl) db).suspendCompactions();
+		}
+		catch (InterruptedException e)
+		{
+			throw new IOException(e);
+		}
+		System.out.println("Table size with " + indexKeys + " index keys: " + tableSize() + " bytes");
+
+		// Spread over the whole database
+		keys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++)
+		{
+			keys[i] = key((int) ((long) i * ENTRIES / KEYS));
+		}
+	}
+
+	@TearDown
+	public void closeMap() throws IOException
+	{
+		((DbImpl) db).resumeCompactions();
+		db.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	/**
+	 * A long key with a hashed prefix, like a user or document id. Keys which only differ in their last bytes, such as
+	 * sequence numbers, leave nothing to shorten.
+	 */
+	private static String key(int i)
+	{
+		return String.format("%016x/profile/settings/%08d", i * 0x9E3779B97F4A7C15L, i);
+	}
+
+	private long tableSize()
+	{
+		long size = 0;
+		for (File file : directory.listFiles())
+		{
+			if (file.getName().endsWith(".sst"))
+			{
+				size += file.length();
+			}
+		}
+		return size;
+	}
+
+	@Benchmark
+	public String get(Position position)
+	{
+		return map.get(keys[position.next(KEYS - 1)]);
+	}
+
+}
@@ -0,0 +1,113 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.bindings.Utf8Binding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link Utf8Binding}, with and without its cache of short Strings, with the {@link StringBinding}, on
+ * 1024 hot short keys of which one in ten is not ASCII, and on values of 4 KB, ASCII and mixed. With a default
+ * charset other than UTF-8 the {@link StringBinding} does not even store the mixed values correctly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8BindingBenchmark
+{
+
+	private static final int KEYS = 1024;
+
+	public enum StringBindingType
+	{
+		STRING, UTF8, UTF8_CACHED
+	}
+
+	public enum Text
+	{
+		KEYS, ASCII_VALUE, MIXED_VALUE
+	}
+
+	@Param
+	public StringBindingType binding;
+
+	@Param
+	public Text text;
+
+	private EntryBinding<String> entryBinding;
+	private String[] strings;
+
+	@Setup
+	public void createStrings()
+	{
+		switch (binding)
+		{
+			case STRING:
+				entryBinding = new StringBinding();
+				break;
+			case UTF8:
+				entryBinding = new Utf8Binding();
+				break;
+			default:
+				entryBinding = new Utf8Binding(4096);
+		}
+
+		if (text == Text.KEYS)
+		{
+			Random random = new Random(42);
+			strings = new String[KEYS];
+			for (int i = 0; i < KEYS; i++)
+			{
+				strings[i] = (i % 10 == 0 ? "caf\u00e9:" : "user:") + random.nextInt(1000000);
+			}
+			return;
+		}
+
+		StringBuilder value = new StringBuilder();
+		while (value.length() < 4096)
+		{
+			value.append(text == Text.ASCII_VALUE ? "The quick brown fox jumps over the lazy dog. "
+					: "Le c\u0153ur a ses raisons \u2014 que la raison ne conna\u00eet point. ");
+		}
+		strings = new String[] { value.toString() };
+	}
+
+	@Benchmark
+	public String roundTrip(Position position)
+	{
+		return entryBinding.deserialize(entryBinding.serialize(strings[position.next(strings.length - 1)]));
+	}
+
+}
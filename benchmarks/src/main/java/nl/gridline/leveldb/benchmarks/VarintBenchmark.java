@@ -0,0 +1,78 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import nl.gridline.leveldb.EntryBinding;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the variable length bindings with the fixed width bindings on small ids and counters: half of the values
+ * are ids up to a million, the other half counters that are mostly small. The average size of a serialized value is
+ * printed before the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VarintBenchmark
+{
+
+	private static final int VALUES = 1 << 16;
+
+	@Param({ "LONG", "SORTABLE_LONG", "VAR_LONG", "SORTABLE_VAR_LONG" })
+	public BindingType binding;
+
+	private EntryBinding<Object> entryBinding;
+	private Long[] values;
+
+	@Setup
+	public void createValues()
+	{
+		entryBinding = binding.createBinding();
+		Random random = new Random(42);
+		values = new Long[VALUES];
+		long size = 0;
+		for (int i = 0; i < VALUES; i++)
+		{
+			values[i] = i % 2 == 0 ? random.nextInt(1000000) : (long) Math.abs(random.nextGaussian() * 100);
+			size += entryBinding.serialize(values[i]).length;
+		}
+		System.out.println(String.format("%s: %.2f bytes per value", binding, (double) size / VALUES));
+	}
+
+	@Benchmark
+	public Object roundTrip(Position position)
+	{
+		return entryBinding.deserialize(entryBinding.serialize(values[position.next(VALUES - 1)]));
+	}
+
+}
@@ -0,0 +1,389 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An asynchronous view of a {@link LevelDBStoredMap}. The operations run on an executor and return a
+ * {@link CompletableFuture}, so the calling thread never waits for LevelDB.
+ * <p>
+ * Writes are queued and written by a single task on the executor, so all writes queued until that task runs are
+ * written as one WriteBatch. A write is visible to {@link #getAsync(Object)} once its future has completed.
+ * <p>
+ * At most {@code maxInFlight} operations can be in flight at the same time. Beyond that the calling thread does not
+ * wait: the future of the operation fails at once with a {@link RejectedExecutionException}, so a caller that produces
+ * work faster than LevelDB can handle it, such as an event loop, can back off instead of stalling or filling the
+ * memory with queued operations. {@link #hasCapacity()} checks for room without failing an operation.
+ * <p>
+ * The view uses {@link ReentrantLock}s rather than {@code synchronized}, so virtual threads that wait for a write
+ * are not pinned to their carrier thread.
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class AsyncStoredMap<K, V> implements Closeable
+{
+
+	public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+	private final LevelDBStoredMap<K, V> map;
+	private final Executor executor;
+	private final boolean ownsExecutor;
+	private final Semaphore inFlight;
+
+	// Guards the queued writes
+	private final ReentrantLock queueLock = new ReentrantLock();
+	// Held while a batch is taken from the queue and written, so batches are written in order
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private Map<ByteBuffer, byte[]> queuedWrites = new HashMap<ByteBuffer, byte[]>();
+	private List<CompletableFuture<Void>> queuedFutures = new ArrayList<CompletableFuture<Void>>();
+	private boolean writeScheduled = false;
+
+	/**
+	 * Creates an asynchronous view with its own executor, see {@link #newDefaultExecutor()}, which is shut down by
+	 * {@link #close()}.
+	 */
+	public AsyncStoredMap(LevelDBStoredMap<K, V> map)
+	{
+		this(map, newDefaultExecutor(), DEFAULT_MAX_IN_FLIGHT, true);
+	}
+
+	/**
+	 * @param executor the executor to run the operations on, which is not shut down by {@link #close()}
+	 * @param maxInFlight the maximum number of operations in flight
+	 */
+	public AsyncStoredMap(LevelDBStoredMap<K, V> map, Executor executor, int maxInFlight)
+	{
+		this(map, executor, maxInFlight, false);
+	}
+
+	private AsyncStoredMap(LevelDBStoredMap<K, V> map, Executor executor, int maxInFlight, boolean ownsExecutor)
+	{
+		if (maxInFlight <= 0)
+		{
+			throw new IllegalArgumentException("maxInFlight must be positive");
+		}
+		this.map = map;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.inFlight = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Creates an executor with a virtual thread per task when the JVM supports virtual threads, and a cached pool of
+	 * daemon threads otherwise.
+	 */
+	public static ExecutorService newDefaultExecutor()
+	{
+		try
+		{
+			// Java 21 and later
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return Executors.newCachedThreadPool(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "leveldb-mapapi async");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return the map this is a view of
+	 */
+	public LevelDBStoredMap<K, V> getMap()
+	{
+		return map;
+	}
+
+	public CompletableFuture<V> getAsync(final K key)
+	{
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		if (!acquire(future))
+		{
+			return future;
+		}
+
+		try
+		{
+			executor.execute(() -> {
+				try
+				{
+					future.complete(map.get(key));
+				}
+				catch (RuntimeException e)
+				{
+					future.completeExceptionally(e);
+				}
+			});
+		}
+		catch (RuntimeException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * Queues a put. Unlike {@link java.util.Map#put(Object, Object)} the old value is not returned.
+	 */
+	public CompletableFuture<Void> putAsync(K key, V value)
+	{
+		if (key == null || value == null)
+		{
+			return failed(new NullPointerException());
+		}
+
+		Map<ByteBuffer, byte[]> writes = new HashMap<ByteBuffer, byte[]>();
+		try
+		{
+			writes.put(ByteBuffer.wrap(map.byteKeyForPut(key)), map.byteValue(value));
+		}
+		catch (RuntimeException e)
+		{
+			return failed(e);
+		}
+		return queue(writes);
+	}
+
+	/**
+	 * Queues all entries of {@code m} as a single operation.
+	 */
+	public CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> m)
+	{
+		Map<ByteBuffer, byte[]> writes = new HashMap<ByteBuffer, byte[]>();
+		try
+		{
+			for (Map.Entry<? extends K, ? extends V> entry : m.entrySet())
+			{
+				if (entry.getKey() == null || entry.getValue() == null)
+				{
+					throw new NullPointerException();
+				}
+				writes.put(ByteBuffer.wrap(map.byteKeyForPut(entry.getKey())), map.byteValue(entry.getValue()));
+			}
+		}
+		catch (RuntimeException e)
+		{
+			return failed(e);
+		}
+		return queue(writes);
+	}
+
+	/**
+	 * Queues a remove. Unlike {@link java.util.Map#remove(Object)} the old value is not returned.
+	 */
+	public CompletableFuture<Void> removeAsync(K key)
+	{
+		if (key == null)
+		{
+			return failed(new NullPointerException());
+		}
+
+		Map<ByteBuffer, byte[]> writes = new HashMap<ByteBuffer, byte[]>();
+		try
+		{
+			writes.put(ByteBuffer.wrap(map.byteKeyForPut(key)), WriteBehindBuffer.DELETED);
+		}
+		catch (IllegalArgumentException e)
+		{
+			// Outside of the range of a sub-map, so there is nothing to remove
+			return CompletableFuture.completedFuture(null);
+		}
+		catch (RuntimeException e)
+		{
+			return failed(e);
+		}
+		return queue(writes);
+	}
+
+	private CompletableFuture<Void> queue(Map<ByteBuffer, byte[]> writes)
+	{
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		if (!acquire(future))
+		{
+			return future;
+		}
+
+		boolean schedule;
+		queueLock.lock();
+		try
+		{
+			queuedWrites.putAll(writes);
+			queuedFutures.add(future);
+			schedule = !writeScheduled;
+			writeScheduled = true;
+		}
+		finally
+		{
+			queueLock.unlock();
+		}
+
+		if (schedule)
+		{
+			try
+			{
+				executor.execute(() -> writeQueued());
+			}
+			catch (RuntimeException e)
+			{
+				failQueued(e);
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * Writes all queued writes as one batch
+	 */
+	private void writeQueued()
+	{
+		writeLock.lock();
+		try
+		{
+			Map<ByteBuffer, byte[]> writes;
+			List<CompletableFuture<Void>> futures;
+			queueLock.lock();
+			try
+			{
+				writes = queuedWrites;
+				futures = queuedFutures;
+				queuedWrites = new HashMap<ByteBuffer, byte[]>();
+				queuedFutures = new ArrayList<CompletableFuture<Void>>();
+				writeScheduled = false;
+			}
+			finally
+			{
+				queueLock.unlock();
+			}
+
+			if (futures.isEmpty())
+			{
+				return;
+			}
+
+			try
+			{
+				map.writeAll(writes);
+				for (CompletableFuture<Void> future : futures)
+				{
+					future.complete(null);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				for (CompletableFuture<Void> future : futures)
+				{
+					future.completeExceptionally(e);
+				}
+			}
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Drops the queued writes when no task could be scheduled to write them
+	 */
+	private void failQueued(RuntimeException exception)
+	{
+		List<CompletableFuture<Void>> futures;
+		queueLock.lock();
+		try
+		{
+			futures = queuedFutures;
+			queuedWrites = new HashMap<ByteBuffer, byte[]>();
+			queuedFutures = new ArrayList<CompletableFuture<Void>>();
+			writeScheduled = false;
+		}
+		finally
+		{
+			queueLock.unlock();
+		}
+		for (CompletableFuture<Void> future : futures)
+		{
+			future.completeExceptionally(exception);
+		}
+	}
+
+	/**
+	 * Checks whether another operation can be started. Other threads may start operations in the meantime, so an
+	 * operation started after this returned true can still be rejected.
+	 * @return true if fewer than {@code maxInFlight} operations are in flight
+	 */
+	public boolean hasCapacity()
+	{
+		return inFlight.availablePermits() > 0;
+	}
+
+	/**
+	 * Takes room for one more operation in flight, without waiting. The permit is released when the future completes.
+	 * @return false if {@code maxInFlight} operations are in flight, in which case the future has failed
+	 */
+	private boolean acquire(CompletableFuture<?> future)
+	{
+		if (!inFlight.tryAcquire())
+		{
+			future.completeExceptionally(new RejectedExecutionException("Too many operations in flight"));
+			return false;
+		}
+		future.whenComplete((result, exception) -> inFlight.release());
+		return true;
+	}
+
+	private static CompletableFuture<Void> failed(Throwable exception)
+	{
+		CompletableFuture<Void> future = new CompletableFuture<Void>();
+		future.completeExceptionally(exception);
+		return future;
+	}
+
+	/**
+	 * Writes the queued writes and shuts down the executor if it was created by this view. The map itself is not
+	 * closed.
+	 */
+	@Override
+	public void close()
+	{
+		writeQueued();
+		if (ownsExecutor)
+		{
+			((ExecutorService) executor).shutdown();
+		}
+	}
+
+}
@@ -14,18 +14,16 @@
 
 package nl.gridline.leveldb;
 
-import java.io.Closeable;
-import java.util.SortedMap;
-
-import org.iq80.leveldb.DB;
-
 /**
- * <p>
- * {@link SortedMap} interface on top of the {@link DB} implementation
- * </p>
- * @author <a href="mailto:job@gridline.nl">Job</a>
+ * Reports the progress of {@link LevelDBStoredMap#clear(ClearListener)}.
  */
-public interface StoredSortedMap<K, V> extends SortedMap<K, V>, Closeable
+public interface ClearListener
 {
 
+	/**
+	 * Called after every WriteBatch that is written
+	 * @param entries the number of entries cleared so far
+	 */
+	void cleared(long entries);
+
 }
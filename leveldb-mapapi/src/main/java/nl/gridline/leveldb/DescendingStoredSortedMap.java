@@ -0,0 +1,345 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The reverse order view of a {@link LevelDBStoredSortedMap}. Every method is forwarded to the ascending map with the
+ * direction swapped, so lowerKey() becomes higherKey(), headMap() becomes tailMap() and so on.
+ */
+public class DescendingStoredSortedMap<K, V> extends AbstractMap<K, V> implements StoredSortedMap<K, V>
+{
+
+	private final LevelDBStoredSortedMap<K, V> map;
+
+	public DescendingStoredSortedMap(LevelDBStoredSortedMap<K, V> map)
+	{
+		this.map = map;
+	}
+
+	@Override
+	public Comparator<? super K> comparator()
+	{
+		return Collections.reverseOrder(map.comparator());
+	}
+
+	@Override
+	public K firstKey()
+	{
+		return map.lastKey();
+	}
+
+	@Override
+	public K lastKey()
+	{
+		return map.firstKey();
+	}
+
+	@Override
+	public Map.Entry<K, V> lowerEntry(K key)
+	{
+		return map.higherEntry(key);
+	}
+
+	@Override
+	public K lowerKey(K key)
+	{
+		return map.higherKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> floorEntry(K key)
+	{
+		return map.ceilingEntry(key);
+	}
+
+	@Override
+	public K floorKey(K key)
+	{
+		return map.ceilingKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> ceilingEntry(K key)
+	{
+		return map.floorEntry(key);
+	}
+
+	@Override
+	public K ceilingKey(K key)
+	{
+		return map.floorKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> higherEntry(K key)
+	{
+		return map.lowerEntry(key);
+	}
+
+	@Override
+	public K higherKey(K key)
+	{
+		return map.lowerKey(key);
+	}
+
+	@Override
+	public Map.Entry<K, V> firstEntry()
+	{
+		return map.lastEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> lastEntry()
+	{
+		return map.firstEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> pollFirstEntry()
+	{
+		return map.pollLastEntry();
+	}
+
+	@Override
+	public Map.Entry<K, V> pollLastEntry()
+	{
+		return map.pollFirstEntry();
+	}
+
+	@Override
+	public StoredSortedMap<K, V> descendingMap()
+	{
+		return map;
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet()
+	{
+		return new NavigableKeySet<K>(this);
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet()
+	{
+		return map.navigableKeySet();
+	}
+
+	@Override
+	public StoredSortedMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive)
+	{
+		return map.subMap(toKey, toInclusive, fromKey, fromInclusive).descendingMap();
+	}
+
+	@Override
+	public StoredSortedMap<K, V> headMap(K toKey, boolean inclusive)
+	{
+		return map.tailMap(toKey, inclusive).descendingMap();
+	}
+
+	@Override
+	public StoredSortedMap<K, V> tailMap(K fromKey, boolean inclusive)
+	{
+		return map.headMap(fromKey, inclusive).descendingMap();
+	}
+
+	@Override
+	public StoredSortedMap<K, V> subMap(K fromKey, K toKey)
+	{
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> headMap(K toKey)
+	{
+		return headMap(toKey, false);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> tailMap(K fromKey)
+	{
+		return tailMap(fromKey, true);
+	}
+
+	@Override
+	public int size()
+	{
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return map.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value)
+	{
+		return map.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		return map.get(key);
+	}
+
+	@Override
+	public V put(K key, V value)
+	{
+		return map.put(key, value);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value)
+	{
+		return map.putIfAbsent(key, value);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value)
+	{
+		return map.remove(key, value);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue)
+	{
+		return map.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public V replace(K key, V value)
+	{
+		return map.replace(key, value);
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction)
+	{
+		return map.computeIfAbsent(key, mappingFunction);
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+	{
+		return map.computeIfPresent(key, remappingFunction);
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+	{
+		return map.compute(key, remappingFunction);
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+	{
+		return map.merge(key, value, remappingFunction);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> snapshot()
+	{
+		return map.snapshot().descendingMap();
+	}
+
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys)
+	{
+		return map.getAll(keys);
+	}
+
+	@Override
+	public void set(K key, V value)
+	{
+		map.set(key, value);
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		return map.remove(key);
+	}
+
+	@Override
+	public void delete(K key)
+	{
+		map.delete(key);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m)
+	{
+		map.putAll(m);
+	}
+
+	@Override
+	public void clear()
+	{
+		map.clear();
+	}
+
+	@Override
+	public void flush()
+	{
+		map.flush();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet()
+	{
+		return map.descendingEntrySet();
+	}
+
+	@Override
+	public Set<K> keySet()
+	{
+		return map.descendingKeys();
+	}
+
+	@Override
+	public Collection<V> values()
+	{
+		return map.descendingValues();
+	}
+
+	/**
+	 * Closes the underlying LevelDB database, see {@link LevelDBStoredMap#close()}.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		map.close();
+	}
+
+}
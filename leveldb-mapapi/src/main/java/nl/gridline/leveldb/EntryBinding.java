@@ -0,0 +1,70 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.util.Arrays;
+
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * {@link StoredMap} entry (de)serializer
+ * @author <a href="mailto:job@gridline.nl">Job</a>
+ * @param <K> object type to (de)serialize
+ */
+public interface EntryBinding<K>
+{
+	/**
+	 * Serializes {@code object} into a byte array
+	 * @param object some object
+	 * @return non null byte array
+	 */
+	byte[] serialize(K object);
+
+	/**
+	 * Deserializes {@code object} into {@code K}
+	 * @param object non null byte array
+	 * @return the original object, can be null if the byte array is empty
+	 */
+	K deserialize(byte[] object);
+
+	/**
+	 * Appends the same bytes as {@link #serialize(Object)} to {@code out}. Bindings that can write directly into the
+	 * stream override this, so a binding that wraps them, like {@link nl.gridline.leveldb.bindings.PrefixedBinding},
+	 * does not need an intermediate array.
+	 * @param object some object
+	 * @param out the stream to append to
+	 */
+	default void serializeInto(K object, FastOutputStream out)
+	{
+		out.write(serialize(object));
+	}
+
+	/**
+	 * Deserializes {@code length} bytes of {@code bytes}, starting at {@code offset}. Bindings that can read in place
+	 * override this, so a binding that wraps them does not need to copy the bytes.
+	 * @param bytes non null byte array
+	 * @param offset the index of the first byte
+	 * @param length the number of bytes
+	 * @return the original object, can be null if the length is 0
+	 */
+	default K deserialize(byte[] bytes, int offset, int length)
+	{
+		if (offset == 0 && length == bytes.length)
+		{
+			return deserialize(bytes);
+		}
+		return deserialize(Arrays.copyOfRange(bytes, offset, offset + length));
+	}
+}
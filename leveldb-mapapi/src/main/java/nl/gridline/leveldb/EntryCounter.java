@@ -0,0 +1,163 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static nl.gridline.leveldb.bindings.utils.Bytes.toBytes;
+import static nl.gridline.leveldb.bindings.utils.Bytes.toLong;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+/**
+ * Keeps the number of entries of a {@link StoredMap} in a reserved key of its database. The count is written in the
+ * same {@link WriteBatch} as the change that affects it, so it stays consistent with the entries after a crash.
+ * Writers must hold the lock of the counter from the moment they check whether a key exists until their batch is
+ * written.
+ */
+public class EntryCounter
+{
+
+	/**
+	 * The reserved key under which the number of entries is stored. Keys of the map must never serialize to this key.
+	 */
+	public static final byte[] COUNT_KEY = "\0leveldb-mapapi.count".getBytes();
+
+	private final DB db;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Creates a counter for the db. The entries are counted once if the db does not contain a count yet.
+	 * @param db The DB instance to count the entries of
+	 */
+	public EntryCounter(DB db)
+	{
+		this.db = db;
+		if (db.get(COUNT_KEY) == null)
+		{
+			rebuild();
+		}
+	}
+
+	public static boolean isCountKey(byte[] key)
+	{
+		return Arrays.equals(COUNT_KEY, key);
+	}
+
+	/**
+	 * @return the persisted number of entries
+	 */
+	public long get()
+	{
+		return get(new ReadOptions());
+	}
+
+	/**
+	 * @param readOptions the options to read the count with, for example to read it from a snapshot
+	 * @return the persisted number of entries
+	 */
+	public long get(ReadOptions readOptions)
+	{
+		byte[] count = db.get(COUNT_KEY, readOptions);
+		return count == null ? 0 : toLong(count);
+	}
+
+	public void lock()
+	{
+		lock.lock();
+	}
+
+	public void unlock()
+	{
+		lock.unlock();
+	}
+
+	/**
+	 * Writes the batch together with the count changed by delta. The caller must hold the lock.
+	 * @param batch the batch to write
+	 * @param delta the number of entries the batch adds, negative if it removes entries
+	 * @param writeOptions the options to write the batch with
+	 */
+	public void write(WriteBatch batch, long delta, WriteOptions writeOptions)
+	{
+		if (delta != 0)
+		{
+			batch.put(COUNT_KEY, toBytes(get() + delta));
+		}
+		db.write(batch, writeOptions);
+	}
+
+	/**
+	 * Counts the entries in the db and persists the result.
+	 * @return the number of entries
+	 */
+	public long rebuild()
+	{
+		lock();
+		try
+		{
+			long count = count();
+			db.put(COUNT_KEY, toBytes(count));
+			return count;
+		}
+		finally
+		{
+			unlock();
+		}
+	}
+
+	/**
+	 * Counts the entries in the db and compares the result to the persisted count.
+	 * @return true if the persisted count is correct
+	 */
+	public boolean verify()
+	{
+		lock();
+		try
+		{
+			return count() == get();
+		}
+		finally
+		{
+			unlock();
+		}
+	}
+
+	private long count()
+	{
+		long count = 0;
+		try (DBIterator i = db.iterator())
+		{
+			for (i.seekToFirst(); i.hasNext(); i.next())
+			{
+				if (!isCountKey(i.peekNext().getKey()))
+				{
+					count++;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,83 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed number of locks, of which every serialized key uses one, so writes to the same key are serialized while
+ * writes to most other keys can run at the same time. A map and its sub-maps share their locks.
+ */
+public class KeyLocks
+{
+
+	private final Lock[] locks;
+
+	/**
+	 * @param stripes the number of locks, rounded up to a power of two
+	 */
+	public KeyLocks(int stripes)
+	{
+		int size = 1;
+		while (size < stripes)
+		{
+			size <<= 1;
+		}
+		locks = new Lock[size];
+		for (int i = 0; i < locks.length; i++)
+		{
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * @return the lock of the key, which is not locked yet
+	 */
+	public Lock forKey(byte[] key)
+	{
+		return locks[indexOf(key)];
+	}
+
+	/**
+	 * @return the index of the lock of the key. Code that locks several keys at once takes their locks in the order of
+	 *         their indexes, so it cannot deadlock with other code doing the same.
+	 */
+	public int indexOf(byte[] key)
+	{
+		int hash = Arrays.hashCode(key);
+		hash ^= hash >>> 16;
+		return hash & (locks.length - 1);
+	}
+
+	/**
+	 * @return the lock with the index, which is not locked yet
+	 */
+	public Lock get(int index)
+	{
+		return locks[index];
+	}
+
+	/**
+	 * @return the number of locks
+	 */
+	public int size()
+	{
+		return locks.length;
+	}
+
+}
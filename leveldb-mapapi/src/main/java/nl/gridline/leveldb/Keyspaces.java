@@ -0,0 +1,520 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import nl.gridline.leveldb.bindings.PrefixedBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+/**
+ * Many named maps, keyspaces, in a single LevelDB database, so they share one log, memtable and set of files. Every
+ * keyspace gets a short prefix that is put in front of its keys. The prefixes are kept in a registry in the database
+ * itself, so a keyspace keeps its prefix when the database is opened again.
+ * <p>
+ * The maps of a keyspace are sorted maps that are bounded by the prefix, so iteration, size(), clear(), firstKey() and
+ * lastKey() seek to the prefix and never see the entries of other keyspaces. The database must sort its keys by their
+ * unsigned bytes, like the default comparator of LevelDB. Changes to several keyspaces can be written together with a
+ * {@link Batch}.
+ * <p>
+ * A keyspace has one map at a time, so every caller shares its value cache, locks and write-behind buffer: opening a
+ * keyspace that is open already returns the same map, which must be asked for with the same type of bindings and the
+ * same options. The map is released when every caller that opened it has closed it.
+ * <p>
+ * Entry counting is not supported, since the count is kept for the whole database.
+ */
+public class Keyspaces implements Closeable
+{
+
+	/**
+	 * The first byte of the keys of the registry, which maps the name of every keyspace to its prefix
+	 */
+	private static final byte REGISTRY = 0;
+
+	private static final BytewiseDBComparator COMPARATOR = new BytewiseDBComparator();
+
+	private final DB db;
+	private final Map<String, byte[]> prefixes = new TreeMap<String, byte[]>();
+	private final Map<String, KeyspaceMap<?, ?>> maps = new HashMap<String, KeyspaceMap<?, ?>>();
+	private int nextId = 1;
+
+	/**
+	 * @param db a database that sorts its keys by their unsigned bytes
+	 */
+	public Keyspaces(DB db)
+	{
+		this.db = db;
+		try (DBIterator i = db.iterator())
+		{
+			for (i.seek(new byte[] { REGISTRY }); i.hasNext() && i.peekNext().getKey()[0] == REGISTRY; i.next())
+			{
+				byte[] key = i.peekNext().getKey();
+				byte[] prefix = i.peekNext().getValue();
+				prefixes.put(new String(key, 1, key.length - 1, StandardCharsets.UTF_8), prefix);
+				nextId = Math.max(nextId, decodePrefix(prefix) + 1);
+			}
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	/**
+	 * @return the names of all keyspaces in the database
+	 */
+	public synchronized List<String> names()
+	{
+		return new ArrayList<String>(prefixes.keySet());
+	}
+
+	/**
+	 * Returns the prefix of a keyspace, registering the keyspace if it does not exist yet.
+	 * @param name the name of the keyspace
+	 * @return the prefix of the keys of the keyspace
+	 */
+	public synchronized byte[] prefix(String name)
+	{
+		byte[] prefix = prefixes.get(name);
+		if (prefix == null)
+		{
+			prefix = encodePrefix(nextId);
+			byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+			byte[] key = new byte[nameBytes.length + 1];
+			key[0] = REGISTRY;
+			System.arraycopy(nameBytes, 0, key, 1, nameBytes.length);
+			db.put(key, prefix, new WriteOptions().sync(true));
+			prefixes.put(name, prefix);
+			nextId++;
+		}
+		return prefix.clone();
+	}
+
+	/**
+	 * Returns a map that stores its entries in a keyspace. The map does not depend on the order of its keys, so any key
+	 * binding can be used.
+	 * @param name the name of the keyspace
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredMap. Closing it flushes its writes, but leaves the database open.
+	 * @throws IllegalArgumentException if the keyspace is open with other bindings or options
+	 */
+	public <K, V> StoredMap<K, V> createMap(String name, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding)
+	{
+		return createMap(name, keyBinding, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a map that stores its entries in a keyspace. The map does not depend on the order of its keys, so any key
+	 * binding can be used.
+	 * @param name the name of the keyspace
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredMap. Closing it flushes its writes, but leaves the database open.
+	 * @throws IllegalArgumentException if the keyspace is open with other bindings or options
+	 */
+	public <K, V> StoredMap<K, V> createMap(String name, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding,
+			MapOptions mapOptions)
+	{
+		return newMap(name, keyBinding, valueBinding, mapOptions);
+	}
+
+	/**
+	 * Returns a sorted map that stores its entries in a keyspace. The keys are sorted by their bytes, so the key binding
+	 * must be an {@link OrderPreservingBinding}.
+	 * @param name the name of the keyspace
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredSortedMap. Closing it flushes its writes, but leaves the database open.
+	 * @throws IllegalArgumentException if the keyspace is open with other bindings or options
+	 */
+	public <K, V> StoredSortedMap<K, V> createSortedMap(String name, OrderPreservingBinding<K> keyBinding,
+			EntryBinding<V> valueBinding)
+	{
+		return createSortedMap(name, keyBinding, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a sorted map that stores its entries in a keyspace. The keys are sorted by their bytes, so the key binding
+	 * must be an {@link OrderPreservingBinding}.
+	 * @param name the name of the keyspace
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredSortedMap. Closing it flushes its writes, but leaves the database open.
+	 * @throws IllegalArgumentException if the keyspace is open with other bindings or options
+	 */
+	public <K, V> StoredSortedMap<K, V> createSortedMap(String name, OrderPreservingBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions)
+	{
+		return newMap(name, keyBinding, valueBinding, mapOptions);
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized <K, V> KeyspaceMap<K, V> newMap(String name, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions)
+	{
+		if (mapOptions.countEntries())
+		{
+			throw new IllegalArgumentException("Entry counting is not supported in keyspaces");
+		}
+
+		KeyspaceMap<?, ?> open = maps.get(name);
+		if (open != null)
+		{
+			if (open.unprefixedKeyBinding.getClass() != keyBinding.getClass()
+					|| open.valueBinding.getClass() != valueBinding.getClass() || !open.options.equals(mapOptions))
+			{
+				throw new IllegalArgumentException("Keyspace " + name + " is open with other bindings or options");
+			}
+			open.references++;
+			return (KeyspaceMap<K, V>) open;
+		}
+
+		byte[] prefix = prefix(name);
+		KeyspaceMap<K, V> map = new KeyspaceMap<K, V>(name, keyBinding, db, new PrefixedBinding<K>(prefix, keyBinding),
+				valueBinding, mapOptions, ValueCache.forOptions(mapOptions, valueBinding), null, null, prefix,
+				successorOf(prefix));
+		maps.put(name, map);
+		return map;
+	}
+
+	/**
+	 * Releases a map when the last caller that opened it closes it
+	 */
+	private synchronized void release(KeyspaceMap<?, ?> map)
+	{
+		if (maps.get(map.name) != map || --map.references > 0)
+		{
+			return;
+		}
+		maps.remove(map.name);
+		if (map.writeBehind != null)
+		{
+			map.writeBehind.close();
+		}
+	}
+
+	/**
+	 * @return a new batch of changes to the maps of this database
+	 */
+	public Batch newBatch()
+	{
+		return new Batch();
+	}
+
+	/**
+	 * Flushes the writes of all maps and closes the database.
+	 */
+	@Override
+	public synchronized void close() throws IOException
+	{
+		for (LevelDBStoredMap<?, ?> map : maps.values())
+		{
+			if (map.writeBehind != null)
+			{
+				map.writeBehind.close();
+			}
+		}
+		maps.clear();
+		db.close();
+	}
+
+	/**
+	 * Encodes the id of a keyspace in 1, 2 or 4 bytes. The first byte tells the length, so no prefix is the start of
+	 * another prefix, and the first byte is never 0, which is the registry, or 0xFF.
+	 */
+	static byte[] encodePrefix(int id)
+	{
+		if (id <= 0)
+		{
+			throw new IllegalArgumentException("id must be positive");
+		}
+		if (id < 0x80)
+		{
+			return new byte[] { (byte) id };
+		}
+		int value = id - 0x80;
+		if (value < 0x4000)
+		{
+			return new byte[] { (byte) (0x80 | (value >>> 8)), (byte) value };
+		}
+		value -= 0x4000;
+		if (value < 0x3F000000)
+		{
+			return new byte[] { (byte) (0xC0 | (value >>> 24)), (byte) (value >>> 16), (byte) (value >>> 8),
+					(byte) value };
+		}
+		throw new IllegalStateException("Too many keyspaces");
+	}
+
+	/**
+	 * Returns the first key after all keys that start with a prefix. This is the prefix with its last byte incremented,
+	 * after dropping the trailing 0xFF bytes that cannot be incremented; the first byte of a prefix is never 0xFF. Note
+	 * that {@link BytewiseDBComparator#findShortSuccessor(byte[])} cannot be used, as it increments the first byte and
+	 * so would include the keyspaces with longer prefixes that start with the same byte.
+	 */
+	static byte[] successorOf(byte[] prefix)
+	{
+		int length = prefix.length;
+		while (prefix[length - 1] == (byte) 0xFF)
+		{
+			length--;
+		}
+		byte[] successor = Arrays.copyOf(prefix, length);
+		successor[length - 1]++;
+		return successor;
+	}
+
+	static int decodePrefix(byte[] prefix)
+	{
+		int first = prefix[0] & 0xFF;
+		if (first < 0x80)
+		{
+			return first;
+		}
+		if (first < 0xC0)
+		{
+			return 0x80 + (((first & 0x3F) << 8) | (prefix[1] & 0xFF));
+		}
+		return 0x4080 + (((first & 0x3F) << 24) | ((prefix[1] & 0xFF) << 16) | ((prefix[2] & 0xFF) << 8)
+				| (prefix[3] & 0xFF));
+	}
+
+	/**
+	 * A map in a keyspace. Closing it, or one of its sub-maps, flushes its writes. When every caller that opened the
+	 * keyspace has closed its map, the write-behind buffer is closed as well; the database is closed together with the
+	 * {@link Keyspaces}.
+	 */
+	private class KeyspaceMap<K, V> extends LevelDBStoredSortedMap<K, V>
+	{
+
+		/**
+		 * The name of the keyspace, or null for a sub-map
+		 */
+		private final String name;
+		private final EntryBinding<K> unprefixedKeyBinding;
+		private int references = 1;
+
+		public KeyspaceMap(String name, EntryBinding<K> unprefixedKeyBinding, DB db, EntryBinding<K> keyBinding,
+				EntryBinding<V> valueBinding, MapOptions options, ValueCache<V> cache, WriteBehindBuffer writeBehind,
+				KeyLocks locks, byte[] start, byte[] end)
+		{
+			this(name, unprefixedKeyBinding, db, keyBinding, valueBinding, options, cache, writeBehind, locks, start,
+					true, end, false);
+		}
+
+		private KeyspaceMap(String name, EntryBinding<K> unprefixedKeyBinding, DB db, EntryBinding<K> keyBinding,
+				EntryBinding<V> valueBinding, MapOptions options, ValueCache<V> cache, WriteBehindBuffer writeBehind,
+				KeyLocks locks, byte[] start, boolean startInclusive, byte[] end, boolean endInclusive)
+		{
+			super(db, COMPARATOR, keyBinding, valueBinding, null, options, null, cache, writeBehind, locks, null,
+					start, startInclusive, end, endInclusive);
+			this.name = name;
+			this.unprefixedKeyBinding = unprefixedKeyBinding;
+		}
+
+		@Override
+		protected LevelDBStoredSortedMap<K, V> newSubMap(byte[] start, boolean startInclusive, byte[] end,
+				boolean endInclusive)
+		{
+			return new KeyspaceMap<K, V>(null, unprefixedKeyBinding, db, keyBinding, valueBinding, options, cache,
+					writeBehind, locks, start, startInclusive, end, endInclusive);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			flush();
+			if (name != null)
+			{
+				release(this);
+			}
+		}
+
+		private Keyspaces keyspaces()
+		{
+			return Keyspaces.this;
+		}
+
+		/**
+		 * @return the prefix of the keyspace
+		 */
+		private byte[] prefix()
+		{
+			return ((PrefixedBinding<K>) keyBinding).getPrefix();
+		}
+
+	}
+
+	/**
+	 * Changes to the maps of one or more keyspaces that are written to the database in a single WriteBatch, so they are
+	 * applied all together or not at all. Pending write-behind writes of the maps are flushed before the batch is
+	 * written. While it is written the batch holds the {@link KeyLocks} of all keys it writes, so it is atomic with
+	 * respect to the single-key writes of the maps. A batch can be written once.
+	 */
+	public class Batch
+	{
+
+		// Maps are equal when their entries are, so they are told apart by identity
+		private final Map<KeyspaceMap<?, ?>, List<byte[]>> written =
+				new IdentityHashMap<KeyspaceMap<?, ?>, List<byte[]>>();
+		private final WriteBatch batch = db.createWriteBatch();
+		private boolean sync = false;
+
+		private Batch()
+		{
+		}
+
+		private <K, V> KeyspaceMap<K, V> keyspaceMap(StoredMap<K, V> map)
+		{
+			if (!(map instanceof KeyspaceMap) || ((KeyspaceMap<K, V>) map).keyspaces() != Keyspaces.this)
+			{
+				throw new IllegalArgumentException("The map is not a keyspace of this database");
+			}
+			KeyspaceMap<K, V> keyspaceMap = (KeyspaceMap<K, V>) map;
+			List<byte[]> keys = written.get(keyspaceMap);
+			if (keys == null)
+			{
+				keys = new ArrayList<byte[]>();
+				written.put(keyspaceMap, keys);
+				sync |= keyspaceMap.options.syncWrites();
+			}
+			return keyspaceMap;
+		}
+
+		/**
+		 * Adds a put to the batch
+		 * @param map a map, or sub-map, that was created by this {@link Keyspaces}
+		 * @return this batch
+		 */
+		public <K, V> Batch put(StoredMap<K, V> map, K key, V value)
+		{
+			KeyspaceMap<K, V> keyspaceMap = keyspaceMap(map);
+			byte[] byteKey = keyspaceMap.byteKeyForPut(key);
+			batch.put(byteKey, keyspaceMap.byteValue(value));
+			written.get(keyspaceMap).add(byteKey);
+			return this;
+		}
+
+		/**
+		 * Adds a delete to the batch
+		 * @param map a map, or sub-map, that was created by this {@link Keyspaces}
+		 * @return this batch
+		 */
+		public <K, V> Batch delete(StoredMap<K, V> map, K key)
+		{
+			KeyspaceMap<K, V> keyspaceMap = keyspaceMap(map);
+			byte[] byteKey = keyspaceMap.byteKey(key);
+			if (keyspaceMap.isKeyWithinBounds(byteKey))
+			{
+				batch.delete(byteKey);
+				written.get(keyspaceMap).add(byteKey);
+			}
+			return this;
+		}
+
+		/**
+		 * @return the locks of the written keys, ordered by the prefix of their keyspace and then by their index, so
+		 *         batches and single-key writes that lock the same keys cannot deadlock
+		 */
+		private List<Lock> locks()
+		{
+			Map<byte[], Map<Integer, Lock>> ordered = new TreeMap<byte[], Map<Integer, Lock>>(COMPARATOR);
+			for (Map.Entry<KeyspaceMap<?, ?>, List<byte[]>> entry : written.entrySet())
+			{
+				KeyLocks locks = entry.getKey().locks;
+				Map<Integer, Lock> stripes = ordered.computeIfAbsent(entry.getKey().prefix(),
+						prefix -> new TreeMap<Integer, Lock>());
+				for (byte[] key : entry.getValue())
+				{
+					int index = locks.indexOf(key);
+					stripes.put(index, locks.get(index));
+				}
+			}
+			List<Lock> result = new ArrayList<Lock>();
+			for (Map<Integer, Lock> stripes : ordered.values())
+			{
+				result.addAll(stripes.values());
+			}
+			return result;
+		}
+
+		/**
+		 * Writes all changes in the batch
+		 */
+		public void write()
+		{
+			List<Lock> locks = locks();
+			int locked = 0;
+			try
+			{
+				for (Lock lock : locks)
+				{
+					lock.lock();
+					locked++;
+				}
+				for (KeyspaceMap<?, ?> map : written.keySet())
+				{
+					map.flush();
+				}
+				db.write(batch, new WriteOptions().sync(sync));
+			}
+			finally
+			{
+				for (Map.Entry<KeyspaceMap<?, ?>, List<byte[]>> entry : written.entrySet())
+				{
+					ValueCache<?> cache = entry.getKey().cache;
+					if (cache != null)
+					{
+						for (byte[] key : entry.getValue())
+						{
+							cache.invalidate(key);
+						}
+					}
+				}
+				while (locked > 0)
+				{
+					locks.get(--locked).unlock();
+				}
+				try
+				{
+					batch.close();
+				}
+				catch (IOException e)
+				{
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,417 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Comparator;
+
+import nl.gridline.leveldb.bindings.LongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.comparators.ReservedKeyDBComparator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.Options;
+
+/**
+ * Provides various factory methods to create both LevelDBStoredMap and LevelDBStoredSortedMap.
+ * @author <a href="mailto:niels@gridline.nl">Niels Slot</a>
+ */
+public class LevelDBMapFactory
+{
+
+	/**
+	 * Returns a StoredMap which is backed by the db
+	 * @param db The DB instance to use
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredMap<K, V> createMapForDB(DB db, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding)
+	{
+		return createMapForDB(db, keyBinding, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by the db
+	 * @param db The DB instance to use
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredMap<K, V> createMapForDB(DB db, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions)
+	{
+		return createMapForDB(db, null, keyBinding, valueBinding, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by the db
+	 * @param db The DB instance to use
+	 * @param dbcomparator The DBComparator that was used to open the db, or null if it is not known. For a db opened
+	 *           with LevelDB's default comparator this is a {@link BytewiseDBComparator}.
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredMap<K, V> createMapForDB(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions)
+	{
+		return new LevelDBStoredMap<K, V>(db, dbcomparator, keyBinding, valueBinding, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by the db and uses Strings as keys
+	 * @param db The DB instance to use
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <V> StoredMap<String, V> createMapForDB(DB db, EntryBinding<V> valueBinding)
+	{
+		return createMapForDB(db, new StringBinding(), valueBinding);
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by a DB in the specified directory
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredMap<K, V> createMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding) throws IOException
+	{
+		return createMap(directory, keyBinding, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by a DB in the specified directory
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredMap<K, V> createMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions) throws IOException
+	{
+		Options options = new Options();
+		options.createIfMissing(true);
+
+		DB db = factory.open(directory, options);
+
+		// The default comparator of LevelDB compares the keys by their bytes
+		return createMapForDB(db, new BytewiseDBComparator(), keyBinding, valueBinding, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredMap which is backed by a DB in the specified directory and uses Strings as keys
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> StoredMap<String, V> createMap(File directory, EntryBinding<V> valueBinding) throws IOException
+	{
+		return createMap(directory, new StringBinding(), valueBinding);
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by the db and sorted using dbcomparator
+	 * @param db The DB instance to use
+	 * @param dbcomparator The DBComparator that was used to open the db. This DBComparator must match the comparator
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param comparator The mandatory comparator which needs to be supplied to a SortedMap. This implementation does not
+	 *           use it, instead make sure the DBComparator behaves correctly.
+	 * @return A StoredSortedMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMapForDB(DB db, DBComparator dbcomparator,
+			EntryBinding<K> keyBinding, EntryBinding<V> valueBinding, Comparator<? super K> comparator)
+	{
+		return createSortedMapForDB(db, dbcomparator, keyBinding, valueBinding, comparator, new MapOptions());
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by the db and sorted using dbcomparator
+	 * @param db The DB instance to use
+	 * @param dbcomparator The DBComparator that was used to open the db. This DBComparator must match the comparator
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param comparator The mandatory comparator which needs to be supplied to a SortedMap. This implementation does not
+	 *           use it, instead make sure the DBComparator behaves correctly.
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredSortedMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMapForDB(DB db, DBComparator dbcomparator,
+			EntryBinding<K> keyBinding, EntryBinding<V> valueBinding, Comparator<? super K> comparator,
+			MapOptions mapOptions)
+	{
+		return new LevelDBStoredSortedMap<K, V>(db, dbcomparator, keyBinding, valueBinding, comparator, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by the db and sorted using dbcomparator
+	 * @param db The DB instance to use
+	 * @param dbcomparator The DBComparator that was used to open the db. This DBComparator must match the natural
+	 *           ordering of the keys.
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredSortedMap. This Map can only work as long as the db is not closed.
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMapForDB(DB db, DBComparator dbcomparator,
+			EntryBinding<K> keyBinding, EntryBinding<V> valueBinding)
+	{
+		return createSortedMapForDB(db, dbcomparator, keyBinding, valueBinding, null);
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by a DB in the specified directory and sorted using the natural order of
+	 * the keys.
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredSortedMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding) throws IOException
+	{
+		return createSortedMap(directory, keyBinding, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by a DB in the specified directory and sorted using the natural order of
+	 * the keys. If the keyBinding is an {@link OrderPreservingBinding} the keys are compared as bytes, otherwise they are
+	 * deserialized for every comparison.
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredSortedMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions mapOptions) throws IOException
+	{
+		DBComparator dbcomparator;
+		if (keyBinding instanceof OrderPreservingBinding)
+		{
+			dbcomparator = new BytewiseDBComparator();
+		}
+		else
+		{
+			dbcomparator = new LevelDBStoredSortedMap.BindedDBComparator<K>(keyBinding);
+		}
+
+		return openSortedMap(directory, dbcomparator, keyBinding, valueBinding, null, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by a DB in the specified directory and sorted using the comparator.
+	 * Warning: do not open the same database with a different comparator!
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param comparator The comparator that is used to sort the map
+	 * @return A StoredSortedMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, Comparator<? super K> comparator) throws IOException
+	{
+		return createSortedMap(directory, keyBinding, valueBinding, comparator, new MapOptions());
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by a DB in the specified directory and sorted using the comparator.
+	 * Warning: do not open the same database with a different comparator!
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param comparator The comparator that is used to sort the map
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A StoredSortedMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <K, V> StoredSortedMap<K, V> createSortedMap(File directory, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, Comparator<? super K> comparator, MapOptions mapOptions) throws IOException
+	{
+		DBComparator dbcomparator = new LevelDBStoredSortedMap.WrappedDBComparator<K>(keyBinding, comparator);
+
+		return openSortedMap(directory, dbcomparator, keyBinding, valueBinding, comparator, mapOptions);
+	}
+
+	private static <K, V> StoredSortedMap<K, V> openSortedMap(File directory, DBComparator dbcomparator,
+			EntryBinding<K> keyBinding, EntryBinding<V> valueBinding, Comparator<? super K> comparator,
+			MapOptions mapOptions) throws IOException
+	{
+		if (mapOptions.countEntries())
+		{
+			dbcomparator = new ReservedKeyDBComparator(dbcomparator, EntryCounter.COUNT_KEY);
+		}
+
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.comparator(dbcomparator);
+
+		DB db = factory.open(directory, options);
+
+		return createSortedMapForDB(db, dbcomparator, keyBinding, valueBinding, comparator, mapOptions);
+	}
+
+	/**
+	 * Returns a StoredSortedMap which is backed by a DB in the specified directory and uses Strings as keys
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A StoredSortedMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> StoredSortedMap<String, V> createSortedMap(File directory, EntryBinding<V> valueBinding)
+			throws IOException
+	{
+		EntryBinding<String> keyBinding = new StringBinding();
+		return createSortedMap(directory, keyBinding, valueBinding);
+	}
+
+	/**
+	 * Returns a sorted map with long keys, which can also be read and written without boxing the keys, backed by a DB
+	 * in the specified directory, see {@link LongKeyStoredMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A LongKeyStoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> LongKeyStoredMap<V> createLongKeyMap(File directory, EntryBinding<V> valueBinding)
+			throws IOException
+	{
+		return createLongKeyMap(directory, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a sorted map with long keys, which can also be read and written without boxing the keys, backed by a DB
+	 * in the specified directory, see {@link LongKeyStoredMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A LongKeyStoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> LongKeyStoredMap<V> createLongKeyMap(File directory, EntryBinding<V> valueBinding,
+			MapOptions mapOptions) throws IOException
+	{
+		return new LongKeyStoredMap<V>(openBytewiseDB(directory, mapOptions), valueBinding, mapOptions);
+	}
+
+	/**
+	 * Returns a sorted map with int keys, which can also be read and written without boxing the keys, backed by a DB
+	 * in the specified directory, see {@link IntKeyStoredMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @return A IntKeyStoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> IntKeyStoredMap<V> createIntKeyMap(File directory, EntryBinding<V> valueBinding)
+			throws IOException
+	{
+		return createIntKeyMap(directory, valueBinding, new MapOptions());
+	}
+
+	/**
+	 * Returns a sorted map with int keys, which can also be read and written without boxing the keys, backed by a DB
+	 * in the specified directory, see {@link IntKeyStoredMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param valueBinding An EntryBinding implementation which is used to convert the values
+	 * @param mapOptions The options that change the behaviour of the map
+	 * @return A IntKeyStoredMap. The user is responsible for calling close() when the map is no longer needed.
+	 * @throws IOException
+	 */
+	public static <V> IntKeyStoredMap<V> createIntKeyMap(File directory, EntryBinding<V> valueBinding,
+			MapOptions mapOptions) throws IOException
+	{
+		return new IntKeyStoredMap<V>(openBytewiseDB(directory, mapOptions), valueBinding, mapOptions);
+	}
+
+	private static DB openBytewiseDB(File directory, MapOptions mapOptions) throws IOException
+	{
+		DBComparator dbcomparator = new BytewiseDBComparator();
+		if (mapOptions.countEntries())
+		{
+			dbcomparator = new ReservedKeyDBComparator(dbcomparator, EntryCounter.COUNT_KEY);
+		}
+
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.comparator(dbcomparator);
+
+		return factory.open(directory, options);
+	}
+
+	/**
+	 * Returns counters which are stored as longs in a DB in the specified directory, see {@link StoredCounterMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @return A StoredCounterMap. The user is responsible for calling close(), which also closes the DB, when the
+	 *         counters are no longer needed.
+	 * @throws IOException
+	 */
+	public static <K> StoredCounterMap<K> createCounterMap(File directory, EntryBinding<K> keyBinding)
+			throws IOException
+	{
+		return createCounterMap(directory, keyBinding, StoredCounterMap.DEFAULT_FLUSH_DELAY);
+	}
+
+	/**
+	 * Returns counters which are stored as longs in a DB in the specified directory, see {@link StoredCounterMap}
+	 * @param directory The directory in which the database is or will be created
+	 * @param keyBinding An EntryBinding implementation which is used to convert the keys
+	 * @param flushDelay The time in milliseconds between flushes of the pending increments
+	 * @return A StoredCounterMap. The user is responsible for calling close(), which also closes the DB, when the
+	 *         counters are no longer needed.
+	 * @throws IOException
+	 */
+	public static <K> StoredCounterMap<K> createCounterMap(File directory, EntryBinding<K> keyBinding,
+			long flushDelay) throws IOException
+	{
+		StoredMap<K, Long> map = createMap(directory, keyBinding, new LongBinding());
+		return new StoredCounterMap<K>(map, flushDelay, true);
+	}
+
+	/**
+	 * Opens a DB in the specified directory in which many named maps can be stored, see {@link Keyspaces}
+	 * @param directory The directory in which the database is or will be created
+	 * @return The Keyspaces of the database. The user is responsible for calling close() when it is no longer needed.
+	 * @throws IOException
+	 */
+	public static Keyspaces openKeyspaces(File directory) throws IOException
+	{
+		Options options = new Options();
+		options.createIfMissing(true);
+		options.comparator(new BytewiseDBComparator());
+
+		DB db = factory.open(directory, options);
+
+		return new Keyspaces(db);
+	}
+
+}
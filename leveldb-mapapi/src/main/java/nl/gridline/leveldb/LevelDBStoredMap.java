@@ -0,0 +1,2567 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.io.IOException;
+import java.io.Closeable;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.comparators.ReservedKeyDBComparator;
+import nl.gridline.leveldb.iterators.CloseableIterator;
+import nl.gridline.leveldb.iterators.MappingSpliterator;
+import nl.gridline.leveldb.iterators.SkippingDBIterator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+/**
+ * A Map implementation on top of LevelDB.
+ *
+ * Note that the following methods (besides the usual suspects) are O(n):
+ *
+ * <ul>
+ *     <li>{@link #clear()}</li>
+ *     <li>{@link #size()} (use {@link #isEmpty()} rather than <i>size() == 0)</i></li>
+ *     <li>All methods of the object returned by {@link #entrySet()} (except obtaining an iterator).</li>
+ *     <li>All methods of the object returned by {@link #keySet()} (except obtaining an iterator).</li>
+ *     <li>All methods of the object returned by {@link #values()} (except obtaining an iterator).</li>
+ * </ul>
+ *
+ * When {@link MapOptions#countEntries(boolean)} is enabled, size() only reads the persisted entry count.
+ *
+ * {@link #put(Object, Object)} and {@link #remove(Object)} read the old value to return it. Use {@link #set(Object,
+ * Object)} and {@link #delete(Object)} when the old value is not needed, or enable
+ * {@link MapOptions#blindWrites(boolean)} to make put() and remove() always return null.
+ *
+ * With {@link MapOptions#cacheSize(int)} set, get() keeps the values it read in a {@link ValueCache}.
+ *
+ * With {@link MapOptions#writeBehind(boolean)} enabled, writes are collected in a {@link WriteBehindBuffer} and
+ * written in groups. Lookups of a single key see the pending writes; everything that iterates over the map first
+ * flushes them.
+ *
+ * The Spliterators of the collection views read from a snapshot. On a map whose keys are sorted by their bytes they
+ * split the map into ranges of keys, so parallel streams scan the ranges on all cores.
+ *
+ * The map is a {@link java.util.concurrent.ConcurrentMap}. Writes to a single key, including put() and remove(), lock
+ * the key with one of the {@link KeyLocks} of the map, so putIfAbsent(), replace(), compute(), merge() and friends are
+ * atomic and end in a single write. get() never locks. Writes of many keys at once, such as putAll(), clear() and
+ * {@link AsyncStoredMap} batches, lock all their keys in the order of their locks.
+ *
+ * {@link #snapshot()} returns a read-only view that reads everything from one LevelDB snapshot.
+ *
+ * @author <a href="mailto:niels@gridline.nl">Niels Slot</a>
+ */
+public class LevelDBStoredMap<K, V> implements StoredMap<K, V>
+{
+
+	protected DB db;
+	protected final EntryBinding<K> keyBinding;
+	protected final EntryBinding<V> valueBinding;
+	protected final MapOptions options;
+	protected final EntryCounter counter;
+	protected final ValueCache<V> cache;
+	protected final WriteBehindBuffer writeBehind;
+	protected final KeyLocks locks;
+	protected final Snapshot snapshot;
+	// The comparator the database was opened with, or null if it is not known
+	protected final DBComparator dbcomparator;
+
+	// Shared by all reads and writes, so they do not allocate new options; they must not be changed
+	private final ReadOptions readOptions;
+	private final WriteOptions writeOptions;
+
+	public LevelDBStoredMap(DB db, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding)
+	{
+		this(db, keyBinding, valueBinding, new MapOptions());
+	}
+
+	public LevelDBStoredMap(DB db, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding, MapOptions options)
+	{
+		this(db, null, keyBinding, valueBinding, options);
+	}
+
+	/**
+	 * @param dbcomparator the DBComparator that was used to open the db, or null if it is not known. When it is known
+	 *        {@link #getAll(Collection)} reads the keys in database order with a single iterator.
+	 */
+	public LevelDBStoredMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding, EntryBinding<V> valueBinding,
+			MapOptions options)
+	{
+		this(db, dbcomparator, keyBinding, valueBinding, options, options.countEntries() ? new EntryCounter(db) : null,
+				ValueCache.forOptions(options, valueBinding), null, null, null);
+	}
+
+	/**
+	 * @param writeBehind the write-behind buffer of the map this map is a view of, or null to create one when
+	 *        {@link MapOptions#writeBehind(boolean)} is enabled
+	 * @param locks the locks of the map this map is a view of, or null to create them
+	 * @param snapshot the snapshot that a read-only view reads from, or null for a map that reads the live database
+	 */
+	protected LevelDBStoredMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, MapOptions options, EntryCounter counter, ValueCache<V> cache,
+			WriteBehindBuffer writeBehind, KeyLocks locks, Snapshot snapshot)
+	{
+		this.db = db;
+		this.dbcomparator = dbcomparator;
+		this.keyBinding = keyBinding;
+		this.valueBinding = valueBinding;
+		this.options = new MapOptions(options);
+		this.counter = counter;
+		this.cache = cache;
+		if (writeBehind == null && options.writeBehind())
+		{
+			writeBehind = new WriteBehindBuffer(options, new WriteBehindBuffer.Flusher()
+			{
+				@Override
+				public void write(Map<ByteBuffer, byte[]> writes)
+				{
+					writeBatch(writes);
+				}
+			});
+		}
+		this.writeBehind = writeBehind;
+		this.locks = locks != null ? locks : new KeyLocks(options.lockStripes());
+		this.snapshot = snapshot;
+		this.readOptions = new ReadOptions();
+		if (snapshot != null)
+		{
+			readOptions.snapshot(snapshot);
+		}
+		this.writeOptions = new WriteOptions().sync(options.syncWrites());
+	}
+
+	/**
+	 * Returns a read-only view of this map as it is now. The pending writes of write-behind are flushed first. All reads
+	 * of the view, including its iterators and sub-maps, use a single LevelDB snapshot, so the view never changes and
+	 * can be read from many threads without locking. The view does not use the value cache. Closing the view releases
+	 * the snapshot, not the database.
+	 */
+	@Override
+	public StoredMap<K, V> snapshot()
+	{
+		if (snapshot != null)
+		{
+			return this;
+		}
+		flush();
+		return new LevelDBStoredMap<K, V>(db, dbcomparator, keyBinding, valueBinding, snapshotOptions(), counter, null,
+				null, locks, db.getSnapshot());
+	}
+
+	/**
+	 * @return the options of the read-only views of this map
+	 */
+	protected MapOptions snapshotOptions()
+	{
+		return new MapOptions(options).writeBehind(false);
+	}
+
+	/**
+	 * @return the options to read with, which read from the snapshot of a read-only view. They are shared by all reads
+	 *         and must not be changed.
+	 */
+	protected ReadOptions getReadOptions()
+	{
+		return readOptions;
+	}
+
+	@Override
+	public void clear()
+	{
+		clear(null);
+	}
+
+	/**
+	 * Removes all entries from this map. The entries are deleted in WriteBatches of about
+	 * {@link MapOptions#clearBatchSize(int)} bytes, so clearing a large map does not build one large batch in memory.
+	 * Entries that are added while the map is being cleared may survive.
+	 * @param listener notified after every batch that is written, may be null
+	 */
+	public void clear(ClearListener listener)
+	{
+		long cleared = 0;
+		try (DBIterator i = getUnboundedDBIterator(new ReadOptions()))
+		{
+			byte[] stopKey = seekToClearRange(i);
+			Map<ByteBuffer, byte[]> deletes = new LinkedHashMap<ByteBuffer, byte[]>();
+			int batchSize = 0;
+			while (i.hasNext())
+			{
+				byte[] key = i.peekNext().getKey();
+				if (stopKey != null && Arrays.equals(key, stopKey))
+				{
+					break;
+				}
+				i.next();
+
+				deletes.put(ByteBuffer.wrap(key), WriteBehindBuffer.DELETED);
+				cleared++;
+				batchSize += key.length;
+				if (batchSize >= options.clearBatchSize())
+				{
+					writeLocked(deletes);
+					deletes.clear();
+					batchSize = 0;
+					if (listener != null)
+					{
+						listener.cleared(cleared);
+					}
+				}
+			}
+
+			if (batchSize > 0)
+			{
+				writeLocked(deletes);
+				if (listener != null)
+				{
+					listener.cleared(cleared);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	/**
+	 * Positions an iterator from {@link #getUnboundedDBIterator(ReadOptions)} at the first entry of this map, for
+	 * {@link #clear(ClearListener)}.
+	 * @return the key of the first entry after this map, or null when the map reaches the end of the database
+	 */
+	protected byte[] seekToClearRange(DBIterator i)
+	{
+		i.seekToFirst();
+		return null;
+	}
+
+	/**
+	 * Close the underlying LevelDB database. This should only be called if
+	 * the database will not be closed in another way. After this method
+	 * has been called this Map cannot be used anymore. A read-only view from
+	 * {@link #snapshot()} only releases its snapshot.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (snapshot != null)
+		{
+			snapshot.close();
+			return;
+		}
+		if (writeBehind != null)
+		{
+			writeBehind.close();
+		}
+		db.close();
+		db = null;
+	}
+
+	/**
+	 * Writes the pending writes of {@link MapOptions#writeBehind(boolean)} to the database. Does nothing when
+	 * write-behind is not enabled.
+	 */
+	@Override
+	public void flush()
+	{
+		if (writeBehind != null)
+		{
+			writeBehind.flush();
+		}
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		return getRawValue(byteKey(key)) != null;
+	}
+
+	@Override
+	public boolean containsValue(Object value)
+	{
+		byte[] byteValue = byteValue(value);
+		try (DBIterator i = getDBIterator())
+		{
+			for (i.seekToFirst(); i.hasNext(); i.next())
+			{
+				if (Arrays.equals(byteValue, i.peekNext().getValue()))
+				{
+					return true;
+				}
+			}
+		}
+		catch (IOException e)
+		{
+		}
+
+		return false;
+	}
+
+	@Override
+	public Set<java.util.Map.Entry<K, V>> entrySet()
+	{
+		return new EntrySet();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof Map))
+		{
+			return false;
+		}
+		Map<?, ?> other = (Map<?, ?>) obj;
+		return entrySet().equals(other.entrySet());
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		return getByteKey(byteKey(key));
+	}
+
+	protected V getByteKey(byte[] key)
+	{
+		if (writeBehind != null)
+		{
+			byte[] pending = writeBehind.get(key);
+			if (pending != null)
+			{
+				return pending == WriteBehindBuffer.DELETED ? null : valueBinding.deserialize(pending);
+			}
+		}
+
+		if (cache == null)
+		{
+			byte[] rawObject = db.get(key, getReadOptions());
+			if (rawObject == null)
+			{
+				return null;
+			}
+			else
+			{
+				return valueBinding.deserialize(rawObject);
+			}
+		}
+
+		V value = cache.get(key);
+		if (value != null)
+		{
+			return value;
+		}
+
+		long generation = cache.generation(key);
+		byte[] rawObject = db.get(key);
+		if (rawObject == null)
+		{
+			return null;
+		}
+		value = valueBinding.deserialize(rawObject);
+		cache.put(key, rawObject, value, generation);
+		return value;
+	}
+
+	/**
+	 * Looks up many keys at once. The keys that are not cached are read from a single snapshot: when the database
+	 * order of the keys is known ({@link #getByteKeyComparator()}) and they lie close together, they are sorted and
+	 * read with one iterator that only seeks forward, otherwise with point lookups, in parallel for large batches.
+	 * Large batches are deserialized in parallel as well.
+	 * @param keys the keys to look up
+	 * @return the keys that exist in this map with their values
+	 */
+	@Override
+	public Map<K, V> getAll(Collection<? extends K> keys)
+	{
+		Map<K, V> result = new HashMap<K, V>();
+		Set<ByteBuffer> seen = new HashSet<ByteBuffer>();
+		List<Lookup> lookups = new ArrayList<Lookup>();
+		for (K key : keys)
+		{
+			if (key == null)
+			{
+				throw new NullPointerException();
+			}
+
+			byte[] byteKey = byteKey(key);
+			if (!isKeyWithinBounds(byteKey) || !seen.add(ByteBuffer.wrap(byteKey)))
+			{
+				continue;
+			}
+
+			if (writeBehind != null)
+			{
+				byte[] pending = writeBehind.get(byteKey);
+				if (pending != null)
+				{
+					if (pending != WriteBehindBuffer.DELETED)
+					{
+						result.put(key, valueBinding.deserialize(pending));
+					}
+					continue;
+				}
+			}
+
+			if (cache != null)
+			{
+				V value = cache.get(byteKey);
+				if (value != null)
+				{
+					result.put(key, value);
+					continue;
+				}
+			}
+
+			lookups.add(new Lookup(key, byteKey, cache != null ? cache.generation(byteKey) : 0));
+		}
+
+		if (lookups.isEmpty())
+		{
+			return result;
+		}
+
+		readRawValues(lookups);
+
+		boolean parallel = lookups.size() >= PARALLEL_LOOKUPS;
+		(parallel ? lookups.parallelStream() : lookups.stream()).filter(lookup -> lookup.rawValue != null).forEach(
+				lookup -> lookup.value = valueBinding.deserialize(lookup.rawValue));
+
+		for (Lookup lookup : lookups)
+		{
+			if (lookup.rawValue != null)
+			{
+				result.put(lookup.key, lookup.value);
+				if (cache != null)
+				{
+					cache.put(lookup.byteKey, lookup.rawValue, lookup.value, lookup.generation);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The number of keys from which getAll() reads and deserializes in parallel
+	 */
+	private static final int PARALLEL_LOOKUPS = 1024;
+
+	/**
+	 * The average number of bytes in the database between the keys of getAll() above which they are read with point
+	 * lookups instead of an iterator
+	 */
+	private static final long SPARSE_BYTES_PER_KEY = 64 * 1024;
+
+	private void readRawValues(List<Lookup> lookups)
+	{
+		try (Snapshot ownSnapshot = snapshot == null ? db.getSnapshot() : null)
+		{
+			final ReadOptions readOptions = new ReadOptions().snapshot(snapshot == null ? ownSnapshot : snapshot);
+			final Comparator<byte[]> comparator = getByteKeyComparator();
+			if (comparator != null && lookups.size() > 1)
+			{
+				Collections.sort(lookups, (lookup1, lookup2) -> comparator.compare(lookup1.byteKey, lookup2.byteKey));
+			}
+
+			if (comparator == null || isSparse(lookups))
+			{
+				boolean parallel = lookups.size() >= PARALLEL_LOOKUPS;
+				(parallel ? lookups.parallelStream() : lookups.stream()).forEach(
+						lookup -> lookup.rawValue = db.get(lookup.byteKey, readOptions));
+				return;
+			}
+
+			try (DBIterator i = db.iterator(readOptions))
+			{
+				for (Lookup lookup : lookups)
+				{
+					// The iterator is at the first key after the previous lookup, so it only has to seek when that
+					// key comes before this one
+					if (!i.hasNext() || comparator.compare(i.peekNext().getKey(), lookup.byteKey) < 0)
+					{
+						i.seek(lookup.byteKey);
+					}
+					if (i.hasNext() && Arrays.equals(i.peekNext().getKey(), lookup.byteKey))
+					{
+						lookup.rawValue = i.next().getValue();
+					}
+				}
+			}
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	/**
+	 * @param lookups lookups sorted in database order
+	 */
+	private boolean isSparse(List<Lookup> lookups)
+	{
+		if (lookups.size() < 8)
+		{
+			return true;
+		}
+
+		try
+		{
+			long bytes = db.getApproximateSizes(new Range(lookups.get(0).byteKey,
+					lookups.get(lookups.size() - 1).byteKey))[0];
+			return bytes / lookups.size() > SPARSE_BYTES_PER_KEY;
+		}
+		catch (RuntimeException e)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * A key that getAll() reads from the database
+	 */
+	private class Lookup
+	{
+		private final K key;
+		private final byte[] byteKey;
+		private final long generation;
+		private byte[] rawValue;
+		private V value;
+
+		public Lookup(K key, byte[] byteKey, long generation)
+		{
+			this.key = key;
+			this.byteKey = byteKey;
+			this.generation = generation;
+		}
+	}
+
+	/**
+	 * @return the order of the keys in the database, or null if it is not known
+	 */
+	protected Comparator<byte[]> getByteKeyComparator()
+	{
+		return dbcomparator;
+	}
+
+	/**
+	 * @return true if the key belongs to this map
+	 */
+	protected boolean isKeyWithinBounds(byte[] byteKey)
+	{
+		return true;
+	}
+
+	/**
+	 * @return the serialized value of the key, including pending writes, or null if the key does not exist
+	 */
+	protected byte[] getRawValue(byte[] key)
+	{
+		if (writeBehind != null)
+		{
+			byte[] pending = writeBehind.get(key);
+			if (pending != null)
+			{
+				return pending == WriteBehindBuffer.DELETED ? null : pending;
+			}
+		}
+		return db.get(key, getReadOptions());
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+		for (Entry<K, V> entry : entrySet())
+		{
+			hash += entry.hashCode();
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		try (DBIterator i = getDBIterator())
+		{
+			i.seekToFirst();
+			return !i.hasNext();
+		}
+		catch (IOException e)
+		{
+		}
+		return true;
+	}
+
+	@Override
+	public Set<K> keySet()
+	{
+		return new KeySet();
+	}
+
+	@Override
+	public V put(K key, V value)
+	{
+		if (key == null || value == null)
+		{
+			throw new NullPointerException();
+		}
+
+		return putEntry(byteKeyForPut(key), value);
+	}
+
+	/**
+	 * Puts the key and returns the old value, or null when {@link MapOptions#blindWrites(boolean)} is enabled. The key
+	 * must be a new array, it is kept by the write.
+	 */
+	protected V putEntry(byte[] byteKey, V value)
+	{
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			if (options.blindWrites())
+			{
+				putByteKey(byteKey, byteValue(value));
+				return null;
+			}
+
+			byte[] oldValue;
+			if (writeBehind != null)
+			{
+				oldValue = getRawValue(byteKey);
+				writeBehind.put(byteKey, byteValue(value));
+				return oldValue == null ? null : valueBinding.deserialize(oldValue);
+			}
+
+			try (MapWriteBatch batch = newWriteBatch())
+			{
+				oldValue = db.get(byteKey);
+				batch.put(byteKey, byteValue(value), oldValue != null);
+				batch.write();
+			}
+			catch (IOException e)
+			{
+				oldValue = null;
+			}
+
+			return oldValue == null ? null : valueBinding.deserialize(oldValue);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void set(K key, V value)
+	{
+		if (key == null || value == null)
+		{
+			throw new NullPointerException();
+		}
+
+		putByteKey(byteKeyForPut(key), byteValue(value));
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m)
+	{
+		Map<ByteBuffer, byte[]> writes = new LinkedHashMap<ByteBuffer, byte[]>();
+		for (java.util.Map.Entry<? extends K, ? extends V> entry : m.entrySet())
+		{
+			writes.put(ByteBuffer.wrap(byteKeyForPut(entry.getKey())), byteValue(entry.getValue()));
+		}
+		writeAll(writes);
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException();
+		}
+
+		return removeEntry(byteKey(key));
+	}
+
+	/**
+	 * Deletes the key and returns the old value, or null when {@link MapOptions#blindWrites(boolean)} is enabled. The
+	 * key must be a new array, it is kept by the write.
+	 */
+	protected V removeEntry(byte[] byteKey)
+	{
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			if (options.blindWrites())
+			{
+				deleteByteKey(byteKey);
+				return null;
+			}
+
+			byte[] oldValue;
+			if (writeBehind != null)
+			{
+				oldValue = getRawValue(byteKey);
+				writeBehind.delete(byteKey);
+				return oldValue == null ? null : valueBinding.deserialize(oldValue);
+			}
+
+			try (MapWriteBatch batch = newWriteBatch())
+			{
+				oldValue = db.get(byteKey);
+				batch.delete(byteKey, oldValue != null);
+				batch.write();
+			}
+			catch (IOException e)
+			{
+				oldValue = null;
+			}
+
+			return oldValue == null ? null : valueBinding.deserialize(oldValue);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void delete(K key)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException();
+		}
+
+		deleteByteKey(byteKey(key));
+	}
+
+	@Override
+	public int size()
+	{
+		if (counter != null && !isBounded())
+		{
+			flush();
+			return (int) Math.min(counter.get(getReadOptions()), Integer.MAX_VALUE);
+		}
+
+		int c = 0;
+		try (DBIterator i = getDBIterator())
+		{
+			for (i.seekToFirst(); i.hasNext(); i.next())
+			{
+				c++;
+			}
+		}
+		catch (IOException e)
+		{
+		}
+		return c;
+	}
+
+	@Override
+	public Collection<V> values()
+	{
+		return new ValueCollection();
+	}
+
+	protected byte[] byteKey(Object key)
+	{
+		@SuppressWarnings("unchecked")
+		final K keyObject = (K) key;
+		return keyBinding.serialize(keyObject);
+	}
+
+	/**
+	 * Serializes a key that is about to be written. Subclasses can override this method to reject keys.
+	 * @throws IllegalArgumentException if entries are counted and the key serializes to {@link EntryCounter#COUNT_KEY}
+	 */
+	protected byte[] byteKeyForPut(Object key)
+	{
+		byte[] byteKey = byteKey(key);
+		if (counter != null && EntryCounter.isCountKey(byteKey))
+		{
+			throw new IllegalArgumentException("The key is reserved for the number of entries");
+		}
+		return byteKey;
+	}
+
+	protected byte[] byteValue(Object value)
+	{
+		@SuppressWarnings("unchecked")
+		final V valueObject = (V) value;
+		return valueBinding.serialize(valueObject);
+	}
+
+	protected DBIterator getDBIterator()
+	{
+		return getDBIterator(getReadOptions());
+	}
+
+	protected DBIterator getDBIterator(ReadOptions readOptions)
+	{
+		return getUnboundedDBIterator(readOptions);
+	}
+
+	/**
+	 * @return an iterator over all entries of the database, also when this map only covers part of it
+	 */
+	protected DBIterator getUnboundedDBIterator(ReadOptions readOptions)
+	{
+		flush();
+		DBIterator iterator = db.iterator(readOptions);
+		if (counter != null)
+		{
+			iterator = new SkippingDBIterator(iterator, EntryCounter.COUNT_KEY);
+		}
+		return iterator;
+	}
+
+	/**
+	 * @return true if this map only covers part of the database
+	 */
+	protected boolean isBounded()
+	{
+		return false;
+	}
+
+	/**
+	 * Counts the entries in the database and persists the result as the entry count.
+	 * @return the number of entries
+	 * @throws IllegalStateException if entry counting is not enabled
+	 */
+	public long rebuildSize()
+	{
+		if (counter == null)
+		{
+			throw new IllegalStateException("Entry counting is not enabled");
+		}
+		checkWritable();
+		flush();
+		return counter.rebuild();
+	}
+
+	/**
+	 * Counts the entries in the database and compares the result to the persisted entry count.
+	 * @return true if the persisted entry count is correct
+	 * @throws IllegalStateException if entry counting is not enabled
+	 */
+	public boolean verifySize()
+	{
+		if (counter == null)
+		{
+			throw new IllegalStateException("Entry counting is not enabled");
+		}
+		checkWritable();
+		flush();
+		return counter.verify();
+	}
+
+	/**
+	 * @return the cache of values, with its statistics, or null if {@link MapOptions#cacheSize(int)} is not set
+	 */
+	public ValueCache<V> getValueCache()
+	{
+		return cache;
+	}
+
+	protected MapWriteBatch newWriteBatch()
+	{
+		checkWritable();
+		return new MapWriteBatch();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException if this map is a read-only view on a snapshot
+	 */
+	protected void checkWritable()
+	{
+		if (snapshot != null)
+		{
+			throw new UnsupportedOperationException("A snapshot of a map is read-only");
+		}
+	}
+
+	/**
+	 * Puts the key without reading the old value. When entry counting is enabled the existence of the key is still
+	 * looked up, but the old value is not deserialized.
+	 */
+	protected void putByteKey(byte[] key, byte[] value)
+	{
+		Lock lock = lockKey(key);
+		try
+		{
+			if (writeBehind != null)
+			{
+				writeBehind.put(key, value);
+				return;
+			}
+
+			try (MapWriteBatch batch = newWriteBatch())
+			{
+				batch.put(key, value);
+				batch.write();
+			}
+			catch (IOException e)
+			{
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Deletes the key without returning the old value.
+	 */
+	protected void deleteByteKey(byte[] key)
+	{
+		Lock lock = lockKey(key);
+		try
+		{
+			if (writeBehind != null)
+			{
+				writeBehind.delete(key);
+				return;
+			}
+
+			try (MapWriteBatch batch = newWriteBatch())
+			{
+				batch.delete(key);
+				batch.write();
+			}
+			catch (IOException e)
+			{
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Locks the key, so no other single-key write can change it until the returned lock is unlocked.
+	 */
+	protected Lock lockKey(byte[] key)
+	{
+		Lock lock = locks.forKey(key);
+		lock.lock();
+		return lock;
+	}
+
+	/**
+	 * Replaces the value of a locked key with a single write.
+	 * @param value the new value, or null to delete the key
+	 * @param existed whether the key had a value before
+	 */
+	private void writeLocked(byte[] key, V value, boolean existed)
+	{
+		if (writeBehind != null)
+		{
+			if (value == null)
+			{
+				writeBehind.delete(key);
+			}
+			else
+			{
+				writeBehind.put(key, byteValue(value));
+			}
+			return;
+		}
+
+		try (MapWriteBatch batch = newWriteBatch())
+		{
+			if (value == null)
+			{
+				batch.delete(key, existed);
+			}
+			else
+			{
+				batch.put(key, byteValue(value), existed);
+			}
+			batch.write();
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value)
+	{
+		if (key == null || value == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKeyForPut(key);
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			if (oldValue == null)
+			{
+				writeLocked(byteKey, value, false);
+			}
+			return oldValue;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean remove(Object key, Object value)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKey(key);
+		if (value == null || !isKeyWithinBounds(byteKey))
+		{
+			return false;
+		}
+
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			if (oldValue == null || !oldValue.equals(value))
+			{
+				return false;
+			}
+			writeLocked(byteKey, null, true);
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue)
+	{
+		if (key == null || oldValue == null || newValue == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKey(key);
+		if (!isKeyWithinBounds(byteKey))
+		{
+			return false;
+		}
+
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V value = getByteKey(byteKey);
+			if (value == null || !value.equals(oldValue))
+			{
+				return false;
+			}
+			writeLocked(byteKey, newValue, true);
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V replace(K key, V value)
+	{
+		if (key == null || value == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKey(key);
+		if (!isKeyWithinBounds(byteKey))
+		{
+			return null;
+		}
+
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			if (oldValue != null)
+			{
+				writeLocked(byteKey, value, true);
+			}
+			return oldValue;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction)
+	{
+		if (key == null || mappingFunction == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKeyForPut(key);
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V value = getByteKey(byteKey);
+			if (value == null)
+			{
+				value = mappingFunction.apply(key);
+				if (value != null)
+				{
+					writeLocked(byteKey, value, false);
+				}
+			}
+			return value;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+	{
+		if (key == null || remappingFunction == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKey(key);
+		if (!isKeyWithinBounds(byteKey))
+		{
+			return null;
+		}
+
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			if (oldValue == null)
+			{
+				return null;
+			}
+			V value = remappingFunction.apply(key, oldValue);
+			writeLocked(byteKey, value, true);
+			return value;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+	{
+		if (key == null || remappingFunction == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKeyForPut(key);
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			V value = remappingFunction.apply(key, oldValue);
+			if (value != null || oldValue != null)
+			{
+				writeLocked(byteKey, value, oldValue != null);
+			}
+			return value;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+	{
+		if (key == null || value == null || remappingFunction == null)
+		{
+			throw new NullPointerException();
+		}
+
+		checkWritable();
+		byte[] byteKey = byteKeyForPut(key);
+		Lock lock = lockKey(byteKey);
+		try
+		{
+			V oldValue = getByteKey(byteKey);
+			V newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+			if (newValue != null || oldValue != null)
+			{
+				writeLocked(byteKey, newValue, oldValue != null);
+			}
+			return newValue;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes a group of serialized writes, through the write-behind buffer when it is enabled. The keys are locked
+	 * while they are written, so the writes do not interleave with single-key writes to the same keys.
+	 * @param writes the new value of every key, or {@link WriteBehindBuffer#DELETED} to delete it
+	 */
+	protected void writeAll(Map<ByteBuffer, byte[]> writes)
+	{
+		if (writeBehind == null)
+		{
+			writeLocked(writes);
+			return;
+		}
+
+		List<Lock> locked = lockKeys(writes.keySet());
+		try
+		{
+			for (Map.Entry<ByteBuffer, byte[]> write : writes.entrySet())
+			{
+				writeBehind.put(write.getKey().array(), write.getValue());
+			}
+		}
+		finally
+		{
+			unlockKeys(locked);
+		}
+	}
+
+	/**
+	 * Writes a group of serialized writes to the database as one WriteBatch, with their keys locked
+	 */
+	private void writeLocked(Map<ByteBuffer, byte[]> writes)
+	{
+		List<Lock> locked = lockKeys(writes.keySet());
+		try
+		{
+			writeBatch(writes);
+		}
+		finally
+		{
+			unlockKeys(locked);
+		}
+	}
+
+	/**
+	 * Locks the keys, so no single-key write can change them until the returned locks are unlocked. The locks are taken
+	 * in the order of their indexes, as {@link Keyspaces.Batch#write()} does, so writes of many keys cannot deadlock
+	 * with each other or with single-key writes. They must be taken before a {@link MapWriteBatch} takes the lock of
+	 * the counter.
+	 * @return the locks that were taken, in the order in which they were taken
+	 */
+	protected List<Lock> lockKeys(Collection<ByteBuffer> keys)
+	{
+		Map<Integer, Lock> stripes = new TreeMap<Integer, Lock>();
+		for (ByteBuffer key : keys)
+		{
+			int index = locks.indexOf(key.array());
+			stripes.put(index, locks.get(index));
+		}
+		List<Lock> locked = new ArrayList<Lock>(stripes.size());
+		for (Lock lock : stripes.values())
+		{
+			lock.lock();
+			locked.add(lock);
+		}
+		return locked;
+	}
+
+	/**
+	 * Unlocks the locks from {@link #lockKeys(Collection)} in the reverse order
+	 */
+	protected static void unlockKeys(List<Lock> locked)
+	{
+		for (int i = locked.size() - 1; i >= 0; i--)
+		{
+			locked.get(i).unlock();
+		}
+	}
+
+	/**
+	 * Writes a group of serialized writes as one WriteBatch. The caller holds the locks of the keys, or flushes writes
+	 * of the write-behind buffer that were made while holding them.
+	 */
+	private void writeBatch(Map<ByteBuffer, byte[]> writes)
+	{
+		try (MapWriteBatch batch = newWriteBatch())
+		{
+			for (Map.Entry<ByteBuffer, byte[]> write : writes.entrySet())
+			{
+				byte[] key = write.getKey().array();
+				if (write.getValue() == WriteBehindBuffer.DELETED)
+				{
+					batch.delete(key);
+				}
+				else
+				{
+					batch.put(key, write.getValue());
+				}
+			}
+			batch.write();
+		}
+		catch (IOException e)
+		{
+		}
+	}
+
+	/**
+	 * A WriteBatch through which all changes to the map are written. When entry counting is enabled it tracks how many
+	 * entries the batch adds or removes and holds the lock of the counter until it is closed. When the value cache is
+	 * enabled it invalidates the written keys after the batch is written.
+	 */
+	protected class MapWriteBatch implements Closeable
+	{
+		private WriteBatch batch;
+		private final Map<ByteBuffer, Boolean> present;
+		private final List<byte[]> written;
+		private long delta = 0;
+
+		public MapWriteBatch()
+		{
+			written = cache != null ? new ArrayList<byte[]>() : null;
+			if (counter != null)
+			{
+				counter.lock();
+				present = new HashMap<ByteBuffer, Boolean>();
+			}
+			else
+			{
+				present = null;
+			}
+			batch = db.createWriteBatch();
+		}
+
+		public void put(byte[] key, byte[] value)
+		{
+			batch.put(key, value);
+			track(key, true);
+			written(key);
+		}
+
+		/**
+		 * Puts a key of which the caller already knows whether it exists.
+		 */
+		public void put(byte[] key, byte[] value, boolean existed)
+		{
+			batch.put(key, value);
+			if (counter != null && !existed)
+			{
+				delta++;
+			}
+			written(key);
+		}
+
+		public void delete(byte[] key)
+		{
+			batch.delete(key);
+			track(key, false);
+			written(key);
+		}
+
+		/**
+		 * Deletes a key of which the caller already knows whether it exists.
+		 */
+		public void delete(byte[] key, boolean existed)
+		{
+			batch.delete(key);
+			if (counter != null && existed)
+			{
+				delta--;
+			}
+			written(key);
+		}
+
+		private void track(byte[] key, boolean exists)
+		{
+			if (counter == null)
+			{
+				return;
+			}
+
+			Boolean existed = present.put(ByteBuffer.wrap(key), exists);
+			if (existed == null)
+			{
+				existed = db.get(key) != null;
+			}
+			if (existed != exists)
+			{
+				delta += exists ? 1 : -1;
+			}
+		}
+
+		private void written(byte[] key)
+		{
+			if (written != null)
+			{
+				written.add(key);
+			}
+		}
+
+		public void write()
+		{
+			try
+			{
+				if (counter == null)
+				{
+					db.write(batch, writeOptions);
+				}
+				else
+				{
+					counter.write(batch, delta, writeOptions);
+				}
+			}
+			finally
+			{
+				if (written != null)
+				{
+					for (byte[] key : written)
+					{
+						cache.invalidate(key);
+					}
+					written.clear();
+				}
+			}
+		}
+
+		/**
+		 * Writes the changes so far and continues with a new, empty batch. The lock of the counter is kept.
+		 */
+		public void flush() throws IOException
+		{
+			write();
+			batch.close();
+			batch = db.createWriteBatch();
+			delta = 0;
+			if (present != null)
+			{
+				present.clear();
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			try
+			{
+				batch.close();
+			}
+			finally
+			{
+				if (counter != null)
+				{
+					counter.unlock();
+				}
+			}
+		}
+	}
+
+	protected RawEntryIterator newRawEntryIterator()
+	{
+		if (options.streamingIterators())
+		{
+			return new StreamingRawEntryIterator();
+		}
+		return new RawEntryIterator();
+	}
+
+	/**
+	 * Iterates over the raw entries by opening a new DBIterator for every call to {@link #hasNext()} and
+	 * {@link #next()}. This iterator does not hold on to any resources, so it does not need to be closed.
+	 */
+	protected class RawEntryIterator implements CloseableIterator<Entry<byte[], byte[]>>
+	{
+		protected byte[] currentKey = null;
+		protected boolean performedDelete = false;
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			Entry<byte[], byte[]> entry = computeNext();
+			if (entry == null)
+			{
+				throw new NoSuchElementException();
+			}
+			currentKey = entry.getKey();
+			performedDelete = false;
+			return entry;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			Entry<byte[], byte[]> entry = computeNext();
+			return entry != null;
+		}
+
+		protected Entry<byte[], byte[]> computeNext()
+		{
+			try (DBIterator i = getDBIterator())
+			{
+				if (currentKey == null)
+				{
+					i.seekToFirst();
+				}
+				else
+				{
+					i.seek(currentKey);
+					if (!performedDelete)
+					{
+						i.next();
+					}
+				}
+				if (!i.hasNext())
+				{
+					return null;
+				}
+				return i.peekNext();
+			}
+			catch (IOException e)
+			{
+			}
+			return null;
+		}
+
+		@Override
+		public void remove()
+		{
+			if (performedDelete || currentKey == null)
+			{
+				throw new IllegalStateException();
+			}
+			deleteByteKey(currentKey);
+			performedDelete = true;
+
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+		}
+	}
+
+	/**
+	 * Iterates over the raw entries with a single DBIterator, which reads from a snapshot taken when this iterator was
+	 * created. The DBIterator and snapshot are released as soon as the iterator is exhausted or closed.
+	 */
+	protected class StreamingRawEntryIterator extends RawEntryIterator
+	{
+		private Snapshot ownSnapshot;
+		private DBIterator iterator;
+
+		public StreamingRawEntryIterator()
+		{
+			flush();
+			if (snapshot == null)
+			{
+				ownSnapshot = db.getSnapshot();
+			}
+			iterator = getDBIterator(new ReadOptions().snapshot(snapshot == null ? ownSnapshot : snapshot));
+			iterator.seekToFirst();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (iterator == null)
+			{
+				return false;
+			}
+			if (iterator.hasNext())
+			{
+				return true;
+			}
+
+			try
+			{
+				close();
+			}
+			catch (IOException e)
+			{
+			}
+			return false;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			Entry<byte[], byte[]> entry = iterator.next();
+			currentKey = entry.getKey();
+			performedDelete = false;
+			return entry;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (iterator == null)
+			{
+				return;
+			}
+			try
+			{
+				iterator.close();
+			}
+			finally
+			{
+				iterator = null;
+				if (ownSnapshot != null)
+				{
+					ownSnapshot.close();
+					ownSnapshot = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the database sorts the keys of this map by their unsigned bytes, so keys in between two keys can be
+	 *         made up to split the map into ranges
+	 */
+	protected boolean isBytewiseOrdered()
+	{
+		DBComparator ordering = dbcomparator;
+		if (ordering instanceof ReservedKeyDBComparator)
+		{
+			ordering = ((ReservedKeyDBComparator) ordering).getDelegate();
+		}
+		return ordering instanceof BytewiseDBComparator;
+	}
+
+	/**
+	 * @return the first key after this map in bytewise order, or null if the map reaches the end of the database
+	 */
+	protected byte[] getEndKey()
+	{
+		return null;
+	}
+
+	/**
+	 * Creates a Spliterator over the raw entries. When the keys are sorted by their bytes
+	 * ({@link #isBytewiseOrdered()}) it splits into ranges of keys, otherwise it splits off batches of entries that it
+	 * has read, like the Spliterators of the JDK.
+	 */
+	protected Spliterator<Entry<byte[], byte[]>> newRawEntrySpliterator()
+	{
+		flush();
+		long estimate = counter != null && !isBounded() ? size() : Long.MAX_VALUE;
+		int depth = Integer.SIZE - Integer.numberOfLeadingZeros(ForkJoinPool.getCommonPoolParallelism() * 8);
+		return new RawEntrySpliterator(null, isBytewiseOrdered() ? getEndKey() : null, depth, estimate,
+				new SharedSnapshot());
+	}
+
+	/**
+	 * Creates a stream of a Spliterator of one of the views. Closing the stream releases the snapshot that the
+	 * Spliterator and its splits read from.
+	 */
+	static <T> Stream<T> stream(final Spliterator<T> spliterator, boolean parallel)
+	{
+		Stream<T> stream = StreamSupport.stream(spliterator, parallel);
+		if (spliterator instanceof Closeable)
+		{
+			stream = stream.onClose(() -> {
+				try
+				{
+					((Closeable) spliterator).close();
+				}
+				catch (IOException e)
+				{
+				}
+			});
+		}
+		return stream;
+	}
+
+	/**
+	 * The number of entries by which the batches of {@link RawEntrySpliterator#trySplit()} grow
+	 */
+	private static final int SPLIT_BATCH_UNIT = 1 << 10;
+
+	private static final int MAX_SPLIT_BATCH = 1 << 25;
+
+	/**
+	 * The number of entries that {@link RawEntrySpliterator#tryAdvance(Consumer)} reads at once, at first and at most
+	 */
+	private static final int MIN_ADVANCE_CHUNK = 16;
+
+	private static final int MAX_ADVANCE_CHUNK = 1 << 10;
+
+	/**
+	 * The number of keys that {@link RawEntrySpliterator#trySplit()} reads to split a range of which the size on disk
+	 * is not known at its median key
+	 */
+	private static final int SPLIT_SAMPLE = 1 << 12;
+
+	/**
+	 * The number of halvings after which the search for a split key gives up
+	 */
+	private static final int MAX_SPLIT_BISECTIONS = 64;
+
+	/**
+	 * A key above all keys that are used in practice, as the limit of {@link DB#getApproximateSizes(Range...)}
+	 */
+	private static final byte[] END_OF_KEYS = new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+			(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF };
+
+	private static final BytewiseDBComparator BYTEWISE = new BytewiseDBComparator();
+
+	/**
+	 * The snapshot that a Spliterator and its splits read from. It is taken when the Spliterator is split for the first
+	 * time, so a sequential stream, which never splits, reads the live database and holds on to nothing between calls.
+	 * Every Spliterator that uses the snapshot releases it when it is exhausted, and the snapshot is closed when all of
+	 * them have, or when the stream is closed.
+	 */
+	private class SharedSnapshot
+	{
+		private Snapshot snapshot;
+		private ReadOptions readOptions;
+		private int users = 1;
+		private boolean closed = false;
+
+		/**
+		 * Takes the snapshot, unless it was taken or closed already
+		 */
+		public synchronized void open()
+		{
+			if (snapshot == null && !closed && LevelDBStoredMap.this.snapshot == null)
+			{
+				snapshot = db.getSnapshot();
+				readOptions = new ReadOptions().snapshot(snapshot);
+			}
+		}
+
+		/**
+		 * @return the options to read with, which read from the snapshot once it is taken
+		 */
+		public synchronized ReadOptions readOptions()
+		{
+			return readOptions != null ? readOptions : getReadOptions();
+		}
+
+		public synchronized void retain()
+		{
+			users++;
+		}
+
+		public synchronized void release()
+		{
+			if (--users == 0)
+			{
+				close();
+			}
+		}
+
+		public synchronized void close()
+		{
+			closed = true;
+			if (snapshot != null)
+			{
+				try
+				{
+					snapshot.close();
+				}
+				catch (IOException e)
+				{
+				}
+				snapshot = null;
+				readOptions = null;
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the raw entries from a key up to, but not including, another key. tryAdvance() reads chunks of
+	 * entries that grow up to {@value LevelDBStoredMap#MAX_ADVANCE_CHUNK} with a DBIterator of their own, and
+	 * forEachRemaining() reads the rest with one DBIterator that it closes before it returns, so no DBIterator is left
+	 * open when a stream stops early. Every split reads in the thread that processes it.
+	 * <p>
+	 * Once the Spliterator is split, it and all its splits read from one {@link SharedSnapshot}, so a parallel stream
+	 * does not see writes made while it runs. A parallel stream that stops early, such as with anyMatch(), leaves the
+	 * snapshot open until the stream is closed, like a streaming iterator that is not exhausted. A Spliterator that is
+	 * never split reads the live database, so writes made while it is in use may or may not be seen.
+	 */
+	protected class RawEntrySpliterator implements Spliterator<Entry<byte[], byte[]>>, Closeable
+	{
+		private byte[] from;
+		private final byte[] to;
+		private int depth;
+		private long estimate;
+		private final SharedSnapshot shared;
+		private boolean released = false;
+		private int batchSize = 0;
+		private final Deque<Entry<byte[], byte[]>> chunk = new ArrayDeque<Entry<byte[], byte[]>>();
+		private int chunkSize = MIN_ADVANCE_CHUNK;
+		private byte[] lastKey;
+		private boolean exhausted = false;
+
+		/**
+		 * @param from the first key, or null to start at the first entry of the map
+		 * @param to the key to stop at, or null to stop at the end of the map
+		 * @param depth the number of times this Spliterator may still split into ranges
+		 * @param estimate the estimated number of entries
+		 * @param shared the snapshot to read from once it is taken, which this Spliterator releases when it is
+		 *        exhausted
+		 */
+		protected RawEntrySpliterator(byte[] from, byte[] to, int depth, long estimate, SharedSnapshot shared)
+		{
+			this.from = from;
+			this.to = to;
+			this.depth = depth;
+			this.estimate = estimate;
+			this.shared = shared;
+		}
+
+		private DBIterator iterator()
+		{
+			return getDBIterator(shared.readOptions());
+		}
+
+		/**
+		 * Positions an iterator at the entry after the last one that was returned, or at the first entry of this range
+		 * @return false if the range has no more entries
+		 */
+		private boolean seekToNext(DBIterator i)
+		{
+			if (lastKey != null)
+			{
+				i.seek(lastKey);
+				if (i.hasNext() && Arrays.equals(i.peekNext().getKey(), lastKey))
+				{
+					i.next();
+				}
+			}
+			else if (from == null)
+			{
+				i.seekToFirst();
+			}
+			else
+			{
+				i.seek(from);
+			}
+			return isInRange(i);
+		}
+
+		/**
+		 * @return true if the iterator has an entry before the end of this range
+		 */
+		private boolean isInRange(DBIterator i)
+		{
+			return i.hasNext() && (to == null || BYTEWISE.compare(i.peekNext().getKey(), to) < 0);
+		}
+
+		/**
+		 * Marks this range as exhausted and releases its use of the snapshot
+		 */
+		private void exhausted()
+		{
+			exhausted = true;
+			if (!released)
+			{
+				released = true;
+				shared.release();
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Entry<byte[], byte[]>> action)
+		{
+			if (chunk.isEmpty() && !readChunk())
+			{
+				return false;
+			}
+			Entry<byte[], byte[]> entry = chunk.poll();
+			lastKey = entry.getKey();
+			action.accept(entry);
+			return true;
+		}
+
+		/**
+		 * Reads the next chunk of entries with a DBIterator that is closed right away
+		 * @return false if the range has no more entries
+		 */
+		private boolean readChunk()
+		{
+			if (exhausted)
+			{
+				return false;
+			}
+			boolean hasNext = false;
+			try (DBIterator i = iterator())
+			{
+				hasNext = seekToNext(i);
+				while (hasNext && chunk.size() < chunkSize)
+				{
+					chunk.add(i.next());
+					hasNext = isInRange(i);
+				}
+			}
+			catch (IOException e)
+			{
+			}
+			if (!hasNext)
+			{
+				exhausted();
+			}
+			chunkSize = Math.min(chunkSize << 1, MAX_ADVANCE_CHUNK);
+			return !chunk.isEmpty();
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Entry<byte[], byte[]>> action)
+		{
+			while (!chunk.isEmpty())
+			{
+				Entry<byte[], byte[]> entry = chunk.poll();
+				lastKey = entry.getKey();
+				action.accept(entry);
+			}
+			if (exhausted)
+			{
+				return;
+			}
+			try (DBIterator i = iterator())
+			{
+				boolean hasNext = seekToNext(i);
+				while (hasNext)
+				{
+					Entry<byte[], byte[]> entry = i.next();
+					lastKey = entry.getKey();
+					action.accept(entry);
+					hasNext = isInRange(i);
+				}
+			}
+			catch (IOException e)
+			{
+			}
+			finally
+			{
+				exhausted();
+			}
+		}
+
+		@Override
+		public Spliterator<Entry<byte[], byte[]>> trySplit()
+		{
+			if (exhausted)
+			{
+				return null;
+			}
+
+			boolean started = lastKey != null || !chunk.isEmpty();
+			if (!started)
+			{
+				// From here on this Spliterator and its splits read from the same snapshot
+				shared.open();
+			}
+
+			if (isBytewiseOrdered())
+			{
+				if (started || depth <= 0)
+				{
+					return null;
+				}
+				byte[] splitKey = findSplitKey();
+				if (splitKey == null)
+				{
+					return null;
+				}
+
+				depth--;
+				estimate >>>= 1;
+				shared.retain();
+				RawEntrySpliterator prefix = new RawEntrySpliterator(from, splitKey, depth, estimate, shared);
+				from = splitKey;
+				return prefix;
+			}
+
+			batchSize = Math.min(batchSize + SPLIT_BATCH_UNIT, MAX_SPLIT_BATCH);
+			final List<Entry<byte[], byte[]>> batch = new ArrayList<Entry<byte[], byte[]>>();
+			while (batch.size() < batchSize && tryAdvance(entry -> batch.add(entry)))
+			{
+			}
+			if (batch.isEmpty())
+			{
+				return null;
+			}
+			if (estimate != Long.MAX_VALUE)
+			{
+				estimate = Math.max(estimate - batch.size(), 0);
+			}
+			return Spliterators.spliterator(batch, characteristics());
+		}
+
+		/**
+		 * Looks for a key that splits this range in two halves of about the same size. The sizes on disk come from
+		 * {@link DB#getApproximateSizes(Range...)}. Entries that are not on disk yet are not counted by it, so when the
+		 * range has no size on disk the first {@value LevelDBStoredMap#SPLIT_SAMPLE} keys are read instead, and the
+		 * range is split at their median if it ends within them. Only when neither works is the range split at the
+		 * first key above the key halfway between its first key and its end.
+		 * @return the first key of the upper range, or null if no such key was found
+		 */
+		private byte[] findSplitKey()
+		{
+			try (DBIterator i = iterator())
+			{
+				if (!seekToNext(i))
+				{
+					return null;
+				}
+				byte[] first = i.peekNext().getKey();
+				byte[] splitKey = findSplitKeyBySize(i, first);
+				if (splitKey == null)
+				{
+					splitKey = findSplitKeyBySample(i, first);
+				}
+				if (splitKey == null)
+				{
+					splitKey = findSplitKeyByMidpoint(i, first);
+				}
+				return splitKey;
+			}
+			catch (IOException e)
+			{
+			}
+			return null;
+		}
+
+		/**
+		 * Bisects the keys between the first key and the end of the range until the size on disk below the middle key
+		 * is within an eighth of half the size of the range
+		 */
+		private byte[] findSplitKeyBySize(DBIterator i, byte[] first)
+		{
+			long half = approximateSize(first, to != null ? to : END_OF_KEYS) / 2;
+			if (half <= 0)
+			{
+				return null;
+			}
+
+			byte[] low = first;
+			byte[] high = to;
+			for (int n = 0; n < MAX_SPLIT_BISECTIONS; n++)
+			{
+				byte[] middle = midpoint(low, high);
+				if (BYTEWISE.compare(middle, low) <= 0)
+				{
+					return null;
+				}
+				long size = approximateSize(first, middle);
+				if (size < half - half / 8)
+				{
+					low = middle;
+				}
+				else if (size > half + half / 8)
+				{
+					high = middle;
+				}
+				else
+				{
+					return keyAtOrAfter(i, first, middle);
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return the median of the keys of the range when it has at most {@value LevelDBStoredMap#SPLIT_SAMPLE} keys
+		 */
+		private byte[] findSplitKeyBySample(DBIterator i, byte[] first)
+		{
+			i.seek(first);
+			List<byte[]> keys = new ArrayList<byte[]>();
+			while (isInRange(i))
+			{
+				if (keys.size() == SPLIT_SAMPLE)
+				{
+					return null;
+				}
+				keys.add(i.next().getKey());
+			}
+			return keys.size() < 2 ? null : keys.get(keys.size() / 2);
+		}
+
+		/**
+		 * Bisects the keys between the first key and the end of the range until there is a key in the upper half
+		 */
+		private byte[] findSplitKeyByMidpoint(DBIterator i, byte[] first)
+		{
+			byte[] high = to;
+			for (int n = 0; n < MAX_SPLIT_BISECTIONS * 4; n++)
+			{
+				byte[] middle = midpoint(first, high);
+				if (BYTEWISE.compare(middle, first) <= 0)
+				{
+					return null;
+				}
+				byte[] key = keyAtOrAfter(i, first, middle);
+				if (key != null)
+				{
+					return key;
+				}
+				high = middle;
+			}
+			return null;
+		}
+
+		/**
+		 * @return the first key of the range at or after {@code key}, if it lies above the first key of the range
+		 */
+		private byte[] keyAtOrAfter(DBIterator i, byte[] first, byte[] key)
+		{
+			i.seek(key);
+			if (isInRange(i) && BYTEWISE.compare(i.peekNext().getKey(), first) > 0)
+			{
+				return i.peekNext().getKey();
+			}
+			return null;
+		}
+
+		private long approximateSize(byte[] start, byte[] limit)
+		{
+			try
+			{
+				return db.getApproximateSizes(new Range(start, limit))[0];
+			}
+			catch (RuntimeException e)
+			{
+				return 0;
+			}
+		}
+
+		@Override
+		public long estimateSize()
+		{
+			return estimate;
+		}
+
+		@Override
+		public int characteristics()
+		{
+			return ORDERED | DISTINCT | NONNULL;
+		}
+
+		/**
+		 * Closes the snapshot that this Spliterator and its splits read from
+		 */
+		@Override
+		public void close()
+		{
+			shared.close();
+		}
+	}
+
+	/**
+	 * Calculates the key halfway between two keys, reading the unsigned bytes of the keys as the digits of a fraction
+	 * @param high the upper key, or null for the end of the key space
+	 */
+	static byte[] midpoint(byte[] low, byte[] high)
+	{
+		int length = Math.max(low.length, high == null ? 0 : high.length) + 1;
+		int[] sum = new int[length];
+		int carry = 0;
+		for (int n = length - 1; n >= 0; n--)
+		{
+			int digit = (n < low.length ? low[n] & 0xFF : 0) + (high != null && n < high.length ? high[n] & 0xFF : 0)
+					+ carry;
+			sum[n] = digit & 0xFF;
+			carry = digit >>> 8;
+		}
+
+		// The end of the key space is 1.0, which only contributes to the integer part
+		int remainder = carry + (high == null ? 1 : 0);
+		byte[] middle = new byte[length];
+		for (int n = 0; n < length; n++)
+		{
+			int value = (remainder << 8) + sum[n];
+			middle[n] = (byte) (value >>> 1);
+			remainder = value & 1;
+		}
+		return middle;
+	}
+
+	protected class EntrySet extends AbstractSet<java.util.Map.Entry<K, V>>
+	{
+
+		/**
+		 * @return the raw iterator that the iterators of this view read from
+		 */
+		protected RawEntryIterator rawIterator()
+		{
+			return newRawEntryIterator();
+		}
+
+		/**
+		 * @return the raw spliterator that the spliterators of this view read from
+		 */
+		protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+		{
+			return newRawEntrySpliterator();
+		}
+
+		@Override
+		public Iterator<java.util.Map.Entry<K, V>> iterator()
+		{
+			return new EntryIterator();
+		}
+
+		@Override
+		public Spliterator<java.util.Map.Entry<K, V>> spliterator()
+		{
+			return new MappingSpliterator<Entry<byte[], byte[]>, java.util.Map.Entry<K, V>>(rawSpliterator(),
+					rawEntry -> new LevelDBEntry(keyBinding.deserialize(rawEntry.getKey()), rawEntry.getValue()));
+		}
+
+		@Override
+		public Stream<java.util.Map.Entry<K, V>> stream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), false);
+		}
+
+		@Override
+		public Stream<java.util.Map.Entry<K, V>> parallelStream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), true);
+		}
+
+		@Override
+		public int size()
+		{
+			return LevelDBStoredMap.this.size();
+		}
+
+		private class EntryIterator implements CloseableIterator<java.util.Map.Entry<K, V>>
+		{
+			private final RawEntryIterator rawEntryIterator = rawIterator();
+
+			@Override
+			public boolean hasNext()
+			{
+				return rawEntryIterator.hasNext();
+			}
+
+			@Override
+			public java.util.Map.Entry<K, V> next()
+			{
+				Entry<byte[], byte[]> rawEntry = rawEntryIterator.next();
+				return new LevelDBEntry(keyBinding.deserialize(rawEntry.getKey()), rawEntry.getValue());
+			}
+
+			@Override
+			public void remove()
+			{
+				rawEntryIterator.remove();
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				rawEntryIterator.close();
+			}
+		}
+
+		/**
+		 * An entry holding the value bytes it was read with. The value is deserialized when it is first needed, so it
+		 * does not reflect later changes to the map other than through {@link #setValue(Object)}.
+		 */
+		private class LevelDBEntry implements Map.Entry<K, V>, Serializable
+		{
+			private static final long serialVersionUID = 1L;
+			private final K key;
+			private byte[] rawValue;
+			private V value;
+
+			public LevelDBEntry(K key, byte[] rawValue)
+			{
+				this.key = key;
+				this.rawValue = rawValue;
+			}
+
+			@Override
+			public K getKey()
+			{
+				return key;
+			}
+
+			@Override
+			public V setValue(V value)
+			{
+				V oldValue = getValue();
+				LevelDBStoredMap.this.set(key, value);
+				this.value = value;
+				return oldValue;
+			}
+
+			@Override
+			public V getValue()
+			{
+				if (rawValue != null)
+				{
+					value = valueBinding.deserialize(rawValue);
+					rawValue = null;
+				}
+				return value;
+			}
+
+			@Override
+			public int hashCode()
+			{
+				V value = getValue();
+				return (key == null ? 0 : key.hashCode()) ^ (value == null ? 0 : value.hashCode());
+			}
+
+			@Override
+			public boolean equals(Object o)
+			{
+				if (!(o instanceof Map.Entry))
+				{
+					return false;
+				}
+
+				@SuppressWarnings("rawtypes")
+				Map.Entry other = (Map.Entry) o;
+				V value = getValue();
+
+				return (key == null ? other.getKey() == null : key.equals(other.getKey()))
+						&& (value == null ? other.getValue() == null : value.equals(other.getValue()));
+			}
+		}
+
+	}
+
+	protected class KeySet extends AbstractSet<K>
+	{
+
+		/**
+		 * @return the raw iterator that the iterators of this view read from
+		 */
+		protected RawEntryIterator rawIterator()
+		{
+			return newRawEntryIterator();
+		}
+
+		/**
+		 * @return the raw spliterator that the spliterators of this view read from
+		 */
+		protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+		{
+			return newRawEntrySpliterator();
+		}
+
+		@Override
+		public Iterator<K> iterator()
+		{
+			return new KeyIterator();
+		}
+
+		@Override
+		public Spliterator<K> spliterator()
+		{
+			return new MappingSpliterator<Entry<byte[], byte[]>, K>(rawSpliterator(),
+					rawEntry -> keyBinding.deserialize(rawEntry.getKey()));
+		}
+
+		@Override
+		public Stream<K> stream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), false);
+		}
+
+		@Override
+		public Stream<K> parallelStream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), true);
+		}
+
+		@Override
+		public int size()
+		{
+			return LevelDBStoredMap.this.size();
+		}
+
+		private class KeyIterator implements CloseableIterator<K>
+		{
+			private final RawEntryIterator rawEntryIterator = rawIterator();
+
+			@Override
+			public boolean hasNext()
+			{
+				return rawEntryIterator.hasNext();
+			}
+
+			@Override
+			public K next()
+			{
+				return keyBinding.deserialize(rawEntryIterator.next().getKey());
+			}
+
+			@Override
+			public void remove()
+			{
+				rawEntryIterator.remove();
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				rawEntryIterator.close();
+			}
+		}
+	}
+
+	protected class ValueCollection extends AbstractCollection<V>
+	{
+
+		/**
+		 * @return the raw iterator that the iterators of this view read from
+		 */
+		protected RawEntryIterator rawIterator()
+		{
+			return newRawEntryIterator();
+		}
+
+		/**
+		 * @return the raw spliterator that the spliterators of this view read from
+		 */
+		protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+		{
+			return newRawEntrySpliterator();
+		}
+
+		@Override
+		public Iterator<V> iterator()
+		{
+			return new ValueIterator();
+		}
+
+		@Override
+		public Spliterator<V> spliterator()
+		{
+			return new MappingSpliterator<Entry<byte[], byte[]>, V>(rawSpliterator(),
+					rawEntry -> valueBinding.deserialize(rawEntry.getValue()));
+		}
+
+		@Override
+		public Stream<V> stream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), false);
+		}
+
+		@Override
+		public Stream<V> parallelStream()
+		{
+			return LevelDBStoredMap.stream(spliterator(), true);
+		}
+
+		@Override
+		public int size()
+		{
+			return LevelDBStoredMap.this.size();
+		}
+
+		private class ValueIterator implements CloseableIterator<V>
+		{
+			private final RawEntryIterator rawEntryIterator = rawIterator();
+
+			@Override
+			public boolean hasNext()
+			{
+				return rawEntryIterator.hasNext();
+			}
+
+			@Override
+			public V next()
+			{
+				return valueBinding.deserialize(rawEntryIterator.next().getValue());
+			}
+
+			@Override
+			public void remove()
+			{
+				rawEntryIterator.remove();
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				rawEntryIterator.close();
+			}
+
+		}
+
+	}
+
+}
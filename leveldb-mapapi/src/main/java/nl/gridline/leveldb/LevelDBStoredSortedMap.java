@@ -0,0 +1,1263 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.comparators.SimpleDBComparator;
+import nl.gridline.leveldb.iterators.ForwardingDBIterator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+
+/**
+ * A NavigableMap implementation on top of LevelDB.
+ *
+ * Note that the following methods (besides the usual suspects) are O(n):
+ *
+ * <ul>
+ *     <li>{@link #clear()}</li>
+ *     <li>{@link #size()} (use {@link #isEmpty()} rather than <i>size() == 0)</i></li>
+ *     <li>All methods of the object returned by {@link #entrySet()} (except obtaining an iterator).</li>
+ *     <li>All methods of the object returned by {@link #keySet()} (except obtaining an iterator).</li>
+ *     <li>All methods of the object returned by {@link #values()} (except obtaining an iterator).</li>
+ * </ul>
+ *
+ * {@link #lastKey()}, {@link #lowerKey(Object)}, {@link #floorKey(Object)} and the other methods that search
+ * backwards use seekToLast() and prev() of the DBIterator. Not every LevelDB implementation supports these (the iq80
+ * implementation does not). On such a database a map whose keys are compared as bytes finds the last key below
+ * another by bisection, with seeks to the key halfway in between, and other maps scan forward, which is O(n). The
+ * iterators of the {@link #descendingMap()} then read the entries in chunks that end at the last returned key.
+ *
+ * @author <a href="mailto:niels@gridline.nl">Niels Slot</a>
+ */
+public class LevelDBStoredSortedMap<K, V> extends LevelDBStoredMap<K, V> implements StoredSortedMap<K, V>
+{
+
+	private final byte[] start;
+	private final boolean startInclusive;
+	private final byte[] end;
+	private final boolean endInclusive;
+	private final Comparator<? super K> comparator;
+	private Boolean reverseIterationSupported = null;
+
+	/**
+	 * The maximum number of entries that the descending iterators of a database that cannot iterate in reverse read
+	 * ahead
+	 */
+	private static final int DESCENDING_CHUNK = 256;
+
+	/**
+	 * The number of halvings after which a bisection falls back to a scan
+	 */
+	private static final int MAX_BISECTIONS = 256;
+
+	private static final BytewiseDBComparator BYTEWISE = new BytewiseDBComparator();
+
+	public LevelDBStoredSortedMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding)
+	{
+		this(db, dbcomparator, keyBinding, valueBinding, null);
+	}
+
+	public LevelDBStoredSortedMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, Comparator<? super K> comparator)
+	{
+		this(db, dbcomparator, keyBinding, valueBinding, comparator, new MapOptions());
+	}
+
+	public LevelDBStoredSortedMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, Comparator<? super K> comparator, MapOptions options)
+	{
+		this(db, dbcomparator, keyBinding, valueBinding, comparator, options,
+				options.countEntries() ? new EntryCounter(db) : null,
+				ValueCache.forOptions(options, valueBinding), null, null, null, null, true,
+				null, true);
+	}
+
+	protected LevelDBStoredSortedMap(DB db, DBComparator dbcomparator, EntryBinding<K> keyBinding,
+			EntryBinding<V> valueBinding, Comparator<? super K> comparator, MapOptions options, EntryCounter counter,
+			ValueCache<V> cache, WriteBehindBuffer writeBehind, KeyLocks locks, Snapshot snapshot, byte[] start,
+			boolean startInclusive, byte[] end, boolean endInclusive)
+	{
+		super(db, dbcomparator, keyBinding, valueBinding, options, counter, cache, writeBehind, locks, snapshot);
+		this.comparator = comparator;
+		this.start = start;
+		this.startInclusive = startInclusive;
+		this.end = end;
+		this.endInclusive = endInclusive;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		byte[] byteKey = byteKey(key);
+		return isKeyWithinBounds(byteKey) && getRawValue(byteKey) != null;
+	}
+
+	@Override
+	public V get(Object key)
+	{
+		if (!isKeyWithinBounds(byteKey(key)))
+		{
+			return null;
+		}
+
+		return super.get(key);
+	}
+
+	@Override
+	protected byte[] byteKeyForPut(Object key)
+	{
+		byte[] byteKey = super.byteKeyForPut(key);
+		if (!isKeyWithinBounds(byteKey))
+		{
+			throw new IllegalArgumentException();
+		}
+		return byteKey;
+	}
+
+	@Override
+	public V remove(Object key)
+	{
+		if (!isKeyWithinBounds(byteKey(key)))
+		{
+			return null;
+		}
+
+		return super.remove(key);
+	}
+
+	@Override
+	public void delete(K key)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException();
+		}
+
+		byte[] byteKey = byteKey(key);
+		if (isKeyWithinBounds(byteKey))
+		{
+			deleteByteKey(byteKey);
+		}
+	}
+
+	@Override
+	protected boolean isKeyWithinBounds(byte[] byteKey)
+	{
+		return !isBelowStart(byteKey) && !isAboveEnd(byteKey);
+	}
+
+	private boolean isBelowStart(byte[] byteKey)
+	{
+		if (start == null)
+		{
+			return false;
+		}
+		int c = dbcomparator.compare(byteKey, start);
+		return c < 0 || (c == 0 && !startInclusive);
+	}
+
+	private boolean isAboveEnd(byte[] byteKey)
+	{
+		if (end == null)
+		{
+			return false;
+		}
+		int c = dbcomparator.compare(byteKey, end);
+		return c > 0 || (c == 0 && !endInclusive);
+	}
+
+	/**
+	 * Checks whether a key can be used as a bound of a sub map. Like in {@link java.util.TreeMap} a key that is equal to
+	 * an exclusive bound of this map can be used as an exclusive bound of the sub map.
+	 */
+	private void checkSubMapBound(byte[] byteKey, boolean inclusive)
+	{
+		boolean withinBounds;
+		if (inclusive)
+		{
+			withinBounds = isKeyWithinBounds(byteKey);
+		}
+		else
+		{
+			withinBounds = (start == null || dbcomparator.compare(byteKey, start) >= 0)
+					&& (end == null || dbcomparator.compare(byteKey, end) <= 0);
+		}
+
+		if (!withinBounds)
+		{
+			throw new IllegalArgumentException("key out of range");
+		}
+	}
+
+	@Override
+	protected boolean isBounded()
+	{
+		return start != null || end != null;
+	}
+
+	@Override
+	public Comparator<? super K> comparator()
+	{
+		return comparator;
+	}
+
+	/**
+	 * @return true if the DBIterators of the database support seekToLast() and prev()
+	 */
+	protected boolean isReverseIterationSupported()
+	{
+		if (reverseIterationSupported == null)
+		{
+			try (DBIterator i = db.iterator())
+			{
+				i.seekToLast();
+				reverseIterationSupported = true;
+			}
+			catch (UnsupportedOperationException | IOException e)
+			{
+				reverseIterationSupported = false;
+			}
+		}
+		return reverseIterationSupported;
+	}
+
+	/**
+	 * Returns the first entry of this map with a key above, or equal to if inclusive, the key.
+	 * @param key the key to search from, or null to return the first entry
+	 * @return the entry, or null if there is no such entry
+	 */
+	protected Entry<byte[], byte[]> ceilingRawEntry(byte[] key, boolean inclusive)
+	{
+		try (DBIterator i = getDBIterator())
+		{
+			if (key == null)
+			{
+				i.seekToFirst();
+			}
+			else
+			{
+				i.seek(key);
+				if (!inclusive && i.hasNext() && dbcomparator.compare(i.peekNext().getKey(), key) == 0)
+				{
+					i.next();
+				}
+			}
+			return i.hasNext() ? i.peekNext() : null;
+		}
+		catch (IOException e)
+		{
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the last entry of this map with a key below, or equal to if inclusive, the key.
+	 * @param key the key to search from, or null to return the last entry
+	 * @return the entry, or null if there is no such entry
+	 */
+	protected Entry<byte[], byte[]> floorRawEntry(byte[] key, boolean inclusive)
+	{
+		// Never search beyond the end of this map
+		if (end != null)
+		{
+			int c = key == null ? 1 : dbcomparator.compare(key, end);
+			if (c > 0)
+			{
+				key = end;
+				inclusive = endInclusive;
+			}
+			else if (c == 0)
+			{
+				inclusive = inclusive && endInclusive;
+			}
+		}
+
+		Entry<byte[], byte[]> entry;
+		if (isReverseIterationSupported())
+		{
+			entry = seekFloorRawEntry(key, inclusive);
+		}
+		else if (isBytewiseOrdered())
+		{
+			entry = bisectFloorRawEntry(key, inclusive);
+		}
+		else
+		{
+			entry = scanFloorRawEntry(key, inclusive);
+		}
+
+		if (entry == null || isBelowStart(entry.getKey()))
+		{
+			return null;
+		}
+		return entry;
+	}
+
+	private Entry<byte[], byte[]> seekFloorRawEntry(byte[] key, boolean inclusive)
+	{
+		flush();
+		try (DBIterator i = db.iterator(getReadOptions()))
+		{
+			Entry<byte[], byte[]> entry = null;
+			if (key != null)
+			{
+				i.seek(key);
+			}
+
+			if (key == null || !i.hasNext())
+			{
+				i.seekToLast();
+				entry = i.hasNext() ? i.peekNext() : null;
+			}
+			else if (inclusive && dbcomparator.compare(i.peekNext().getKey(), key) == 0)
+			{
+				entry = i.peekNext();
+			}
+			else if (i.hasPrev())
+			{
+				entry = i.peekPrev();
+			}
+
+			// The entry count sorts before all other keys, so there is nothing before it
+			if (entry != null && counter != null && EntryCounter.isCountKey(entry.getKey()))
+			{
+				return null;
+			}
+			return entry;
+		}
+		catch (IOException e)
+		{
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the last entry below the key on a database that cannot iterate in reverse, by seeking to the key halfway
+	 * between the last entry found so far and the upper limit of the search. The search converges in about as many seeks
+	 * as there are bits in the keys, after which the few remaining entries are scanned.
+	 */
+	private Entry<byte[], byte[]> bisectFloorRawEntry(byte[] key, boolean inclusive)
+	{
+		try (DBIterator i = getDBIterator())
+		{
+			if (key != null && inclusive)
+			{
+				i.seek(key);
+				if (i.hasNext() && dbcomparator.compare(i.peekNext().getKey(), key) == 0)
+				{
+					return i.peekNext();
+				}
+			}
+
+			i.seekToFirst();
+			if (!i.hasNext() || !isBelow(i.peekNext().getKey(), key))
+			{
+				return null;
+			}
+			Entry<byte[], byte[]> low = i.next();
+			byte[] high = key;
+			for (int n = 0; n < MAX_BISECTIONS; n++)
+			{
+				if (!i.hasNext() || !isBelow(i.peekNext().getKey(), high))
+				{
+					return low;
+				}
+				low = i.next();
+
+				byte[] middle = midpoint(low.getKey(), high);
+				if (BYTEWISE.compare(middle, low.getKey()) <= 0)
+				{
+					break;
+				}
+				i.seek(middle);
+				if (i.hasNext() && isBelow(i.peekNext().getKey(), high))
+				{
+					low = i.next();
+				}
+				else
+				{
+					// Nothing between the middle and the limit, so continue below the middle
+					high = middle;
+					i.seek(low.getKey());
+					i.next();
+				}
+			}
+
+			while (i.hasNext() && isBelow(i.peekNext().getKey(), high))
+			{
+				low = i.next();
+			}
+			return low;
+		}
+		catch (IOException e)
+		{
+		}
+		return null;
+	}
+
+	/**
+	 * @param limit the exclusive upper limit, or null for no limit
+	 */
+	private boolean isBelow(byte[] byteKey, byte[] limit)
+	{
+		return limit == null || dbcomparator.compare(byteKey, limit) < 0;
+	}
+
+	private Entry<byte[], byte[]> scanFloorRawEntry(byte[] key, boolean inclusive)
+	{
+		Entry<byte[], byte[]> result = null;
+		try (DBIterator i = getDBIterator())
+		{
+			for (i.seekToFirst(); i.hasNext(); i.next())
+			{
+				Entry<byte[], byte[]> next = i.peekNext();
+				if (key != null)
+				{
+					int c = dbcomparator.compare(next.getKey(), key);
+					if (c > 0 || (c == 0 && !inclusive))
+					{
+						break;
+					}
+				}
+				result = next;
+			}
+		}
+		catch (IOException e)
+		{
+		}
+		return result;
+	}
+
+	private Map.Entry<K, V> exportEntry(Entry<byte[], byte[]> rawEntry)
+	{
+		if (rawEntry == null)
+		{
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<K, V>(keyBinding.deserialize(rawEntry.getKey()),
+				valueBinding.deserialize(rawEntry.getValue()));
+	}
+
+	private K exportKey(Entry<byte[], byte[]> rawEntry)
+	{
+		return rawEntry == null ? null : keyBinding.deserialize(rawEntry.getKey());
+	}
+
+	/**
+	 * Removes the first or last entry. The key is locked while the entry is read again and deleted; when another
+	 * thread changed or removed the entry after it was found, the first or last entry is looked up again.
+	 */
+	private Map.Entry<K, V> pollRawEntry(boolean first)
+	{
+		while (true)
+		{
+			Entry<byte[], byte[]> rawEntry = first ? ceilingRawEntry(null, true) : floorRawEntry(null, true);
+			if (rawEntry == null)
+			{
+				return null;
+			}
+
+			Lock lock = lockKey(rawEntry.getKey());
+			try
+			{
+				if (Arrays.equals(getRawValue(rawEntry.getKey()), rawEntry.getValue()))
+				{
+					deleteByteKey(rawEntry.getKey());
+					return exportEntry(rawEntry);
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	protected byte[] firstByteKey()
+	{
+		Entry<byte[], byte[]> first = ceilingRawEntry(null, true);
+		if (first == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return first.getKey();
+	}
+
+	@Override
+	public K firstKey()
+	{
+		return keyBinding.deserialize(firstByteKey());
+	}
+
+	@Override
+	public K lastKey()
+	{
+		Entry<byte[], byte[]> last = floorRawEntry(null, true);
+		if (last == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return keyBinding.deserialize(last.getKey());
+	}
+
+	@Override
+	public Map.Entry<K, V> lowerEntry(K key)
+	{
+		return exportEntry(floorRawEntry(byteKey(key), false));
+	}
+
+	@Override
+	public K lowerKey(K key)
+	{
+		return exportKey(floorRawEntry(byteKey(key), false));
+	}
+
+	@Override
+	public Map.Entry<K, V> floorEntry(K key)
+	{
+		return exportEntry(floorRawEntry(byteKey(key), true));
+	}
+
+	@Override
+	public K floorKey(K key)
+	{
+		return exportKey(floorRawEntry(byteKey(key), true));
+	}
+
+	@Override
+	public Map.Entry<K, V> ceilingEntry(K key)
+	{
+		return exportEntry(ceilingRawEntry(byteKey(key), true));
+	}
+
+	@Override
+	public K ceilingKey(K key)
+	{
+		return exportKey(ceilingRawEntry(byteKey(key), true));
+	}
+
+	@Override
+	public Map.Entry<K, V> higherEntry(K key)
+	{
+		return exportEntry(ceilingRawEntry(byteKey(key), false));
+	}
+
+	@Override
+	public K higherKey(K key)
+	{
+		return exportKey(ceilingRawEntry(byteKey(key), false));
+	}
+
+	@Override
+	public Map.Entry<K, V> firstEntry()
+	{
+		return exportEntry(ceilingRawEntry(null, true));
+	}
+
+	@Override
+	public Map.Entry<K, V> lastEntry()
+	{
+		return exportEntry(floorRawEntry(null, true));
+	}
+
+	@Override
+	public Map.Entry<K, V> pollFirstEntry()
+	{
+		return pollRawEntry(true);
+	}
+
+	@Override
+	public Map.Entry<K, V> pollLastEntry()
+	{
+		return pollRawEntry(false);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> descendingMap()
+	{
+		return new DescendingStoredSortedMap<K, V>(this);
+	}
+
+	/**
+	 * Returns a read-only view of this map, with the same bounds, as it is now. See {@link LevelDBStoredMap#snapshot()}.
+	 */
+	@Override
+	public StoredSortedMap<K, V> snapshot()
+	{
+		if (snapshot != null)
+		{
+			return this;
+		}
+		flush();
+		return new LevelDBStoredSortedMap<K, V>(db, dbcomparator, keyBinding, valueBinding, comparator,
+				snapshotOptions(), counter, null, null, locks, db.getSnapshot(), start, startInclusive, end,
+				endInclusive);
+	}
+
+	@Override
+	public NavigableSet<K> navigableKeySet()
+	{
+		return new NavigableKeySet<K>(this);
+	}
+
+	@Override
+	public NavigableSet<K> descendingKeySet()
+	{
+		return descendingMap().navigableKeySet();
+	}
+
+	protected LevelDBStoredSortedMap<K, V> newSubMap(byte[] start, boolean startInclusive, byte[] end,
+			boolean endInclusive)
+	{
+		return new LevelDBStoredSortedMap<K, V>(db, dbcomparator, keyBinding, valueBinding, comparator, options,
+				counter, cache, writeBehind, locks, snapshot, start, startInclusive, end, endInclusive);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive)
+	{
+		byte[] byteKey1 = byteKey(fromKey);
+		byte[] byteKey2 = byteKey(toKey);
+
+		if (dbcomparator.compare(byteKey1, byteKey2) > 0)
+		{
+			throw new IllegalArgumentException();
+		}
+		checkSubMapBound(byteKey1, fromInclusive);
+		checkSubMapBound(byteKey2, toInclusive);
+
+		return newSubMap(byteKey1, fromInclusive, byteKey2, toInclusive);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> headMap(K toKey, boolean inclusive)
+	{
+		byte[] byteKey = byteKey(toKey);
+		checkSubMapBound(byteKey, inclusive);
+
+		return newSubMap(start, startInclusive, byteKey, inclusive);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> tailMap(K fromKey, boolean inclusive)
+	{
+		byte[] byteKey = byteKey(fromKey);
+		checkSubMapBound(byteKey, inclusive);
+
+		return newSubMap(byteKey, inclusive, end, endInclusive);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> subMap(K fromKey, K toKey)
+	{
+		return subMap(fromKey, true, toKey, false);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> headMap(K toKey)
+	{
+		return headMap(toKey, false);
+	}
+
+	@Override
+	public StoredSortedMap<K, V> tailMap(K fromKey)
+	{
+		return tailMap(fromKey, true);
+	}
+
+	@Override
+	protected DBIterator getDBIterator(ReadOptions readOptions)
+	{
+		if (start == null && end == null)
+		{
+			return super.getDBIterator(readOptions);
+		}
+		else
+		{
+			return new PartitionedDBIterator(getUnboundedDBIterator(readOptions));
+		}
+	}
+
+	@Override
+	protected byte[] getEndKey()
+	{
+		if (end == null)
+		{
+			return null;
+		}
+		// The smallest key above an inclusive end is the end followed by a zero byte
+		return endInclusive ? Arrays.copyOf(end, end.length + 1) : end;
+	}
+
+	/**
+	 * Finds the end of this map with a single seek, so clearing it only compares keys by their bytes.
+	 */
+	@Override
+	protected byte[] seekToClearRange(DBIterator i)
+	{
+		if (start != null && end != null && !(startInclusive && endInclusive) && dbcomparator.compare(start, end) == 0)
+		{
+			// Empty range; stop at whatever comes first
+			i.seek(start);
+			return i.hasNext() ? i.peekNext().getKey() : null;
+		}
+
+		byte[] stopKey = null;
+		if (end != null)
+		{
+			i.seek(end);
+			if (endInclusive && i.hasNext() && Arrays.equals(i.peekNext().getKey(), end))
+			{
+				i.next();
+			}
+			stopKey = i.hasNext() ? i.peekNext().getKey() : null;
+		}
+
+		if (start == null)
+		{
+			i.seekToFirst();
+		}
+		else
+		{
+			i.seek(start);
+			if (!startInclusive && i.hasNext() && Arrays.equals(i.peekNext().getKey(), start))
+			{
+				i.next();
+			}
+		}
+		return stopKey;
+	}
+
+	protected RawEntryIterator newDescendingRawEntryIterator()
+	{
+		if (isReverseIterationSupported())
+		{
+			return new DescendingRawEntryIterator();
+		}
+		return new BufferedDescendingRawEntryIterator();
+	}
+
+	/**
+	 * The ranges of keys of the Spliterators only split in ascending order, so descending views iterate sequentially and
+	 * split off batches of entries that they have read. They read in chunks, so like the ascending Spliterators they do
+	 * not hold on to any resources when a stream stops early.
+	 */
+	protected Spliterator<Entry<byte[], byte[]>> newDescendingRawEntrySpliterator()
+	{
+		flush();
+		return Spliterators.spliteratorUnknownSize(new BufferedDescendingRawEntryIterator(), Spliterator.ORDERED
+				| Spliterator.DISTINCT | Spliterator.NONNULL);
+	}
+
+	Set<Map.Entry<K, V>> descendingEntrySet()
+	{
+		return new EntrySet()
+		{
+			@Override
+			protected RawEntryIterator rawIterator()
+			{
+				return newDescendingRawEntryIterator();
+			}
+
+			@Override
+			protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+			{
+				return newDescendingRawEntrySpliterator();
+			}
+		};
+	}
+
+	Set<K> descendingKeys()
+	{
+		return new KeySet()
+		{
+			@Override
+			protected RawEntryIterator rawIterator()
+			{
+				return newDescendingRawEntryIterator();
+			}
+
+			@Override
+			protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+			{
+				return newDescendingRawEntrySpliterator();
+			}
+		};
+	}
+
+	Collection<V> descendingValues()
+	{
+		return new ValueCollection()
+		{
+			@Override
+			protected RawEntryIterator rawIterator()
+			{
+				return newDescendingRawEntryIterator();
+			}
+
+			@Override
+			protected Spliterator<Entry<byte[], byte[]>> rawSpliterator()
+			{
+				return newDescendingRawEntrySpliterator();
+			}
+		};
+	}
+
+	/**
+	 * Positions a DBIterator that can iterate in reverse at the last entry of this map below a key, from where prev()
+	 * walks back over the entries before it
+	 * @param limit the exclusive upper limit, or null for the last entry of this map
+	 * @return that entry, or null if there is none
+	 */
+	private Entry<byte[], byte[]> seekToLastEntry(DBIterator i, byte[] limit)
+	{
+		byte[] bound = limit != null ? limit : end;
+		if (bound != null)
+		{
+			i.seek(bound);
+			if (i.hasNext())
+			{
+				if (limit == null && endInclusive && dbcomparator.compare(i.peekNext().getKey(), end) == 0)
+				{
+					return i.peekNext();
+				}
+				return withinStart(i.hasPrev() ? i.prev() : null);
+			}
+		}
+		i.seekToLast();
+		return withinStart(i.hasNext() ? i.peekNext() : null);
+	}
+
+	private Entry<byte[], byte[]> withinStart(Entry<byte[], byte[]> entry)
+	{
+		return entry == null || isBelowStart(entry.getKey()) ? null : entry;
+	}
+
+	/**
+	 * Iterates over the raw entries in reverse order with a single DBIterator, which reads from a snapshot taken when
+	 * this iterator was created and walks back with prev(). The DBIterator and snapshot are released as soon as the
+	 * iterator is exhausted or closed.
+	 */
+	protected class DescendingRawEntryIterator extends RawEntryIterator
+	{
+		private Snapshot ownSnapshot;
+		private DBIterator iterator;
+		private Entry<byte[], byte[]> nextEntry;
+
+		public DescendingRawEntryIterator()
+		{
+			flush();
+			if (snapshot == null)
+			{
+				ownSnapshot = db.getSnapshot();
+			}
+			iterator = getUnboundedDBIterator(new ReadOptions().snapshot(snapshot == null ? ownSnapshot : snapshot));
+			nextEntry = seekToLastEntry(iterator, null);
+			if (nextEntry == null)
+			{
+				closeQuietly();
+			}
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return nextEntry != null;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			if (nextEntry == null)
+			{
+				throw new NoSuchElementException();
+			}
+			Entry<byte[], byte[]> entry = nextEntry;
+			currentKey = entry.getKey();
+			performedDelete = false;
+
+			nextEntry = withinStart(iterator.hasPrev() ? iterator.prev() : null);
+			if (nextEntry == null)
+			{
+				closeQuietly();
+			}
+			return entry;
+		}
+
+		private void closeQuietly()
+		{
+			try
+			{
+				close();
+			}
+			catch (IOException e)
+			{
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			nextEntry = null;
+			if (iterator == null)
+			{
+				return;
+			}
+			try
+			{
+				iterator.close();
+			}
+			finally
+			{
+				iterator = null;
+				if (ownSnapshot != null)
+				{
+					ownSnapshot.close();
+					ownSnapshot = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the raw entries in reverse order in chunks of at most
+	 * {@value LevelDBStoredSortedMap#DESCENDING_CHUNK}, which are kept in a ring buffer. When the database can iterate
+	 * in reverse a chunk is read by walking back from the last returned key with prev(). Otherwise a forward scan up to
+	 * that key keeps the last entries it passes: on a bytewise ordered map the scan starts at a key found by bisection,
+	 * so it reads little more than one chunk; otherwise it starts at the beginning of the map. Like
+	 * {@link RawEntryIterator} every chunk is read with its own DBIterator, so this iterator does not hold on to any
+	 * resources.
+	 */
+	protected class BufferedDescendingRawEntryIterator extends RawEntryIterator
+	{
+		@SuppressWarnings("unchecked")
+		private final Entry<byte[], byte[]>[] ring = (Entry<byte[], byte[]>[]) new Entry<?, ?>[DESCENDING_CHUNK];
+		private int first;
+		private int remaining;
+		private boolean exhausted = false;
+
+		@Override
+		protected Entry<byte[], byte[]> computeNext()
+		{
+			if (remaining == 0 && !exhausted)
+			{
+				// The entries of the next chunk lie below the entry that was returned last
+				if (isReverseIterationSupported())
+				{
+					prevChunk(currentKey);
+				}
+				else if (isBytewiseOrdered())
+				{
+					bisectChunk(currentKey);
+				}
+				else
+				{
+					scanChunk(null, currentKey, Integer.MAX_VALUE);
+				}
+				exhausted = remaining == 0;
+			}
+			return remaining > 0 ? ring[(first + remaining - 1) % DESCENDING_CHUNK] : null;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			Entry<byte[], byte[]> entry = super.next();
+			ring[(first + remaining - 1) % DESCENDING_CHUNK] = null;
+			remaining--;
+			return entry;
+		}
+
+		/**
+		 * Reads the entries below the limit into the ring buffer by walking back from it with prev()
+		 * @param limit the exclusive upper limit, or null to read up to the end of the map
+		 */
+		private void prevChunk(byte[] limit)
+		{
+			int count = 0;
+			try (DBIterator i = getUnboundedDBIterator(getReadOptions()))
+			{
+				Entry<byte[], byte[]> entry = seekToLastEntry(i, limit);
+				while (entry != null)
+				{
+					ring[DESCENDING_CHUNK - 1 - count] = entry;
+					count++;
+					entry = count < DESCENDING_CHUNK ? withinStart(i.hasPrev() ? i.prev() : null) : null;
+				}
+			}
+			catch (IOException e)
+			{
+			}
+			remaining = count;
+			first = DESCENDING_CHUNK - count;
+		}
+
+		/**
+		 * Looks for a key from which there are between 1 and {@value LevelDBStoredSortedMap#DESCENDING_CHUNK} entries up to the limit, and
+		 * reads those entries
+		 */
+		private void bisectChunk(byte[] limit)
+		{
+			if (scanChunk(null, limit, DESCENDING_CHUNK + 1) <= DESCENDING_CHUNK)
+			{
+				return;
+			}
+
+			byte[] low = start != null ? start : new byte[0];
+			byte[] high = limit;
+			for (int n = 0; n < MAX_BISECTIONS; n++)
+			{
+				byte[] middle = midpoint(low, high);
+				if (BYTEWISE.compare(middle, low) <= 0)
+				{
+					break;
+				}
+				long count = scanChunk(middle, limit, DESCENDING_CHUNK + 1);
+				if (count > DESCENDING_CHUNK)
+				{
+					low = middle;
+				}
+				else if (count == 0)
+				{
+					high = middle;
+				}
+				else
+				{
+					return;
+				}
+			}
+			scanChunk(low, limit, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Reads the entries from a key up to the limit into the ring buffer, which keeps the last
+		 * {@value LevelDBStoredSortedMap#DESCENDING_CHUNK} of them
+		 * @param from the key to start at, or null to start at the first entry of the map
+		 * @param limit the exclusive upper limit, or null to read up to the end of the map
+		 * @param maxEntries the number of entries after which the scan stops
+		 * @return the number of entries read
+		 */
+		private long scanChunk(byte[] from, byte[] limit, int maxEntries)
+		{
+			long count = 0;
+			try (DBIterator i = getDBIterator())
+			{
+				if (from == null)
+				{
+					i.seekToFirst();
+				}
+				else
+				{
+					i.seek(from);
+				}
+				while (count < maxEntries && i.hasNext() && isBelow(i.peekNext().getKey(), limit))
+				{
+					ring[(int) (count % DESCENDING_CHUNK)] = i.next();
+					count++;
+				}
+			}
+			catch (IOException e)
+			{
+			}
+			remaining = (int) Math.min(count, DESCENDING_CHUNK);
+			first = count > DESCENDING_CHUNK ? (int) (count % DESCENDING_CHUNK) : 0;
+			return count;
+		}
+	}
+
+	public static class BindedDBComparator<K> extends SimpleDBComparator
+	{
+
+		private final EntryBinding<K> keyBinding;
+
+		public BindedDBComparator(EntryBinding<K> keyBinding)
+		{
+			this.keyBinding = keyBinding;
+		}
+
+		@Override
+		public int compare(byte[] key1, byte[] key2)
+		{
+			@SuppressWarnings("unchecked")
+			Comparable<K> k1 = (Comparable<K>) keyBinding.deserialize(key1);
+			K k2 = (K) keyBinding.deserialize(key2);
+
+			return k1.compareTo(k2);
+		}
+
+		@Override
+		public String name()
+		{
+			// TODO: Investigate better naming
+			return "BindedDBComparator";
+		}
+
+	}
+
+	public static class WrappedDBComparator<K> extends SimpleDBComparator
+	{
+
+		private final EntryBinding<K> keyBinding;
+		private final Comparator<? super K> comparator;
+
+		public WrappedDBComparator(EntryBinding<K> keyBinding, Comparator<? super K> comparator)
+		{
+			this.keyBinding = keyBinding;
+			this.comparator = comparator;
+		}
+
+		@Override
+		public int compare(byte[] key1, byte[] key2)
+		{
+			K k1 = (K) keyBinding.deserialize(key1);
+			K k2 = (K) keyBinding.deserialize(key2);
+
+			return comparator.compare(k1, k2);
+		}
+
+		@Override
+		public String name()
+		{
+			// TODO: Investigate better naming
+			return "WrappedDBComprator";
+		}
+
+	}
+
+	/**
+	 * Wraps a DBIterator but only exposes elements within the bounds of this map
+	 * @author Niels Slot <niels@gridline.nl>
+	 */
+	private class PartitionedDBIterator extends ForwardingDBIterator
+	{
+
+		private final DBIterator delegate;
+
+		public PartitionedDBIterator(DBIterator iterator)
+		{
+			delegate = iterator;
+		}
+
+		@Override
+		protected DBIterator delegate()
+		{
+			return delegate;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			// If the delegate doesn't have more, we can't offer either
+			if (!delegate.hasNext())
+			{
+				return false;
+			}
+
+			// We have no end and delegate has elements, so we have too
+			if (end == null)
+			{
+				return true;
+			}
+
+			// Check if the next key is within our range
+			return !isAboveEnd(delegate.peekNext().getKey());
+		}
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			return super.next();
+		}
+
+		@Override
+		public void seek(byte[] key)
+		{
+			// If key is before our first element
+			if (isBelowStart(key))
+			{
+				// Seek to the first element that we have
+				seekToFirst();
+				return;
+			}
+
+			// If key is after our last element
+			if (isAboveEnd(key))
+			{
+				// Seek to the end
+				super.seek(end);
+				if (endInclusive && delegate.hasNext() && dbcomparator.compare(delegate.peekNext().getKey(), end) == 0)
+				{
+					delegate.next();
+				}
+				return;
+			}
+
+			super.seek(key);
+		}
+
+		@Override
+		public void seekToFirst()
+		{
+			if (start == null)
+			{
+				delegate.seekToFirst();
+			}
+			else
+			{
+				delegate.seek(start);
+				if (!startInclusive && delegate.hasNext()
+						&& dbcomparator.compare(delegate.peekNext().getKey(), start) == 0)
+				{
+					delegate.next();
+				}
+			}
+		}
+
+		@Override
+		public Entry<byte[], byte[]> peekNext()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+
+			return super.peekNext();
+		}
+
+	}
+
+}
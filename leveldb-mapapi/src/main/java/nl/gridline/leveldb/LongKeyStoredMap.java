@@ -0,0 +1,257 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.io.IOException;
+import java.util.Map.Entry;
+
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+import nl.gridline.leveldb.bindings.utils.OrderedBytes;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.comparators.ReservedKeyDBComparator;
+import nl.gridline.leveldb.iterators.LongCursor;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Snapshot;
+
+/**
+ * A sorted map with long keys, which adds methods that take the key as a primitive to the {@link StoredSortedMap}
+ * interface. The keys are stored by the {@link SortableLongBinding}, in 8 bytes that are compared by a
+ * {@link BytewiseDBComparator}, so no key is ever deserialized to be compared. get(long) and containsKey(long) write
+ * the key into a buffer of the current thread, so a lookup does not box the key or allocate an array for it; writes
+ * still allocate the key, because LevelDB keeps it. {@link #cursor()} iterates without boxing the keys.
+ * <p>
+ * The database must be opened with a {@link BytewiseDBComparator}, wrapped in a {@link ReservedKeyDBComparator} when
+ * {@link MapOptions#countEntries(boolean)} is enabled, see {@link LevelDBMapFactory#createLongKeyMap(java.io.File,
+ * EntryBinding, MapOptions)}. The sub-maps returned by the long versions of subMap(), headMap() and tailMap() are
+ * LongKeyStoredMaps too.
+ * @param <V> the type of the values
+ */
+public class LongKeyStoredMap<V> extends LevelDBStoredSortedMap<Long, V>
+{
+
+	private static final ThreadLocal<byte[]> KEY_BUFFERS = new ThreadLocal<byte[]>()
+	{
+		@Override
+		protected byte[] initialValue()
+		{
+			return new byte[8];
+		}
+	};
+
+	private final DBComparator dbcomparator;
+
+	public LongKeyStoredMap(DB db, EntryBinding<V> valueBinding)
+	{
+		this(db, valueBinding, new MapOptions());
+	}
+
+	public LongKeyStoredMap(DB db, EntryBinding<V> valueBinding, MapOptions options)
+	{
+		this(db, options.countEntries() ? new ReservedKeyDBComparator(new BytewiseDBComparator(),
+				EntryCounter.COUNT_KEY) : new BytewiseDBComparator(), valueBinding, options,
+				options.countEntries() ? new EntryCounter(db) : null,
+				ValueCache.forOptions(options, valueBinding), null, null, null, null, true,
+				null, true);
+	}
+
+	protected LongKeyStoredMap(DB db, DBComparator dbcomparator, EntryBinding<V> valueBinding, MapOptions options,
+			EntryCounter counter, ValueCache<V> cache, WriteBehindBuffer writeBehind, KeyLocks locks, Snapshot snapshot,
+			byte[] start, boolean startInclusive, byte[] end, boolean endInclusive)
+	{
+		super(db, dbcomparator, new SortableLongBinding(), valueBinding, null, options, counter, cache, writeBehind,
+				locks, snapshot, start, startInclusive, end, endInclusive);
+		this.dbcomparator = dbcomparator;
+	}
+
+	/**
+	 * @return the key in the format of the {@link SortableLongBinding}, written into {@code bytes}
+	 */
+	private static byte[] encode(long key, byte[] bytes)
+	{
+		long bits = key ^ Long.MIN_VALUE;
+		for (int i = 8 - 1; i >= 0; i--)
+		{
+			bytes[i] = (byte) bits;
+			bits >>>= 8;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return the key in the buffer of the current thread, which must not be kept
+	 */
+	private static byte[] lookupKey(long key)
+	{
+		return encode(key, KEY_BUFFERS.get());
+	}
+
+	private static byte[] newKey(long key)
+	{
+		return encode(key, new byte[8]);
+	}
+
+	public V get(long key)
+	{
+		byte[] byteKey = lookupKey(key);
+		return isKeyWithinBounds(byteKey) ? getByteKey(byteKey) : null;
+	}
+
+	public boolean containsKey(long key)
+	{
+		byte[] byteKey = lookupKey(key);
+		return isKeyWithinBounds(byteKey) && getRawValue(byteKey) != null;
+	}
+
+	/**
+	 * See {@link #put(Object, Object)}
+	 * @throws IllegalArgumentException if the key is outside the bounds of this map
+	 */
+	public V put(long key, V value)
+	{
+		if (value == null)
+		{
+			throw new NullPointerException();
+		}
+		return putEntry(checkBounds(newKey(key)), value);
+	}
+
+	/**
+	 * See {@link #set(Object, Object)}
+	 * @throws IllegalArgumentException if the key is outside the bounds of this map
+	 */
+	public void set(long key, V value)
+	{
+		if (value == null)
+		{
+			throw new NullPointerException();
+		}
+		putByteKey(checkBounds(newKey(key)), byteValue(value));
+	}
+
+	private byte[] checkBounds(byte[] byteKey)
+	{
+		if (!isKeyWithinBounds(byteKey))
+		{
+			throw new IllegalArgumentException();
+		}
+		return byteKey;
+	}
+
+	public V remove(long key)
+	{
+		byte[] byteKey = newKey(key);
+		return isKeyWithinBounds(byteKey) ? removeEntry(byteKey) : null;
+	}
+
+	/**
+	 * See {@link #delete(Object)}
+	 */
+	public void delete(long key)
+	{
+		byte[] byteKey = newKey(key);
+		if (isKeyWithinBounds(byteKey))
+		{
+			deleteByteKey(byteKey);
+		}
+	}
+
+	public LongKeyStoredMap<V> subMap(long fromKey, long toKey)
+	{
+		return (LongKeyStoredMap<V>) subMap((Long) fromKey, true, (Long) toKey, false);
+	}
+
+	public LongKeyStoredMap<V> headMap(long toKey)
+	{
+		return (LongKeyStoredMap<V>) headMap((Long) toKey, false);
+	}
+
+	public LongKeyStoredMap<V> tailMap(long fromKey)
+	{
+		return (LongKeyStoredMap<V>) tailMap((Long) fromKey, true);
+	}
+
+	@Override
+	protected LongKeyStoredMap<V> newSubMap(byte[] start, boolean startInclusive, byte[] end, boolean endInclusive)
+	{
+		return new LongKeyStoredMap<V>(db, dbcomparator, valueBinding, options, counter, cache, writeBehind, locks,
+				snapshot, start, startInclusive, end, endInclusive);
+	}
+
+	/**
+	 * @return a cursor over the entries of this map, which must be closed
+	 */
+	public LongCursor<V> cursor()
+	{
+		return new EntryCursor();
+	}
+
+	private class EntryCursor implements LongCursor<V>
+	{
+		private final DBIterator iterator = getDBIterator();
+		private Entry<byte[], byte[]> entry;
+
+		public EntryCursor()
+		{
+			iterator.seekToFirst();
+		}
+
+		@Override
+		public boolean next()
+		{
+			entry = iterator.hasNext() ? iterator.next() : null;
+			return entry != null;
+		}
+
+		@Override
+		public long key()
+		{
+			checkEntry();
+			return OrderedBytes.decodeLong(entry.getKey(), 0);
+		}
+
+		@Override
+		public V value()
+		{
+			checkEntry();
+			return valueBinding.deserialize(entry.getValue());
+		}
+
+		private void checkEntry()
+		{
+			if (entry == null)
+			{
+				throw new IllegalStateException("The cursor is not on an entry");
+			}
+		}
+
+		@Override
+		public void seek(long key)
+		{
+			entry = null;
+			iterator.seek(newKey(key));
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			iterator.close();
+		}
+	}
+
+}
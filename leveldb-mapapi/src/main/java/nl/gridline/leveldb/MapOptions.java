@@ -0,0 +1,309 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.util.Arrays;
+
+/**
+ * Options that change the behaviour of a {@link StoredMap}. The setters return the options instance so calls can be
+ * chained, in the same way as the LevelDB {@link org.iq80.leveldb.Options}.
+ */
+public class MapOptions
+{
+
+	private boolean streamingIterators = false;
+	private boolean countEntries = false;
+	private boolean blindWrites = false;
+	private int clearBatchSize = 4 << 20;
+	private int cacheSize = 0;
+	private boolean immutableValues = false;
+	private boolean writeBehind = false;
+	private int writeBehindBatchSize = 1 << 20;
+	private long writeBehindDelay = 100;
+	private boolean syncWrites = false;
+	private int lockStripes = 64;
+
+	public MapOptions()
+	{
+	}
+
+	/**
+	 * Creates a copy of {@code other}
+	 * @param other the options to copy
+	 */
+	public MapOptions(MapOptions other)
+	{
+		streamingIterators = other.streamingIterators;
+		countEntries = other.countEntries;
+		blindWrites = other.blindWrites;
+		clearBatchSize = other.clearBatchSize;
+		cacheSize = other.cacheSize;
+		immutableValues = other.immutableValues;
+		writeBehind = other.writeBehind;
+		writeBehindBatchSize = other.writeBehindBatchSize;
+		writeBehindDelay = other.writeBehindDelay;
+		syncWrites = other.syncWrites;
+		lockStripes = other.lockStripes;
+	}
+
+	public boolean streamingIterators()
+	{
+		return streamingIterators;
+	}
+
+	/**
+	 * When enabled, every iterator obtained from the entrySet(), keySet() or values() keeps a single DBIterator open
+	 * on a LevelDB snapshot, instead of creating and seeking a new DBIterator for every call to hasNext() and next().
+	 * The iterator does not see changes made after it was created. It releases its DBIterator and snapshot when it is
+	 * exhausted, or when it is closed through {@link nl.gridline.leveldb.iterators.CloseableIterator#close()}.
+	 * @param streamingIterators true to enable streaming iterators
+	 * @return these options
+	 */
+	public MapOptions streamingIterators(boolean streamingIterators)
+	{
+		this.streamingIterators = streamingIterators;
+		return this;
+	}
+
+	public boolean countEntries()
+	{
+		return countEntries;
+	}
+
+	/**
+	 * When enabled, the number of entries is kept in a reserved key ({@link EntryCounter#COUNT_KEY}) of the database,
+	 * which is updated in the same WriteBatch as every change. size() then only reads that key. Every write to the
+	 * database must go through a map with this option enabled, otherwise the count becomes incorrect and has to be
+	 * rebuilt with {@link LevelDBStoredMap#rebuildSize()}. A sorted database must be opened with a
+	 * {@link nl.gridline.leveldb.comparators.ReservedKeyDBComparator}, which the factory methods do automatically.
+	 * @param countEntries true to enable entry counting
+	 * @return these options
+	 */
+	public MapOptions countEntries(boolean countEntries)
+	{
+		this.countEntries = countEntries;
+		return this;
+	}
+
+	public boolean blindWrites()
+	{
+		return blindWrites;
+	}
+
+	/**
+	 * When enabled, put() and remove() do not read the old value and always return null, like
+	 * {@link StoredMap#set(Object, Object)} and {@link StoredMap#delete(Object)}. This breaks the contract of
+	 * {@link java.util.Map}, so only enable it when the return values are never used. With entry counting enabled the
+	 * existence of the key is still looked up, but the old value is never deserialized.
+	 * @param blindWrites true to enable blind writes
+	 * @return these options
+	 */
+	public MapOptions blindWrites(boolean blindWrites)
+	{
+		this.blindWrites = blindWrites;
+		return this;
+	}
+
+	public int clearBatchSize()
+	{
+		return clearBatchSize;
+	}
+
+	/**
+	 * Sets the number of bytes of keys after which clear() writes its WriteBatch and starts a new one. Defaults to
+	 * 4 MB.
+	 * @param clearBatchSize the size of a batch in bytes
+	 * @return these options
+	 */
+	public MapOptions clearBatchSize(int clearBatchSize)
+	{
+		if (clearBatchSize <= 0)
+		{
+			throw new IllegalArgumentException("clearBatchSize must be positive");
+		}
+		this.clearBatchSize = clearBatchSize;
+		return this;
+	}
+
+	public int cacheSize()
+	{
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of values that get() keeps in a {@link ValueCache}. The cache is shared by the sub-maps
+	 * of a sorted map and is invalidated by every write through the map, its sub-maps and their iterators. Writes that
+	 * bypass the map, for example directly to the DB or through another map on the same DB, are not seen by the cache.
+	 * Defaults to 0, which disables the cache.
+	 * <p>
+	 * <b>By default the cache keeps the serialized values</b> and get() deserializes a new instance on every hit, so it
+	 * only saves the read from LevelDB. Values of immutable classes, such as Strings, boxed primitives and
+	 * {@link nl.gridline.leveldb.bindings.Tuple}s, are kept deserialized and returned as is, so for them the cache
+	 * saves the deserialization as well. With {@link #immutableValues(boolean)} enabled the cache keeps all values
+	 * deserialized and returns the same instance to every caller.
+	 * @param cacheSize the maximum number of cached values
+	 * @return these options
+	 */
+	public MapOptions cacheSize(int cacheSize)
+	{
+		if (cacheSize < 0)
+		{
+			throw new IllegalArgumentException("cacheSize must not be negative");
+		}
+		this.cacheSize = cacheSize;
+		return this;
+	}
+
+	public boolean immutableValues()
+	{
+		return immutableValues;
+	}
+
+	/**
+	 * Declares that the values are never modified after they were put into or read from the map. The
+	 * {@link #cacheSize(int) cache} then keeps the deserialized values and get() returns the same instance to every
+	 * caller, so a value modified by one caller would be seen by all others until it is evicted. Defaults to false.
+	 * @param immutableValues whether the values are never modified
+	 * @return these options
+	 */
+	public MapOptions immutableValues(boolean immutableValues)
+	{
+		this.immutableValues = immutableValues;
+		return this;
+	}
+
+	public boolean writeBehind()
+	{
+		return writeBehind;
+	}
+
+	/**
+	 * When enabled, writes are not written to the database right away but collected in a {@link WriteBehindBuffer},
+	 * which writes the writes of all threads together as one WriteBatch. get() and containsKey() see the pending
+	 * writes; size(), the iterators and the navigation methods of sorted maps flush them first. Pending writes are
+	 * lost if the process stops before they are flushed, so call {@link StoredMap#flush()} or
+	 * {@link StoredMap#close()} when they must be durable.
+	 * @param writeBehind true to enable write-behind
+	 * @return these options
+	 */
+	public MapOptions writeBehind(boolean writeBehind)
+	{
+		this.writeBehind = writeBehind;
+		return this;
+	}
+
+	public int writeBehindBatchSize()
+	{
+		return writeBehindBatchSize;
+	}
+
+	/**
+	 * Sets the number of bytes of pending keys and values after which the writing thread flushes them. Defaults to
+	 * 1 MB.
+	 * @param writeBehindBatchSize the size of a batch in bytes
+	 * @return these options
+	 */
+	public MapOptions writeBehindBatchSize(int writeBehindBatchSize)
+	{
+		if (writeBehindBatchSize <= 0)
+		{
+			throw new IllegalArgumentException("writeBehindBatchSize must be positive");
+		}
+		this.writeBehindBatchSize = writeBehindBatchSize;
+		return this;
+	}
+
+	public long writeBehindDelay()
+	{
+		return writeBehindDelay;
+	}
+
+	/**
+	 * Sets the time in milliseconds between flushes of the pending writes by a background thread. Defaults to 100.
+	 * @param writeBehindDelay the delay in milliseconds
+	 * @return these options
+	 */
+	public MapOptions writeBehindDelay(long writeBehindDelay)
+	{
+		if (writeBehindDelay <= 0)
+		{
+			throw new IllegalArgumentException("writeBehindDelay must be positive");
+		}
+		this.writeBehindDelay = writeBehindDelay;
+		return this;
+	}
+
+	public boolean syncWrites()
+	{
+		return syncWrites;
+	}
+
+	/**
+	 * When enabled, every WriteBatch is written with {@link org.iq80.leveldb.WriteOptions#sync(boolean)}, so it is on
+	 * disk before the write returns. With write-behind this applies to every group of writes.
+	 * @param syncWrites true to sync every write
+	 * @return these options
+	 */
+	public MapOptions syncWrites(boolean syncWrites)
+	{
+		this.syncWrites = syncWrites;
+		return this;
+	}
+
+	public int lockStripes()
+	{
+		return lockStripes;
+	}
+
+	/**
+	 * Sets the number of locks that serialize the writes to a key, see {@link KeyLocks}. Writes to keys with the same
+	 * lock wait for each other, so more locks allow more concurrent writes. Defaults to 64.
+	 * @param lockStripes the number of locks, rounded up to a power of two
+	 * @return these options
+	 */
+	public MapOptions lockStripes(int lockStripes)
+	{
+		if (lockStripes <= 0)
+		{
+			throw new IllegalArgumentException("lockStripes must be positive");
+		}
+		this.lockStripes = lockStripes;
+		return this;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (!(obj instanceof MapOptions))
+		{
+			return false;
+		}
+		MapOptions other = (MapOptions) obj;
+		return streamingIterators == other.streamingIterators && countEntries == other.countEntries
+				&& blindWrites == other.blindWrites && clearBatchSize == other.clearBatchSize
+				&& cacheSize == other.cacheSize && immutableValues == other.immutableValues
+				&& writeBehind == other.writeBehind && writeBehindBatchSize == other.writeBehindBatchSize
+				&& writeBehindDelay == other.writeBehindDelay && syncWrites == other.syncWrites
+				&& lockStripes == other.lockStripes;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(new Object[] { streamingIterators, countEntries, blindWrites, clearBatchSize, cacheSize,
+				immutableValues, writeBehind, writeBehindBatchSize, writeBehindDelay, syncWrites, lockStripes });
+	}
+
+}
@@ -0,0 +1,201 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+/**
+ * The {@link NavigableSet} of the keys of a {@link NavigableMap}. All methods are forwarded to the map.
+ */
+class NavigableKeySet<K> extends AbstractSet<K> implements NavigableSet<K>
+{
+
+	private final NavigableMap<K, ?> map;
+
+	NavigableKeySet(NavigableMap<K, ?> map)
+	{
+		this.map = map;
+	}
+
+	private static <K> K keyOrNull(Map.Entry<K, ?> entry)
+	{
+		return entry == null ? null : entry.getKey();
+	}
+
+	@Override
+	public Iterator<K> iterator()
+	{
+		return map.keySet().iterator();
+	}
+
+	@Override
+	public Spliterator<K> spliterator()
+	{
+		return map.keySet().spliterator();
+	}
+
+	@Override
+	public Stream<K> stream()
+	{
+		return map.keySet().stream();
+	}
+
+	@Override
+	public Stream<K> parallelStream()
+	{
+		return map.keySet().parallelStream();
+	}
+
+	@Override
+	public Iterator<K> descendingIterator()
+	{
+		return map.descendingMap().keySet().iterator();
+	}
+
+	@Override
+	public int size()
+	{
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		return map.containsKey(o);
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		return map.remove(o) != null;
+	}
+
+	@Override
+	public void clear()
+	{
+		map.clear();
+	}
+
+	@Override
+	public Comparator<? super K> comparator()
+	{
+		return map.comparator();
+	}
+
+	@Override
+	public K first()
+	{
+		return map.firstKey();
+	}
+
+	@Override
+	public K last()
+	{
+		return map.lastKey();
+	}
+
+	@Override
+	public K lower(K e)
+	{
+		return map.lowerKey(e);
+	}
+
+	@Override
+	public K floor(K e)
+	{
+		return map.floorKey(e);
+	}
+
+	@Override
+	public K ceiling(K e)
+	{
+		return map.ceilingKey(e);
+	}
+
+	@Override
+	public K higher(K e)
+	{
+		return map.higherKey(e);
+	}
+
+	@Override
+	public K pollFirst()
+	{
+		return keyOrNull(map.pollFirstEntry());
+	}
+
+	@Override
+	public K pollLast()
+	{
+		return keyOrNull(map.pollLastEntry());
+	}
+
+	@Override
+	public NavigableSet<K> descendingSet()
+	{
+		return new NavigableKeySet<K>(map.descendingMap());
+	}
+
+	@Override
+	public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive)
+	{
+		return new NavigableKeySet<K>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+	}
+
+	@Override
+	public NavigableSet<K> headSet(K toElement, boolean inclusive)
+	{
+		return new NavigableKeySet<K>(map.headMap(toElement, inclusive));
+	}
+
+	@Override
+	public NavigableSet<K> tailSet(K fromElement, boolean inclusive)
+	{
+		return new NavigableKeySet<K>(map.tailMap(fromElement, inclusive));
+	}
+
+	@Override
+	public SortedSet<K> subSet(K fromElement, K toElement)
+	{
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<K> headSet(K toElement)
+	{
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<K> tailSet(K fromElement)
+	{
+		return tailSet(fromElement, true);
+	}
+
+}
@@ -15,23 +15,12 @@
 package nl.gridline.leveldb;
 
 /**
- * {@link StoredMap} entry (de)serializer
- * @author <a href="mailto:job@gridline.nl">Job</a>
+ * An {@link EntryBinding} of which the serialized objects, compared as unsigned bytes, sort in the same order as the
+ * natural ordering of the objects. Sorted maps with such a key binding can use a
+ * {@link nl.gridline.leveldb.comparators.BytewiseDBComparator}, which never has to deserialize a key.
  * @param <K> object type to (de)serialize
  */
-public interface EntryBinding<K>
+public interface OrderPreservingBinding<K> extends EntryBinding<K>
 {
-	/**
-	 * Serializes {@code object} into a byte array
-	 * @param object some object
-	 * @return non null byte array
-	 */
-	byte[] serialize(K object);
 
-	/**
-	 * Deserializes {@code object} into {@code K}
-	 * @param object non null byte array
-	 * @return the original object, can be null if the byte array is empty
-	 */
-	K deserialize(byte[] object);
 }
@@ -0,0 +1,357 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counters that are incremented in memory and periodically added to a {@link StoredMap} of longs, usually one with a
+ * {@link nl.gridline.leveldb.bindings.LongBinding}, see {@link LevelDBMapFactory#createCounterMap(java.io.File,
+ * EntryBinding)}.
+ * <p>
+ * An increment only adds to a {@link LongAdder} of the key and takes no lock, so threads that increment the same key
+ * do not wait for each other, for LevelDB or for a flush. A background thread regularly adds the pending increments to
+ * the stored values, writing at most {@link #FLUSH_BATCH_SIZE} counters per WriteBatch. {@link #get(Object)} returns
+ * the stored value plus the pending increments.
+ * <p>
+ * The counters must only be changed through this object: a flush reads the stored values and writes the new totals,
+ * so a concurrent write to the same keys through the map is lost.
+ * @param <K> the type of keys
+ */
+public class StoredCounterMap<K> implements Closeable
+{
+
+	public static final long DEFAULT_FLUSH_DELAY = 1000;
+
+	/**
+	 * The maximum number of counters written in one WriteBatch
+	 */
+	public static final int FLUSH_BATCH_SIZE = 10000;
+
+	private final StoredMap<K, Long> map;
+	private final boolean ownsMap;
+	private final ScheduledExecutorService scheduler;
+
+	// Increments take no lock, see Generation. get() reads under the read lock, while a flush swaps the generations and
+	// moves the written counters from the flushing generation to the map under the write lock, so get() never sees an
+	// increment both in the map and in the counters being flushed
+	private final ReadWriteLock publishLock = new ReentrantReadWriteLock();
+	private final Lock flushLock = new ReentrantLock();
+	private volatile Generation<K> pending = new Generation<K>();
+	private volatile Map<K, LongAdder> flushing = Collections.emptyMap();
+
+	/**
+	 * Creates counters that are flushed every {@link #DEFAULT_FLUSH_DELAY} milliseconds. The map is not closed by
+	 * {@link #close()}.
+	 */
+	public StoredCounterMap(StoredMap<K, Long> map)
+	{
+		this(map, DEFAULT_FLUSH_DELAY, false);
+	}
+
+	/**
+	 * @param flushDelay the time in milliseconds between flushes by the background thread
+	 */
+	public StoredCounterMap(StoredMap<K, Long> map, long flushDelay)
+	{
+		this(map, flushDelay, false);
+	}
+
+	StoredCounterMap(StoredMap<K, Long> map, long flushDelay, boolean ownsMap)
+	{
+		if (flushDelay <= 0)
+		{
+			throw new IllegalArgumentException("flushDelay must be positive");
+		}
+		this.map = map;
+		this.ownsMap = ownsMap;
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "leveldb-mapapi counter flush");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					flush();
+				}
+				catch (RuntimeException e)
+				{
+					// The increments are pending again, the next flush retries them
+				}
+			}
+		}, flushDelay, flushDelay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the map the counters are stored in
+	 */
+	public StoredMap<K, Long> getMap()
+	{
+		return map;
+	}
+
+	public void increment(K key)
+	{
+		add(key, 1);
+	}
+
+	/**
+	 * Adds delta to the counter of the key. The stored value is updated by the next flush.
+	 */
+	public void add(K key, long delta)
+	{
+		if (key == null)
+		{
+			throw new NullPointerException();
+		}
+
+		// A flush replaces the pending generation before it seals it, so a retry adds to the next generation
+		while (!pending.add(key, delta))
+		{
+		}
+	}
+
+	/**
+	 * @return the stored value of the counter plus its pending increments, or 0 if the counter does not exist
+	 */
+	public long get(K key)
+	{
+		publishLock.readLock().lock();
+		try
+		{
+			Long stored = map.get(key);
+			long value = stored == null ? 0 : stored.longValue();
+			LongAdder cell = pending.counters.get(key);
+			if (cell != null)
+			{
+				value += cell.sum();
+			}
+			cell = flushing.get(key);
+			if (cell != null)
+			{
+				value += cell.sum();
+			}
+			return value;
+		}
+		finally
+		{
+			publishLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds all pending increments to the stored values. Waits for a flush by another thread to finish first.
+	 */
+	public void flush()
+	{
+		if (pending.counters.isEmpty())
+		{
+			return;
+		}
+
+		flushLock.lock();
+		try
+		{
+			Generation<K> generation;
+			publishLock.writeLock().lock();
+			try
+			{
+				generation = pending;
+				if (generation.counters.isEmpty())
+				{
+					return;
+				}
+				flushing = generation.counters;
+				pending = new Generation<K>();
+			}
+			finally
+			{
+				publishLock.writeLock().unlock();
+			}
+			generation.seal();
+
+			Map<K, LongAdder> counters = generation.counters;
+			try
+			{
+				write(counters);
+			}
+			catch (RuntimeException e)
+			{
+				restore(counters);
+				throw e;
+			}
+		}
+		finally
+		{
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the counters in batches of {@link #FLUSH_BATCH_SIZE}. The counters can no longer change, and only the
+	 * thread holding the flush lock writes to the map, so the stored values are read without any lock. Every batch is
+	 * written under the write lock, which only get() waits for.
+	 */
+	private void write(Map<K, LongAdder> counters)
+	{
+		List<K> keys = new ArrayList<K>(counters.keySet());
+		for (int from = 0; from < keys.size(); from += FLUSH_BATCH_SIZE)
+		{
+			List<K> batch = keys.subList(from, Math.min(from + FLUSH_BATCH_SIZE, keys.size()));
+			Map<K, Long> stored = map.getAll(batch);
+			Map<K, Long> totals = new HashMap<K, Long>();
+			for (K key : batch)
+			{
+				long delta = counters.get(key).sum();
+				if (delta != 0)
+				{
+					Long value = stored.get(key);
+					totals.put(key, value == null ? delta : value.longValue() + delta);
+				}
+			}
+
+			publishLock.writeLock().lock();
+			try
+			{
+				map.putAll(totals);
+				for (K key : batch)
+				{
+					counters.remove(key);
+				}
+			}
+			finally
+			{
+				publishLock.writeLock().unlock();
+			}
+		}
+		flushing = Collections.emptyMap();
+	}
+
+	/**
+	 * Makes the increments that could not be written pending again
+	 */
+	private void restore(Map<K, LongAdder> counters)
+	{
+		publishLock.writeLock().lock();
+		try
+		{
+			for (Map.Entry<K, LongAdder> counter : counters.entrySet())
+			{
+				add(counter.getKey(), counter.getValue().sum());
+			}
+			flushing = Collections.emptyMap();
+		}
+		finally
+		{
+			publishLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The counters that increments add to until a flush takes them. An increment registers itself in two LongAdders
+	 * instead of taking a lock: a flush first replaces the pending generation, then seals the old one and waits until
+	 * every increment that entered it has left, so after {@link #seal()} its counters no longer change.
+	 */
+	private static class Generation<K>
+	{
+		private final ConcurrentHashMap<K, LongAdder> counters = new ConcurrentHashMap<K, LongAdder>();
+		private final LongAdder entered = new LongAdder();
+		private final LongAdder left = new LongAdder();
+		private volatile boolean sealed = false;
+
+		/**
+		 * @return false if this generation is sealed, so the increment must be added to the next one
+		 */
+		public boolean add(K key, long delta)
+		{
+			entered.increment();
+			try
+			{
+				if (sealed)
+				{
+					return false;
+				}
+				LongAdder cell = counters.get(key);
+				if (cell == null)
+				{
+					cell = counters.computeIfAbsent(key, k -> new LongAdder());
+				}
+				cell.add(delta);
+				return true;
+			}
+			finally
+			{
+				left.increment();
+			}
+		}
+
+		/**
+		 * Stops new increments and waits for the ones that are still adding to this generation
+		 */
+		public void seal()
+		{
+			sealed = true;
+			// An increment that entered before it saw the seal is counted in entered, and left only ever trails it
+			while (left.sum() != entered.sum())
+			{
+				Thread.yield();
+			}
+		}
+	}
+
+	/**
+	 * Stops the background thread and flushes the pending increments. The map is only closed when it was created by
+	 * {@link LevelDBMapFactory#createCounterMap(java.io.File, EntryBinding)}.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		scheduler.shutdown();
+		flush();
+		if (ownsMap)
+		{
+			map.close();
+		}
+	}
+
+}
@@ -0,0 +1,69 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import org.iq80.leveldb.DB;
+
+/**
+ * <p>
+ * {@link Map} interface on top of the {@link DB} implementation
+ * </p>
+ * @author <a href="mailto:job@gridline.nl">Job</a>
+ * @param <K>
+ * @param <V>
+ */
+public interface StoredMap<K, V> extends ConcurrentMap<K, V>, Closeable
+{
+
+	/**
+	 * Associates {@code value} with {@code key}, like {@link #put(Object, Object)}, but without reading and returning
+	 * the previous value.
+	 * @param key key with which the value is to be associated
+	 * @param value value to be associated with the key
+	 */
+	void set(K key, V value);
+
+	/**
+	 * Removes the mapping for {@code key} if it is present, like {@link #remove(Object)}, but without reading and
+	 * returning the previous value.
+	 * @param key key whose mapping is to be removed
+	 */
+	void delete(K key);
+
+	/**
+	 * Looks up many keys at once, which is cheaper than calling {@link #get(Object)} for every key.
+	 * @param keys the keys to look up
+	 * @return a map with the keys that exist in this map and their values
+	 */
+	Map<K, V> getAll(Collection<? extends K> keys);
+
+	/**
+	 * Returns a read-only view of this map as it is now. Reads from the view never see later changes, so many keys can
+	 * be read consistently without locking. Closing the view releases the snapshot it reads from, not the database.
+	 * @return the read-only view
+	 */
+	StoredMap<K, V> snapshot();
+
+	/**
+	 * Writes changes that this map buffers to the database. Maps that do not buffer changes do nothing.
+	 */
+	void flush();
+
+}
@@ -0,0 +1,54 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.util.NavigableMap;
+
+import org.iq80.leveldb.DB;
+
+/**
+ * <p>
+ * {@link NavigableMap} interface on top of the {@link DB} implementation
+ * </p>
+ * @author <a href="mailto:job@gridline.nl">Job</a>
+ */
+public interface StoredSortedMap<K, V> extends StoredMap<K, V>, NavigableMap<K, V>
+{
+
+	@Override
+	StoredSortedMap<K, V> snapshot();
+
+	@Override
+	StoredSortedMap<K, V> descendingMap();
+
+	@Override
+	StoredSortedMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive);
+
+	@Override
+	StoredSortedMap<K, V> headMap(K toKey, boolean inclusive);
+
+	@Override
+	StoredSortedMap<K, V> tailMap(K fromKey, boolean inclusive);
+
+	@Override
+	StoredSortedMap<K, V> subMap(K fromKey, K toKey);
+
+	@Override
+	StoredSortedMap<K, V> headMap(K toKey);
+
+	@Override
+	StoredSortedMap<K, V> tailMap(K fromKey);
+
+}
@@ -0,0 +1,272 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nl.gridline.leveldb.bindings.Tuple;
+
+/**
+ * A cache of values in front of {@link LevelDBStoredMap#get(Object)}, keyed on the serialized keys. The cache is split
+ * into segments which each hold a part of the entries in least recently used order under their own lock.
+ * <p>
+ * The map invalidates a key after every write of that key, including writes through sub-maps and iterators. To
+ * prevent a read that raced with such a write from caching the old value, every segment keeps a generation which is
+ * incremented by each invalidation; a value is only cached if the generation did not change since it was read.
+ * <p>
+ * A cache created with a binding keeps the serialized values and deserializes a new instance for every lookup, so
+ * callers may modify the values they get. Values of immutable classes, such as Strings, boxed primitives and
+ * {@link Tuple}s, are the exception: they are kept deserialized, since no caller can modify them. A cache created
+ * without a binding keeps all deserialized values and returns the same instance to every caller, which is only safe
+ * for values that are never modified, see {@link MapOptions#immutableValues(boolean)}.
+ * @param <V> the type of the cached values
+ */
+public class ValueCache<V>
+{
+
+	private static final int SEGMENTS = 16;
+
+	/**
+	 * Classes of which the instances cannot be modified, so they can be shared even when the cache makes copies
+	 */
+	private static final Set<Class<?>> IMMUTABLE_CLASSES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+			String.class, Boolean.class, Byte.class, Character.class, Short.class, Integer.class, Long.class,
+			Float.class, Double.class, BigInteger.class, BigDecimal.class, Tuple.class));
+
+	private final Segment[] segments;
+	private final EntryBinding<V> binding;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache that returns the cached instances themselves
+	 * @param maximumSize the maximum number of values in the cache
+	 */
+	public ValueCache(int maximumSize)
+	{
+		this(maximumSize, null);
+	}
+
+	/**
+	 * Creates a cache that keeps the serialized values and deserializes them with the binding for every lookup, unless
+	 * the binding is null or the values are of an immutable class such as String or Long
+	 * @param maximumSize the maximum number of values in the cache
+	 * @param binding the binding of the values, or null to cache the instances themselves
+	 */
+	public ValueCache(int maximumSize, EntryBinding<V> binding)
+	{
+		if (maximumSize <= 0)
+		{
+			throw new IllegalArgumentException("maximumSize must be positive");
+		}
+
+		// Segments of at least 16 values, so the least recently used order means something in small caches
+		int segmentCount = Math.max(1, Math.min(SEGMENTS, Integer.highestOneBit(maximumSize / 16)));
+		int segmentSize = (maximumSize + segmentCount - 1) / segmentCount;
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			segments[i] = new Segment(segmentSize, evictions);
+		}
+		this.binding = binding;
+	}
+
+	/**
+	 * Creates the cache that the options ask for
+	 * @return the cache, or null if {@link MapOptions#cacheSize()} is 0
+	 */
+	static <V> ValueCache<V> forOptions(MapOptions options, EntryBinding<V> valueBinding)
+	{
+		if (options.cacheSize() == 0)
+		{
+			return null;
+		}
+		return new ValueCache<V>(options.cacheSize(), options.immutableValues() ? null : valueBinding);
+	}
+
+	/**
+	 * @return the cached value of the key, or null if it is not cached
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(byte[] key)
+	{
+		Object value = segmentFor(key).get(ByteBuffer.wrap(key));
+		if (value == null)
+		{
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return binding != null && value instanceof byte[] ? binding.deserialize((byte[]) value) : (V) value;
+	}
+
+	/**
+	 * @return the generation to pass to {@link #put(byte[], byte[], Object, long)} for a value that is about to be read
+	 */
+	public long generation(byte[] key)
+	{
+		return segmentFor(key).generation();
+	}
+
+	/**
+	 * Caches the value of a key, unless the key may have been written since {@code generation} was obtained.
+	 * @param key the serialized key
+	 * @param rawValue the serialized value, which must not be modified afterwards
+	 * @param value the deserialized value
+	 * @param generation the generation obtained before the value was read
+	 */
+	public void put(byte[] key, byte[] rawValue, V value, long generation)
+	{
+		boolean copy = binding != null && !IMMUTABLE_CLASSES.contains(value.getClass());
+		segmentFor(key).put(ByteBuffer.wrap(Arrays.copyOf(key, key.length)), copy ? rawValue : value, generation);
+	}
+
+	public void invalidate(byte[] key)
+	{
+		segmentFor(key).invalidate(ByteBuffer.wrap(key));
+	}
+
+	public void invalidateAll()
+	{
+		for (Segment segment : segments)
+		{
+			segment.invalidateAll();
+		}
+	}
+
+	/**
+	 * @return the number of values in the cache
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups that found a cached value
+	 */
+	public long hitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that did not find a cached value
+	 */
+	public long missCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of values that were removed to make room for others
+	 */
+	public long evictionCount()
+	{
+		return evictions.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ValueCache[size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount() + ", evictions="
+				+ evictionCount() + "]";
+	}
+
+	private Segment segmentFor(byte[] key)
+	{
+		int hash = Arrays.hashCode(key);
+		hash ^= (hash >>> 16);
+		return segments[hash & (segments.length - 1)];
+	}
+
+	/**
+	 * Holds the serialized or deserialized values of part of the keys
+	 */
+	private static class Segment
+	{
+		private final Map<ByteBuffer, Object> values;
+		private long generation = 0;
+
+		public Segment(final int maximumSize, final AtomicLong evictions)
+		{
+			values = new LinkedHashMap<ByteBuffer, Object>(16, 0.75f, true)
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Object> eldest)
+				{
+					if (size() > maximumSize)
+					{
+						evictions.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		public synchronized Object get(ByteBuffer key)
+		{
+			return values.get(key);
+		}
+
+		public synchronized long generation()
+		{
+			return generation;
+		}
+
+		public synchronized void put(ByteBuffer key, Object value, long generation)
+		{
+			if (this.generation == generation)
+			{
+				values.put(key, value);
+			}
+		}
+
+		public synchronized void invalidate(ByteBuffer key)
+		{
+			generation++;
+			values.remove(key);
+		}
+
+		public synchronized void invalidateAll()
+		{
+			generation++;
+			values.clear();
+		}
+
+		public synchronized int size()
+		{
+			return values.size();
+		}
+	}
+
+}
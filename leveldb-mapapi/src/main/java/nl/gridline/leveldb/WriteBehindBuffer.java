@@ -0,0 +1,225 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Collects the writes of many threads and writes them to LevelDB as one WriteBatch, see
+ * {@link MapOptions#writeBehind(boolean)}. Pending writes are kept per key, so only the last write of a key is
+ * written. A flush happens when the pending writes reach {@link MapOptions#writeBehindBatchSize(int)} bytes, in the
+ * thread that made the last write, and every {@link MapOptions#writeBehindDelay(long)} milliseconds in a background
+ * thread.
+ * <p>
+ * A flush swaps the pending writes for an empty map and writes them while other threads continue writing to the new
+ * map. Until the batch is written, {@link #get(byte[])} still finds the writes being flushed.
+ */
+public class WriteBehindBuffer
+{
+
+	/**
+	 * The pending value of a deleted key
+	 */
+	public static final byte[] DELETED = new byte[0];
+
+	/**
+	 * Writes a group of pending writes to the database
+	 */
+	public interface Flusher
+	{
+		/**
+		 * @param writes the new value of every key, or {@link WriteBehindBuffer#DELETED}
+		 */
+		void write(Map<ByteBuffer, byte[]> writes);
+	}
+
+	private final Flusher flusher;
+	private final long batchSize;
+	private final ScheduledExecutorService scheduler;
+
+	// Writers add to the pending writes under the read lock, a flush swaps them under the write lock
+	private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+	private final Lock flushLock = new ReentrantLock();
+	private final AtomicLong pendingBytes = new AtomicLong();
+	private volatile ConcurrentMap<ByteBuffer, byte[]> pending = new ConcurrentHashMap<ByteBuffer, byte[]>();
+	private volatile Map<ByteBuffer, byte[]> flushing = Collections.emptyMap();
+
+	public WriteBehindBuffer(MapOptions options, Flusher flusher)
+	{
+		this.flusher = flusher;
+		this.batchSize = options.writeBehindBatchSize();
+
+		scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "leveldb-mapapi write-behind");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long delay = options.writeBehindDelay();
+		scheduler.scheduleWithFixedDelay(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					flush();
+				}
+				catch (RuntimeException e)
+				{
+					// The writes are pending again, the next flush retries them
+				}
+			}
+		}, delay, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return the pending value of the key, {@link #DELETED} if it is pending deletion, or null if it has no pending
+	 *         write
+	 */
+	public byte[] get(byte[] key)
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(key);
+		byte[] value = pending.get(buffer);
+		if (value == null)
+		{
+			value = flushing.get(buffer);
+		}
+		return value;
+	}
+
+	public void put(byte[] key, byte[] value)
+	{
+		swapLock.readLock().lock();
+		try
+		{
+			pending.put(ByteBuffer.wrap(key), value);
+		}
+		finally
+		{
+			swapLock.readLock().unlock();
+		}
+
+		if (pendingBytes.addAndGet(key.length + value.length) >= batchSize)
+		{
+			flush();
+		}
+	}
+
+	public void delete(byte[] key)
+	{
+		put(key, DELETED);
+	}
+
+	/**
+	 * Writes all pending writes to the database. Waits for a flush by another thread to finish first.
+	 */
+	public void flush()
+	{
+		if (pending.isEmpty() && flushing.isEmpty())
+		{
+			return;
+		}
+
+		flushLock.lock();
+		try
+		{
+			Map<ByteBuffer, byte[]> writes;
+			swapLock.writeLock().lock();
+			try
+			{
+				if (pending.isEmpty())
+				{
+					return;
+				}
+				writes = pending;
+				flushing = writes;
+				pending = new ConcurrentHashMap<ByteBuffer, byte[]>();
+				pendingBytes.set(0);
+			}
+			finally
+			{
+				swapLock.writeLock().unlock();
+			}
+
+			try
+			{
+				flusher.write(writes);
+			}
+			catch (RuntimeException e)
+			{
+				restore(writes);
+				throw e;
+			}
+			finally
+			{
+				flushing = Collections.emptyMap();
+			}
+		}
+		finally
+		{
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Makes writes that could not be written pending again, unless the key was written since
+	 */
+	private void restore(Map<ByteBuffer, byte[]> writes)
+	{
+		swapLock.readLock().lock();
+		try
+		{
+			for (Map.Entry<ByteBuffer, byte[]> write : writes.entrySet())
+			{
+				if (pending.putIfAbsent(write.getKey(), write.getValue()) == null)
+				{
+					pendingBytes.addAndGet(write.getKey().remaining() + write.getValue().length);
+				}
+			}
+		}
+		finally
+		{
+			swapLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Flushes the pending writes and stops the background thread
+	 */
+	public void close()
+	{
+		scheduler.shutdown();
+		flush();
+	}
+
+}
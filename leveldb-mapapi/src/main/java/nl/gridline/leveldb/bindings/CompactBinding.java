@@ -0,0 +1,904 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+/**
+ * Implementation of {@link EntryBinding} that writes objects in a compact, tagged format instead of the format of
+ * {@link java.io.ObjectOutputStream}. Every class must be registered with a small number with
+ * {@link #register(int, Class)}, which is written instead of the class name, and every field that is stored must be
+ * annotated with a {@link Tag}:
+ * 
+ * <pre>
+ * public class Person
+ * {
+ * 	&#064;Tag(1)
+ * 	private String name;
+ * 	&#064;Tag(2)
+ * 	private int age;
+ * }
+ * 
+ * CompactBinding&lt;Person&gt; binding = new CompactBinding&lt;Person&gt;().register(1, Person.class);
+ * </pre>
+ * 
+ * An object is written as the number of its class followed by its fields. Every field starts with its tag and the way
+ * its value is encoded: integers as variable length numbers, floating point numbers in 4 or 8 bytes, Strings as UTF-8
+ * and other registered objects by length followed by their own fields. A null value is written as a tag only. The
+ * fields of a class are looked up and accessed through method handles that are created once, when the class is
+ * registered. Supported field types are the primitive types and their wrappers, String, byte[], enums and registered
+ * classes.
+ * <p>
+ * Classes can change between writing and reading: fields that are unknown to the class, or that are now of a type that
+ * is encoded differently, are skipped, and fields that were not written keep the value the no-argument constructor
+ * gives them. The tag of a removed field must not be used again. Enums are written by ordinal, so constants may only be
+ * added at the end.
+ * <p>
+ * Register all classes before the binding is used; after that it can be used by many threads.
+ * @param <K> the type of objects
+ */
+public class CompactBinding<K> implements EntryBinding<K>
+{
+
+	/**
+	 * The number of a field in the compact format. It must be unique within the class and its superclasses, between 1
+	 * and {@link CompactBinding#MAX_TAG}.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	public @interface Tag
+	{
+		int value();
+	}
+
+	public static final int MAX_TAG = 4095;
+
+	private static final int VARINT = 0;
+	private static final int FIXED64 = 1;
+	private static final int LENGTH = 2;
+	private static final int NULL = 3;
+	private static final int FIXED32 = 5;
+
+	private final Map<Class<?>, Schema> schemasByClass = new HashMap<Class<?>, Schema>();
+	private final Map<Integer, Schema> schemasById = new HashMap<Integer, Schema>();
+
+	/**
+	 * Registers a class, so objects of the class can be (de)serialized by this binding. The class needs a no-argument
+	 * constructor, which may be private.
+	 * @param id the number that identifies the class in the serialized form
+	 * @param clazz the class
+	 * @return this binding
+	 * @throws IllegalArgumentException if the id or class is already registered, or the class or one of its fields is
+	 *            not supported
+	 */
+	public CompactBinding<K> register(int id, Class<?> clazz)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("The id of a class must not be negative");
+		}
+		if (schemasById.containsKey(id))
+		{
+			throw new IllegalArgumentException("Id " + id + " is already registered");
+		}
+		if (schemasByClass.containsKey(clazz))
+		{
+			throw new IllegalArgumentException(clazz.getName() + " is already registered");
+		}
+
+		Schema schema = new Schema(id, clazz);
+		schemasById.put(id, schema);
+		schemasByClass.put(clazz, schema);
+		return this;
+	}
+
+	@Override
+	public byte[] serialize(K object)
+	{
+		Output out = new Output();
+		try
+		{
+			writeObject(object, out);
+		}
+		catch (ObjectSerializeException e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new ObjectSerializeException("Failed to serialize object", e);
+		}
+		return out.toArray();
+	}
+
+	@Override
+	public K deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K deserialize(byte[] bytes, int offset, int length)
+	{
+		Input in = new Input(bytes, offset, offset + length);
+		try
+		{
+			return (K) readObject(in, offset + length);
+		}
+		catch (ObjectSerializeException e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new ObjectSerializeException("Failed to deserialize object", e);
+		}
+	}
+
+	private void writeObject(Object object, Output out) throws Throwable
+	{
+		Schema schema = schemasByClass.get(object.getClass());
+		if (schema == null)
+		{
+			throw new ObjectSerializeException("Class " + object.getClass().getName() + " is not registered", null);
+		}
+		out.writeVarLong(schema.id);
+		for (FieldCodec field : schema.fields)
+		{
+			field.write(object, out);
+		}
+	}
+
+	private Object readObject(Input in, int end) throws Throwable
+	{
+		long id = in.readVarLong();
+		Schema schema = id <= Integer.MAX_VALUE ? schemasById.get((int) id) : null;
+		if (schema == null)
+		{
+			throw new ObjectSerializeException("Class id " + id + " is not registered", null);
+		}
+
+		Object object = schema.constructor.invokeExact();
+		while (in.pos < end)
+		{
+			long key = in.readVarLong();
+			int wireType = (int) (key & 7);
+			long tag = key >>> 3;
+			FieldCodec field = tag < schema.fieldsByTag.length ? schema.fieldsByTag[(int) tag] : null;
+			if (field != null && field.accepts(wireType))
+			{
+				field.read(object, wireType, in);
+			}
+			else
+			{
+				in.skip(wireType);
+			}
+		}
+		if (in.pos != end)
+		{
+			throw new ObjectSerializeException("Corrupt object of " + schema.type.getName(), null);
+		}
+		return object;
+	}
+
+	/**
+	 * The fields of a registered class
+	 */
+	private final class Schema
+	{
+		private final int id;
+		private final Class<?> type;
+		private final MethodHandle constructor;
+		private final FieldCodec[] fields;
+		private final FieldCodec[] fieldsByTag;
+
+		Schema(int id, Class<?> type)
+		{
+			this.id = id;
+			this.type = type;
+			if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isEnum() || type.isArray())
+			{
+				throw new IllegalArgumentException(type.getName() + " can not be instantiated");
+			}
+
+			try
+			{
+				Constructor<?> noArgs = type.getDeclaredConstructor();
+				noArgs.setAccessible(true);
+				constructor = MethodHandles.lookup().unreflectConstructor(noArgs)
+						.asType(MethodType.methodType(Object.class));
+			}
+			catch (NoSuchMethodException | IllegalAccessException e)
+			{
+				throw new IllegalArgumentException(type.getName() + " needs a no-argument constructor", e);
+			}
+
+			List<FieldCodec> codecs = new ArrayList<FieldCodec>();
+			int maxTag = 0;
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+			{
+				for (Field field : c.getDeclaredFields())
+				{
+					Tag tag = field.getAnnotation(Tag.class);
+					if (tag == null || Modifier.isStatic(field.getModifiers()))
+					{
+						continue;
+					}
+					if (tag.value() < 1 || tag.value() > MAX_TAG)
+					{
+						throw new IllegalArgumentException("Tag of " + field + " must be between 1 and " + MAX_TAG);
+					}
+					codecs.add(newFieldCodec(field, tag.value()));
+					maxTag = Math.max(maxTag, tag.value());
+				}
+			}
+
+			fields = codecs.toArray(new FieldCodec[codecs.size()]);
+			Arrays.sort(fields, new Comparator<FieldCodec>()
+			{
+				@Override
+				public int compare(FieldCodec a, FieldCodec b)
+				{
+					return Integer.compare(a.tag, b.tag);
+				}
+			});
+			fieldsByTag = new FieldCodec[maxTag + 1];
+			for (FieldCodec field : fields)
+			{
+				if (fieldsByTag[field.tag] != null)
+				{
+					throw new IllegalArgumentException("Tag " + field.tag + " is used twice in " + type.getName());
+				}
+				fieldsByTag[field.tag] = field;
+			}
+		}
+	}
+
+	private FieldCodec newFieldCodec(Field field, int tag)
+	{
+		Class<?> type = field.getType();
+		if (type == int.class)
+		{
+			return new FieldCodec(field, tag, VARINT, type)
+			{
+				@Override
+				void write(Object object, Output out) throws Throwable
+				{
+					out.writeKey(tag, VARINT);
+					out.writeVarLong(zigZag((int) getter.invokeExact(object)));
+				}
+
+				@Override
+				void read(Object object, int wireType, Input in) throws Throwable
+				{
+					setter.invokeExact(object, (int) unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == long.class)
+		{
+			return new FieldCodec(field, tag, VARINT, type)
+			{
+				@Override
+				void write(Object object, Output out) throws Throwable
+				{
+					out.writeKey(tag, VARINT);
+					out.writeVarLong(zigZag((long) getter.invokeExact(object)));
+				}
+
+				@Override
+				void read(Object object, int wireType, Input in) throws Throwable
+				{
+					setter.invokeExact(object, unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == boolean.class)
+		{
+			return new FieldCodec(field, tag, VARINT, type)
+			{
+				@Override
+				void write(Object object, Output out) throws Throwable
+				{
+					out.writeKey(tag, VARINT);
+					out.writeVarLong((boolean) getter.invokeExact(object) ? 1 : 0);
+				}
+
+				@Override
+				void read(Object object, int wireType, Input in) throws Throwable
+				{
+					setter.invokeExact(object, in.readVarLong() != 0);
+				}
+			};
+		}
+		if (type == double.class)
+		{
+			return new FieldCodec(field, tag, FIXED64, type)
+			{
+				@Override
+				void write(Object object, Output out) throws Throwable
+				{
+					out.writeKey(tag, FIXED64);
+					out.writeFixed64(Double.doubleToRawLongBits((double) getter.invokeExact(object)));
+				}
+
+				@Override
+				void read(Object object, int wireType, Input in) throws Throwable
+				{
+					setter.invokeExact(object, Double.longBitsToDouble(in.readFixed64()));
+				}
+			};
+		}
+		if (type == float.class)
+		{
+			return new FieldCodec(field, tag, FIXED32, type)
+			{
+				@Override
+				void write(Object object, Output out) throws Throwable
+				{
+					out.writeKey(tag, FIXED32);
+					out.writeFixed32(Float.floatToRawIntBits((float) getter.invokeExact(object)));
+				}
+
+				@Override
+				void read(Object object, int wireType, Input in) throws Throwable
+				{
+					setter.invokeExact(object, Float.intBitsToFloat(in.readFixed32()));
+				}
+			};
+		}
+		return new ValueFieldCodec(field, tag, newValueCodec(type));
+	}
+
+	/**
+	 * Writes and reads one field of a class through method handles
+	 */
+	private abstract static class FieldCodec
+	{
+		final int tag;
+		final int wireType;
+		final MethodHandle getter;
+		final MethodHandle setter;
+
+		/**
+		 * @param type the type of the value of the getter and setter handles, which is the type of the field for the
+		 *           primitive codecs and Object otherwise
+		 */
+		FieldCodec(Field field, int tag, int wireType, Class<?> type)
+		{
+			this.tag = tag;
+			this.wireType = wireType;
+			try
+			{
+				field.setAccessible(true);
+				MethodHandles.Lookup lookup = MethodHandles.lookup();
+				getter = lookup.unreflectGetter(field).asType(MethodType.methodType(type, Object.class));
+				setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, type));
+			}
+			catch (IllegalAccessException e)
+			{
+				throw new IllegalArgumentException("Can not access " + field, e);
+			}
+		}
+
+		boolean accepts(int wireType)
+		{
+			return wireType == this.wireType;
+		}
+
+		abstract void write(Object object, Output out) throws Throwable;
+
+		abstract void read(Object object, int wireType, Input in) throws Throwable;
+	}
+
+	/**
+	 * A field of a reference type, or of a primitive type that is stored through its wrapper
+	 */
+	private static final class ValueFieldCodec extends FieldCodec
+	{
+		private final ValueCodec codec;
+		private final boolean nullable;
+
+		ValueFieldCodec(Field field, int tag, ValueCodec codec)
+		{
+			super(field, tag, codec.wireType, Object.class);
+			this.codec = codec;
+			this.nullable = !field.getType().isPrimitive();
+		}
+
+		@Override
+		boolean accepts(int wireType)
+		{
+			return wireType == this.wireType || wireType == NULL && nullable;
+		}
+
+		@Override
+		void write(Object object, Output out) throws Throwable
+		{
+			Object value = getter.invokeExact(object);
+			if (value == null)
+			{
+				out.writeKey(tag, NULL);
+			}
+			else
+			{
+				out.writeKey(tag, wireType);
+				codec.write(value, out);
+			}
+		}
+
+		@Override
+		void read(Object object, int wireType, Input in) throws Throwable
+		{
+			setter.invokeExact(object, wireType == NULL ? null : codec.read(in));
+		}
+	}
+
+	/**
+	 * Writes and reads the value of a field of a specific type
+	 */
+	private abstract static class ValueCodec
+	{
+		final int wireType;
+
+		ValueCodec(int wireType)
+		{
+			this.wireType = wireType;
+		}
+
+		abstract void write(Object value, Output out) throws Throwable;
+
+		abstract Object read(Input in) throws Throwable;
+	}
+
+	private ValueCodec newValueCodec(final Class<?> type)
+	{
+		if (type == Integer.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(zigZag(((Integer) value).intValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Integer.valueOf((int) unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == Long.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(zigZag(((Long) value).longValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Long.valueOf(unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == Boolean.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(((Boolean) value).booleanValue() ? 1 : 0);
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Boolean.valueOf(in.readVarLong() != 0);
+				}
+			};
+		}
+		if (type == byte.class || type == Byte.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(zigZag(((Byte) value).byteValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Byte.valueOf((byte) unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == short.class || type == Short.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(zigZag(((Short) value).shortValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Short.valueOf((short) unZigZag(in.readVarLong()));
+				}
+			};
+		}
+		if (type == char.class || type == Character.class)
+		{
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(((Character) value).charValue());
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Character.valueOf((char) in.readVarLong());
+				}
+			};
+		}
+		if (type == Double.class)
+		{
+			return new ValueCodec(FIXED64)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeFixed64(Double.doubleToRawLongBits(((Double) value).doubleValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Double.valueOf(Double.longBitsToDouble(in.readFixed64()));
+				}
+			};
+		}
+		if (type == Float.class)
+		{
+			return new ValueCodec(FIXED32)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeFixed32(Float.floatToRawIntBits(((Float) value).floatValue()));
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					return Float.valueOf(Float.intBitsToFloat(in.readFixed32()));
+				}
+			};
+		}
+		if (type == String.class)
+		{
+			return new ValueCodec(LENGTH)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+					out.writeVarLong(bytes.length);
+					out.write(bytes);
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					int length = in.readLength();
+					String value = new String(in.buf, in.pos, length, StandardCharsets.UTF_8);
+					in.pos += length;
+					return value;
+				}
+			};
+		}
+		if (type == byte[].class)
+		{
+			return new ValueCodec(LENGTH)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					byte[] bytes = (byte[]) value;
+					out.writeVarLong(bytes.length);
+					out.write(bytes);
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					int length = in.readLength();
+					byte[] value = Arrays.copyOfRange(in.buf, in.pos, in.pos + length);
+					in.pos += length;
+					return value;
+				}
+			};
+		}
+		if (type.isEnum())
+		{
+			final Object[] constants = type.getEnumConstants();
+			return new ValueCodec(VARINT)
+			{
+				@Override
+				void write(Object value, Output out)
+				{
+					out.writeVarLong(((Enum<?>) value).ordinal());
+				}
+
+				@Override
+				Object read(Input in)
+				{
+					long ordinal = in.readVarLong();
+					if (ordinal >= constants.length)
+					{
+						throw new ObjectSerializeException("Unknown constant " + ordinal + " of " + type.getName(),
+								null);
+					}
+					return constants[(int) ordinal];
+				}
+			};
+		}
+		if (type.isPrimitive() || type.isArray())
+		{
+			throw new IllegalArgumentException("Fields of type " + type.getName() + " are not supported");
+		}
+		// Any other object must be of a registered class, which is only checked when it is written
+		return new ValueCodec(LENGTH)
+		{
+			@Override
+			void write(Object value, Output out) throws Throwable
+			{
+				writeNested(value, out);
+			}
+
+			@Override
+			Object read(Input in) throws Throwable
+			{
+				int length = in.readLength();
+				Object value = readObject(in, in.pos + length);
+				if (!type.isInstance(value))
+				{
+					throw new ObjectSerializeException("Expected a " + type.getName() + " but found a "
+							+ value.getClass().getName(), null);
+				}
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * Writes an object preceded by its length. One byte is reserved for the length, which is enough for objects of
+	 * less than 128 bytes; larger objects are moved to make room for a longer length.
+	 */
+	private void writeNested(Object value, Output out) throws Throwable
+	{
+		out.ensure(1);
+		int start = ++out.size;
+		writeObject(value, out);
+		int length = out.size - start;
+		int lengthSize = 1;
+		for (long rest = length >>> 7; rest != 0; rest >>>= 7)
+		{
+			lengthSize++;
+		}
+		if (lengthSize > 1)
+		{
+			out.ensure(lengthSize - 1);
+			System.arraycopy(out.buf, start, out.buf, start + lengthSize - 1, length);
+		}
+		out.size = start - 1;
+		out.writeVarLong(length);
+		out.size += length;
+	}
+
+	static long zigZag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unZigZag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * A growing byte array to write an object to
+	 */
+	private static final class Output
+	{
+		private byte[] buf = new byte[64];
+		private int size = 0;
+
+		private void ensure(int extra)
+		{
+			if (size + extra > buf.length)
+			{
+				buf = Arrays.copyOf(buf, Math.max(size + extra, 2 * buf.length));
+			}
+		}
+
+		void writeKey(int tag, int wireType)
+		{
+			writeVarLong(tag << 3 | wireType);
+		}
+
+		void writeVarLong(long value)
+		{
+			ensure(10);
+			while ((value & ~0x7FL) != 0)
+			{
+				buf[size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			buf[size++] = (byte) value;
+		}
+
+		void writeFixed32(int value)
+		{
+			ensure(4);
+			for (int i = 0; i < 4; i++)
+			{
+				buf[size++] = (byte) (value >>> (8 * i));
+			}
+		}
+
+		void writeFixed64(long value)
+		{
+			ensure(8);
+			for (int i = 0; i < 8; i++)
+			{
+				buf[size++] = (byte) (value >>> (8 * i));
+			}
+		}
+
+		void write(byte[] bytes)
+		{
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, buf, size, bytes.length);
+			size += bytes.length;
+		}
+
+		byte[] toArray()
+		{
+			return Arrays.copyOf(buf, size);
+		}
+	}
+
+	/**
+	 * Reads an object from a byte array
+	 */
+	private static final class Input
+	{
+		private final byte[] buf;
+		private final int limit;
+		private int pos;
+
+		Input(byte[] buf, int offset, int limit)
+		{
+			this.buf = buf;
+			this.pos = offset;
+			this.limit = limit;
+		}
+
+		long readVarLong()
+		{
+			long value = 0;
+			for (int shift = 0; shift < 64; shift += 7)
+			{
+				byte b = buf[pos++];
+				value |= (long) (b & 0x7F) << shift;
+				if (b >= 0)
+				{
+					return value;
+				}
+			}
+			throw new ObjectSerializeException("Malformed variable length number", null);
+		}
+
+		int readLength()
+		{
+			long length = readVarLong();
+			if (length > limit - pos)
+			{
+				throw new ObjectSerializeException("Length " + length + " is beyond the end of the data", null);
+			}
+			return (int) length;
+		}
+
+		int readFixed32()
+		{
+			int value = 0;
+			for (int i = 0; i < 4; i++)
+			{
+				value |= (buf[pos++] & 0xFF) << (8 * i);
+			}
+			return value;
+		}
+
+		long readFixed64()
+		{
+			long value = 0;
+			for (int i = 0; i < 8; i++)
+			{
+				value |= (buf[pos++] & 0xFFL) << (8 * i);
+			}
+			return value;
+		}
+
+		void skip(int wireType)
+		{
+			switch (wireType)
+			{
+				case VARINT:
+					readVarLong();
+					break;
+				case FIXED64:
+					pos += 8;
+					break;
+				case LENGTH:
+					pos += readLength();
+					break;
+				case NULL:
+					break;
+				case FIXED32:
+					pos += 4;
+					break;
+				default:
+					throw new ObjectSerializeException("Unknown wire type " + wireType, null);
+			}
+		}
+	}
+
+}
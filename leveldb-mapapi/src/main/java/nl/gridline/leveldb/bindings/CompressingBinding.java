@@ -0,0 +1,439 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.bindings.utils.Bytes;
+import nl.gridline.leveldb.bindings.utils.Varints;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * An {@link EntryBinding} that compresses the bytes of another binding with Deflate. The first byte tells how the rest
+ * is stored, so entries stay readable when the threshold, level or dictionary changes:
+ * <ul>
+ * <li>{@link #RAW}: the bytes of the binding, for values smaller than the threshold or that do not get smaller</li>
+ * <li>{@link #DEFLATE}: the uncompressed length as a variable length number, followed by raw Deflate data</li>
+ * <li>{@link #DEFLATE_DICTIONARY}: the Adler-32 checksum of the dictionary in 4 bytes, the uncompressed length and raw
+ * Deflate data that was compressed with that preset dictionary</li>
+ * </ul>
+ * Small values compress poorly on their own. A dictionary of strings that are common in the values, for example
+ * created by {@link #trainDictionary(Iterable, int)} from a sample of values, makes them compress much better. The
+ * dictionary must be kept: values compressed with it can only be read by a binding that knows it, through the
+ * constructor or {@link #addDictionary(byte[])}.
+ * <p>
+ * Deflaters and Inflaters are borrowed from bounded pools of at most {@link #MAX_POOLED} each, so compressing does not
+ * allocate and initialize a new one for every value. One that does not fit back in its pool is ended right away, which
+ * frees its native memory without waiting for the garbage collector.
+ * @param <V> object type to (de)serialize
+ */
+public class CompressingBinding<V> implements EntryBinding<V>
+{
+
+	public static final byte RAW = 0;
+	public static final byte DEFLATE = 1;
+	public static final byte DEFLATE_DICTIONARY = 2;
+
+	public static final int DEFAULT_THRESHOLD = 64;
+
+	/**
+	 * The maximum size of a dictionary, which is the window size of Deflate
+	 */
+	public static final int MAX_DICTIONARY_SIZE = 32 << 10;
+
+	/**
+	 * The maximum number of idle Deflaters, and of idle Inflaters, that a binding keeps
+	 */
+	public static final int MAX_POOLED = 2 * Runtime.getRuntime().availableProcessors();
+
+	private static final int MAX_RETAINED_BUFFER_SIZE = 64 << 10;
+
+	private final EntryBinding<V> binding;
+	private final int threshold;
+	private final byte[] dictionary;
+	private final int dictionaryId;
+	private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<Integer, byte[]>();
+
+	private final int level;
+	private final Queue<Deflater> deflaters = new ArrayBlockingQueue<Deflater>(MAX_POOLED);
+	private final Queue<Inflater> inflaters = new ArrayBlockingQueue<Inflater>(MAX_POOLED);
+	private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>();
+
+	/**
+	 * Compresses values of at least {@link #DEFAULT_THRESHOLD} bytes at {@link Deflater#BEST_SPEED} without a
+	 * dictionary
+	 */
+	public CompressingBinding(EntryBinding<V> binding)
+	{
+		this(binding, DEFAULT_THRESHOLD, Deflater.BEST_SPEED, null);
+	}
+
+	/**
+	 * @param binding the binding of which the bytes are compressed
+	 * @param threshold the minimum number of bytes of a value to compress it
+	 * @param level the Deflate compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+	 * @param dictionary the preset dictionary to compress with, or null
+	 */
+	public CompressingBinding(EntryBinding<V> binding, int threshold, int level, byte[] dictionary)
+	{
+		if (threshold < 0)
+		{
+			throw new IllegalArgumentException("threshold must not be negative");
+		}
+		if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+		{
+			throw new IllegalArgumentException("level must be between 1 and 9");
+		}
+		this.binding = binding;
+		this.threshold = threshold;
+		this.level = level;
+		if (dictionary != null)
+		{
+			this.dictionary = dictionary.clone();
+			this.dictionaryId = addDictionaryAndGetId(this.dictionary);
+		}
+		else
+		{
+			this.dictionary = null;
+			this.dictionaryId = 0;
+		}
+	}
+
+	/**
+	 * Adds a dictionary that values were compressed with before, so they can still be read. It may be added while other
+	 * threads use the binding; values that need it can be read once this method returns.
+	 * @return this binding
+	 */
+	public CompressingBinding<V> addDictionary(byte[] dictionary)
+	{
+		addDictionaryAndGetId(dictionary.clone());
+		return this;
+	}
+
+	private int addDictionaryAndGetId(byte[] dictionary)
+	{
+		if (dictionary.length == 0 || dictionary.length > MAX_DICTIONARY_SIZE)
+		{
+			throw new IllegalArgumentException("A dictionary must have between 1 and " + MAX_DICTIONARY_SIZE
+					+ " bytes");
+		}
+		Adler32 checksum = new Adler32();
+		checksum.update(dictionary);
+		int id = (int) checksum.getValue();
+		dictionaries.put(id, dictionary);
+		return id;
+	}
+
+	@Override
+	public byte[] serialize(V object)
+	{
+		FastOutputStream raw = FastOutputStream.acquire();
+		try
+		{
+			binding.serializeInto(object, raw);
+			return compress(raw.getBuf(), raw.getSize());
+		}
+		finally
+		{
+			raw.release();
+		}
+	}
+
+	private byte[] compress(byte[] raw, int length)
+	{
+		if (length >= threshold && length > 0)
+		{
+			int headerSize = 1 + (dictionary != null ? 4 : 0) + Varints.sizeOfUnsignedVarLong(length);
+			// Compressing is only worth it when the result is smaller than the raw value with its header byte
+			byte[] buffer = buffer(length + 1);
+			int size = headerSize;
+			boolean finished;
+			Deflater deflater = borrowDeflater();
+			try
+			{
+				if (dictionary != null)
+				{
+					deflater.setDictionary(dictionary);
+				}
+				deflater.setInput(raw, 0, length);
+				deflater.finish();
+				while (!deflater.finished() && size < length + 1)
+				{
+					size += deflater.deflate(buffer, size, length + 1 - size);
+				}
+				finished = deflater.finished();
+			}
+			finally
+			{
+				returnDeflater(deflater);
+			}
+
+			if (finished && size < length + 1)
+			{
+				int pos;
+				if (dictionary != null)
+				{
+					buffer[0] = DEFLATE_DICTIONARY;
+					System.arraycopy(Bytes.toBytes(dictionaryId), 0, buffer, 1, 4);
+					pos = 5;
+				}
+				else
+				{
+					buffer[0] = DEFLATE;
+					pos = 1;
+				}
+				Varints.writeUnsignedVarLong(length, buffer, pos);
+				return Arrays.copyOf(buffer, size);
+			}
+		}
+
+		byte[] result = new byte[length + 1];
+		result[0] = RAW;
+		System.arraycopy(raw, 0, result, 1, length);
+		return result;
+	}
+
+	private Deflater borrowDeflater()
+	{
+		Deflater deflater = deflaters.poll();
+		return deflater != null ? deflater : new Deflater(level, true);
+	}
+
+	/**
+	 * Resets the Deflater and puts it back in the pool, or ends it when the pool is full
+	 */
+	private void returnDeflater(Deflater deflater)
+	{
+		deflater.reset();
+		if (!deflaters.offer(deflater))
+		{
+			deflater.end();
+		}
+	}
+
+	private Inflater borrowInflater()
+	{
+		Inflater inflater = inflaters.poll();
+		return inflater != null ? inflater : new Inflater(true);
+	}
+
+	/**
+	 * Resets the Inflater and puts it back in the pool, or ends it when the pool is full
+	 */
+	private void returnInflater(Inflater inflater)
+	{
+		inflater.reset();
+		if (!inflaters.offer(inflater))
+		{
+			inflater.end();
+		}
+	}
+
+	/**
+	 * @return the buffer of the current thread, with at least {@code size} bytes
+	 */
+	private byte[] buffer(int size)
+	{
+		byte[] buffer = buffers.get();
+		if (buffer == null || buffer.length < size)
+		{
+			buffer = new byte[Math.max(size, 1024)];
+			if (size <= MAX_RETAINED_BUFFER_SIZE)
+			{
+				buffers.set(buffer);
+			}
+		}
+		return buffer;
+	}
+
+	@Override
+	public V deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public V deserialize(byte[] bytes, int offset, int length)
+	{
+		if (length == 0)
+		{
+			throw new ObjectSerializeException("Missing compression header", null);
+		}
+
+		byte codec = bytes[offset];
+		if (codec == RAW)
+		{
+			return binding.deserialize(bytes, offset + 1, length - 1);
+		}
+		if (codec != DEFLATE && codec != DEFLATE_DICTIONARY)
+		{
+			throw new ObjectSerializeException("Unknown compression " + codec, null);
+		}
+
+		int pos = offset + 1;
+		int end = offset + length;
+		byte[] presetDictionary = null;
+		if (codec == DEFLATE_DICTIONARY)
+		{
+			int id = Bytes.toInt(bytes, pos);
+			presetDictionary = dictionaries.get(id);
+			if (presetDictionary == null)
+			{
+				throw new ObjectSerializeException("Unknown dictionary " + Integer.toHexString(id), null);
+			}
+			pos += 4;
+		}
+
+		long rawLength = Varints.readUnsignedVarLong(bytes, pos);
+		if (rawLength > Integer.MAX_VALUE)
+		{
+			throw new ObjectSerializeException("Corrupt compressed value", null);
+		}
+		pos += Varints.sizeOfUnsignedVarLong(rawLength);
+
+		byte[] raw = new byte[(int) rawLength];
+		int size = 0;
+		Inflater inflater = borrowInflater();
+		try
+		{
+			if (presetDictionary != null)
+			{
+				inflater.setDictionary(presetDictionary);
+			}
+			inflater.setInput(bytes, pos, end - pos);
+			while (size < raw.length)
+			{
+				int inflated = inflater.inflate(raw, size, raw.length - size);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+				{
+					break;
+				}
+				size += inflated;
+			}
+		}
+		catch (DataFormatException e)
+		{
+			throw new ObjectSerializeException("Corrupt compressed value", e);
+		}
+		finally
+		{
+			returnInflater(inflater);
+		}
+		if (size != raw.length)
+		{
+			throw new ObjectSerializeException("Corrupt compressed value", null);
+		}
+		return binding.deserialize(raw);
+	}
+
+	/**
+	 * Creates a dictionary from sample values: the 32 byte fragments around the most frequent 8 byte sequences of the
+	 * samples, with the most frequent at the end, where Deflate refers to them most cheaply.
+	 * @param samples serialized values, for example from {@link EntryBinding#serialize(Object)} of the wrapped binding
+	 * @param size the maximum size of the dictionary, at most {@link #MAX_DICTIONARY_SIZE}
+	 * @return the dictionary, which is empty when the samples have nothing in common
+	 */
+	public static byte[] trainDictionary(Iterable<byte[]> samples, int size)
+	{
+		final int gram = 8;
+		final int fragment = 32;
+		size = Math.min(size, MAX_DICTIONARY_SIZE);
+
+		// The number of samples that contain every sequence, and where it was first seen
+		Map<ByteBuffer, int[]> counts = new HashMap<ByteBuffer, int[]>();
+		List<byte[]> sampleList = new ArrayList<byte[]>();
+		for (byte[] sample : samples)
+		{
+			int index = sampleList.size();
+			sampleList.add(sample);
+			for (int i = 0; i + gram <= sample.length; i++)
+			{
+				ByteBuffer key = ByteBuffer.wrap(sample, i, gram).slice();
+				int[] count = counts.get(key);
+				if (count == null)
+				{
+					counts.put(key, new int[] { 1, index, i, index });
+				}
+				else if (count[3] != index)
+				{
+					count[0]++;
+					count[3] = index;
+				}
+			}
+		}
+
+		List<int[]> frequent = new ArrayList<int[]>();
+		for (int[] count : counts.values())
+		{
+			if (count[0] > 1)
+			{
+				frequent.add(count);
+			}
+		}
+		Collections.sort(frequent, (a, b) -> Integer.compare(b[0], a[0]));
+
+		List<byte[]> fragments = new ArrayList<byte[]>();
+		Set<ByteBuffer> covered = new HashSet<ByteBuffer>();
+		int total = 0;
+		for (int[] count : frequent)
+		{
+			byte[] sample = sampleList.get(count[1]);
+			if (covered.contains(ByteBuffer.wrap(sample, count[2], gram).slice()))
+			{
+				continue;
+			}
+			int from = Math.max(0, count[2] - (fragment - gram) / 2);
+			int to = Math.min(sample.length, from + fragment);
+			int length = Math.min(to - from, size - total);
+			if (length < gram)
+			{
+				break;
+			}
+			for (int i = from; i + gram <= from + length; i++)
+			{
+				covered.add(ByteBuffer.wrap(sample, i, gram).slice());
+			}
+			fragments.add(Arrays.copyOfRange(sample, from, from + length));
+			total += length;
+		}
+
+		// Most frequent last
+		FastOutputStream result = new FastOutputStream(Math.max(total, 1));
+		for (int i = fragments.size() - 1; i >= 0; i--)
+		{
+			result.write(fragments.get(i));
+		}
+		return result.toArray();
+	}
+
+}
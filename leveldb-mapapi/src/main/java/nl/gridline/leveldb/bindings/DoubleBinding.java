@@ -17,6 +17,7 @@ package nl.gridline.leveldb.bindings;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toBytes;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toDouble;
 import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
 
 /**
  * Binding for double values.
@@ -37,4 +38,16 @@ public class DoubleBinding implements EntryBinding<Double>
 		return toDouble(object);
 	}
 
+	@Override
+	public void serializeInto(Double object, FastOutputStream out)
+	{
+		out.writeLong(Double.doubleToRawLongBits(object.doubleValue()));
+	}
+
+	@Override
+	public Double deserialize(byte[] bytes, int offset, int length)
+	{
+		return toDouble(bytes, offset);
+	}
+
 }
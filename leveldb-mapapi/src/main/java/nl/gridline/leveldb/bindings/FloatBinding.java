@@ -17,6 +17,7 @@ package nl.gridline.leveldb.bindings;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toBytes;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toFloat;
 import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
 
 /**
  * Binding for float values.
@@ -37,4 +38,16 @@ public class FloatBinding implements EntryBinding<Float>
 		return toFloat(object);
 	}
 
+	@Override
+	public void serializeInto(Float object, FastOutputStream out)
+	{
+		out.writeInt(Float.floatToRawIntBits(object.floatValue()));
+	}
+
+	@Override
+	public Float deserialize(byte[] bytes, int offset, int length)
+	{
+		return toFloat(bytes, offset);
+	}
+
 }
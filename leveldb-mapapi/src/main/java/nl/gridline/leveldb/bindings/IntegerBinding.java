@@ -17,6 +17,7 @@ package nl.gridline.leveldb.bindings;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toBytes;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toInt;
 import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
 
 /**
  * Binding for integer values.
@@ -37,4 +38,16 @@ public class IntegerBinding implements EntryBinding<Integer>
 		return toInt(bytes);
 	}
 
+	@Override
+	public void serializeInto(Integer object, FastOutputStream out)
+	{
+		out.writeInt(object.intValue());
+	}
+
+	@Override
+	public Integer deserialize(byte[] bytes, int offset, int length)
+	{
+		return toInt(bytes, offset);
+	}
+
 }
@@ -17,6 +17,7 @@ package nl.gridline.leveldb.bindings;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toBytes;
 import static nl.gridline.leveldb.bindings.utils.Bytes.toLong;
 import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
 
 /**
  * Binding for long values.
@@ -37,4 +38,16 @@ public class LongBinding implements EntryBinding<Long>
 		return toLong(bytes);
 	}
 
+	@Override
+	public void serializeInto(Long object, FastOutputStream out)
+	{
+		out.writeLong(object.longValue());
+	}
+
+	@Override
+	public Long deserialize(byte[] bytes, int offset, int length)
+	{
+		return toLong(bytes, offset);
+	}
+
 }
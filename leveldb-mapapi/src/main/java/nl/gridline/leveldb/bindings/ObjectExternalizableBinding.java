@@ -45,8 +45,22 @@ public class ObjectExternalizableBinding<K extends Externalizable> implements En
 	@Override
 	public byte[] serialize(K object)
 	{
-		FastOutputStream b = new FastOutputStream();
-		try (ObjectOutputStream o = new ObjectOutputStream(b))
+		FastOutputStream b = FastOutputStream.acquire();
+		try
+		{
+			serializeInto(object, b);
+			return b.toArray();
+		}
+		finally
+		{
+			b.release();
+		}
+	}
+
+	@Override
+	public void serializeInto(K object, FastOutputStream out)
+	{
+		try (ObjectOutputStream o = new ObjectOutputStream(out))
 		{
 			object.writeExternal(o);
 		}
@@ -54,13 +68,18 @@ public class ObjectExternalizableBinding<K extends Externalizable> implements En
 		{
 			throw new ObjectExternalizeException("Failed to serialize object", e);
 		}
-		return b.toArray();
 	}
 
 	@Override
 	public K deserialize(byte[] bytes)
 	{
-		FastInputStream b = new FastInputStream(bytes);
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public K deserialize(byte[] bytes, int offset, int length)
+	{
+		FastInputStream b = new FastInputStream(bytes, offset, length);
 		try (ObjectInputStream o = new ObjectInputStream(b))
 		{
 			final K result = clazz.newInstance();
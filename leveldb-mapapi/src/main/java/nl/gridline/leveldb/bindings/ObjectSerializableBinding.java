@@ -38,23 +38,42 @@ public class ObjectSerializableBinding<K extends Serializable> implements EntryB
 	@Override
 	public byte[] serialize(K object)
 	{
-		FastOutputStream b = new FastOutputStream();
-		try (ObjectOutputStream o = new ObjectOutputStream(b))
+		FastOutputStream b = FastOutputStream.acquire();
+		try
 		{
-			o.writeObject(object);
+			serializeInto(object, b);
 			return b.toArray();
 		}
+		finally
+		{
+			b.release();
+		}
+	}
+
+	@Override
+	public void serializeInto(K object, FastOutputStream out)
+	{
+		try (ObjectOutputStream o = new ObjectOutputStream(out))
+		{
+			o.writeObject(object);
+		}
 		catch (IOException e)
 		{
 			throw new ObjectSerializeException("Failed to serialize object", e);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public K deserialize(byte[] buffer)
 	{
-		FastInputStream b = new FastInputStream(buffer);
+		return deserialize(buffer, 0, buffer.length);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public K deserialize(byte[] buffer, int offset, int length)
+	{
+		FastInputStream b = new FastInputStream(buffer, offset, length);
 		try (ObjectInputStream i = new ObjectInputStream(b))
 		{
 			Object r = i.readObject();
@@ -0,0 +1,79 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * An {@link EntryBinding} which puts a fixed prefix in front of the bytes of another binding. Deserializing strips the
+ * prefix again, so it must only be given bytes that were serialized by this binding.
+ * @param <K> object type to (de)serialize
+ */
+public class PrefixedBinding<K> implements EntryBinding<K>
+{
+
+	private final byte[] prefix;
+	private final EntryBinding<K> binding;
+
+	public PrefixedBinding(byte[] prefix, EntryBinding<K> binding)
+	{
+		this.prefix = prefix.clone();
+		this.binding = binding;
+	}
+
+	/**
+	 * @return the prefix that is put in front of the keys
+	 */
+	public byte[] getPrefix()
+	{
+		return prefix.clone();
+	}
+
+	@Override
+	public byte[] serialize(K object)
+	{
+		FastOutputStream out = FastOutputStream.acquire();
+		try
+		{
+			serializeInto(object, out);
+			return out.toArray();
+		}
+		finally
+		{
+			out.release();
+		}
+	}
+
+	@Override
+	public void serializeInto(K object, FastOutputStream out)
+	{
+		out.write(prefix);
+		binding.serializeInto(object, out);
+	}
+
+	@Override
+	public K deserialize(byte[] object)
+	{
+		return binding.deserialize(object, prefix.length, object.length - prefix.length);
+	}
+
+	@Override
+	public K deserialize(byte[] bytes, int offset, int length)
+	{
+		return binding.deserialize(bytes, offset + prefix.length, length - prefix.length);
+	}
+}
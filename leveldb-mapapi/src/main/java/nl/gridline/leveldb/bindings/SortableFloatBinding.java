@@ -0,0 +1,52 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.bindings;
+
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.decodeFloat;
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.encodeFloat;
+import nl.gridline.leveldb.OrderPreservingBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Order preserving binding for float values. See {@link nl.gridline.leveldb.bindings.utils.OrderedBytes} for the format.
+ */
+public class SortableFloatBinding implements OrderPreservingBinding<Float>
+{
+
+	@Override
+	public byte[] serialize(Float object)
+	{
+		return encodeFloat(object.floatValue());
+	}
+
+	@Override
+	public Float deserialize(byte[] bytes)
+	{
+		return decodeFloat(bytes);
+	}
+
+	@Override
+	public void serializeInto(Float object, FastOutputStream out)
+	{
+		encodeFloat(object.floatValue(), out);
+	}
+
+	@Override
+	public Float deserialize(byte[] bytes, int offset, int length)
+	{
+		return decodeFloat(bytes, offset);
+	}
+
+}
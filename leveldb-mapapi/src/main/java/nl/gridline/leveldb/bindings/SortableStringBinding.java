@@ -0,0 +1,52 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.bindings;
+
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.decodeString;
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.encodeString;
+import nl.gridline.leveldb.OrderPreservingBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Order preserving binding for Strings. See {@link nl.gridline.leveldb.bindings.utils.OrderedBytes} for the format.
+ */
+public class SortableStringBinding implements OrderPreservingBinding<String>
+{
+
+	@Override
+	public byte[] serialize(String object)
+	{
+		return encodeString(object);
+	}
+
+	@Override
+	public String deserialize(byte[] bytes)
+	{
+		return decodeString(bytes);
+	}
+
+	@Override
+	public void serializeInto(String object, FastOutputStream out)
+	{
+		encodeString(object, out);
+	}
+
+	@Override
+	public String deserialize(byte[] bytes, int offset, int length)
+	{
+		return decodeString(bytes, offset, length);
+	}
+
+}
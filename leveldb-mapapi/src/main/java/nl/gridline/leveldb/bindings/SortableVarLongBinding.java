@@ -0,0 +1,63 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.decodeVarLong;
+import static nl.gridline.leveldb.bindings.utils.OrderedBytes.encodeVarLong;
+import nl.gridline.leveldb.OrderPreservingBinding;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Order preserving binding for long values in a variable number of bytes. Values from -256 to 255 take at most two
+ * bytes. See {@link nl.gridline.leveldb.bindings.utils.OrderedBytes} for the format, which is the same for
+ * integers and longs.
+ */
+public class SortableVarLongBinding implements OrderPreservingBinding<Long>
+{
+
+	@Override
+	public byte[] serialize(Long object)
+	{
+		return encodeVarLong(object);
+	}
+
+	@Override
+	public Long deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public void serializeInto(Long object, FastOutputStream out)
+	{
+		encodeVarLong(object, out);
+	}
+
+	@Override
+	public Long deserialize(byte[] bytes, int offset, int length)
+	{
+		try
+		{
+			return decodeVarLong(bytes, offset);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new ObjectSerializeException("Cannot deserialize a variable length long", e);
+		}
+	}
+
+}
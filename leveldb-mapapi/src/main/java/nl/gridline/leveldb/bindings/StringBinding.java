@@ -18,7 +18,8 @@ import nl.gridline.leveldb.EntryBinding;
 
 /**
  * Implementation of {@link EntryBinding} for Strings. Uses getBytes() and
- * String(byte[]).
+ * String(byte[]), so the bytes depend on the default charset of the platform. The {@link Utf8Binding} always uses
+ * UTF-8 and is faster.
  * @author <a href="mailto:niels@gridline.nl">Niels Slot</a>
  */
 public class StringBinding implements EntryBinding<String>
@@ -35,4 +36,10 @@ public class StringBinding implements EntryBinding<String>
 		return new String(object);
 	}
 
+	@Override
+	public String deserialize(byte[] bytes, int offset, int length)
+	{
+		return new String(bytes, offset, length);
+	}
+
 }
@@ -0,0 +1,305 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, ordered list of ints, longs, doubles, Strings and byte arrays, to be used as the key of a sorted map
+ * with a {@link TupleBinding}. Tuples are compared element by element. Elements of different types sort by type, in
+ * the order byte array, String, int, long, double, and a tuple sorts before the longer tuples that start with it. This
+ * is the order of the serialized tuples compared as unsigned bytes.
+ * <p>
+ * A tuple with fewer elements than the keys of a map is a prefix of keys: all keys that start with {@code prefix} are
+ * {@code map.subMap(prefix, prefix.prefixEnd())}, see {@link TupleBinding#prefixMap}.
+ */
+public final class Tuple implements Comparable<Tuple>
+{
+
+	static final byte BYTES = 0x01;
+	static final byte STRING = 0x02;
+	static final byte INT = 0x03;
+	static final byte LONG = 0x04;
+	static final byte DOUBLE = 0x05;
+	static final byte MAX = (byte) 0xFE;
+
+	/**
+	 * The last element of {@link #prefixEnd()}, which sorts after every other element
+	 */
+	static final Object MAX_ELEMENT = new Object()
+	{
+		@Override
+		public String toString()
+		{
+			return "MAX";
+		}
+	};
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private final Object[] elements;
+
+	private Tuple(Object[] elements)
+	{
+		this.elements = elements;
+	}
+
+	/**
+	 * @param elements Integers, Longs, Doubles, Strings and byte arrays
+	 * @return a tuple of the elements
+	 */
+	public static Tuple of(Object... elements)
+	{
+		return new Tuple(EMPTY).add(elements);
+	}
+
+	/**
+	 * @return a tuple of the elements of this tuple followed by {@code elements}
+	 */
+	public Tuple add(Object... elements)
+	{
+		if (this.elements.length > 0 && this.elements[this.elements.length - 1] == MAX_ELEMENT)
+		{
+			throw new IllegalArgumentException("Cannot add elements after the end of a prefix");
+		}
+		Object[] result = Arrays.copyOf(this.elements, this.elements.length + elements.length);
+		for (int i = 0; i < elements.length; i++)
+		{
+			Object element = elements[i];
+			if (type(element) == MAX)
+			{
+				throw new IllegalArgumentException("Cannot add the end of a prefix as an element");
+			}
+			result[this.elements.length + i] = element instanceof byte[] ? ((byte[]) element).clone() : element;
+		}
+		return new Tuple(result);
+	}
+
+	static Tuple wrap(Object[] elements)
+	{
+		return new Tuple(elements);
+	}
+
+	/**
+	 * @return a tuple which sorts after every tuple that starts with this tuple and before every other tuple that sorts
+	 *         after this tuple. It can only be used as a bound of a range.
+	 */
+	public Tuple prefixEnd()
+	{
+		Object[] result = Arrays.copyOf(elements, elements.length + 1);
+		result[elements.length] = MAX_ELEMENT;
+		return new Tuple(result);
+	}
+
+	/**
+	 * @return a tuple of the first {@code size} elements of this tuple
+	 */
+	public Tuple prefix(int size)
+	{
+		return new Tuple(Arrays.copyOf(elements, size));
+	}
+
+	/**
+	 * @return true if this tuple has at least the elements of {@code prefix} and starts with them
+	 */
+	public boolean startsWith(Tuple prefix)
+	{
+		if (prefix.elements.length > elements.length)
+		{
+			return false;
+		}
+		for (int i = 0; i < prefix.elements.length; i++)
+		{
+			if (compare(elements[i], prefix.elements[i]) != 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int size()
+	{
+		return elements.length;
+	}
+
+	public Object get(int index)
+	{
+		Object element = elements[index];
+		return element instanceof byte[] ? ((byte[]) element).clone() : element;
+	}
+
+	public int getInt(int index)
+	{
+		return (Integer) elements[index];
+	}
+
+	public long getLong(int index)
+	{
+		return (Long) elements[index];
+	}
+
+	public double getDouble(int index)
+	{
+		return (Double) elements[index];
+	}
+
+	public String getString(int index)
+	{
+		return (String) elements[index];
+	}
+
+	public byte[] getBytes(int index)
+	{
+		return ((byte[]) elements[index]).clone();
+	}
+
+	/**
+	 * @return the element without copying it, for the binding
+	 */
+	Object element(int index)
+	{
+		return elements[index];
+	}
+
+	static byte type(Object element)
+	{
+		if (element instanceof byte[])
+		{
+			return BYTES;
+		}
+		else if (element instanceof String)
+		{
+			return STRING;
+		}
+		else if (element instanceof Integer)
+		{
+			return INT;
+		}
+		else if (element instanceof Long)
+		{
+			return LONG;
+		}
+		else if (element instanceof Double)
+		{
+			return DOUBLE;
+		}
+		else if (element == MAX_ELEMENT)
+		{
+			return MAX;
+		}
+		throw new IllegalArgumentException("Unsupported tuple element: " + element);
+	}
+
+	@Override
+	public int compareTo(Tuple other)
+	{
+		int length = Math.min(elements.length, other.elements.length);
+		for (int i = 0; i < length; i++)
+		{
+			int c = compare(elements[i], other.elements[i]);
+			if (c != 0)
+			{
+				return c;
+			}
+		}
+		return elements.length - other.elements.length;
+	}
+
+	private static int compare(Object a, Object b)
+	{
+		byte typeA = type(a);
+		byte typeB = type(b);
+		if (typeA != typeB)
+		{
+			return (typeA & 0xFF) - (typeB & 0xFF);
+		}
+		switch (typeA)
+		{
+			case BYTES:
+				return compareBytes((byte[]) a, (byte[]) b);
+			case STRING:
+				return ((String) a).compareTo((String) b);
+			case INT:
+				return ((Integer) a).compareTo((Integer) b);
+			case LONG:
+				return ((Long) a).compareTo((Long) b);
+			case DOUBLE:
+				return Double.compare((Double) a, (Double) b);
+			default:
+				return 0;
+		}
+	}
+
+	private static int compareBytes(byte[] a, byte[] b)
+	{
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++)
+		{
+			int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (c != 0)
+			{
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		return obj instanceof Tuple && compareTo((Tuple) obj) == 0;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+		for (Object element : elements)
+		{
+			hash = 31 * hash + (element instanceof byte[] ? Arrays.hashCode((byte[]) element) : element.hashCode());
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder sb = new StringBuilder("(");
+		for (int i = 0; i < elements.length; i++)
+		{
+			if (i > 0)
+			{
+				sb.append(", ");
+			}
+			Object element = elements[i];
+			if (element instanceof byte[])
+			{
+				sb.append(Arrays.toString((byte[]) element));
+			}
+			else if (element instanceof String)
+			{
+				sb.append('"').append(element).append('"');
+			}
+			else
+			{
+				sb.append(element);
+			}
+		}
+		return sb.append(')').toString();
+	}
+
+}
@@ -0,0 +1,161 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.gridline.leveldb.OrderPreservingBinding;
+import nl.gridline.leveldb.StoredSortedMap;
+import nl.gridline.leveldb.bindings.utils.OrderedBytes;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Order preserving binding for {@link Tuple}s, so composite keys such as (tenant, timestamp, event id) can be compared
+ * as bytes by a {@link nl.gridline.leveldb.comparators.BytewiseDBComparator} instead of being deserialized for every
+ * comparison. Every element is written as a type byte followed by its value in the format of {@link OrderedBytes}:
+ * ints, longs and doubles have a fixed size and Strings and byte arrays are escaped and terminated, so no element is
+ * ever a prefix of another one. {@link Tuple#prefixEnd()} ends with the single type byte 0xFE, which is larger than
+ * every other type byte.
+ */
+public class TupleBinding implements OrderPreservingBinding<Tuple>
+{
+
+	/**
+	 * @return the part of {@code map} of which the keys start with {@code prefix}
+	 */
+	public static <V> StoredSortedMap<Tuple, V> prefixMap(StoredSortedMap<Tuple, V> map, Tuple prefix)
+	{
+		return map.subMap(prefix, true, prefix.prefixEnd(), false);
+	}
+
+	/**
+	 * @return the part of {@code map} of which the keys start with {@code prefix}
+	 */
+	public static <V> StoredSortedMap<Tuple, V> prefixMap(StoredSortedMap<Tuple, V> map, Object... prefix)
+	{
+		return prefixMap(map, Tuple.of(prefix));
+	}
+
+	@Override
+	public byte[] serialize(Tuple object)
+	{
+		FastOutputStream out = FastOutputStream.acquire();
+		try
+		{
+			serializeInto(object, out);
+			return out.toArray();
+		}
+		finally
+		{
+			out.release();
+		}
+	}
+
+	@Override
+	public void serializeInto(Tuple object, FastOutputStream out)
+	{
+		for (int i = 0; i < object.size(); i++)
+		{
+			Object element = object.element(i);
+			byte type = Tuple.type(element);
+			out.write(type);
+			switch (type)
+			{
+				case Tuple.BYTES:
+					OrderedBytes.encodeBytes((byte[]) element, out);
+					break;
+				case Tuple.STRING:
+					OrderedBytes.encodeString((String) element, out);
+					break;
+				case Tuple.INT:
+					OrderedBytes.encodeInt((Integer) element, out);
+					break;
+				case Tuple.LONG:
+					OrderedBytes.encodeLong((Long) element, out);
+					break;
+				case Tuple.DOUBLE:
+					OrderedBytes.encodeDouble((Double) element, out);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	@Override
+	public Tuple deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public Tuple deserialize(byte[] bytes, int offset, int length)
+	{
+		List<Object> elements = new ArrayList<Object>();
+		int pos = offset;
+		int end = offset + length;
+		while (pos < end)
+		{
+			byte type = bytes[pos++];
+			switch (type)
+			{
+				case Tuple.BYTES:
+				case Tuple.STRING:
+					int terminator = OrderedBytes.findTerminator(bytes, pos, end);
+					if (terminator < 0)
+					{
+						throw new ObjectSerializeException("Unterminated tuple element at " + (pos - offset), null);
+					}
+					elements.add(type == Tuple.BYTES ? OrderedBytes.decodeBytes(bytes, pos, terminator - pos)
+							: OrderedBytes.decodeString(bytes, pos, terminator - pos));
+					pos = terminator + 1;
+					break;
+				case Tuple.INT:
+					checkAvailable(pos, 4, end);
+					elements.add(OrderedBytes.decodeInt(bytes, pos));
+					pos += 4;
+					break;
+				case Tuple.LONG:
+					checkAvailable(pos, 8, end);
+					elements.add(OrderedBytes.decodeLong(bytes, pos));
+					pos += 8;
+					break;
+				case Tuple.DOUBLE:
+					checkAvailable(pos, 8, end);
+					elements.add(OrderedBytes.decodeDouble(bytes, pos));
+					pos += 8;
+					break;
+				case Tuple.MAX:
+					elements.add(Tuple.MAX_ELEMENT);
+					break;
+				default:
+					throw new ObjectSerializeException("Unknown tuple element type " + type, null);
+			}
+		}
+		return Tuple.wrap(elements.toArray());
+	}
+
+	private static void checkAvailable(int pos, int size, int end)
+	{
+		if (pos + size > end)
+		{
+			throw new ObjectSerializeException("Truncated tuple element", null);
+		}
+	}
+
+}
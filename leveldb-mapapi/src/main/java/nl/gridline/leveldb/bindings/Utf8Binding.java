@@ -0,0 +1,139 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.bindings.utils.Utf8;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Binding for Strings as UTF-8, whatever the default charset of the platform is. Unlike the {@link StringBinding} it
+ * writes straight into the buffer of a wrapping binding and has fast paths for ASCII, see {@link Utf8}. The bytes sort
+ * by code point, so they can be compared as bytes; use the {@link SortableStringBinding} when the keys of a sorted map
+ * must sort exactly like {@link String#compareTo(String)}.
+ * <p>
+ * Keys that are read again and again, such as the keys of an iteration over a map that is read often, can be
+ * deduplicated: recently deserialized short Strings are kept in a small cache, and deserializing the same bytes again
+ * returns the same String instead of a new copy.
+ */
+public class Utf8Binding implements EntryBinding<String>
+{
+
+	/**
+	 * The maximum number of bytes of a deduplicated String
+	 */
+	public static final int MAX_DEDUPLICATED_SIZE = 128;
+
+	private static final class Entry
+	{
+		private final byte[] bytes;
+		private final String string;
+
+		private Entry(byte[] bytes, String string)
+		{
+			this.bytes = bytes;
+			this.string = string;
+		}
+	}
+
+	private final Entry[] cache;
+
+	/**
+	 * Creates a binding that does not deduplicate
+	 */
+	public Utf8Binding()
+	{
+		this(0);
+	}
+
+	/**
+	 * @param deduplicationCacheSize the number of Strings to keep for deduplication, rounded up to a power of two, or
+	 *            0 to not deduplicate
+	 */
+	public Utf8Binding(int deduplicationCacheSize)
+	{
+		if (deduplicationCacheSize < 0)
+		{
+			throw new IllegalArgumentException("deduplicationCacheSize must not be negative");
+		}
+		cache = deduplicationCacheSize == 0 ? null
+				: new Entry[Integer.highestOneBit(Math.max(1, deduplicationCacheSize * 2 - 1))];
+	}
+
+	@Override
+	public byte[] serialize(String object)
+	{
+		return Utf8.encode(object);
+	}
+
+	@Override
+	public void serializeInto(String object, FastOutputStream out)
+	{
+		out.writeUtf8(object);
+	}
+
+	@Override
+	public String deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public String deserialize(byte[] bytes, int offset, int length)
+	{
+		if (cache == null || length > MAX_DEDUPLICATED_SIZE)
+		{
+			return Utf8.decode(bytes, offset, length);
+		}
+
+		int hash = 1;
+		for (int i = offset; i < offset + length; i++)
+		{
+			hash = 31 * hash + bytes[i];
+		}
+		hash ^= hash >>> 16;
+		int index = hash & (cache.length - 1);
+
+		// Entries are immutable, so a racing thread can only replace an entry, never change it
+		Entry entry = cache[index];
+		if (entry != null && equals(entry.bytes, bytes, offset, length))
+		{
+			return entry.string;
+		}
+		String string = Utf8.decode(bytes, offset, length);
+		byte[] copy = new byte[length];
+		System.arraycopy(bytes, offset, copy, 0, length);
+		cache[index] = new Entry(copy, string);
+		return string;
+	}
+
+	private static boolean equals(byte[] cached, byte[] bytes, int offset, int length)
+	{
+		if (cached.length != length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (cached[i] != bytes[offset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
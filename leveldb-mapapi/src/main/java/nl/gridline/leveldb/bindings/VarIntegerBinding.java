@@ -0,0 +1,95 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.bindings.utils.Varints;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Binding for integer values in a variable number of bytes, see {@link Varints}. Values from -64 to 63 take one byte,
+ * up to about a million in magnitude three. Unlike the {@link IntegerBinding} the bytes do not sort like the values;
+ * use the {@link SortableVarIntegerBinding} for the keys of a sorted map.
+ */
+public class VarIntegerBinding implements EntryBinding<Integer>
+{
+
+	private final boolean signed;
+
+	/**
+	 * Creates a binding for signed values, which are zig-zag encoded
+	 */
+	public VarIntegerBinding()
+	{
+		this(true);
+	}
+
+	/**
+	 * @param signed false to write the values as unsigned numbers, so values from 0 to 127 take one byte but negative
+	 *            values take five
+	 */
+	public VarIntegerBinding(boolean signed)
+	{
+		this.signed = signed;
+	}
+
+	private long encode(int value)
+	{
+		return signed ? Varints.encodeZigZag(value) : value & 0xFFFFFFFFL;
+	}
+
+	@Override
+	public byte[] serialize(Integer object)
+	{
+		long value = encode(object);
+		byte[] bytes = new byte[Varints.sizeOfUnsignedVarLong(value)];
+		Varints.writeUnsignedVarLong(value, bytes, 0);
+		return bytes;
+	}
+
+	@Override
+	public Integer deserialize(byte[] bytes)
+	{
+		return deserialize(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public void serializeInto(Integer object, FastOutputStream out)
+	{
+		Varints.writeUnsignedVarLong(encode(object), out);
+	}
+
+	@Override
+	public Integer deserialize(byte[] bytes, int offset, int length)
+	{
+		long value;
+		try
+		{
+			value = Varints.readUnsignedVarLong(bytes, offset);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new ObjectSerializeException("Cannot deserialize a variable length integer", e);
+		}
+		if ((value & ~0xFFFFFFFFL) != 0)
+		{
+			throw new ObjectSerializeException("Variable length number " + value + " is not an integer", null);
+		}
+		return signed ? (int) Varints.decodeZigZag(value) : (int) value;
+	}
+
+}
@@ -31,9 +31,14 @@ public class Bytes
 	public static final int SIZE_OF_LONG = Long.SIZE / 8;
 
 	public static int toInt(byte[] bytes)
+	{
+		return toInt(bytes, 0);
+	}
+
+	public static int toInt(byte[] bytes, int offset)
 	{
 		int n = 0;
-		for (int i = 0; i < SIZE_OF_INT; i++)
+		for (int i = offset; i < offset + SIZE_OF_INT; i++)
 		{
 			n <<= 8;
 			n ^= bytes[i] & 0xFF;
@@ -42,9 +47,14 @@ public class Bytes
 	}
 
 	public static long toLong(byte[] bytes)
+	{
+		return toLong(bytes, 0);
+	}
+
+	public static long toLong(byte[] bytes, int offset)
 	{
 		long l = 0;
-		for (int i = 0; i < SIZE_OF_LONG; i++)
+		for (int i = offset; i < offset + SIZE_OF_LONG; i++)
 		{
 			l <<= 8;
 			l ^= bytes[i] & 0xFF;
@@ -57,11 +67,21 @@ public class Bytes
 		return Double.longBitsToDouble(toLong(bytes));
 	}
 
+	public static double toDouble(byte[] bytes, int offset)
+	{
+		return Double.longBitsToDouble(toLong(bytes, offset));
+	}
+
 	public static float toFloat(byte[] bytes)
 	{
 		return Float.intBitsToFloat(toInt(bytes));
 	}
 
+	public static float toFloat(byte[] bytes, int offset)
+	{
+		return Float.intBitsToFloat(toInt(bytes, offset));
+	}
+
 	public static byte[] toBytes(int val)
 	{
 		byte[] b = new byte[4];
@@ -0,0 +1,354 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.bindings.utils;
+
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Byte array conversions of which the result, compared as unsigned bytes, sorts in the same order as the original
+ * values.
+ * <ul>
+ * <li>Integers are stored big-endian with the sign bit flipped.</li>
+ * <li>Variable length integers are stored as a header byte followed by the fewest big-endian bytes that hold the
+ * number: 0x80 plus the number of bytes for zero and positive numbers, 0x7F minus the number of bytes for negative
+ * numbers. Numbers from -256 to 255 take at most two bytes, zero and -1 only the header.</li>
+ * <li>Floating point numbers are stored as their IEEE 754 bits, with the sign bit flipped for positive numbers and all
+ * bits flipped for negative numbers. This is the order of {@link Float#compare(float, float)} and
+ * {@link Double#compare(double, double)}.</li>
+ * <li>Strings are stored as UTF-8, except that characters outside the Basic Multilingual Plane are stored as two
+ * encoded surrogates, so that the bytes sort like {@link String#compareTo(String)}. Zero bytes are escaped as 0x00 0xFF
+ * and the string is terminated by a single 0x00.</li>
+ * <li>Byte arrays are escaped and terminated in the same way as strings.</li>
+ * </ul>
+ */
+public class OrderedBytes
+{
+
+	public static byte[] encodeInt(int val)
+	{
+		return Bytes.toBytes(val ^ Integer.MIN_VALUE);
+	}
+
+	public static void encodeInt(int val, FastOutputStream out)
+	{
+		out.writeInt(val ^ Integer.MIN_VALUE);
+	}
+
+	public static int decodeInt(byte[] bytes)
+	{
+		return decodeInt(bytes, 0);
+	}
+
+	public static int decodeInt(byte[] bytes, int offset)
+	{
+		return Bytes.toInt(bytes, offset) ^ Integer.MIN_VALUE;
+	}
+
+	public static byte[] encodeLong(long val)
+	{
+		return Bytes.toBytes(val ^ Long.MIN_VALUE);
+	}
+
+	public static void encodeLong(long val, FastOutputStream out)
+	{
+		out.writeLong(val ^ Long.MIN_VALUE);
+	}
+
+	public static long decodeLong(byte[] bytes)
+	{
+		return decodeLong(bytes, 0);
+	}
+
+	public static long decodeLong(byte[] bytes, int offset)
+	{
+		return Bytes.toLong(bytes, offset) ^ Long.MIN_VALUE;
+	}
+
+	public static byte[] encodeVarLong(long val)
+	{
+		byte[] bytes = new byte[sizeOfVarLong(val)];
+		int length = bytes.length - 1;
+		bytes[0] = (byte) (val < 0 ? 0x7F - length : 0x80 + length);
+		for (int i = length; i > 0; i--)
+		{
+			bytes[i] = (byte) val;
+			val >>= 8;
+		}
+		return bytes;
+	}
+
+	public static void encodeVarLong(long val, FastOutputStream out)
+	{
+		int length = sizeOfVarLong(val) - 1;
+		out.write(val < 0 ? 0x7F - length : 0x80 + length);
+		for (int shift = (length - 1) * 8; shift >= 0; shift -= 8)
+		{
+			out.write((int) (val >> shift));
+		}
+	}
+
+	public static long decodeVarLong(byte[] bytes)
+	{
+		return decodeVarLong(bytes, 0);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the header byte is not one of a variable length integer
+	 */
+	public static long decodeVarLong(byte[] bytes, int offset)
+	{
+		int header = bytes[offset] & 0xFF;
+		int length = header >= 0x80 ? header - 0x80 : 0x7F - header;
+		if (length > 8)
+		{
+			throw new IllegalArgumentException("Malformed variable length integer");
+		}
+		long val = header >= 0x80 ? 0 : -1;
+		for (int i = 1; i <= length; i++)
+		{
+			val = (val << 8) | (bytes[offset + i] & 0xFF);
+		}
+		return val;
+	}
+
+	/**
+	 * @return the number of bytes of {@code val}, including the header byte
+	 */
+	public static int sizeOfVarLong(long val)
+	{
+		long magnitude = val < 0 ? ~val : val;
+		return 1 + (64 - Long.numberOfLeadingZeros(magnitude) + 7) / 8;
+	}
+
+	public static byte[] encodeFloat(float f)
+	{
+		return Bytes.toBytes(sortableBits(f));
+	}
+
+	public static void encodeFloat(float f, FastOutputStream out)
+	{
+		out.writeInt(sortableBits(f));
+	}
+
+	private static int sortableBits(float f)
+	{
+		int bits = Float.floatToIntBits(f);
+		return bits ^ ((bits >> 31) | Integer.MIN_VALUE);
+	}
+
+	public static float decodeFloat(byte[] bytes)
+	{
+		return decodeFloat(bytes, 0);
+	}
+
+	public static float decodeFloat(byte[] bytes, int offset)
+	{
+		int bits = Bytes.toInt(bytes, offset);
+		return Float.intBitsToFloat(bits ^ ((~bits >> 31) | Integer.MIN_VALUE));
+	}
+
+	public static byte[] encodeDouble(double d)
+	{
+		return Bytes.toBytes(sortableBits(d));
+	}
+
+	public static void encodeDouble(double d, FastOutputStream out)
+	{
+		out.writeLong(sortableBits(d));
+	}
+
+	private static long sortableBits(double d)
+	{
+		long bits = Double.doubleToLongBits(d);
+		return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+	}
+
+	public static double decodeDouble(byte[] bytes)
+	{
+		return decodeDouble(bytes, 0);
+	}
+
+	public static double decodeDouble(byte[] bytes, int offset)
+	{
+		long bits = Bytes.toLong(bytes, offset);
+		return Double.longBitsToDouble(bits ^ ((~bits >> 63) | Long.MIN_VALUE));
+	}
+
+	public static byte[] encodeString(String s)
+	{
+		FastOutputStream out = FastOutputStream.acquire();
+		try
+		{
+			encodeString(s, out);
+			return out.toArray();
+		}
+		finally
+		{
+			out.release();
+		}
+	}
+
+	public static void encodeString(String s, FastOutputStream out)
+	{
+		for (int i = 0; i < s.length(); i++)
+		{
+			char c = s.charAt(i);
+			if (c == 0)
+			{
+				out.write(0);
+				out.write(0xFF);
+			}
+			else if (c < 0x80)
+			{
+				out.write(c);
+			}
+			else if (c < 0x800)
+			{
+				out.write(0xC0 | (c >> 6));
+				out.write(0x80 | (c & 0x3F));
+			}
+			else
+			{
+				out.write(0xE0 | (c >> 12));
+				out.write(0x80 | ((c >> 6) & 0x3F));
+				out.write(0x80 | (c & 0x3F));
+			}
+		}
+		out.write(0);
+	}
+
+	public static String decodeString(byte[] bytes)
+	{
+		return decodeString(bytes, 0, bytes.length);
+	}
+
+	public static String decodeString(byte[] bytes, int offset, int length)
+	{
+		StringBuilder s = new StringBuilder(length);
+		int pos = offset;
+		int end = offset + length;
+		while (pos < end)
+		{
+			int b = bytes[pos++] & 0xFF;
+			if (b == 0)
+			{
+				if (pos < end && (bytes[pos] & 0xFF) == 0xFF)
+				{
+					s.append((char) 0);
+					pos++;
+					continue;
+				}
+				// Terminator
+				break;
+			}
+			else if (b < 0x80)
+			{
+				s.append((char) b);
+			}
+			else if (b < 0xE0)
+			{
+				s.append((char) (((b & 0x1F) << 6) | (bytes[pos++] & 0x3F)));
+			}
+			else
+			{
+				s.append((char) (((b & 0x0F) << 12) | ((bytes[pos++] & 0x3F) << 6) | (bytes[pos++] & 0x3F)));
+			}
+		}
+		return s.toString();
+	}
+
+	public static byte[] encodeBytes(byte[] b)
+	{
+		FastOutputStream out = FastOutputStream.acquire();
+		try
+		{
+			encodeBytes(b, out);
+			return out.toArray();
+		}
+		finally
+		{
+			out.release();
+		}
+	}
+
+	public static void encodeBytes(byte[] b, FastOutputStream out)
+	{
+		int start = 0;
+		for (int i = 0; i < b.length; i++)
+		{
+			if (b[i] == 0)
+			{
+				out.write(b, start, i + 1 - start);
+				out.write(0xFF);
+				start = i + 1;
+			}
+		}
+		out.write(b, start, b.length - start);
+		out.write(0);
+	}
+
+	public static byte[] decodeBytes(byte[] bytes)
+	{
+		return decodeBytes(bytes, 0, bytes.length);
+	}
+
+	public static byte[] decodeBytes(byte[] bytes, int offset, int length)
+	{
+		FastOutputStream out = new FastOutputStream(length);
+		int pos = offset;
+		int end = offset + length;
+		while (pos < end)
+		{
+			byte b = bytes[pos++];
+			if (b == 0)
+			{
+				if (pos < end && (bytes[pos] & 0xFF) == 0xFF)
+				{
+					out.write(0);
+					pos++;
+					continue;
+				}
+				// Terminator
+				break;
+			}
+			out.write(b);
+		}
+		return out.toArray();
+	}
+
+	/**
+	 * @return the position of the terminator of the string or byte array that starts at {@code offset}, or -1 if it is
+	 *         not terminated before {@code end}
+	 */
+	public static int findTerminator(byte[] bytes, int offset, int end)
+	{
+		for (int pos = offset; pos < end; pos++)
+		{
+			if (bytes[pos] == 0)
+			{
+				if (pos + 1 < end && (bytes[pos + 1] & 0xFF) == 0xFF)
+				{
+					pos++;
+				}
+				else
+				{
+					return pos;
+				}
+			}
+		}
+		return -1;
+	}
+
+}
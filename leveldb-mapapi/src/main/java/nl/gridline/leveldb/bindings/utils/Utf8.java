@@ -0,0 +1,149 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings.utils;
+
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Standard UTF-8 conversions, independent of the default charset of the platform. Both directions have a fast path for
+ * ASCII, and decoding uses a buffer of the current thread instead of a CharsetDecoder. Malformed input decodes to
+ * U+FFFD, like {@link String#String(byte[], java.nio.charset.Charset)}. The bytes sort in the order of the code points,
+ * which is the order of {@link String#compareTo(String)} except for characters outside the Basic Multilingual Plane.
+ */
+public class Utf8
+{
+
+	private static final int MAX_RETAINED_BUFFER_SIZE = 32 << 10;
+	private static final char REPLACEMENT = '\ufffd';
+
+	private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<char[]>()
+	{
+		@Override
+		protected char[] initialValue()
+		{
+			return new char[256];
+		}
+	};
+
+	public static byte[] encode(String s)
+	{
+		int length = s.length();
+		for (int i = 0; i < length; i++)
+		{
+			if (s.charAt(i) >= 0x80)
+			{
+				FastOutputStream out = FastOutputStream.acquire();
+				try
+				{
+					out.writeUtf8(s);
+					return out.toArray();
+				}
+				finally
+				{
+					out.release();
+				}
+			}
+		}
+
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++)
+		{
+			bytes[i] = (byte) s.charAt(i);
+		}
+		return bytes;
+	}
+
+	public static String decode(byte[] bytes)
+	{
+		return decode(bytes, 0, bytes.length);
+	}
+
+	public static String decode(byte[] bytes, int offset, int length)
+	{
+		// Never more chars than bytes
+		char[] chars = BUFFERS.get();
+		if (chars.length < length)
+		{
+			chars = new char[length];
+			if (length <= MAX_RETAINED_BUFFER_SIZE)
+			{
+				BUFFERS.set(chars);
+			}
+		}
+
+		int pos = offset;
+		int end = offset + length;
+		int n = 0;
+		// ASCII fast path
+		while (pos < end && bytes[pos] >= 0)
+		{
+			chars[n++] = (char) bytes[pos++];
+		}
+
+		while (pos < end)
+		{
+			int b = bytes[pos++];
+			if (b >= 0)
+			{
+				chars[n++] = (char) b;
+			}
+			else if ((b & 0xE0) == 0xC0 && b != (byte) 0xC0 && b != (byte) 0xC1 && isContinuation(bytes, pos, end))
+			{
+				chars[n++] = (char) (((b & 0x1F) << 6) | (bytes[pos++] & 0x3F));
+			}
+			else if ((b & 0xF0) == 0xE0 && isContinuation(bytes, pos, end) && isContinuation(bytes, pos + 1, end))
+			{
+				char c = (char) (((b & 0x0F) << 12) | ((bytes[pos] & 0x3F) << 6) | (bytes[pos + 1] & 0x3F));
+				if (c < 0x800 || Character.isSurrogate(c))
+				{
+					chars[n++] = REPLACEMENT;
+				}
+				else
+				{
+					chars[n++] = c;
+					pos += 2;
+				}
+			}
+			else if ((b & 0xF8) == 0xF0 && isContinuation(bytes, pos, end) && isContinuation(bytes, pos + 1, end)
+					&& isContinuation(bytes, pos + 2, end))
+			{
+				int codePoint = ((b & 0x07) << 18) | ((bytes[pos] & 0x3F) << 12) | ((bytes[pos + 1] & 0x3F) << 6)
+						| (bytes[pos + 2] & 0x3F);
+				if (codePoint < 0x10000 || codePoint > Character.MAX_CODE_POINT)
+				{
+					chars[n++] = REPLACEMENT;
+				}
+				else
+				{
+					chars[n++] = Character.highSurrogate(codePoint);
+					chars[n++] = Character.lowSurrogate(codePoint);
+					pos += 3;
+				}
+			}
+			else
+			{
+				chars[n++] = REPLACEMENT;
+			}
+		}
+		return new String(chars, 0, n);
+	}
+
+	private static boolean isContinuation(byte[] bytes, int pos, int end)
+	{
+		return pos < end && (bytes[pos] & 0xC0) == 0x80;
+	}
+
+}
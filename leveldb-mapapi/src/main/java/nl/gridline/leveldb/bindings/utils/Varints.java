@@ -0,0 +1,99 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings.utils;
+
+import nl.gridline.leveldb.io.FastOutputStream;
+
+/**
+ * Variable length encoding of unsigned numbers: 7 bits per byte, least significant group first, with the high bit set
+ * on every byte except the last. Numbers below 128 take one byte, a long takes at most 10. Signed numbers are first
+ * mapped to unsigned ones with zig-zag encoding, which interleaves them as 0, -1, 1, -2, 2, ..., so that numbers close
+ * to zero stay small.
+ */
+public class Varints
+{
+
+	public static final int MAX_SIZE = 10;
+
+	public static void writeUnsignedVarLong(long value, FastOutputStream out)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	/**
+	 * Writes a number at {@code offset}, which must have room for {@link #sizeOfUnsignedVarLong(long)} bytes
+	 * @return the offset after the number
+	 */
+	public static int writeUnsignedVarLong(long value, byte[] bytes, int offset)
+	{
+		while ((value & ~0x7FL) != 0)
+		{
+			bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the number does not end within the array or is longer than 10 bytes
+	 */
+	public static long readUnsignedVarLong(byte[] bytes, int offset)
+	{
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7)
+		{
+			if (offset >= bytes.length)
+			{
+				throw new IllegalArgumentException("Truncated variable length number");
+			}
+			byte b = bytes[offset++];
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+			{
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed variable length number");
+	}
+
+	public static int sizeOfUnsignedVarLong(long value)
+	{
+		int size = 1;
+		while ((value & ~0x7FL) != 0)
+		{
+			size++;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	public static long encodeZigZag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	public static long decodeZigZag(long value)
+	{
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,99 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.comparators;
+
+import java.util.Arrays;
+
+/**
+ * A DBComparator which compares keys as unsigned bytes, the same order as the default comparator of LevelDB. Use it
+ * with an {@link nl.gridline.leveldb.OrderPreservingBinding} for the keys.
+ * <p>
+ * Unlike the deserializing comparators, this comparator never has to read the keys it is given, so it shortens the
+ * keys LevelDB stores in the index blocks of its tables. The shortened keys need not be valid serialized keys.
+ */
+public class BytewiseDBComparator extends SimpleDBComparator
+{
+
+	@Override
+	public int compare(byte[] key1, byte[] key2)
+	{
+		int length = Math.min(key1.length, key2.length);
+		for (int i = 0; i < length; i++)
+		{
+			int b1 = key1[i] & 0xFF;
+			int b2 = key2[i] & 0xFF;
+			if (b1 != b2)
+			{
+				return b1 - b2;
+			}
+		}
+		return key1.length - key2.length;
+	}
+
+	/**
+	 * Returns the shortest key that is greater than or equal to {@code start} and less than {@code limit}, by
+	 * incrementing the first byte in which they differ. Returns {@code start} when no such key is shorter.
+	 */
+	@Override
+	public byte[] findShortestSeparator(byte[] start, byte[] limit)
+	{
+		int length = Math.min(start.length, limit.length);
+		int diff = 0;
+		while (diff < length && start[diff] == limit[diff])
+		{
+			diff++;
+		}
+
+		if (diff < length)
+		{
+			int diffByte = start[diff] & 0xFF;
+			if (diffByte < 0xFF && diffByte + 1 < (limit[diff] & 0xFF) && diff + 1 < start.length)
+			{
+				byte[] separator = Arrays.copyOf(start, diff + 1);
+				separator[diff]++;
+				return separator;
+			}
+		}
+		// One key is a prefix of the other, or they differ by one in the first byte that differs
+		return start;
+	}
+
+	/**
+	 * Returns the shortest key that is greater than or equal to {@code key}, by incrementing the first byte that is not
+	 * 0xFF and dropping the rest. Returns {@code key} when it consists only of 0xFF bytes.
+	 */
+	@Override
+	public byte[] findShortSuccessor(byte[] key)
+	{
+		for (int i = 0; i < key.length; i++)
+		{
+			if ((key[i] & 0xFF) != 0xFF)
+			{
+				byte[] successor = Arrays.copyOf(key, i + 1);
+				successor[i]++;
+				return successor;
+			}
+		}
+		return key;
+	}
+
+	@Override
+	public String name()
+	{
+		// Same name as the default comparator, since the order is the same
+		return "leveldb.BytewiseComparator";
+	}
+
+}
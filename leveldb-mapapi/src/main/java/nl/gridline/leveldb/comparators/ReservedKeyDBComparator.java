@@ -0,0 +1,93 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.comparators;
+
+import java.util.Arrays;
+
+import org.iq80.leveldb.DBComparator;
+
+/**
+ * A DBComparator which sorts a reserved key before all other keys and uses another DBComparator for the rest. This
+ * keeps the reserved key away from comparators that would fail to deserialize it. The name differs from the name of
+ * the delegate, so LevelDB refuses to open a database with the delegate alone once it was created with this
+ * comparator, and the other way around.
+ */
+public class ReservedKeyDBComparator implements DBComparator
+{
+
+	private final DBComparator delegate;
+	private final byte[] reservedKey;
+
+	public ReservedKeyDBComparator(DBComparator delegate, byte[] reservedKey)
+	{
+		this.delegate = delegate;
+		this.reservedKey = reservedKey;
+	}
+
+	/**
+	 * @return the DBComparator that sorts all keys except the reserved key
+	 */
+	public DBComparator getDelegate()
+	{
+		return delegate;
+	}
+
+	@Override
+	public int compare(byte[] key1, byte[] key2)
+	{
+		boolean reserved1 = Arrays.equals(reservedKey, key1);
+		boolean reserved2 = Arrays.equals(reservedKey, key2);
+		if (reserved1 || reserved2)
+		{
+			return reserved1 == reserved2 ? 0 : (reserved1 ? -1 : 1);
+		}
+		return delegate.compare(key1, key2);
+	}
+
+	@Override
+	public String name()
+	{
+		return "leveldb-mapapi.ReservedKey(" + delegate.name() + ")";
+	}
+
+	@Override
+	public byte[] findShortestSeparator(byte[] start, byte[] limit)
+	{
+		if (Arrays.equals(reservedKey, start) || Arrays.equals(reservedKey, limit))
+		{
+			return start;
+		}
+		return notReserved(delegate.findShortestSeparator(start, limit), start);
+	}
+
+	@Override
+	public byte[] findShortSuccessor(byte[] key)
+	{
+		if (Arrays.equals(reservedKey, key))
+		{
+			return key;
+		}
+		return notReserved(delegate.findShortSuccessor(key), key);
+	}
+
+	/**
+	 * The delegate may shorten a key into the reserved key, which sorts at a different place in this comparator.
+	 */
+	private byte[] notReserved(byte[] shortened, byte[] original)
+	{
+		return Arrays.equals(reservedKey, shortened) ? original : shortened;
+	}
+
+}
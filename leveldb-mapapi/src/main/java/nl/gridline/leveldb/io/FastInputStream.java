@@ -35,6 +35,16 @@ public class FastInputStream extends InputStream
 		count = buffer.length;
 	}
 
+	/**
+	 * Reads {@code length} bytes of {@code buffer}, starting at {@code offset}, without copying them
+	 */
+	public FastInputStream(byte[] buffer, int offset, int length)
+	{
+		this.buffer = buffer;
+		pos = offset;
+		count = offset + length;
+	}
+
 	@Override
 	public int read() throws IOException
 	{
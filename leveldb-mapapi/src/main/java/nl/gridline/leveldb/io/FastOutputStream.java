@@ -0,0 +1,240 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Non synchronized, no null checking version of a {@link ByteArrayOutputStream} - that should be a bit faster.
+ * @author <a href="mailto:job@gridline.nl">Job</a>
+ */
+public class FastOutputStream extends OutputStream
+{
+
+	private static final int THREAD_BUFFER_SIZE = 256;
+	private static final int MAX_THREAD_BUFFER_SIZE = 64 << 10;
+
+	private static final ThreadLocal<FastOutputStream> THREAD_STREAM = new ThreadLocal<FastOutputStream>()
+	{
+		@Override
+		protected FastOutputStream initialValue()
+		{
+			FastOutputStream stream = new FastOutputStream(THREAD_BUFFER_SIZE);
+			stream.threadStream = true;
+			return stream;
+		}
+	};
+
+	protected byte[] buf = null;
+
+	protected int size = 0;
+
+	private boolean threadStream = false;
+	private boolean inUse = false;
+
+	public FastOutputStream()
+	{
+		this(1024);
+	}
+
+	public FastOutputStream(int size)
+	{
+		this.size = 0;
+		buf = new byte[size];
+	}
+
+	/**
+	 * Returns an empty stream that is reused by every call on the current thread, so serializing a value does not
+	 * allocate and grow a new buffer. When the stream of the thread is already in use, for example by a binding that
+	 * wraps another binding, a new stream is returned. Call {@link #release()} when the stream is no longer used.
+	 * @return an empty stream
+	 */
+	public static FastOutputStream acquire()
+	{
+		FastOutputStream stream = THREAD_STREAM.get();
+		if (stream.inUse)
+		{
+			return new FastOutputStream(THREAD_BUFFER_SIZE);
+		}
+		stream.inUse = true;
+		stream.size = 0;
+		return stream;
+	}
+
+	/**
+	 * Gives a stream returned by {@link #acquire()} back to the current thread. A buffer that has grown beyond 64 KB is
+	 * dropped, so one large value does not stay in memory.
+	 */
+	public void release()
+	{
+		inUse = false;
+		if (threadStream && buf.length > MAX_THREAD_BUFFER_SIZE)
+		{
+			buf = new byte[THREAD_BUFFER_SIZE];
+		}
+	}
+
+	public void reset()
+	{
+		size = 0;
+	}
+
+	private void ensure(int sz)
+	{
+		if (sz > buf.length)
+		{
+			byte[] current = buf;
+			buf = new byte[Math.max(sz, 2 * buf.length)];
+			System.arraycopy(current, 0, buf, 0, current.length);
+			current = null;
+		}
+	}
+
+	public int getSize()
+	{
+		return size;
+	}
+
+	public byte[] getBuf()
+	{
+		return buf;
+	}
+
+	/**
+	 * @return the written bytes, which is the buffer itself when it is exactly full and not reused by
+	 *         {@link #acquire()}
+	 */
+	public byte[] toArray()
+	{
+		if (size == buf.length && !threadStream)
+		{
+			return buf;
+		}
+		final byte[] result = new byte[size];
+		System.arraycopy(buf, 0, result, 0, Math.min(buf.length, size));
+		return result;
+	}
+
+	@Override
+	public void write(int b)
+	{
+		ensure(size + 1);
+		buf[size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b)
+	{
+		ensure(size + b.length);
+		System.arraycopy(b, 0, buf, size, b.length);
+		size += b.length;
+	}
+
+	@Override
+	public void write(byte[] b, int offset, int length)
+	{
+		ensure(size + length);
+		System.arraycopy(b, offset, buf, size, length);
+		size += length;
+	}
+
+	/**
+	 * Writes an int in 4 bytes, most significant byte first, like {@link nl.gridline.leveldb.bindings.utils.Bytes}
+	 */
+	public void writeInt(int val)
+	{
+		ensure(size + 4);
+		buf[size++] = (byte) (val >>> 24);
+		buf[size++] = (byte) (val >>> 16);
+		buf[size++] = (byte) (val >>> 8);
+		buf[size++] = (byte) val;
+	}
+
+	/**
+	 * Writes a long in 8 bytes, most significant byte first, like {@link nl.gridline.leveldb.bindings.utils.Bytes}
+	 */
+	public void writeLong(long val)
+	{
+		ensure(size + 8);
+		for (int shift = 56; shift >= 0; shift -= 8)
+		{
+			buf[size++] = (byte) (val >>> shift);
+		}
+	}
+
+	/**
+	 * Writes a String as standard UTF-8, without a length or terminator. Unpaired surrogates are written as '?', like
+	 * {@link String#getBytes(java.nio.charset.Charset)} does.
+	 */
+	public void writeUtf8(String s)
+	{
+		int length = s.length();
+		ensure(size + length);
+		int i = 0;
+		// ASCII fast path
+		for (; i < length; i++)
+		{
+			char c = s.charAt(i);
+			if (c >= 0x80)
+			{
+				break;
+			}
+			buf[size++] = (byte) c;
+		}
+		if (i == length)
+		{
+			return;
+		}
+
+		// Every remaining char takes at most 3 bytes, a surrogate pair 4
+		ensure(size + 3 * (length - i));
+		for (; i < length; i++)
+		{
+			char c = s.charAt(i);
+			if (c < 0x80)
+			{
+				buf[size++] = (byte) c;
+			}
+			else if (c < 0x800)
+			{
+				buf[size++] = (byte) (0xC0 | (c >> 6));
+				buf[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+			else if (Character.isSurrogate(c))
+			{
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1)))
+				{
+					int codePoint = Character.toCodePoint(c, s.charAt(++i));
+					buf[size++] = (byte) (0xF0 | (codePoint >> 18));
+					buf[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+					buf[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+					buf[size++] = (byte) (0x80 | (codePoint & 0x3F));
+				}
+				else
+				{
+					buf[size++] = '?';
+				}
+			}
+			else
+			{
+				buf[size++] = (byte) (0xE0 | (c >> 12));
+				buf[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buf[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.iterators;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * An Iterator which may hold on to LevelDB resources. All iterators returned by the collection views of a
+ * {@link nl.gridline.leveldb.StoredMap} implement this interface. Closing an iterator that does not hold any
+ * resources is a no-op.
+ * @param <E> the type of elements returned by this iterator
+ */
+public interface CloseableIterator<E> extends Iterator<E>, Closeable
+{
+
+}
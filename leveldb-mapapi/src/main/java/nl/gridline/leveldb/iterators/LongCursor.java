@@ -0,0 +1,61 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.iterators;
+
+import java.io.Closeable;
+
+/**
+ * A cursor over the entries of a map with long keys, in key order, which returns the keys without boxing them. The
+ * cursor holds a DBIterator, so it must be closed.
+ * <pre>
+ * try (LongCursor&lt;String&gt; cursor = map.cursor())
+ * {
+ * 	while (cursor.next())
+ * 	{
+ * 		process(cursor.key(), cursor.value());
+ * 	}
+ * }
+ * </pre>
+ * @param <V> the type of the values
+ */
+public interface LongCursor<V> extends Closeable
+{
+
+	/**
+	 * Moves to the next entry, or to the first one after the cursor was created or positioned with
+	 * {@link #seek(long)}
+	 * @return false if there are no more entries
+	 */
+	boolean next();
+
+	/**
+	 * @throws IllegalStateException if the cursor is not on an entry
+	 */
+	long key();
+
+	/**
+	 * Deserializes the value of the current entry
+	 * @throws IllegalStateException if the cursor is not on an entry
+	 */
+	V value();
+
+	/**
+	 * Positions the cursor so that {@link #next()} moves to the first entry with a key equal to or greater than
+	 * {@code key}
+	 */
+	void seek(long key);
+
+}
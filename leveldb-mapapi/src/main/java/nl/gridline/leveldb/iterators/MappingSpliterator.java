@@ -0,0 +1,83 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.iterators;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A Spliterator which applies a function to the elements of another Spliterator. The splits of this Spliterator are
+ * the splits of the other one. The mapped elements are not assumed to be distinct or sorted. Closing it closes the
+ * other Spliterator if that one is {@link Closeable}.
+ * @param <F> the type of elements of the other Spliterator
+ * @param <T> the type of elements returned by this Spliterator
+ */
+public class MappingSpliterator<F, T> implements Spliterator<T>, Closeable
+{
+
+	private final Spliterator<F> delegate;
+	private final Function<? super F, ? extends T> function;
+
+	public MappingSpliterator(Spliterator<F> delegate, Function<? super F, ? extends T> function)
+	{
+		this.delegate = delegate;
+		this.function = function;
+	}
+
+	@Override
+	public boolean tryAdvance(final Consumer<? super T> action)
+	{
+		return delegate.tryAdvance(element -> action.accept(function.apply(element)));
+	}
+
+	@Override
+	public void forEachRemaining(final Consumer<? super T> action)
+	{
+		delegate.forEachRemaining(element -> action.accept(function.apply(element)));
+	}
+
+	@Override
+	public Spliterator<T> trySplit()
+	{
+		Spliterator<F> split = delegate.trySplit();
+		return split == null ? null : new MappingSpliterator<F, T>(split, function);
+	}
+
+	@Override
+	public long estimateSize()
+	{
+		return delegate.estimateSize();
+	}
+
+	@Override
+	public int characteristics()
+	{
+		return delegate.characteristics() & ~(DISTINCT | SORTED);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		if (delegate instanceof Closeable)
+		{
+			((Closeable) delegate).close();
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.iterators;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+
+import org.iq80.leveldb.DBIterator;
+
+/**
+ * Wraps a DBIterator but hides the entry with the specified key, for example a reserved metadata key, in both
+ * directions.
+ */
+public class SkippingDBIterator extends ForwardingDBIterator
+{
+
+	private final DBIterator delegate;
+	private final byte[] skippedKey;
+
+	public SkippingDBIterator(DBIterator delegate, byte[] skippedKey)
+	{
+		this.delegate = delegate;
+		this.skippedKey = skippedKey;
+	}
+
+	@Override
+	protected DBIterator delegate()
+	{
+		return delegate;
+	}
+
+	private void skip()
+	{
+		if (delegate.hasNext() && Arrays.equals(skippedKey, delegate.peekNext().getKey()))
+		{
+			delegate.next();
+		}
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		skip();
+		return delegate.hasNext();
+	}
+
+	@Override
+	public Entry<byte[], byte[]> next()
+	{
+		skip();
+		return delegate.next();
+	}
+
+	@Override
+	public Entry<byte[], byte[]> peekNext()
+	{
+		skip();
+		return delegate.peekNext();
+	}
+
+	private boolean isPrevSkipped()
+	{
+		return delegate.hasPrev() && Arrays.equals(skippedKey, delegate.peekPrev().getKey());
+	}
+
+	@Override
+	public boolean hasPrev()
+	{
+		if (!isPrevSkipped())
+		{
+			return delegate.hasPrev();
+		}
+		delegate.prev();
+		try
+		{
+			return delegate.hasPrev();
+		}
+		finally
+		{
+			delegate.next();
+		}
+	}
+
+	@Override
+	public Entry<byte[], byte[]> prev()
+	{
+		if (isPrevSkipped())
+		{
+			delegate.prev();
+		}
+		return delegate.prev();
+	}
+
+	@Override
+	public Entry<byte[], byte[]> peekPrev()
+	{
+		if (!isPrevSkipped())
+		{
+			return delegate.peekPrev();
+		}
+		delegate.prev();
+		try
+		{
+			return delegate.peekPrev();
+		}
+		finally
+		{
+			delegate.next();
+		}
+	}
+
+}
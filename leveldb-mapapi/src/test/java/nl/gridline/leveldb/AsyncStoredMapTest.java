@@ -0,0 +1,200 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link AsyncStoredMap} class.
+ */
+public class AsyncStoredMapTest
+{
+
+	private File directory;
+	private LevelDBStoredSortedMap<String, String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = (LevelDBStoredSortedMap<String, String>) LevelDBMapFactory.createSortedMap(directory,
+				new StringBinding(), new StringBinding(), new MapOptions());
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testOperations() throws Exception
+	{
+		try (AsyncStoredMap<String, String> async = new AsyncStoredMap<String, String>(map))
+		{
+			async.putAsync("a", "1").get();
+			assertEquals("1", async.getAsync("a").get());
+
+			Map<String, String> m = new HashMap<String, String>();
+			m.put("b", "2");
+			m.put("c", "3");
+			async.putAllAsync(m).get();
+			assertEquals("3", map.get("c"));
+
+			async.removeAsync("a").get();
+			assertNull(async.getAsync("a").get());
+			assertEquals(2, map.size());
+		}
+	}
+
+	@Test
+	public void testWritesAreBatched() throws Exception
+	{
+		// Runs tasks when asked, so all writes are queued before the first task runs
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				tasks.add(command);
+			}
+		};
+
+		AsyncStoredMap<String, String> async = new AsyncStoredMap<String, String>(map, executor, 100);
+		List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+		for (int i = 0; i < 10; i++)
+		{
+			futures.add(async.putAsync("key" + i, "value" + i));
+		}
+		futures.add(async.removeAsync("key0"));
+
+		assertEquals(1, tasks.size());
+		assertFalse(futures.get(0).isDone());
+		tasks.get(0).run();
+
+		for (CompletableFuture<Void> future : futures)
+		{
+			assertTrue(future.isDone());
+		}
+		assertEquals(9, map.size());
+		assertNull(map.get("key0"));
+		assertEquals("value9", map.get("key9"));
+	}
+
+	@Test
+	public void testBackpressure() throws Exception
+	{
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+		Executor executor = new Executor()
+		{
+			@Override
+			public void execute(Runnable command)
+			{
+				tasks.add(command);
+			}
+		};
+		AsyncStoredMap<String, String> async = new AsyncStoredMap<String, String>(map, executor, 2);
+		CompletableFuture<String> a = async.getAsync("a");
+		async.getAsync("b");
+		assertFalse(async.hasCapacity());
+
+		// The third operation fails at once instead of waiting for one of the others to complete
+		CompletableFuture<String> c = async.getAsync("c");
+		assertTrue(c.isCompletedExceptionally());
+		try
+		{
+			c.get();
+			fail("Expected ExecutionException");
+		}
+		catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertTrue(async.putAsync("c", "3").isCompletedExceptionally());
+		assertEquals(2, tasks.size());
+
+		tasks.get(0).run();
+		assertTrue(a.isDone());
+		assertTrue(async.hasCapacity());
+		CompletableFuture<String> d = async.getAsync("d");
+		assertFalse(d.isDone());
+		assertEquals(3, tasks.size());
+	}
+
+	@Test
+	public void testSubMapBounds() throws Exception
+	{
+		map.put("z", "1");
+		try (AsyncStoredMap<String, String> async = new AsyncStoredMap<String, String>(
+				(LevelDBStoredMap<String, String>) map.headMap("m")))
+		{
+			try
+			{
+				async.putAsync("z", "2").get();
+				assertTrue("put outside of the range should fail", false);
+			}
+			catch (ExecutionException e)
+			{
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+
+			async.removeAsync("z").get();
+			assertEquals("1", map.get("z"));
+		}
+	}
+
+	@Test
+	public void testWriteBehind() throws Exception
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+		map = (LevelDBStoredSortedMap<String, String>) LevelDBMapFactory.createSortedMap(directory,
+				new StringBinding(), new StringBinding(), new MapOptions().writeBehind(true));
+
+		try (AsyncStoredMap<String, String> async = new AsyncStoredMap<String, String>(map))
+		{
+			map.put("a", "1");
+			async.putAsync("a", "2").get();
+			map.flush();
+			assertEquals("2", map.get("a"));
+		}
+	}
+
+}
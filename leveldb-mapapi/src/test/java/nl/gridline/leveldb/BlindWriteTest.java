@@ -0,0 +1,145 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link StoredMap#set(Object, Object)}, {@link StoredMap#delete(Object)} and
+ * {@link MapOptions#blindWrites(boolean)}.
+ */
+public class BlindWriteTest
+{
+
+	private File directory;
+	private StoredMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private StoredSortedMap<String, String> createMap(MapOptions options) throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = LevelDBMapFactory.createSortedMap(directory, new StringBinding(),
+				new StringBinding(), options);
+		map = sortedMap;
+		return sortedMap;
+	}
+
+	@Test
+	public void testSetAndDelete() throws IOException
+	{
+		createMap(new MapOptions());
+
+		map.set("a", "1");
+		map.set("b", "2");
+		map.set("a", "3");
+		assertEquals("3", map.get("a"));
+		assertEquals("2", map.get("b"));
+
+		map.delete("a");
+		map.delete("c");
+		assertFalse(map.containsKey("a"));
+		assertEquals(1, map.size());
+	}
+
+	@Test
+	public void testSetAndDeleteCounting() throws IOException
+	{
+		createMap(new MapOptions().countEntries(true));
+
+		map.set("a", "1");
+		map.set("b", "2");
+		map.set("a", "3");
+		assertEquals(2, map.size());
+
+		map.delete("a");
+		map.delete("a");
+		map.delete("c");
+		assertEquals(1, map.size());
+		assertTrue(((LevelDBStoredMap<String, String>) map).verifySize());
+	}
+
+	@Test
+	public void testSetAndDeleteSubMap() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createMap(new MapOptions());
+		sortedMap.set("a", "1");
+		sortedMap.set("m", "2");
+
+		StoredSortedMap<String, String> headMap = sortedMap.headMap("k");
+		headMap.set("b", "3");
+		try
+		{
+			headMap.set("z", "4");
+			assertTrue("set outside of the range should fail", false);
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+
+		// Deleting outside of the range does nothing
+		headMap.delete("m");
+		assertEquals("2", sortedMap.get("m"));
+
+		headMap.delete("a");
+		assertNull(sortedMap.get("a"));
+		assertEquals("3", sortedMap.get("b"));
+	}
+
+	@Test
+	public void testBlindWrites() throws IOException
+	{
+		createMap(new MapOptions().blindWrites(true));
+
+		assertNull(map.put("a", "1"));
+		assertNull(map.put("a", "2"));
+		assertEquals("2", map.get("a"));
+
+		assertNull(map.remove("a"));
+		assertFalse(map.containsKey("a"));
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testSetNull() throws IOException
+	{
+		createMap(new MapOptions());
+		map.set("a", null);
+	}
+
+}
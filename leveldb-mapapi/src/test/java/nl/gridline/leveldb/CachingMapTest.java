@@ -14,20 +14,16 @@
 
 package nl.gridline.leveldb;
 
-import java.io.Closeable;
-import java.util.Map;
-
-import org.iq80.leveldb.DB;
-
 /**
- * <p>
- * {@link Map} interface on top of the {@link DB} implementation
- * </p>
- * @author <a href="mailto:job@gridline.nl">Job</a>
- * @param <K>
- * @param <V>
+ * Runs the MapTest with a small value cache, so entries are also evicted.
  */
-public interface StoredMap<K, V> extends Map<K, V>, Closeable
+public class CachingMapTest extends MapTest
 {
 
+	@Override
+	protected MapOptions createMapOptions()
+	{
+		return new MapOptions().cacheSize(2);
+	}
+
 }
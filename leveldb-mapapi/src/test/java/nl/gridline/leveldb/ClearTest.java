@@ -0,0 +1,139 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link LevelDBStoredMap#clear(ClearListener)} on maps and sub-maps.
+ */
+public class ClearTest
+{
+
+	private File directory;
+	private StoredSortedMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private void createMap(MapOptions options) throws IOException
+	{
+		map = LevelDBMapFactory.createSortedMap(directory, new StringBinding(), new StringBinding(), options);
+		for (char c = 'a'; c <= 'j'; c++)
+		{
+			map.put(String.valueOf(c), "value");
+		}
+	}
+
+	@Test
+	public void testClearInBatches() throws IOException
+	{
+		// Every key is one byte, so every batch holds three keys
+		createMap(new MapOptions().clearBatchSize(3));
+
+		final List<Long> progress = new ArrayList<Long>();
+		((LevelDBStoredMap<String, String>) map).clear(new ClearListener()
+		{
+			@Override
+			public void cleared(long entries)
+			{
+				progress.add(entries);
+			}
+		});
+
+		assertTrue(map.isEmpty());
+		assertEquals(Arrays.asList(3L, 6L, 9L, 10L), progress);
+	}
+
+	@Test
+	public void testClearInBatchesCounting() throws IOException
+	{
+		createMap(new MapOptions().clearBatchSize(3).countEntries(true));
+
+		map.subMap("c", "h").clear();
+		assertEquals(5, map.size());
+		assertTrue(((LevelDBStoredMap<String, String>) map).verifySize());
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertTrue(((LevelDBStoredMap<String, String>) map).verifySize());
+	}
+
+	@Test
+	public void testClearSubMaps() throws IOException
+	{
+		createMap(new MapOptions().clearBatchSize(2));
+
+		map.subMap("b", false, "d", true).clear();
+		assertEquals("[a, b, e, f, g, h, i, j]", map.keySet().toString());
+
+		map.headMap("b").clear();
+		assertEquals("[b, e, f, g, h, i, j]", map.keySet().toString());
+
+		map.tailMap("i", false).clear();
+		assertEquals("[b, e, f, g, h, i]", map.keySet().toString());
+
+		// Bounds between the keys
+		map.subMap("ee", true, "gg", false).clear();
+		assertEquals("[b, e, h, i]", map.keySet().toString());
+
+		// Bounds past the last key
+		map.tailMap("x").clear();
+		assertEquals("[b, e, h, i]", map.keySet().toString());
+
+		map.descendingMap().headMap("h").clear();
+		assertEquals("[b, e, h]", map.keySet().toString());
+	}
+
+	@Test
+	public void testClearEmptySubMaps() throws IOException
+	{
+		createMap(new MapOptions());
+
+		map.subMap("c", false, "c", false).clear();
+		map.subMap("c", true, "c", false).clear();
+		map.subMap("c", false, "c", true).clear();
+		assertEquals(10, map.size());
+
+		map.subMap("c", true, "c", true).clear();
+		assertEquals("[a, b, d, e, f, g, h, i, j]", map.keySet().toString());
+	}
+
+}
@@ -0,0 +1,332 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the atomic operations of {@link java.util.concurrent.ConcurrentMap} on sub-maps and from many threads.
+ */
+public class ConcurrentMapTest
+{
+
+	private static final int THREADS = 8;
+	private static final int INCREMENTS = 500;
+
+	private File directory;
+	private StoredMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		if (map != null)
+		{
+			map.close();
+		}
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private StoredSortedMap<String, String> createSortedMap(MapOptions options) throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = LevelDBMapFactory.createSortedMap(directory, new StringBinding(),
+				new StringBinding(), options);
+		map = sortedMap;
+		return sortedMap;
+	}
+
+	private static String add(String a, String b)
+	{
+		return String.valueOf(Integer.parseInt(a) + Integer.parseInt(b));
+	}
+
+	@Test
+	public void testComputeRemovesOnNull() throws IOException
+	{
+		createSortedMap(new MapOptions().countEntries(true));
+		map.put("a", "1");
+		map.put("b", "2");
+
+		assertNull(map.computeIfPresent("a", (k, v) -> null));
+		assertFalse(map.containsKey("a"));
+		assertNull(map.compute("b", (k, v) -> null));
+		assertFalse(map.containsKey("b"));
+		assertNull(map.compute("c", (k, v) -> null));
+		assertFalse(map.containsKey("c"));
+		assertNull(map.computeIfAbsent("c", k -> null));
+		assertFalse(map.containsKey("c"));
+		assertEquals("3", map.merge("c", "3", ConcurrentMapTest::add));
+		assertNull(map.merge("c", "4", (a, b) -> null));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testConditionalOperations() throws IOException
+	{
+		createSortedMap(new MapOptions().countEntries(true));
+		assertNull(map.putIfAbsent("a", "1"));
+		assertEquals("1", map.putIfAbsent("a", "2"));
+		assertFalse(map.replace("a", "2", "3"));
+		assertTrue(map.replace("a", "1", "3"));
+		assertEquals("3", map.replace("a", "4"));
+		assertNull(map.replace("b", "4"));
+		assertFalse(map.containsKey("b"));
+		assertFalse(map.remove("a", "3"));
+		assertTrue(map.remove("a", "4"));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void testSubMapBounds() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions());
+		sortedMap.put("m", "1");
+		sortedMap.put("z", "1");
+		StoredSortedMap<String, String> subMap = sortedMap.subMap("a", "n");
+
+		assertNull(subMap.putIfAbsent("b", "1"));
+		assertEquals("1", subMap.putIfAbsent("m", "2"));
+		assertFalse(subMap.replace("z", "1", "2"));
+		assertNull(subMap.replace("z", "2"));
+		assertFalse(subMap.remove("z", "1"));
+		assertNull(subMap.computeIfPresent("z", (k, v) -> "2"));
+		assertEquals("1", sortedMap.get("z"));
+
+		try
+		{
+			subMap.putIfAbsent("x", "1");
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+		try
+		{
+			subMap.merge("z", "1", ConcurrentMapTest::add);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+		assertEquals("1", sortedMap.get("z"));
+	}
+
+	@Test
+	public void testConcurrentMerge() throws Exception
+	{
+		createSortedMap(new MapOptions().countEntries(true).lockStripes(4));
+		mergeConcurrently();
+	}
+
+	@Test
+	public void testConcurrentMergeWriteBehind() throws Exception
+	{
+		createSortedMap(new MapOptions().countEntries(true).writeBehind(true));
+		mergeConcurrently();
+	}
+
+	@Test
+	public void testConcurrentCompute() throws Exception
+	{
+		createSortedMap(new MapOptions().cacheSize(100));
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < THREADS; t++)
+		{
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < INCREMENTS; i++)
+				{
+					map.compute("counter", (k, v) -> v == null ? "1" : add(v, "1"));
+				}
+			}));
+		}
+		for (Future<?> future : futures)
+		{
+			future.get();
+		}
+		executor.shutdown();
+		assertEquals(String.valueOf(THREADS * INCREMENTS), map.get("counter"));
+	}
+
+	@Test
+	public void testPutAllLocksKeys() throws Exception
+	{
+		createSortedMap(new MapOptions());
+		CountDownLatch release = new CountDownLatch(1);
+		Thread compute = computeSlowly("b", release);
+
+		Map<String, String> entries = new HashMap<String, String>();
+		entries.put("a", "put");
+		entries.put("b", "put");
+		Thread putAll = new Thread(() -> map.putAll(entries));
+		putAll.start();
+		putAll.join(200);
+		assertTrue(putAll.isAlive());
+		assertNull(map.get("a"));
+
+		release.countDown();
+		compute.join();
+		putAll.join();
+		assertEquals("put", map.get("a"));
+		assertEquals("put", map.get("b"));
+	}
+
+	@Test
+	public void testClearLocksKeys() throws Exception
+	{
+		createSortedMap(new MapOptions().countEntries(true));
+		map.put("a", "1");
+		map.put("b", "1");
+		CountDownLatch release = new CountDownLatch(1);
+		Thread compute = computeSlowly("b", release);
+
+		Thread clear = new Thread(() -> map.clear());
+		clear.start();
+		clear.join(200);
+		assertTrue(clear.isAlive());
+
+		release.countDown();
+		compute.join();
+		clear.join();
+		assertEquals(0, map.size());
+		assertNull(map.get("b"));
+	}
+
+	@Test
+	public void testConcurrentPoll() throws Exception
+	{
+		final StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions().countEntries(true));
+		final int entries = 1000;
+		for (int i = 0; i < entries; i++)
+		{
+			sortedMap.put(String.format("%04d", i), "value");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<List<String>>> futures = new ArrayList<Future<List<String>>>();
+		for (int t = 0; t < THREADS; t++)
+		{
+			final boolean first = t % 2 == 0;
+			futures.add(executor.submit(() -> {
+				List<String> polled = new ArrayList<String>();
+				Map.Entry<String, String> entry;
+				while ((entry = first ? sortedMap.pollFirstEntry() : sortedMap.pollLastEntry()) != null)
+				{
+					polled.add(entry.getKey());
+				}
+				return polled;
+			}));
+		}
+		Set<String> polled = new HashSet<String>();
+		int count = 0;
+		for (Future<List<String>> future : futures)
+		{
+			polled.addAll(future.get());
+			count += future.get().size();
+		}
+		executor.shutdown();
+
+		assertEquals(entries, count);
+		assertEquals(entries, polled.size());
+		assertEquals(0, sortedMap.size());
+	}
+
+	/**
+	 * Starts a compute() of the key that holds the lock of the key until the latch is released
+	 */
+	private Thread computeSlowly(String key, CountDownLatch release) throws InterruptedException
+	{
+		CountDownLatch computing = new CountDownLatch(1);
+		Thread compute = new Thread(() -> map.compute(key, (k, value) -> {
+			computing.countDown();
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return "computed";
+		}));
+		compute.start();
+		computing.await();
+		return compute;
+	}
+
+	/**
+	 * Every thread increments the same few counters, so no increment may be lost and size() must count every counter
+	 * exactly once.
+	 */
+	private void mergeConcurrently() throws Exception
+	{
+		final String[] keys = { "a", "b", "c", "d", "e" };
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < THREADS; t++)
+		{
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < INCREMENTS; i++)
+				{
+					map.merge(keys[i % keys.length], "1", ConcurrentMapTest::add);
+				}
+			}));
+		}
+		for (Future<?> future : futures)
+		{
+			future.get();
+		}
+		executor.shutdown();
+		map.flush();
+
+		assertEquals(keys.length, map.size());
+		for (String key : keys)
+		{
+			assertEquals(String.valueOf(THREADS * INCREMENTS / keys.length), map.get(key));
+		}
+	}
+
+}
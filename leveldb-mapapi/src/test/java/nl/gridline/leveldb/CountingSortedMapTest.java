@@ -0,0 +1,39 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import nl.gridline.leveldb.comparators.ReservedKeyDBComparator;
+
+import org.iq80.leveldb.DBComparator;
+
+/**
+ * Runs the SortedMapTest with entry counting enabled.
+ */
+public class CountingSortedMapTest extends SortedMapTest
+{
+
+	@Override
+	protected MapOptions createMapOptions()
+	{
+		return new MapOptions().countEntries(true);
+	}
+
+	@Override
+	protected DBComparator createDBComparator(EntryBinding<String> keyBinding)
+	{
+		return new ReservedKeyDBComparator(super.createDBComparator(keyBinding), EntryCounter.COUNT_KEY);
+	}
+
+}
@@ -0,0 +1,183 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the entry counting of {@link LevelDBStoredMap}.
+ */
+public class EntryCounterTest
+{
+
+	private File directory;
+	private DB db;
+	private LevelDBStoredMap<String, String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		openMap();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		db.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private void openMap() throws IOException
+	{
+		Options options = new Options();
+		options.createIfMissing(true);
+		db = factory.open(directory, options);
+		EntryBinding<String> stringBinding = new StringBinding();
+		map = new LevelDBStoredMap<String, String>(db, stringBinding, stringBinding,
+				new MapOptions().countEntries(true));
+	}
+
+	@Test
+	public void testCount() throws Exception
+	{
+		assertEquals(0, map.size());
+
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put("a", "3");
+		assertEquals(2, map.size());
+
+		Map<String, String> m = new HashMap<String, String>();
+		m.put("b", "4");
+		m.put("c", "5");
+		m.put("d", "6");
+		map.putAll(m);
+		assertEquals(4, map.size());
+
+		map.remove("a");
+		map.remove("x");
+		assertEquals(3, map.size());
+
+		Iterator<String> i = map.keySet().iterator();
+		i.next();
+		i.remove();
+		assertEquals(2, map.size());
+		assertEquals(2, map.keySet().size());
+		assertTrue(map.verifySize());
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertTrue(map.isEmpty());
+		assertTrue(map.verifySize());
+	}
+
+	@Test
+	public void testCountIsPersisted() throws Exception
+	{
+		map.put("a", "1");
+		map.put("b", "2");
+		db.close();
+
+		openMap();
+		assertEquals(2, map.size());
+		assertEquals(2, map.entrySet().size());
+	}
+
+	@Test
+	public void testRebuild() throws Exception
+	{
+		map.put("a", "1");
+		db.put("b".getBytes(), "2".getBytes());
+		assertEquals(1, map.size());
+		assertFalse(map.verifySize());
+
+		assertEquals(2, map.rebuildSize());
+		assertEquals(2, map.size());
+		assertTrue(map.verifySize());
+	}
+
+	@Test
+	public void testCountKeyIsRejected() throws Exception
+	{
+		String countKey = new String(EntryCounter.COUNT_KEY);
+		try
+		{
+			map.put(countKey, "1");
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+		try
+		{
+			map.set(countKey, "1");
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+		assertEquals(0, map.size());
+		assertTrue(map.verifySize());
+	}
+
+	@Test
+	public void testCountingComparatorIsNotInterchangeable() throws Exception
+	{
+		File sortedDirectory = Files.createTempDirectory(null).toFile();
+		try
+		{
+			StoredSortedMap<String, String> sorted = LevelDBMapFactory.createSortedMap(sortedDirectory,
+					new SortableStringBinding(), new StringBinding(), new MapOptions().countEntries(true));
+			sorted.put("a", "1");
+			sorted.close();
+			try
+			{
+				LevelDBMapFactory.createSortedMap(sortedDirectory, new SortableStringBinding(), new StringBinding(),
+						new MapOptions()).close();
+				fail("Expected the database to be refused without entry counting");
+			}
+			catch (IllegalArgumentException expected)
+			{
+			}
+		}
+		finally
+		{
+			FileUtils.deleteRecursively(sortedDirectory);
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the entries returned by the entrySet() of a {@link LevelDBStoredMap}.
+ */
+public class EntryTest
+{
+
+	private File directory;
+	private StoredMap<String, String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createMap(directory, new StringBinding(), new StringBinding());
+		map.put("a", "1");
+		map.put("b", "2");
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testValueIsReadWithEntry()
+	{
+		Iterator<Entry<String, String>> i = map.entrySet().iterator();
+		Entry<String, String> entry = i.next();
+		map.put("a", "3");
+
+		// The entry keeps the value it was read with
+		assertEquals("a", entry.getKey());
+		assertEquals("1", entry.getValue());
+		assertEquals("a".hashCode() ^ "1".hashCode(), entry.hashCode());
+	}
+
+	@Test
+	public void testSetValue()
+	{
+		Iterator<Entry<String, String>> i = map.entrySet().iterator();
+		Entry<String, String> entry = i.next();
+
+		assertEquals("1", entry.setValue("3"));
+		assertEquals("3", entry.getValue());
+		assertEquals("3", map.get("a"));
+		assertEquals("3", entry.setValue("4"));
+		assertEquals("4", map.get("a"));
+	}
+
+}
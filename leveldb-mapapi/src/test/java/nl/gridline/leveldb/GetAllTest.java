@@ -0,0 +1,253 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link StoredMap#getAll(java.util.Collection)} on maps and sub-maps.
+ */
+public class GetAllTest
+{
+
+	private File directory;
+	private StoredMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private StoredSortedMap<String, String> createSortedMap(MapOptions options) throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = LevelDBMapFactory.createSortedMap(directory, new StringBinding(),
+				new StringBinding(), options);
+		map = sortedMap;
+		populate();
+		return sortedMap;
+	}
+
+	private void createMap(MapOptions options) throws IOException
+	{
+		map = LevelDBMapFactory.createMap(directory, new StringBinding(), new StringBinding(), options);
+		populate();
+	}
+
+	private void populate()
+	{
+		for (char c = 'a'; c <= 'j'; c++)
+		{
+			map.put(String.valueOf(c), "value " + c);
+		}
+	}
+
+	private static Map<String, String> expected(String... keys)
+	{
+		Map<String, String> result = new HashMap<String, String>();
+		for (String key : keys)
+		{
+			result.put(key, "value " + key);
+		}
+		return result;
+	}
+
+	@Test
+	public void testGetAll() throws IOException
+	{
+		createMap(new MapOptions());
+
+		assertEquals(expected("a", "c", "j"), map.getAll(Arrays.asList("j", "x", "a", "c", "a")));
+		assertTrue(map.getAll(Collections.<String> emptyList()).isEmpty());
+	}
+
+	@Test
+	public void testGetAllSorted() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions());
+
+		// Enough keys to read them with an iterator
+		List<String> keys = Arrays.asList("j", "0", "b", "bb", "c", "d", "e", "f", "h", "z", "a");
+		assertEquals(expected("a", "b", "c", "d", "e", "f", "h", "j"), sortedMap.getAll(keys));
+		assertEquals(expected("b", "c"), sortedMap.getAll(Arrays.asList("c", "b", "bb")));
+	}
+
+	@Test
+	public void testGetAllSubMaps() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions());
+		List<String> keys = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+		assertEquals(expected("c", "d", "e"), sortedMap.subMap("c", "f").getAll(keys));
+		assertEquals(expected("a", "b"), sortedMap.headMap("b", true).getAll(keys));
+		assertEquals(expected("j"), sortedMap.tailMap("i", false).getAll(keys));
+		assertEquals(expected("a", "b"), sortedMap.descendingMap().tailMap("b").getAll(keys));
+	}
+
+	@Test
+	public void testGetAllWriteBehind() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions().writeBehind(true)
+				.writeBehindDelay(60000));
+		map.flush();
+
+		sortedMap.set("b", "changed");
+		sortedMap.delete("c");
+		sortedMap.set("x", "value x");
+
+		Map<String, String> expected = expected("a", "x");
+		expected.put("b", "changed");
+		assertEquals(expected, sortedMap.getAll(Arrays.asList("a", "b", "c", "x")));
+	}
+
+	@Test
+	public void testGetAllCached() throws IOException
+	{
+		createSortedMap(new MapOptions().cacheSize(100));
+		ValueCache<String> cache = ((LevelDBStoredMap<String, String>) map).getValueCache();
+
+		assertEquals(expected("a", "b"), map.getAll(Arrays.asList("a", "b", "x")));
+		assertEquals(2, cache.size());
+
+		map.put("a", "changed");
+		Map<String, String> expected = expected("b");
+		expected.put("a", "changed");
+		assertEquals(expected, map.getAll(Arrays.asList("a", "b")));
+		assertEquals(1, cache.hitCount());
+	}
+
+	@Test
+	public void testGetAllLargeBatch() throws IOException
+	{
+		StoredSortedMap<String, String> sortedMap = createSortedMap(new MapOptions());
+		List<String> keys = new ArrayList<String>();
+		Map<String, String> expected = new HashMap<String, String>();
+		for (int i = 0; i < 5000; i++)
+		{
+			String key = String.format("key%05d", i);
+			keys.add(key);
+			if (i % 2 == 0)
+			{
+				sortedMap.set(key, "value " + i);
+				expected.put(key, "value " + i);
+			}
+		}
+		Collections.shuffle(keys);
+
+		assertEquals(expected, sortedMap.tailMap("k").getAll(keys));
+	}
+
+	@Test
+	public void testGetAllIteratesPlainMap() throws IOException
+	{
+		createMap(new MapOptions());
+		final AtomicInteger pointLookups = new AtomicInteger();
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator())
+		{
+			@Override
+			public byte[] get(byte[] key, ReadOptions options)
+			{
+				pointLookups.incrementAndGet();
+				return super.get(key, options);
+			}
+		};
+		StoredMap<String, String> plainMap = LevelDBMapFactory.createMapForDB(db, new BytewiseDBComparator(),
+				new StringBinding(), new StringBinding(), new MapOptions());
+		List<String> keys = new ArrayList<String>();
+		Map<String, String> expected = new HashMap<String, String>();
+		for (int i = 0; i < 100; i++)
+		{
+			String key = String.format("key%03d", i);
+			keys.add(key);
+			if (i % 3 != 0)
+			{
+				plainMap.set(key, "value " + i);
+				expected.put(key, "value " + i);
+			}
+		}
+		Collections.shuffle(keys);
+		pointLookups.set(0);
+
+		assertEquals(expected, plainMap.getAll(keys));
+		assertEquals(0, pointLookups.get());
+	}
+
+	@Test
+	public void testGetAllCustomComparator() throws IOException
+	{
+		createMap(new MapOptions());
+		final BytewiseDBComparator bytewise = new BytewiseDBComparator();
+		final AtomicInteger pointLookups = new AtomicInteger();
+		// A database in reverse byte order, which a plain map is not told about
+		MemoryDB db = new MemoryDB((key1, key2) -> bytewise.compare(key2, key1))
+		{
+			@Override
+			public byte[] get(byte[] key, ReadOptions options)
+			{
+				pointLookups.incrementAndGet();
+				return super.get(key, options);
+			}
+		};
+		StoredMap<String, String> plainMap = LevelDBMapFactory.createMapForDB(db, new StringBinding(),
+				new StringBinding());
+		List<String> keys = new ArrayList<String>();
+		Map<String, String> expected = new HashMap<String, String>();
+		for (int i = 0; i < 100; i++)
+		{
+			String key = String.format("key%03d", i);
+			keys.add(key);
+			if (i % 3 != 0)
+			{
+				plainMap.set(key, "value " + i);
+				expected.put(key, "value " + i);
+			}
+		}
+		Collections.shuffle(keys);
+		pointLookups.set(0);
+
+		assertEquals(expected, plainMap.getAll(keys));
+		assertEquals(keys.size(), pointLookups.get());
+	}
+
+}
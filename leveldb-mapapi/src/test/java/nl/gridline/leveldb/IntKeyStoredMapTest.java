@@ -0,0 +1,98 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.iterators.IntCursor;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IntKeyStoredMapTest
+{
+
+	private static final List<Integer> KEYS = Arrays.asList(Integer.MIN_VALUE, -1000, -1, 0, 1, 255, 256,
+			Integer.MAX_VALUE);
+
+	private File directory;
+	private IntKeyStoredMap<String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createIntKeyMap(directory, new StringBinding());
+		for (int i = KEYS.size() - 1; i >= 0; i--)
+		{
+			map.set(KEYS.get(i), "value" + KEYS.get(i));
+		}
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testPrimitiveMethods()
+	{
+		for (int key : KEYS)
+		{
+			assertEquals("value" + key, map.get(key));
+			assertTrue(map.containsKey(key));
+		}
+		assertFalse(map.containsKey(2));
+		assertNull(map.put(2, "two"));
+		assertEquals("two", map.get(Integer.valueOf(2)));
+		assertEquals("two", map.remove(2));
+		map.delete(1);
+		assertNull(map.get(1));
+	}
+
+	@Test
+	public void testCursor() throws IOException
+	{
+		assertEquals(KEYS, new ArrayList<Integer>(map.keySet()));
+		List<Integer> keys = new ArrayList<Integer>();
+		try (IntCursor<String> cursor = map.subMap(-1, Integer.MAX_VALUE).cursor())
+		{
+			cursor.seek(0);
+			while (cursor.next())
+			{
+				keys.add(cursor.key());
+				assertEquals("value" + cursor.key(), cursor.value());
+			}
+		}
+		assertEquals(Arrays.asList(0, 1, 255, 256), keys);
+	}
+
+}
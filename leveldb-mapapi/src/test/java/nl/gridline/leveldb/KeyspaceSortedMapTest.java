@@ -0,0 +1,86 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+
+/**
+ * Runs the SortedMapTest on a keyspace, between two other keyspaces that hold entries with the same keys.
+ */
+public class KeyspaceSortedMapTest extends SortedMapTest
+{
+
+	private final List<File> directories = new ArrayList<File>();
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		super.tearDown();
+		for (File directory : directories)
+		{
+			FileUtils.deleteRecursively(directory);
+		}
+	}
+
+	private StoredSortedMap<String, String> createKeyspace()
+	{
+		try
+		{
+			File directory = Files.createTempDirectory(null).toFile();
+			directories.add(directory);
+			Keyspaces keyspaces = LevelDBMapFactory.openKeyspaces(directory);
+			for (String name : new String[] { "before", "after" })
+			{
+				StoredMap<String, String> other = keyspaces.createMap(name, new StringBinding(), new StringBinding());
+				other.put("test", name);
+				other.put("key", name);
+				other.put("", name);
+			}
+			return keyspaces.createSortedMap("map", new SortableStringBinding(), new StringBinding(),
+					createMapOptions());
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	protected SortedMap<String, String> makeEmptyMap() throws UnsupportedOperationException
+	{
+		return createKeyspace();
+	}
+
+	@Override
+	protected SortedMap<String, String> makePopulatedMap() throws UnsupportedOperationException
+	{
+		StoredSortedMap<String, String> result = createKeyspace();
+		result.put("test", "gridline");
+		result.put("key", "value");
+		return result;
+	}
+
+}
@@ -0,0 +1,294 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link Keyspaces}.
+ */
+public class KeyspacesTest
+{
+
+	private File directory;
+	private Keyspaces keyspaces;
+
+	@Before
+	public void openKeyspaces() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		keyspaces = LevelDBMapFactory.openKeyspaces(directory);
+	}
+
+	@After
+	public void closeKeyspaces() throws IOException
+	{
+		keyspaces.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testKeyspacesAreSeparate() throws IOException
+	{
+		StoredSortedMap<Long, String> first = keyspaces.createSortedMap("first", new SortableLongBinding(),
+				new StringBinding());
+		StoredSortedMap<Long, String> second = keyspaces.createSortedMap("second", new SortableLongBinding(),
+				new StringBinding());
+		for (long n = 0; n < 10; n++)
+		{
+			first.put(n, "first " + n);
+			second.put(n * 10, "second " + n);
+		}
+
+		assertEquals(10, first.size());
+		assertEquals("first 5", first.get(5L));
+		assertNull(first.get(50L));
+		assertEquals(0L, first.firstKey().longValue());
+		assertEquals(9L, first.lastKey().longValue());
+		assertEquals(90L, second.lastKey().longValue());
+		assertEquals("[3, 4]", first.subMap(3L, 5L).keySet().toString());
+
+		first.headMap(5L).clear();
+		assertEquals(5, first.size());
+		assertEquals(10, second.size());
+
+		second.clear();
+		assertTrue(second.isEmpty());
+		assertEquals(5, first.size());
+	}
+
+	@Test
+	public void testRegistry() throws IOException
+	{
+		StoredMap<String, String> map = keyspaces.createMap("map", new StringBinding(), new StringBinding());
+		map.put("key", "value");
+		byte[] prefix = keyspaces.prefix("map");
+		byte[] otherPrefix = keyspaces.prefix("other");
+		assertEquals(Arrays.asList("map", "other"), keyspaces.names());
+
+		keyspaces.close();
+		keyspaces = LevelDBMapFactory.openKeyspaces(directory);
+
+		assertEquals(Arrays.asList("map", "other"), keyspaces.names());
+		assertArrayEquals(prefix, keyspaces.prefix("map"));
+		assertArrayEquals(otherPrefix, keyspaces.prefix("other"));
+		assertEquals(1, keyspaces.prefix("third")[0] - prefix[0] - 1);
+		assertEquals("value", keyspaces.createMap("map", new StringBinding(), new StringBinding()).get("key"));
+	}
+
+	@Test
+	public void testBatch() throws IOException
+	{
+		StoredMap<String, String> accounts = keyspaces.createMap("accounts", new StringBinding(), new StringBinding(),
+				new MapOptions().cacheSize(10));
+		StoredMap<String, String> log = keyspaces.createMap("log", new StringBinding(), new StringBinding(),
+				new MapOptions().writeBehind(true));
+		accounts.put("alice", "10");
+		assertEquals("10", accounts.get("alice"));
+		log.put("1", "old");
+
+		keyspaces.newBatch().put(accounts, "alice", "5").put(accounts, "bob", "5").delete(log, "1")
+				.put(log, "2", "transfer").write();
+
+		assertEquals("5", accounts.get("alice"));
+		assertEquals("5", accounts.get("bob"));
+		assertEquals("[2]", log.keySet().toString());
+	}
+
+	@Test
+	public void testBatchLocksKeys() throws Exception
+	{
+		final StoredMap<String, String> accounts = keyspaces.createMap("accounts", new StringBinding(),
+				new StringBinding());
+		StoredMap<String, String> log = keyspaces.createMap("log", new StringBinding(), new StringBinding());
+		final CountDownLatch computing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread compute = new Thread(() -> accounts.compute("alice", (key, value) -> {
+			computing.countDown();
+			try
+			{
+				release.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return "computed";
+		}));
+		compute.start();
+		computing.await();
+
+		Thread batch = new Thread(() -> keyspaces.newBatch().put(log, "1", "transfer").put(accounts, "alice", "5")
+				.write());
+		batch.start();
+		batch.join(200);
+		assertTrue(batch.isAlive());
+		assertNull(log.get("1"));
+
+		release.countDown();
+		compute.join();
+		batch.join();
+		assertEquals("5", accounts.get("alice"));
+		assertEquals("transfer", log.get("1"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBatchOtherMap() throws IOException
+	{
+		StoredMap<String, String> map = LevelDBMapFactory.createMap(Files.createTempDirectory(null).toFile(),
+				new StringBinding(), new StringBinding());
+		try
+		{
+			keyspaces.newBatch().put(map, "key", "value");
+		}
+		finally
+		{
+			map.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCountingNotSupported()
+	{
+		keyspaces.createMap("map", new StringBinding(), new StringBinding(), new MapOptions().countEntries(true));
+	}
+
+	@Test
+	public void testCloseMap() throws IOException
+	{
+		StoredMap<String, String> map = keyspaces.createMap("map", new StringBinding(), new StringBinding(),
+				new MapOptions().writeBehind(true));
+		map.put("key", "value");
+		map.close();
+
+		assertEquals("value", keyspaces.createMap("map", new StringBinding(), new StringBinding()).get("key"));
+	}
+
+	@Test
+	public void testOpenTwice() throws IOException
+	{
+		StoredMap<String, String> map = keyspaces.createMap("map", new StringBinding(), new StringBinding(),
+				new MapOptions().cacheSize(10));
+		StoredMap<String, String> again = keyspaces.createMap("map", new StringBinding(), new StringBinding(),
+				new MapOptions().cacheSize(10));
+		assertSame(map, again);
+
+		// The map stays open until both callers closed it
+		map.close();
+		assertSame(again, keyspaces.createMap("map", new StringBinding(), new StringBinding(),
+				new MapOptions().cacheSize(10)));
+		again.close();
+		again.close();
+
+		StoredMap<String, String> other = keyspaces.createMap("map", new StringBinding(), new StringBinding());
+		assertNotSame(map, other);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOpenWithOtherOptions()
+	{
+		keyspaces.createMap("map", new StringBinding(), new StringBinding(), new MapOptions().cacheSize(10));
+		keyspaces.createMap("map", new StringBinding(), new StringBinding(), new MapOptions().writeBehind(true));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOpenWithOtherBindings()
+	{
+		keyspaces.createMap("map", new StringBinding(), new StringBinding());
+		keyspaces.createSortedMap("map", new SortableStringBinding(), new StringBinding());
+	}
+
+	@Test
+	public void testPrefixes()
+	{
+		BytewiseDBComparator comparator = new BytewiseDBComparator();
+		byte[] previous = null;
+		for (int id : new int[] { 1, 2, 0x7F, 0x80, 0x81, 0x407F, 0x4080, 0x4081, 0x3F00407F })
+		{
+			byte[] prefix = Keyspaces.encodePrefix(id);
+			assertEquals(id, Keyspaces.decodePrefix(prefix));
+			assertTrue(prefix[0] != 0 && prefix[0] != (byte) 0xFF);
+			if (previous != null)
+			{
+				assertTrue(comparator.compare(previous, prefix) < 0);
+			}
+			previous = prefix;
+		}
+		assertEquals(1, Keyspaces.encodePrefix(0x7F).length);
+		assertEquals(2, Keyspaces.encodePrefix(0x407F).length);
+		assertEquals(4, Keyspaces.encodePrefix(0x4080).length);
+	}
+
+	@Test
+	public void testPrefixSuccessors()
+	{
+		assertArrayEquals(new byte[] { 0x02 }, Keyspaces.successorOf(new byte[] { 0x01 }));
+		assertArrayEquals(new byte[] { (byte) 0x80, 0x01 }, Keyspaces.successorOf(new byte[] { (byte) 0x80, 0x00 }));
+		assertArrayEquals(new byte[] { (byte) 0x81 }, Keyspaces.successorOf(new byte[] { (byte) 0x80, (byte) 0xFF }));
+		assertArrayEquals(new byte[] { (byte) 0xC0, 0x00, 0x01 },
+				Keyspaces.successorOf(new byte[] { (byte) 0xC0, 0x00, 0x00, (byte) 0xFF }));
+	}
+
+	@Test
+	public void testManyKeyspacesAreSeparate() throws IOException
+	{
+		int count = 0x80 + 3;
+		for (int n = 0; n < count; n++)
+		{
+			StoredMap<String, String> map = keyspaces.createMap("map " + n, new StringBinding(), new StringBinding());
+			map.put("key", "value " + n);
+			map.put("other", "value " + n);
+			map.close();
+		}
+
+		StoredMap<String, String> cleared = keyspaces.createMap("map " + 0x80, new StringBinding(),
+				new StringBinding());
+		assertEquals(2, cleared.size());
+		cleared.clear();
+		assertEquals(0, cleared.size());
+		cleared.close();
+
+		for (int n = 0; n < count; n++)
+		{
+			StoredMap<String, String> map = keyspaces.createMap("map " + n, new StringBinding(), new StringBinding());
+			assertEquals(n == 0x80 ? 0 : 2, map.size());
+			assertEquals(n == 0x80 ? null : "value " + n, map.get("key"));
+			map.close();
+		}
+	}
+
+}
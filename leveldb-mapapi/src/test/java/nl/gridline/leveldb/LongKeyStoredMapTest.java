@@ -0,0 +1,195 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.iterators.LongCursor;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LongKeyStoredMapTest
+{
+
+	private static final List<Long> KEYS = Arrays.asList(Long.MIN_VALUE, -1000000L, -1L, 0L, 1L, 255L, 256L,
+			1000000L, Long.MAX_VALUE);
+
+	private File directory;
+	private LongKeyStoredMap<String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	private LongKeyStoredMap<String> open(MapOptions options) throws IOException
+	{
+		map = LevelDBMapFactory.createLongKeyMap(directory, new StringBinding(), options);
+		// Put in reverse, so the order of the keys comes from the database
+		for (int i = KEYS.size() - 1; i >= 0; i--)
+		{
+			map.set(KEYS.get(i), "value" + KEYS.get(i));
+		}
+		return map;
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		if (map != null)
+		{
+			map.close();
+		}
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testPrimitiveMethods() throws IOException
+	{
+		open(new MapOptions());
+		for (long key : KEYS)
+		{
+			assertEquals("value" + key, map.get(key));
+			assertEquals(map.get(key), map.get((Object) key));
+			assertTrue(map.containsKey(key));
+		}
+		assertNull(map.get(2L));
+		assertFalse(map.containsKey(2L));
+
+		assertEquals("value1", map.put(1L, "one"));
+		assertNull(map.put(2L, "two"));
+		assertEquals("two", map.get(Long.valueOf(2)));
+		assertEquals("two", map.remove(2L));
+		assertNull(map.remove(2L));
+		map.delete(1L);
+		assertFalse(map.containsKey(1L));
+		assertEquals(KEYS.size() - 1, map.size());
+	}
+
+	@Test
+	public void testOrder() throws IOException
+	{
+		open(new MapOptions());
+		assertEquals(KEYS, new ArrayList<Long>(map.keySet()));
+		assertEquals(Long.valueOf(Long.MIN_VALUE), map.firstKey());
+		assertEquals(Long.valueOf(-1L), map.lowerKey(0L));
+		assertEquals(Long.valueOf(255L), map.ceilingKey(2L));
+	}
+
+	@Test
+	public void testCursor() throws IOException
+	{
+		open(new MapOptions());
+		List<Long> keys = new ArrayList<Long>();
+		try (LongCursor<String> cursor = map.cursor())
+		{
+			try
+			{
+				cursor.key();
+				fail("Expected IllegalStateException");
+			}
+			catch (IllegalStateException expected)
+			{
+			}
+
+			while (cursor.next())
+			{
+				keys.add(cursor.key());
+				assertEquals("value" + cursor.key(), cursor.value());
+			}
+			assertEquals(KEYS, keys);
+
+			cursor.seek(2L);
+			assertTrue(cursor.next());
+			assertEquals(255L, cursor.key());
+			cursor.seek(Long.MIN_VALUE);
+			assertTrue(cursor.next());
+			assertEquals(Long.MIN_VALUE, cursor.key());
+		}
+	}
+
+	@Test
+	public void testSubMap() throws IOException
+	{
+		open(new MapOptions());
+		LongKeyStoredMap<String> subMap = map.subMap(-1L, 256L);
+		assertEquals(Arrays.asList(-1L, 0L, 1L, 255L), new ArrayList<Long>(subMap.keySet()));
+		assertNull(subMap.get(256L));
+		assertFalse(subMap.containsKey(-1000000L));
+		assertNull(subMap.remove(256L));
+		assertTrue(map.containsKey(256L));
+		try
+		{
+			subMap.put(256L, "out of bounds");
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+
+		List<Long> keys = new ArrayList<Long>();
+		try (LongCursor<String> cursor = subMap.tailMap(0L).cursor())
+		{
+			while (cursor.next())
+			{
+				keys.add(cursor.key());
+			}
+		}
+		assertEquals(Arrays.asList(0L, 1L, 255L), keys);
+		assertEquals(Arrays.asList(Long.MIN_VALUE, -1000000L), new ArrayList<Long>(map.headMap(-1L).keySet()));
+	}
+
+	/**
+	 * The lookups reuse a buffer for the key, which must not end up in the cache or the write-behind buffer
+	 */
+	@Test
+	public void testCacheWriteBehindAndCounting() throws IOException
+	{
+		open(new MapOptions().cacheSize(100).writeBehind(true).countEntries(true));
+		for (long key : KEYS)
+		{
+			assertEquals("value" + key, map.get(key));
+		}
+		for (long key : KEYS)
+		{
+			assertEquals("value" + key, map.get(key));
+		}
+		map.put(0L, "zero");
+		assertEquals("zero", map.get(0L));
+		map.flush();
+		assertEquals("zero", map.get(0L));
+		assertEquals("value1", map.get(1L));
+		assertEquals(KEYS.size(), map.size());
+		assertTrue(map.verifySize());
+	}
+
+}
@@ -19,7 +19,7 @@ import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import nl.gridline.leveldb.bindings.StringBinding;
 
@@ -27,12 +27,12 @@ import org.iq80.leveldb.DB;
 import org.iq80.leveldb.Options;
 import org.iq80.leveldb.util.FileUtils;
 
-import com.google.common.collect.testing.MapInterfaceTest;
+import com.google.common.collect.testing.ConcurrentMapInterfaceTest;
 
 /**
  * @author <a href="mailto:niels@gridline.nl">Niels Slot</a>
  */
-public class MapTest extends MapInterfaceTest<String, String>
+public class MapTest extends ConcurrentMapInterfaceTest<String, String>
 {
 
 	private File empty;
@@ -43,6 +43,11 @@ public class MapTest extends MapInterfaceTest<String, String>
 		super(false, false, true, true, true);
 	}
 
+	protected MapOptions createMapOptions()
+	{
+		return new MapOptions();
+	}
+
 	@Override
 	protected void setUp() throws Exception
 	{
@@ -72,7 +77,13 @@ public class MapTest extends MapInterfaceTest<String, String>
 	}
 
 	@Override
-	protected Map<String, String> makeEmptyMap() throws UnsupportedOperationException
+	protected String getSecondValueNotInPopulatedMap() throws UnsupportedOperationException
+	{
+		return "test456";
+	}
+
+	@Override
+	protected ConcurrentMap<String, String> makeEmptyMap() throws UnsupportedOperationException
 	{
 		FileUtils.deleteRecursively(empty);
 
@@ -89,11 +100,11 @@ public class MapTest extends MapInterfaceTest<String, String>
 			e.printStackTrace();
 		}
 
-		return new LevelDBStoredMap<String, String>(db, stringBinding, stringBinding);
+		return new LevelDBStoredMap<String, String>(db, stringBinding, stringBinding, createMapOptions());
 	}
 
 	@Override
-	protected Map<String, String> makePopulatedMap() throws UnsupportedOperationException
+	protected ConcurrentMap<String, String> makePopulatedMap() throws UnsupportedOperationException
 	{
 		FileUtils.deleteRecursively(populated);
 
@@ -110,7 +121,8 @@ public class MapTest extends MapInterfaceTest<String, String>
 			e.printStackTrace();
 		}
 
-		LevelDBStoredMap<String, String> result = new LevelDBStoredMap<String, String>(db, stringBinding, stringBinding);
+		LevelDBStoredMap<String, String> result = new LevelDBStoredMap<String, String>(db, stringBinding, stringBinding,
+				createMapOptions());
 		result.put("test", "gridline");
 		result.put("key", "value");
 		return result;
@@ -0,0 +1,369 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBException;
+import org.iq80.leveldb.DBIterator;
+import org.iq80.leveldb.Range;
+import org.iq80.leveldb.ReadOptions;
+import org.iq80.leveldb.Snapshot;
+import org.iq80.leveldb.WriteBatch;
+import org.iq80.leveldb.WriteOptions;
+
+/**
+ * A DB that keeps its entries in memory, for tests. Unlike the iq80 implementation its iterators support
+ * seekToLast() and prev(), with the semantics of leveldbjni: prev() moves back to the previous entry and returns it,
+ * so it is returned by peekNext() afterwards. It counts the snapshots and iterators that are open, so tests can check
+ * that they are released.
+ */
+public class MemoryDB implements DB
+{
+
+	private final Comparator<byte[]> comparator;
+	private final TreeMap<byte[], byte[]> entries;
+	private final AtomicInteger openSnapshots = new AtomicInteger();
+	private final AtomicInteger openIterators = new AtomicInteger();
+
+	public MemoryDB(Comparator<byte[]> comparator)
+	{
+		this.comparator = comparator;
+		entries = new TreeMap<byte[], byte[]>(comparator);
+	}
+
+	public int getOpenSnapshots()
+	{
+		return openSnapshots.get();
+	}
+
+	public int getOpenIterators()
+	{
+		return openIterators.get();
+	}
+
+	private class MemorySnapshot implements Snapshot
+	{
+		private final NavigableMap<byte[], byte[]> entries;
+		private boolean closed = false;
+
+		public MemorySnapshot(NavigableMap<byte[], byte[]> entries)
+		{
+			this.entries = entries;
+			openSnapshots.incrementAndGet();
+		}
+
+		@Override
+		public synchronized void close()
+		{
+			if (!closed)
+			{
+				closed = true;
+				openSnapshots.decrementAndGet();
+			}
+		}
+	}
+
+	private NavigableMap<byte[], byte[]> view(ReadOptions options)
+	{
+		if (options != null && options.snapshot() != null)
+		{
+			MemorySnapshot snapshot = (MemorySnapshot) options.snapshot();
+			if (snapshot.closed)
+			{
+				throw new DBException("Snapshot is closed");
+			}
+			return snapshot.entries;
+		}
+		synchronized (entries)
+		{
+			return new TreeMap<byte[], byte[]>(entries);
+		}
+	}
+
+	@Override
+	public byte[] get(byte[] key) throws DBException
+	{
+		return get(key, null);
+	}
+
+	@Override
+	public byte[] get(byte[] key, ReadOptions options) throws DBException
+	{
+		if (options != null && options.snapshot() != null)
+		{
+			return view(options).get(key);
+		}
+		synchronized (entries)
+		{
+			return entries.get(key);
+		}
+	}
+
+	@Override
+	public DBIterator iterator()
+	{
+		return iterator(null);
+	}
+
+	@Override
+	public DBIterator iterator(ReadOptions options)
+	{
+		return new MemoryIterator(view(options));
+	}
+
+	@Override
+	public void put(byte[] key, byte[] value) throws DBException
+	{
+		put(key, value, null);
+	}
+
+	@Override
+	public void delete(byte[] key) throws DBException
+	{
+		delete(key, null);
+	}
+
+	@Override
+	public void write(WriteBatch updates) throws DBException
+	{
+		write(updates, null);
+	}
+
+	@Override
+	public WriteBatch createWriteBatch()
+	{
+		return new MemoryWriteBatch();
+	}
+
+	@Override
+	public Snapshot put(byte[] key, byte[] value, WriteOptions options) throws DBException
+	{
+		synchronized (entries)
+		{
+			entries.put(key, value);
+		}
+		return null;
+	}
+
+	@Override
+	public Snapshot delete(byte[] key, WriteOptions options) throws DBException
+	{
+		synchronized (entries)
+		{
+			entries.remove(key);
+		}
+		return null;
+	}
+
+	@Override
+	public Snapshot write(WriteBatch updates, WriteOptions options) throws DBException
+	{
+		synchronized (entries)
+		{
+			for (Entry<byte[], byte[]> update : ((MemoryWriteBatch) updates).updates)
+			{
+				if (update.getValue() == null)
+				{
+					entries.remove(update.getKey());
+				}
+				else
+				{
+					entries.put(update.getKey(), update.getValue());
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Snapshot getSnapshot()
+	{
+		return new MemorySnapshot(view(null));
+	}
+
+	@Override
+	public long[] getApproximateSizes(Range... ranges)
+	{
+		return new long[ranges.length];
+	}
+
+	@Override
+	public String getProperty(String name)
+	{
+		return null;
+	}
+
+	@Override
+	public void suspendCompactions() throws InterruptedException
+	{
+	}
+
+	@Override
+	public void resumeCompactions()
+	{
+	}
+
+	@Override
+	public void compactRange(byte[] begin, byte[] end) throws DBException
+	{
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+	}
+
+	private static class MemoryWriteBatch implements WriteBatch
+	{
+		private final List<Entry<byte[], byte[]>> updates = new ArrayList<Entry<byte[], byte[]>>();
+
+		@Override
+		public WriteBatch put(byte[] key, byte[] value)
+		{
+			updates.add(new AbstractMap.SimpleImmutableEntry<byte[], byte[]>(key, value));
+			return this;
+		}
+
+		@Override
+		public WriteBatch delete(byte[] key)
+		{
+			updates.add(new AbstractMap.SimpleImmutableEntry<byte[], byte[]>(key, null));
+			return this;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	/**
+	 * Iterates over a copy of the entries; position is the index of the entry that peekNext() returns
+	 */
+	private class MemoryIterator implements DBIterator
+	{
+		private final List<Entry<byte[], byte[]>> list = new ArrayList<Entry<byte[], byte[]>>();
+		private int position = 0;
+		private boolean closed = false;
+
+		public MemoryIterator(NavigableMap<byte[], byte[]> entries)
+		{
+			for (Entry<byte[], byte[]> entry : entries.entrySet())
+			{
+				list.add(new AbstractMap.SimpleImmutableEntry<byte[], byte[]>(entry));
+			}
+			openIterators.incrementAndGet();
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			return position < list.size();
+		}
+
+		@Override
+		public Entry<byte[], byte[]> next()
+		{
+			Entry<byte[], byte[]> entry = peekNext();
+			position++;
+			return entry;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> peekNext()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			return list.get(position);
+		}
+
+		@Override
+		public boolean hasPrev()
+		{
+			return position > 0;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> prev()
+		{
+			Entry<byte[], byte[]> entry = peekPrev();
+			position--;
+			return entry;
+		}
+
+		@Override
+		public Entry<byte[], byte[]> peekPrev()
+		{
+			if (!hasPrev())
+			{
+				throw new NoSuchElementException();
+			}
+			return list.get(position - 1);
+		}
+
+		@Override
+		public void seek(byte[] key)
+		{
+			position = 0;
+			while (position < list.size() && comparator.compare(list.get(position).getKey(), key) < 0)
+			{
+				position++;
+			}
+		}
+
+		@Override
+		public void seekToFirst()
+		{
+			position = 0;
+		}
+
+		@Override
+		public void seekToLast()
+		{
+			position = Math.max(list.size() - 1, 0);
+		}
+
+		@Override
+		public void remove()
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public synchronized void close()
+		{
+			if (!closed)
+			{
+				closed = true;
+				openIterators.decrementAndGet();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,162 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link NavigableMap} methods of {@link LevelDBStoredSortedMap}.
+ */
+public class NavigableMapTest
+{
+
+	private File directory;
+	private StoredSortedMap<String, String> map;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createSortedMap(directory, new StringBinding());
+		for (String key : Arrays.asList("b", "d", "f", "h"))
+		{
+			map.put(key, key.toUpperCase());
+		}
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testNavigation()
+	{
+		assertEquals("b", map.firstKey());
+		assertEquals("h", map.lastKey());
+
+		assertEquals("b", map.lowerKey("d"));
+		assertEquals("d", map.lowerKey("e"));
+		assertNull(map.lowerKey("b"));
+		assertEquals("d", map.floorKey("d"));
+		assertEquals("d", map.floorKey("e"));
+		assertNull(map.floorKey("a"));
+		assertEquals("h", map.floorKey("z"));
+
+		assertEquals("d", map.ceilingKey("d"));
+		assertEquals("d", map.ceilingKey("c"));
+		assertNull(map.ceilingKey("i"));
+		assertEquals("f", map.higherKey("d"));
+		assertNull(map.higherKey("h"));
+
+		Map.Entry<String, String> entry = map.ceilingEntry("e");
+		assertEquals("f", entry.getKey());
+		assertEquals("F", entry.getValue());
+		assertEquals("D", map.lowerEntry("f").getValue());
+	}
+
+	@Test
+	public void testPoll()
+	{
+		assertEquals("b", map.pollFirstEntry().getKey());
+		assertEquals("h", map.pollLastEntry().getKey());
+		assertEquals(2, map.size());
+		assertFalse(map.containsKey("b"));
+		assertFalse(map.containsKey("h"));
+
+		map.clear();
+		assertNull(map.pollFirstEntry());
+		assertNull(map.pollLastEntry());
+		assertNull(map.firstEntry());
+		assertNull(map.lastEntry());
+	}
+
+	@Test
+	public void testSubMapBounds()
+	{
+		NavigableMap<String, String> sub = map.subMap("b", false, "h", true);
+		assertEquals(Arrays.asList("d", "f", "h"), new ArrayList<String>(sub.keySet()));
+		assertEquals("d", sub.firstKey());
+		assertEquals("h", sub.lastKey());
+		assertNull(sub.lowerKey("d"));
+		assertEquals("h", sub.floorKey("z"));
+		assertFalse(sub.containsKey("b"));
+		assertNull(sub.get("b"));
+
+		NavigableMap<String, String> head = sub.headMap("h", false);
+		assertEquals(Arrays.asList("d", "f"), new ArrayList<String>(head.keySet()));
+		assertEquals("f", head.lastKey());
+		assertNull(head.ceilingKey("g"));
+
+		try
+		{
+			head.put("h", "H");
+			assertTrue(false);
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+
+		try
+		{
+			head.tailMap("a", true);
+			assertTrue(false);
+		}
+		catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	@Test
+	public void testDescendingMap()
+	{
+		NavigableMap<String, String> descending = map.descendingMap();
+		assertEquals(Arrays.asList("h", "f", "d", "b"), new ArrayList<String>(descending.keySet()));
+		assertEquals(Arrays.asList("H", "F", "D", "B"), new ArrayList<String>(descending.values()));
+		assertEquals("h", descending.firstKey());
+		assertEquals("f", descending.higherKey("h"));
+		assertEquals("f", descending.floorKey("e"));
+
+		List<String> keys = new ArrayList<String>(map.descendingKeySet());
+		assertEquals(Arrays.asList("h", "f", "d", "b"), keys);
+
+		assertEquals(Arrays.asList("f", "d"),
+				new ArrayList<String>(descending.subMap("g", true, "c", true).keySet()));
+		assertEquals(Arrays.asList("b", "d", "f", "h"),
+				new ArrayList<String>(map.descendingKeySet().descendingSet()));
+	}
+
+}
@@ -0,0 +1,40 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import nl.gridline.leveldb.bindings.SortableStringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DBComparator;
+
+/**
+ * Runs the SortedMapTest with order preserving keys and a bytewise comparator.
+ */
+public class OrderPreservingSortedMapTest extends SortedMapTest
+{
+
+	@Override
+	protected EntryBinding<String> createKeyBinding()
+	{
+		return new SortableStringBinding();
+	}
+
+	@Override
+	protected DBComparator createDBComparator(EntryBinding<String> keyBinding)
+	{
+		return new BytewiseDBComparator();
+	}
+
+}
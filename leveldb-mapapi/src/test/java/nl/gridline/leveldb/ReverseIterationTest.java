@@ -0,0 +1,234 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.comparators.ReservedKeyDBComparator;
+import nl.gridline.leveldb.iterators.CloseableIterator;
+
+import org.iq80.leveldb.DBComparator;
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the methods that search backwards and the iterators of the descending views, on the iq80 implementation, which
+ * cannot iterate in reverse, and on a {@link MemoryDB}, which can.
+ */
+public class ReverseIterationTest
+{
+
+	private static final int ENTRIES = 3000;
+
+	private File directory;
+	private final List<StoredMap<?, ?>> maps = new ArrayList<StoredMap<?, ?>>();
+	private final TreeMap<Long, String> expected = new TreeMap<Long, String>();
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		Random random = new Random(42);
+		while (expected.size() < ENTRIES)
+		{
+			long key = random.nextLong() >> random.nextInt(64);
+			expected.put(key, "value" + key);
+		}
+	}
+
+	@After
+	public void closeMaps() throws IOException
+	{
+		for (StoredMap<?, ?> map : maps)
+		{
+			map.close();
+		}
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private StoredSortedMap<Long, String> createIq80Map(MapOptions options) throws IOException
+	{
+		StoredSortedMap<Long, String> map = LevelDBMapFactory.createSortedMap(directory, new SortableLongBinding(),
+				new StringBinding(), options);
+		maps.add(map);
+		map.putAll(expected);
+		return map;
+	}
+
+	private LevelDBStoredSortedMap<Long, String> createMemoryMap(MemoryDB db, DBComparator comparator,
+			MapOptions options)
+	{
+		LevelDBStoredSortedMap<Long, String> map = new LevelDBStoredSortedMap<Long, String>(db, comparator,
+				new SortableLongBinding(), new StringBinding(), null, options);
+		map.putAll(expected);
+		return map;
+	}
+
+	private static void assertNavigation(NavigableMap<Long, String> expected, NavigableMap<Long, String> map)
+	{
+		assertEquals(expected.lastKey(), map.lastKey());
+		assertEquals(expected.lastEntry(), map.lastEntry());
+		Random random = new Random(7);
+		for (int n = 0; n < 300; n++)
+		{
+			long key = random.nextLong() >> random.nextInt(64);
+			assertEquals(expected.lowerKey(key), map.lowerKey(key));
+			assertEquals(expected.floorKey(key), map.floorKey(key));
+		}
+		for (Long key : new ArrayList<Long>(expected.keySet()).subList(0, 100))
+		{
+			assertEquals(expected.lowerKey(key), map.lowerKey(key));
+			assertEquals(key, map.floorKey(key));
+		}
+	}
+
+	private static void assertDescending(NavigableMap<Long, String> expected, NavigableMap<Long, String> map)
+	{
+		assertEquals(new ArrayList<Long>(expected.descendingKeySet()), new ArrayList<Long>(map.descendingKeySet()));
+		assertEquals(new ArrayList<String>(expected.descendingMap().values()),
+				new ArrayList<String>(map.descendingMap().values()));
+	}
+
+	private void assertSubMaps(NavigableMap<Long, String> map)
+	{
+		List<Long> keys = new ArrayList<Long>(expected.keySet());
+		long from = keys.get(100);
+		long to = keys.get(ENTRIES - 200);
+		assertNavigation(expected.subMap(from, false, to, true), map.subMap(from, false, to, true));
+		assertDescending(expected.subMap(from, false, to, true), map.subMap(from, false, to, true));
+		assertDescending(expected.headMap(to, false), map.headMap(to, false));
+		assertDescending(expected.tailMap(to, true), map.tailMap(to, true));
+		assertNull(map.headMap(keys.get(0), false).lastEntry());
+		assertFalse(map.headMap(keys.get(0), false).descendingKeySet().iterator().hasNext());
+	}
+
+	@Test
+	public void testBytewiseWithoutReverseIteration() throws IOException
+	{
+		StoredSortedMap<Long, String> map = createIq80Map(new MapOptions());
+		assertNavigation(expected, map);
+		assertDescending(expected, map);
+		assertSubMaps(map);
+	}
+
+	@Test
+	public void testCountedWithoutReverseIteration() throws IOException
+	{
+		StoredSortedMap<Long, String> map = createIq80Map(new MapOptions().countEntries(true));
+		assertNavigation(expected, map);
+		assertDescending(expected, map);
+		assertSubMaps(map);
+		assertEquals(ENTRIES, map.size());
+	}
+
+	@Test
+	public void testDeserializingWithoutReverseIteration() throws IOException
+	{
+		StoredSortedMap<String, String> map = LevelDBMapFactory.createSortedMap(directory, new StringBinding());
+		maps.add(map);
+		TreeMap<String, String> strings = new TreeMap<String, String>();
+		for (Long key : expected.keySet())
+		{
+			strings.put(key.toString(), "");
+		}
+		map.putAll(strings);
+		assertEquals(new ArrayList<String>(strings.descendingKeySet()), new ArrayList<String>(map.descendingKeySet()));
+	}
+
+	@Test
+	public void testRemoveWhileDescending() throws IOException
+	{
+		StoredSortedMap<Long, String> map = createIq80Map(new MapOptions());
+		Iterator<Long> i = map.descendingKeySet().iterator();
+		while (i.hasNext())
+		{
+			if (i.next() % 2 == 0)
+			{
+				i.remove();
+			}
+		}
+		expected.keySet().removeIf(key -> key % 2 == 0);
+		assertDescending(expected, map);
+	}
+
+	@Test
+	public void testReverseIteration()
+	{
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		LevelDBStoredSortedMap<Long, String> map = createMemoryMap(db, new BytewiseDBComparator(), new MapOptions());
+		assertTrue(map.isReverseIterationSupported());
+		assertNavigation(expected, map);
+		assertDescending(expected, map);
+		assertSubMaps(map);
+		assertEquals(0, db.getOpenSnapshots());
+		assertEquals(0, db.getOpenIterators());
+	}
+
+	@Test
+	public void testReverseIterationSkipsEntryCount()
+	{
+		DBComparator comparator = new ReservedKeyDBComparator(new BytewiseDBComparator(), EntryCounter.COUNT_KEY);
+		MemoryDB db = new MemoryDB(comparator);
+		LevelDBStoredSortedMap<Long, String> map = createMemoryMap(db, comparator, new MapOptions()
+				.countEntries(true));
+		assertNavigation(expected, map);
+		assertDescending(expected, map);
+		assertSubMaps(map);
+		assertNull(map.lowerKey(expected.firstKey()));
+		assertEquals(ENTRIES, map.size());
+	}
+
+	@Test
+	public void testReverseIteratorReleasesSnapshot() throws IOException
+	{
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		LevelDBStoredSortedMap<Long, String> map = createMemoryMap(db, new BytewiseDBComparator(), new MapOptions());
+
+		Iterator<Long> i = map.descendingKeySet().iterator();
+		assertEquals(expected.lastKey(), i.next());
+		assertEquals(1, db.getOpenSnapshots());
+		assertEquals(1, db.getOpenIterators());
+
+		// The iterator reads from its snapshot, but removes from the map
+		i.remove();
+		assertFalse(map.containsKey(expected.lastKey()));
+		assertEquals(expected.lowerKey(expected.lastKey()), i.next());
+
+		((CloseableIterator<Long>) i).close();
+		assertEquals(0, db.getOpenSnapshots());
+		assertEquals(0, db.getOpenIterators());
+		assertFalse(i.hasNext());
+	}
+
+}
@@ -0,0 +1,179 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that the views returned by {@link StoredMap#snapshot()} do not see later changes.
+ */
+public class SnapshotTest
+{
+
+	private File directory;
+	private StoredSortedMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private void createMap(MapOptions options) throws IOException
+	{
+		map = LevelDBMapFactory.createSortedMap(directory, new StringBinding(), new StringBinding(), options);
+		for (char c = 'a'; c <= 'e'; c++)
+		{
+			map.put(String.valueOf(c), "value " + c);
+		}
+	}
+
+	private void change()
+	{
+		map.put("a", "changed");
+		map.remove("b");
+		map.put("f", "value f");
+	}
+
+	private void assertUnchanged(StoredSortedMap<String, String> snapshot)
+	{
+		assertEquals("value a", snapshot.get("a"));
+		assertTrue(snapshot.containsKey("b"));
+		assertFalse(snapshot.containsKey("f"));
+		assertEquals(5, snapshot.size());
+		assertEquals("[a, b, c, d, e]", snapshot.keySet().toString());
+		assertEquals("e", snapshot.lastKey());
+		assertEquals("[b, c]", snapshot.subMap("b", "d").keySet().toString());
+		assertEquals("[e, d, c, b, a]", snapshot.descendingMap().keySet().toString());
+		assertEquals(2, snapshot.getAll(Arrays.asList("a", "b", "f")).size());
+		assertEquals(5, snapshot.values().parallelStream().count());
+	}
+
+	@Test
+	public void testSnapshot() throws IOException
+	{
+		createMap(new MapOptions());
+		StoredSortedMap<String, String> snapshot = map.snapshot();
+		change();
+
+		assertUnchanged(snapshot);
+		assertEquals("changed", map.get("a"));
+		assertEquals(5, map.size());
+	}
+
+	@Test
+	public void testSnapshotOptions() throws IOException
+	{
+		createMap(new MapOptions().countEntries(true).cacheSize(10).streamingIterators(true).writeBehind(true));
+		assertEquals("value a", map.get("a"));
+		StoredSortedMap<String, String> snapshot = map.snapshot();
+		change();
+
+		assertUnchanged(snapshot);
+		assertEquals("changed", map.get("a"));
+	}
+
+	@Test
+	public void testSnapshotOfSubMap() throws IOException
+	{
+		createMap(new MapOptions());
+		StoredSortedMap<String, String> snapshot = map.subMap("b", true, "d", true).snapshot();
+		change();
+
+		assertEquals("[b, c, d]", snapshot.keySet().toString());
+		assertNull(snapshot.get("a"));
+		assertEquals("[f, e, d]", map.descendingMap().snapshot().subMap("f", true, "c", false).keySet().toString());
+	}
+
+	@Test
+	public void testSnapshotIsReadOnly() throws IOException
+	{
+		createMap(new MapOptions());
+		StoredSortedMap<String, String> snapshot = map.snapshot();
+
+		try
+		{
+			snapshot.put("x", "y");
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException expected)
+		{
+		}
+		try
+		{
+			snapshot.delete("a");
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException expected)
+		{
+		}
+		try
+		{
+			snapshot.headMap("c").clear();
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException expected)
+		{
+		}
+		try
+		{
+			Iterator<String> keys = snapshot.keySet().iterator();
+			keys.next();
+			keys.remove();
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (UnsupportedOperationException expected)
+		{
+		}
+		assertEquals(5, map.size());
+	}
+
+	@Test
+	public void testCloseSnapshot() throws IOException
+	{
+		createMap(new MapOptions());
+		map.snapshot().close();
+
+		// Closing the snapshot leaves the database open
+		map.put("x", "y");
+		assertEquals("y", map.get("x"));
+	}
+
+}
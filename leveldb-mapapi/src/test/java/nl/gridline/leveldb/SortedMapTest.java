@@ -19,6 +19,8 @@ import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.SortedMap;
 
 import nl.gridline.leveldb.bindings.StringBinding;
@@ -40,7 +42,27 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 
 	public SortedMapTest()
 	{
-		super(false, false, true, true, true);
+		this(true, true, true);
+	}
+
+	protected SortedMapTest(boolean supportsPut, boolean supportsRemove, boolean supportsClear)
+	{
+		super(false, false, supportsPut, supportsRemove, supportsClear);
+	}
+
+	protected MapOptions createMapOptions()
+	{
+		return new MapOptions();
+	}
+
+	protected EntryBinding<String> createKeyBinding()
+	{
+		return new StringBinding();
+	}
+
+	protected DBComparator createDBComparator(EntryBinding<String> keyBinding)
+	{
+		return new LevelDBStoredSortedMap.BindedDBComparator<String>(keyBinding);
 	}
 
 	@Override
@@ -66,8 +88,8 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 
 		Options options = new Options();
 		options.createIfMissing(true);
-		EntryBinding<String> stringBinding = new StringBinding();
-		DBComparator comp = new LevelDBStoredSortedMap.BindedDBComparator<String>(stringBinding);
+		EntryBinding<String> stringBinding = createKeyBinding();
+		DBComparator comp = createDBComparator(stringBinding);
 		options.comparator(comp);
 		DB db = null;
 		try
@@ -79,7 +101,8 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 			e.printStackTrace();
 		}
 
-		return new LevelDBStoredSortedMap<String, String>(db, comp, stringBinding, stringBinding);
+		return new LevelDBStoredSortedMap<String, String>(db, comp, stringBinding, stringBinding, null,
+				createMapOptions());
 	}
 
 	@Override
@@ -89,8 +112,8 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 
 		Options options = new Options();
 		options.createIfMissing(true);
-		EntryBinding<String> stringBinding = new StringBinding();
-		DBComparator comp = new LevelDBStoredSortedMap.BindedDBComparator<String>(stringBinding);
+		EntryBinding<String> stringBinding = createKeyBinding();
+		DBComparator comp = createDBComparator(stringBinding);
 		options.comparator(comp);
 		DB db = null;
 		try
@@ -103,7 +126,7 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 		}
 
 		LevelDBStoredSortedMap<String, String> result = new LevelDBStoredSortedMap<String, String>(db, comp,
-				stringBinding, stringBinding);
+				stringBinding, stringBinding, null, createMapOptions());
 		result.put("test", "gridline");
 		result.put("key", "value");
 		return result;
@@ -121,4 +144,35 @@ public class SortedMapTest extends SortedMapInterfaceTest<String, String>
 		return "test123";
 	}
 
+	/**
+	 * Entries keep the value they were read with, so unlike the inherited test this does not expect an entry to show a
+	 * value that was put into the map after it was read.
+	 */
+	@Override
+	public void testTailMapWriteThrough()
+	{
+		if (!supportsPut)
+		{
+			return;
+		}
+		SortedMap<String, String> map = makePopulatedMap();
+		Iterator<Entry<String, String>> iterator = map.entrySet().iterator();
+		Entry<String, String> firstEntry = iterator.next();
+		Entry<String, String> secondEntry = iterator.next();
+		String key = secondEntry.getKey();
+		SortedMap<String, String> subMap = map.tailMap(key);
+		String value = getValueNotInPopulatedMap();
+		subMap.put(key, value);
+		assertEquals(value, map.get(key));
+		assertEquals(value, map.tailMap(key).entrySet().iterator().next().getValue());
+		try
+		{
+			subMap.put(firstEntry.getKey(), value);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
 }
@@ -0,0 +1,319 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import nl.gridline.leveldb.bindings.SortableLongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the Spliterators of the collection views, and parallel streams over them.
+ */
+public class SpliteratorTest
+{
+
+	private static final int ENTRIES = 10000;
+
+	private File directory;
+	private StoredMap<Long, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		if (map != null)
+		{
+			map.close();
+		}
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private StoredSortedMap<Long, String> createSortedMap(MapOptions options) throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = LevelDBMapFactory.createSortedMap(directory,
+				new SortableLongBinding(), new StringBinding(), options);
+		map = sortedMap;
+		populate();
+		return sortedMap;
+	}
+
+	private void populate()
+	{
+		for (long n = 0; n < ENTRIES; n++)
+		{
+			map.set(n, String.valueOf(n));
+		}
+	}
+
+	private static long sum(long from, long to)
+	{
+		return (to - from) * (from + to - 1) / 2;
+	}
+
+	@Test
+	public void testSplitsIntoRanges() throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = createSortedMap(new MapOptions());
+
+		Spliterator<Long> upper = sortedMap.keySet().spliterator();
+		Spliterator<Long> lower = upper.trySplit();
+		assertNotNull(lower);
+
+		List<Long> keys = new ArrayList<Long>();
+		lower.forEachRemaining(key -> keys.add(key));
+		int lowerSize = keys.size();
+		upper.forEachRemaining(key -> keys.add(key));
+
+		assertTrue(lowerSize > 0 && lowerSize < ENTRIES);
+		assertEquals(ENTRIES, keys.size());
+		for (int n = 0; n < ENTRIES; n++)
+		{
+			assertEquals(n, keys.get(n).longValue());
+		}
+	}
+
+	@Test
+	public void testParallelStreams() throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = createSortedMap(new MapOptions());
+
+		assertEquals(sum(0, ENTRIES), sortedMap.keySet().parallelStream().mapToLong(Long::longValue).sum());
+		assertEquals(sum(0, ENTRIES), sortedMap.values().parallelStream().mapToLong(Long::parseLong).sum());
+		assertEquals(ENTRIES, sortedMap.entrySet().parallelStream()
+				.filter(entry -> entry.getValue().equals(String.valueOf(entry.getKey()))).count());
+
+		// Ordered streams keep the order of the map
+		List<Long> keys = sortedMap.navigableKeySet().parallelStream().collect(Collectors.toList());
+		assertEquals(new ArrayList<Long>(sortedMap.keySet()), keys);
+	}
+
+	@Test
+	public void testParallelStreamsOfSubMaps() throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = createSortedMap(new MapOptions());
+
+		assertEquals(sum(1000, 9000), sortedMap.subMap(1000L, 9000L).keySet().parallelStream()
+				.mapToLong(Long::longValue).sum());
+		assertEquals(sum(5001, ENTRIES), sortedMap.tailMap(5000L, false).keySet().parallelStream()
+				.mapToLong(Long::longValue).sum());
+
+		Long[] descending = sortedMap.headMap(100L).descendingMap().keySet().parallelStream().toArray(Long[]::new);
+		assertEquals(100, descending.length);
+		assertEquals(99L, descending[0].longValue());
+		assertEquals(0L, descending[99].longValue());
+	}
+
+	@Test
+	public void testParallelStreamsCounting() throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = createSortedMap(new MapOptions().countEntries(true));
+
+		assertEquals(ENTRIES, sortedMap.keySet().spliterator().estimateSize());
+		assertEquals(sum(0, ENTRIES), sortedMap.keySet().parallelStream().mapToLong(Long::longValue).sum());
+	}
+
+	@Test
+	public void testParallelStreamsUnsorted() throws IOException
+	{
+		map = LevelDBMapFactory.createMap(directory, new SortableLongBinding(), new StringBinding());
+		populate();
+
+		Map<Long, String> copy = map.entrySet().parallelStream()
+				.collect(Collectors.toMap(entry -> entry.getKey(), entry -> entry.getValue()));
+		assertEquals(ENTRIES, copy.size());
+		assertEquals(sum(0, ENTRIES), map.keySet().parallelStream().mapToLong(Long::longValue).sum());
+	}
+
+	@Test
+	public void testPendingWrites() throws IOException
+	{
+		StoredSortedMap<Long, String> sortedMap = createSortedMap(new MapOptions().writeBehind(true));
+
+		sortedMap.set(-1L, "pending");
+		Spliterator<Long> keys = sortedMap.keySet().spliterator();
+
+		List<Long> seen = new ArrayList<Long>();
+		keys.forEachRemaining(key -> seen.add(key));
+		assertEquals(ENTRIES + 1, seen.size());
+		assertEquals(-1L, seen.get(0).longValue());
+		assertEquals(0L, seen.get(1).longValue());
+	}
+
+	@Test
+	public void testShortCircuitingStreams()
+	{
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		LevelDBStoredSortedMap<Long, String> sortedMap = new LevelDBStoredSortedMap<Long, String>(db,
+				new BytewiseDBComparator(), new SortableLongBinding(), new StringBinding(), null, new MapOptions());
+		for (long n = 0; n < ENTRIES; n++)
+		{
+			sortedMap.set(n, String.valueOf(n));
+		}
+
+		assertEquals(0L, sortedMap.keySet().stream().findFirst().get().longValue());
+		assertTrue(sortedMap.values().stream().anyMatch(value -> value.equals("100")));
+		assertEquals(10, sortedMap.entrySet().stream().limit(10).count());
+		assertEquals(ENTRIES - 1, sortedMap.descendingMap().keySet().stream().findFirst().get().longValue());
+		List<Long> descending = sortedMap.descendingMap().keySet().stream().collect(Collectors.toList());
+		assertEquals(ENTRIES, descending.size());
+		for (int n = 0; n < ENTRIES; n++)
+		{
+			assertEquals(ENTRIES - 1 - n, descending.get(n).longValue());
+		}
+		// A parallel stream that stops early keeps its snapshot until it is closed
+		try (Stream<Long> parallel = sortedMap.keySet().parallelStream())
+		{
+			assertTrue(parallel.anyMatch(key -> key == 5000L));
+		}
+		Iterator<Long> keys = sortedMap.keySet().stream().iterator();
+		assertEquals(0L, keys.next().longValue());
+		assertEquals(0, db.getOpenSnapshots());
+		assertEquals(0, db.getOpenIterators());
+
+		MemoryDB unsortedDB = new MemoryDB(new BytewiseDBComparator());
+		LevelDBStoredMap<Long, String> unsorted = new LevelDBStoredMap<Long, String>(unsortedDB,
+				new SortableLongBinding(), new StringBinding());
+		unsorted.putAll(sortedMap);
+		try (Stream<Long> parallel = unsorted.keySet().parallelStream())
+		{
+			assertTrue(parallel.anyMatch(key -> key == 5000L));
+		}
+		assertEquals(0, unsortedDB.getOpenSnapshots());
+		assertEquals(0, unsortedDB.getOpenIterators());
+	}
+
+	@Test
+	public void testParallelStreamsReadOneSnapshot()
+	{
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		final LevelDBStoredSortedMap<Long, String> sortedMap = new LevelDBStoredSortedMap<Long, String>(db,
+				new BytewiseDBComparator(), new SortableLongBinding(), new StringBinding(), null, new MapOptions());
+		for (long n = 0; n < ENTRIES; n++)
+		{
+			sortedMap.set(n, String.valueOf(n));
+		}
+
+		// Every entry that is seen adds one above the end, which the stream must not see
+		long seen = sortedMap.keySet().parallelStream().mapToLong(key -> {
+			sortedMap.set(key + ENTRIES, "added");
+			return 1;
+		}).sum();
+		assertEquals(ENTRIES, seen);
+		assertEquals(2 * ENTRIES, sortedMap.size());
+		assertEquals(0, db.getOpenSnapshots());
+		assertEquals(0, db.getOpenIterators());
+	}
+
+	@Test
+	public void testSplitsAtMedian()
+	{
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		LevelDBStoredMap<Long, String> plainMap = new LevelDBStoredMap<Long, String>(db, new BytewiseDBComparator(),
+				new SortableLongBinding(), new StringBinding(), new MapOptions());
+		// Keys far from evenly spread over the key space
+		for (long n = 0; n < 1000; n++)
+		{
+			plainMap.set(n, String.valueOf(n));
+		}
+		plainMap.set(Long.MAX_VALUE, "last");
+
+		Spliterator<Long> upper = plainMap.keySet().spliterator();
+		Spliterator<Long> lower = upper.trySplit();
+		assertNotNull(lower);
+		long[] count = new long[1];
+		lower.forEachRemaining(key -> count[0]++);
+		assertEquals(500, count[0]);
+		upper.forEachRemaining(key -> count[0]++);
+		assertEquals(1001, count[0]);
+		assertEquals(0, db.getOpenSnapshots());
+	}
+
+	@Test
+	public void testSplitsBySizeOnDisk() throws IOException
+	{
+		// A small write buffer, so the entries are written to disk where they have an approximate size
+		Options options = new Options().createIfMissing(true).writeBufferSize(64 << 10)
+				.comparator(new BytewiseDBComparator());
+		DB db = factory.open(directory, options);
+		try
+		{
+			LevelDBStoredMap<Long, String> plainMap = new LevelDBStoredMap<Long, String>(db,
+					new BytewiseDBComparator(), new SortableLongBinding(), new StringBinding(), new MapOptions());
+			char[] value = new char[100];
+			Arrays.fill(value, 'x');
+			for (long n = 0; n < ENTRIES * 2; n++)
+			{
+				plainMap.set(n, new String(value));
+			}
+			plainMap.set(Long.MAX_VALUE, "last");
+
+			Spliterator<Long> upper = plainMap.keySet().spliterator();
+			Spliterator<Long> lower = upper.trySplit();
+			assertNotNull(lower);
+			long[] count = new long[1];
+			lower.forEachRemaining(key -> count[0]++);
+			assertTrue(String.valueOf(count[0]), count[0] > ENTRIES / 2 && count[0] < ENTRIES * 3 / 2);
+			upper.forEachRemaining(key -> count[0]++);
+			assertEquals(ENTRIES * 2 + 1, count[0]);
+		}
+		finally
+		{
+			db.close();
+		}
+	}
+
+	@Test
+	public void testMidpoint()
+	{
+		assertArrayEquals(new byte[] { 0x40, 0 }, LevelDBStoredMap.midpoint(new byte[0], new byte[] { (byte) 0x80 }));
+		assertArrayEquals(new byte[] { (byte) 0xC0, 0 }, LevelDBStoredMap.midpoint(new byte[] { (byte) 0x80 }, null));
+		assertArrayEquals(new byte[] { 'a', (byte) 0x80 }, LevelDBStoredMap.midpoint(new byte[] { 'a' },
+				new byte[] { 'b' }));
+		assertArrayEquals(new byte[] { 'k', 'e', 'y', (byte) 0x80, 0 }, LevelDBStoredMap.midpoint(
+				new byte[] { 'k', 'e', 'y', 1 }, new byte[] { 'k', 'e', 'y', (byte) 0xFF }));
+	}
+
+}
@@ -0,0 +1,228 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nl.gridline.leveldb.bindings.LongBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link StoredCounterMap}
+ */
+public class StoredCounterMapTest
+{
+
+	private File directory;
+	private StoredMap<String, Long> map;
+	private StoredCounterMap<String> counters;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createMap(directory, new StringBinding(), new LongBinding());
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		if (counters != null)
+		{
+			counters.close();
+		}
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testPendingIncrements()
+	{
+		counters = new StoredCounterMap<String>(map, 60000);
+		map.put("b", 10L);
+
+		counters.increment("a");
+		counters.increment("a");
+		counters.add("b", 5);
+		counters.add("c", -3);
+
+		assertEquals(2, counters.get("a"));
+		assertEquals(15, counters.get("b"));
+		assertEquals(-3, counters.get("c"));
+		assertEquals(0, counters.get("d"));
+		assertNull(map.get("a"));
+		assertEquals(Long.valueOf(10), map.get("b"));
+
+		counters.flush();
+		assertEquals(Long.valueOf(2), map.get("a"));
+		assertEquals(Long.valueOf(15), map.get("b"));
+		assertEquals(Long.valueOf(-3), map.get("c"));
+		assertEquals(2, counters.get("a"));
+
+		counters.add("a", 0);
+		counters.flush();
+		assertEquals(Long.valueOf(2), map.get("a"));
+		assertFalse(map.containsKey("d"));
+	}
+
+	@Test
+	public void testFlushInBatches()
+	{
+		counters = new StoredCounterMap<String>(map, 60000);
+		int keys = StoredCounterMap.FLUSH_BATCH_SIZE * 2 + 10;
+		for (int i = 0; i < keys; i++)
+		{
+			counters.add("key" + i, i + 1);
+		}
+		counters.flush();
+		assertEquals(keys, map.size());
+		assertEquals(Long.valueOf(keys), map.get("key" + (keys - 1)));
+	}
+
+	@Test
+	public void testCloseFlushes() throws IOException
+	{
+		map.close();
+		File counterDirectory = Files.createTempDirectory(null).toFile();
+		try
+		{
+			StoredCounterMap<String> created = LevelDBMapFactory.createCounterMap(counterDirectory, new StringBinding());
+			created.increment("hits");
+			created.add("hits", 41);
+			created.close();
+
+			created = LevelDBMapFactory.createCounterMap(counterDirectory, new StringBinding());
+			assertEquals(42, created.get("hits"));
+			created.close();
+		}
+		finally
+		{
+			FileUtils.deleteRecursively(counterDirectory);
+		}
+		map = LevelDBMapFactory.createMap(directory, new StringBinding(), new LongBinding());
+	}
+
+	@Test(timeout = 10000)
+	public void testIncrementDuringFlush() throws Exception
+	{
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		MemoryDB db = new MemoryDB(new BytewiseDBComparator());
+		StoredMap<String, Long> slowMap = new LevelDBStoredMap<String, Long>(db, new StringBinding(),
+				new LongBinding())
+		{
+			@Override
+			public void putAll(Map<? extends String, ? extends Long> m)
+			{
+				writing.countDown();
+				try
+				{
+					release.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				super.putAll(m);
+			}
+		};
+		counters = new StoredCounterMap<String>(slowMap, Long.MAX_VALUE);
+		counters.add("a", 5);
+		Thread flush = new Thread(() -> counters.flush());
+		flush.start();
+		writing.await();
+
+		// The flush is blocked in the middle of writing, increments do not wait for it
+		counters.add("a", 2);
+		counters.add("b", 1);
+		release.countDown();
+		flush.join();
+
+		assertEquals(Long.valueOf(5), slowMap.get("a"));
+		assertEquals(7, counters.get("a"));
+		assertEquals(1, counters.get("b"));
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws Exception
+	{
+		counters = new StoredCounterMap<String>(map, 1);
+		final int threads = 8;
+		final int increments = 20000;
+		final String[] keys = { "a", "b", "c", "d" };
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int t = 0; t < threads; t++)
+		{
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < increments; i++)
+				{
+					counters.increment(keys[i % keys.length]);
+				}
+			}));
+		}
+		// Reads while the background thread flushes must never count an increment twice
+		long previous = 0;
+		for (int i = 0; i < 1000; i++)
+		{
+			long total = 0;
+			for (String key : keys)
+			{
+				total += counters.get(key);
+			}
+			assertTrue(total <= threads * increments);
+			assertTrue(counters.get("a") >= previous);
+			previous = counters.get("a");
+		}
+		for (Future<?> future : futures)
+		{
+			future.get();
+		}
+		executor.shutdown();
+
+		for (String key : keys)
+		{
+			assertEquals(threads * increments / keys.length, counters.get(key));
+		}
+		counters.flush();
+		for (String key : keys)
+		{
+			assertEquals(Long.valueOf(threads * increments / keys.length), map.get(key));
+		}
+	}
+
+}
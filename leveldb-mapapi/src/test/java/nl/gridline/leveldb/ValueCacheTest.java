@@ -0,0 +1,223 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import nl.gridline.leveldb.bindings.ObjectSerializableBinding;
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the {@link ValueCache} and how the maps keep it up to date.
+ */
+public class ValueCacheTest
+{
+
+	private File directory;
+	private StoredSortedMap<String, String> map;
+	private ValueCache<String> cache;
+
+	@Before
+	public void createMap() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+		map = LevelDBMapFactory.createSortedMap(directory, new StringBinding(), new StringBinding(),
+				new MapOptions().cacheSize(100));
+		cache = ((LevelDBStoredMap<String, String>) map).getValueCache();
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put("c", "3");
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		map.close();
+		FileUtils.deleteRecursively(directory);
+	}
+
+	@Test
+	public void testStatistics()
+	{
+		assertEquals("1", map.get("a"));
+		assertEquals("1", map.get("a"));
+		assertEquals("1", map.get("a"));
+		assertNull(map.get("x"));
+
+		assertEquals(2, cache.hitCount());
+		assertEquals(2, cache.missCount());
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEviction()
+	{
+		ValueCache<String> small = new ValueCache<String>(2);
+		small.put("a".getBytes(), null, "1", small.generation("a".getBytes()));
+		small.put("b".getBytes(), null, "2", small.generation("b".getBytes()));
+		small.get("a".getBytes());
+		small.put("c".getBytes(), null, "3", small.generation("c".getBytes()));
+
+		// b was used least recently
+		assertEquals(2, small.size());
+		assertEquals(1, small.evictionCount());
+		assertEquals("1", small.get("a".getBytes()));
+		assertNull(small.get("b".getBytes()));
+	}
+
+	@Test
+	public void testStaleRead()
+	{
+		long generation = cache.generation("a".getBytes());
+		cache.invalidate("a".getBytes());
+		cache.put("a".getBytes(), "old".getBytes(), "old", generation);
+		assertNull(cache.get("a".getBytes()));
+	}
+
+	@Test
+	public void testCopies()
+	{
+		ObjectSerializableBinding<StringBuilder> binding = new ObjectSerializableBinding<StringBuilder>();
+		ValueCache<StringBuilder> copies = new ValueCache<StringBuilder>(2, binding);
+		byte[] raw = binding.serialize(new StringBuilder("1"));
+		copies.put("a".getBytes(), raw, new StringBuilder("1"), copies.generation("a".getBytes()));
+		copies.get("a".getBytes()).append("2");
+		assertEquals("1", copies.get("a".getBytes()).toString());
+		assertNotSame(copies.get("a".getBytes()), copies.get("a".getBytes()));
+		assertEquals(4, copies.hitCount());
+	}
+
+	@Test
+	public void testImmutableClassesAreShared()
+	{
+		StringBinding binding = new StringBinding();
+		ValueCache<String> strings = new ValueCache<String>(2, binding);
+		String value = "1";
+		strings.put("a".getBytes(), binding.serialize(value), value, strings.generation("a".getBytes()));
+		assertSame(value, strings.get("a".getBytes()));
+	}
+
+	@Test
+	public void testMutableValues() throws IOException
+	{
+		File mutableDirectory = Files.createTempDirectory(null).toFile();
+		StoredMap<String, StringBuilder> mutable = LevelDBMapFactory.createMap(mutableDirectory, new StringBinding(),
+				new ObjectSerializableBinding<StringBuilder>(), new MapOptions().cacheSize(100));
+		try
+		{
+			mutable.put("a", new StringBuilder("1"));
+			mutable.get("a").append("2");
+			mutable.get("a").append("3");
+			assertEquals("1", mutable.get("a").toString());
+			assertEquals(2, ((LevelDBStoredMap<String, StringBuilder>) mutable).getValueCache().hitCount());
+		}
+		finally
+		{
+			mutable.close();
+			FileUtils.deleteRecursively(mutableDirectory);
+		}
+	}
+
+	@Test
+	public void testImmutableValues() throws IOException
+	{
+		File sharedDirectory = Files.createTempDirectory(null).toFile();
+		StoredMap<String, String> shared = LevelDBMapFactory.createMap(sharedDirectory, new StringBinding(),
+				new StringBinding(), new MapOptions().cacheSize(100).immutableValues(true));
+		try
+		{
+			shared.put("a", "1");
+			assertSame(shared.get("a"), shared.get("a"));
+		}
+		finally
+		{
+			shared.close();
+			FileUtils.deleteRecursively(sharedDirectory);
+		}
+	}
+
+	@Test
+	public void testWrites()
+	{
+		warm();
+		map.put("a", "4");
+		map.remove("b");
+		map.set("c", "5");
+		assertEquals("4", map.get("a"));
+		assertNull(map.get("b"));
+		assertEquals("5", map.get("c"));
+
+		warm();
+		map.clear();
+		assertNull(map.get("a"));
+		assertNull(map.get("c"));
+	}
+
+	@Test
+	public void testSubMapWrites()
+	{
+		warm();
+		map.tailMap("b").put("b", "4");
+		map.headMap("b").remove("a");
+		map.descendingMap().put("c", "5");
+		assertNull(map.get("a"));
+		assertEquals("4", map.get("b"));
+		assertEquals("5", map.get("c"));
+
+		warm();
+		map.subMap("b", "c").clear();
+		assertNull(map.get("b"));
+		assertEquals("5", map.get("c"));
+	}
+
+	@Test
+	public void testIteratorWrites()
+	{
+		warm();
+		Iterator<Entry<String, String>> i = map.entrySet().iterator();
+		i.next().setValue("4");
+		i.next();
+		i.remove();
+		assertEquals("4", map.get("a"));
+		assertNull(map.get("b"));
+
+		warm();
+		assertEquals("c", map.pollLastEntry().getKey());
+		assertNull(map.get("c"));
+	}
+
+	private void warm()
+	{
+		for (String key : map.keySet())
+		{
+			map.get(key);
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb;
+
+import static org.iq80.leveldb.impl.Iq80DBFactory.factory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import nl.gridline.leveldb.bindings.StringBinding;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.Options;
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link MapOptions#writeBehind(boolean)}.
+ */
+public class WriteBehindTest
+{
+
+	private File directory;
+	private DB db;
+	private LevelDBStoredSortedMap<String, String> map;
+
+	@Before
+	public void createDirectory() throws IOException
+	{
+		directory = Files.createTempDirectory(null).toFile();
+	}
+
+	@After
+	public void closeMap() throws IOException
+	{
+		if (map != null)
+		{
+			map.close();
+		}
+		FileUtils.deleteRecursively(directory);
+	}
+
+	private void openMap(MapOptions options) throws IOException
+	{
+		Options dbOptions = new Options();
+		dbOptions.createIfMissing(true);
+		db = factory.open(directory, dbOptions);
+		StringBinding binding = new StringBinding();
+		map = new LevelDBStoredSortedMap<String, String>(db, new LevelDBStoredSortedMap.BindedDBComparator<String>(
+				binding), binding, binding, null, options);
+	}
+
+	private MapOptions slowFlushes()
+	{
+		// Flushes only happen when asked for
+		return new MapOptions().writeBehind(true).writeBehindDelay(1000000);
+	}
+
+	@Test
+	public void testPendingWrites() throws IOException
+	{
+		openMap(slowFlushes());
+
+		assertNull(map.put("a", "1"));
+		assertEquals("1", map.put("a", "2"));
+		map.set("b", "3");
+		map.delete("b");
+
+		assertNull(db.get("a".getBytes()));
+		assertEquals("2", map.get("a"));
+		assertTrue(map.containsKey("a"));
+		assertFalse(map.containsKey("b"));
+		assertNull(map.get("b"));
+
+		map.flush();
+		assertArrayEquals("2".getBytes(), db.get("a".getBytes()));
+		assertNull(db.get("b".getBytes()));
+	}
+
+	@Test
+	public void testIteratorsFlush() throws IOException
+	{
+		openMap(slowFlushes());
+
+		map.put("b", "2");
+		map.put("a", "1");
+		assertEquals("[a, b]", map.keySet().toString());
+		assertEquals(2, map.size());
+
+		map.remove("a");
+		assertEquals("b", map.firstKey());
+		assertEquals("b", map.floorKey("c"));
+	}
+
+	@Test
+	public void testBatchSize() throws IOException
+	{
+		openMap(slowFlushes().writeBehindBatchSize(10));
+
+		map.put("a", "1");
+		assertNull(db.get("a".getBytes()));
+
+		// Ten bytes pending
+		map.put("bbbb", "1234");
+		assertArrayEquals("1".getBytes(), db.get("a".getBytes()));
+		assertArrayEquals("1234".getBytes(), db.get("bbbb".getBytes()));
+	}
+
+	@Test
+	public void testDelay() throws Exception
+	{
+		openMap(new MapOptions().writeBehind(true).writeBehindDelay(10));
+
+		map.put("a", "1");
+		for (int i = 0; i < 500 && db.get("a".getBytes()) == null; i++)
+		{
+			Thread.sleep(10);
+		}
+		assertArrayEquals("1".getBytes(), db.get("a".getBytes()));
+	}
+
+	@Test
+	public void testCloseFlushes() throws IOException
+	{
+		openMap(slowFlushes().syncWrites(true));
+		map.put("a", "1");
+		map.close();
+		map = null;
+
+		openMap(new MapOptions());
+		assertEquals("1", map.get("a"));
+	}
+
+	@Test
+	public void testCounting() throws IOException
+	{
+		openMap(slowFlushes().countEntries(true));
+
+		map.put("a", "1");
+		map.put("b", "2");
+		map.put("a", "3");
+		map.remove("c");
+		assertEquals(2, map.size());
+
+		map.remove("a");
+		map.set("c", "4");
+		assertEquals(2, map.size());
+		assertTrue(map.verifySize());
+	}
+
+	@Test
+	public void testConcurrentWrites() throws Exception
+	{
+		openMap(new MapOptions().writeBehind(true).writeBehindDelay(1).writeBehindBatchSize(256));
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 8; t++)
+		{
+			final int thread = t;
+			threads.add(new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < 1000; i++)
+					{
+						map.set(thread + "-" + i, "value" + i);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads)
+		{
+			thread.start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		assertEquals(8000, map.size());
+		assertEquals("value999", map.get("7-999"));
+	}
+
+}
@@ -0,0 +1,269 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import nl.gridline.leveldb.bindings.CompactBinding.Tag;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+import org.junit.Test;
+
+public class CompactBindingTest
+{
+
+	public enum Color
+	{
+		RED, GREEN, BLUE
+	}
+
+	public static class Base
+	{
+		@Tag(1)
+		String name;
+	}
+
+	public static class AllTypes extends Base
+	{
+		@Tag(2)
+		int i;
+		@Tag(3)
+		long l;
+		@Tag(4)
+		boolean b;
+		@Tag(5)
+		double d;
+		@Tag(6)
+		float f;
+		@Tag(7)
+		byte by;
+		@Tag(8)
+		short sh;
+		@Tag(9)
+		char c;
+		@Tag(10)
+		Integer boxed;
+		@Tag(11)
+		Long boxedLong;
+		@Tag(12)
+		Double boxedDouble;
+		@Tag(13)
+		byte[] bytes;
+		@Tag(14)
+		Color color;
+		@Tag(15)
+		Base nested;
+		@Tag(16)
+		Object any;
+		@Tag(17)
+		String initialized = "default";
+		int notStored;
+	}
+
+	public static class Version1
+	{
+		@Tag(1)
+		String name;
+		@Tag(2)
+		int removed;
+		@Tag(3)
+		Version1 next;
+	}
+
+	public static class Version2
+	{
+		@Tag(1)
+		String name;
+		@Tag(3)
+		Version2 next;
+		@Tag(4)
+		int added = 42;
+		@Tag(5)
+		String addedText = "none";
+	}
+
+	public static class DuplicateTags
+	{
+		@Tag(1)
+		String a;
+		@Tag(1)
+		String b;
+	}
+
+	private CompactBinding<AllTypes> createBinding()
+	{
+		return new CompactBinding<AllTypes>().register(1, AllTypes.class).register(2, Base.class);
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		AllTypes in = new AllTypes();
+		in.name = "name \u20ac";
+		in.i = -12345;
+		in.l = Long.MIN_VALUE;
+		in.b = true;
+		in.d = Math.PI;
+		in.f = -1.5f;
+		in.by = -7;
+		in.sh = 1234;
+		in.c = '\u00e9';
+		in.boxed = Integer.MAX_VALUE;
+		in.boxedLong = null;
+		in.boxedDouble = -0.0;
+		in.bytes = new byte[] { 1, 2, 3 };
+		in.color = Color.BLUE;
+		in.nested = new Base();
+		in.nested.name = "nested";
+		AllTypes any = new AllTypes();
+		any.i = 1;
+		in.any = any;
+		in.initialized = null;
+		in.notStored = 99;
+
+		CompactBinding<AllTypes> binding = createBinding();
+		AllTypes out = binding.deserialize(binding.serialize(in));
+
+		assertEquals(in.name, out.name);
+		assertEquals(in.i, out.i);
+		assertEquals(in.l, out.l);
+		assertEquals(in.b, out.b);
+		assertEquals(in.d, out.d, 0);
+		assertEquals(in.f, out.f, 0);
+		assertEquals(in.by, out.by);
+		assertEquals(in.sh, out.sh);
+		assertEquals(in.c, out.c);
+		assertEquals(in.boxed, out.boxed);
+		assertNull(out.boxedLong);
+		assertEquals(in.boxedDouble, out.boxedDouble);
+		assertArrayEquals(in.bytes, out.bytes);
+		assertEquals(Color.BLUE, out.color);
+		assertEquals(Base.class, out.nested.getClass());
+		assertEquals("nested", out.nested.name);
+		assertEquals(1, ((AllTypes) out.any).i);
+		assertNull(out.initialized);
+		assertEquals(0, out.notStored);
+	}
+
+	@Test
+	public void testLargeNestedObject()
+	{
+		char[] chars = new char[100000];
+		Arrays.fill(chars, 'x');
+		AllTypes in = new AllTypes();
+		in.nested = new Base();
+		in.nested.name = new String(chars);
+		in.i = 5;
+
+		CompactBinding<AllTypes> binding = createBinding();
+		AllTypes out = binding.deserialize(binding.serialize(in));
+		assertEquals(in.nested.name, out.nested.name);
+		assertEquals(5, out.i);
+	}
+
+	@Test
+	public void testSchemaEvolution()
+	{
+		Version1 in = new Version1();
+		in.name = "first";
+		in.removed = 7;
+		in.next = new Version1();
+		in.next.name = "second";
+
+		byte[] bytes = new CompactBinding<Version1>().register(1, Version1.class).serialize(in);
+		Version2 out = new CompactBinding<Version2>().register(1, Version2.class).deserialize(bytes);
+
+		assertEquals("first", out.name);
+		assertEquals(42, out.added);
+		assertEquals("none", out.addedText);
+		assertEquals("second", out.next.name);
+		assertNull(out.next.next);
+	}
+
+	@Test
+	public void testSmallerThanSerializable()
+	{
+		SmallObjectCompact compact = SmallObjectCompact.create("This is a test String", 100, 2000L);
+		byte[] compactBytes = new CompactBinding<SmallObjectCompact>().register(1, SmallObjectCompact.class)
+				.serialize(compact);
+		byte[] serializableBytes = new ObjectSerializableBinding<SmallObjectSerializable>()
+				.serialize(SmallObjectSerializable.create("This is a test String", 100, 2000L));
+
+		// class id, 3 keys, 1 length, 21 characters and 2 + 2 bytes of zigzag encoded numbers
+		assertEquals(30, compactBytes.length);
+		assertTrue(compactBytes.length * 4 < serializableBytes.length);
+	}
+
+	@Test
+	public void testUnregisteredClass()
+	{
+		AllTypes in = new AllTypes();
+		in.nested = new AllTypes()
+		{
+		};
+		try
+		{
+			createBinding().serialize(in);
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+
+		try
+		{
+			createBinding().deserialize(new byte[] { 9 });
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+	}
+
+	@Test
+	public void testCorruptData()
+	{
+		CompactBinding<AllTypes> binding = createBinding();
+		byte[] bytes = binding.serialize(new AllTypes());
+		try
+		{
+			binding.deserialize(Arrays.copyOf(bytes, bytes.length - 1));
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateTags()
+	{
+		new CompactBinding<DuplicateTags>().register(1, DuplicateTags.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateId()
+	{
+		new CompactBinding<AllTypes>().register(1, AllTypes.class).register(1, Base.class);
+	}
+
+}
@@ -0,0 +1,230 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+import org.junit.Test;
+
+public class CompressingBindingTest
+{
+
+	private static class BytesBinding implements EntryBinding<byte[]>
+	{
+		@Override
+		public byte[] serialize(byte[] object)
+		{
+			return object;
+		}
+
+		@Override
+		public byte[] deserialize(byte[] bytes)
+		{
+			return bytes;
+		}
+	}
+
+	private static String json(int i)
+	{
+		return "{\"id\":" + i + ",\"type\":\"measurement\",\"sensor\":\"temperature-" + (i % 7)
+				+ "\",\"unit\":\"celsius\",\"value\":" + (i * 31 % 400) / 10.0 + ",\"status\":\"ok\"}";
+	}
+
+	private static String repeated(int length)
+	{
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length)
+		{
+			sb.append("gridline leveldb ");
+		}
+		return sb.substring(0, length);
+	}
+
+	@Test
+	public void testSmallValuesAreNotCompressed()
+	{
+		CompressingBinding<String> binding = new CompressingBinding<String>(new StringBinding());
+		byte[] bytes = binding.serialize("small");
+		assertEquals(CompressingBinding.RAW, bytes[0]);
+		assertEquals(6, bytes.length);
+		assertEquals("small", binding.deserialize(bytes));
+		assertEquals("", binding.deserialize(binding.serialize("")));
+	}
+
+	@Test
+	public void testLargeValuesAreCompressed()
+	{
+		CompressingBinding<String> binding = new CompressingBinding<String>(new StringBinding());
+		String value = repeated(10000);
+		byte[] bytes = binding.serialize(value);
+		assertEquals(CompressingBinding.DEFLATE, bytes[0]);
+		assertTrue(bytes.length < 200);
+		assertEquals(value, binding.deserialize(bytes));
+	}
+
+	@Test
+	public void testIncompressibleValuesAreStoredRaw()
+	{
+		CompressingBinding<byte[]> binding = new CompressingBinding<byte[]>(new BytesBinding());
+		byte[] value = new byte[1000];
+		new Random(42).nextBytes(value);
+		byte[] bytes = binding.serialize(value);
+		assertEquals(CompressingBinding.RAW, bytes[0]);
+		assertEquals(1001, bytes.length);
+		assertTrue(Arrays.equals(value, binding.deserialize(bytes)));
+	}
+
+	@Test
+	public void testDeserializeWithOffset()
+	{
+		CompressingBinding<String> binding = new CompressingBinding<String>(new StringBinding());
+		byte[] bytes = binding.serialize(repeated(500));
+		byte[] padded = new byte[bytes.length + 7];
+		System.arraycopy(bytes, 0, padded, 3, bytes.length);
+		assertEquals(repeated(500), binding.deserialize(padded, 3, bytes.length));
+	}
+
+	@Test
+	public void testDictionary()
+	{
+		List<byte[]> samples = new ArrayList<byte[]>();
+		StringBinding strings = new StringBinding();
+		for (int i = 0; i < 1000; i++)
+		{
+			samples.add(strings.serialize(json(i)));
+		}
+		byte[] dictionary = CompressingBinding.trainDictionary(samples, 4096);
+		assertTrue(dictionary.length > 0);
+		assertTrue(dictionary.length <= 4096);
+
+		CompressingBinding<String> plain = new CompressingBinding<String>(strings);
+		CompressingBinding<String> trained = new CompressingBinding<String>(strings, 0, Deflater.BEST_SPEED,
+				dictionary);
+		int plainSize = 0;
+		int trainedSize = 0;
+		for (int i = 1000; i < 1100; i++)
+		{
+			byte[] bytes = trained.serialize(json(i));
+			assertEquals(CompressingBinding.DEFLATE_DICTIONARY, bytes[0]);
+			assertEquals(json(i), trained.deserialize(bytes));
+			trainedSize += bytes.length;
+			plainSize += plain.serialize(json(i)).length;
+		}
+		assertTrue(trainedSize * 2 < plainSize);
+	}
+
+	@Test
+	public void testOldEntriesStayReadable()
+	{
+		StringBinding strings = new StringBinding();
+		byte[] oldDictionary = strings.serialize("\"unit\":\"celsius\",\"status\":\"ok\"}");
+		byte[] newDictionary = strings.serialize("\"sensor\":\"temperature-");
+
+		byte[] raw = new CompressingBinding<String>(strings, 1000, Deflater.BEST_SPEED, null).serialize(json(1));
+		byte[] plain = new CompressingBinding<String>(strings, 0, Deflater.BEST_COMPRESSION, null).serialize(json(2));
+		byte[] old = new CompressingBinding<String>(strings, 0, Deflater.BEST_SPEED, oldDictionary).serialize(json(3));
+
+		CompressingBinding<String> binding = new CompressingBinding<String>(strings, 0, Deflater.BEST_SPEED,
+				newDictionary);
+		assertEquals(json(1), binding.deserialize(raw));
+		assertEquals(json(2), binding.deserialize(plain));
+		try
+		{
+			binding.deserialize(old);
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+		binding.addDictionary(oldDictionary);
+		assertEquals(json(3), binding.deserialize(old));
+	}
+
+	@Test
+	public void testCorruptValues()
+	{
+		CompressingBinding<String> binding = new CompressingBinding<String>(new StringBinding());
+		byte[] bytes = binding.serialize(repeated(1000));
+		for (byte[] corrupt : Arrays.asList(new byte[0], new byte[] { 9, 1, 2 },
+				Arrays.copyOf(bytes, bytes.length / 2)))
+		{
+			try
+			{
+				binding.deserialize(corrupt);
+				fail("Expected ObjectSerializeException");
+			}
+			catch (ObjectSerializeException expected)
+			{
+			}
+		}
+		// the Inflater that failed went back to the pool and must still work
+		assertEquals(repeated(1000), binding.deserialize(bytes));
+	}
+
+	@Test
+	public void testThreads() throws InterruptedException
+	{
+		final CompressingBinding<String> binding = new CompressingBinding<String>(new StringBinding());
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		// more threads than the pools keep, so some Deflaters and Inflaters are ended
+		for (int t = 0; t < CompressingBinding.MAX_POOLED + 4; t++)
+		{
+			final int offset = t * 1000;
+			Thread thread = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						for (int i = offset; i < offset + 1000; i++)
+						{
+							String value = json(i) + repeated(i % 300);
+							assertEquals(value, binding.deserialize(binding.serialize(value)));
+						}
+					}
+					catch (Throwable e)
+					{
+						synchronized (errors)
+						{
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+		assertTrue(errors.toString(), errors.isEmpty());
+	}
+
+}
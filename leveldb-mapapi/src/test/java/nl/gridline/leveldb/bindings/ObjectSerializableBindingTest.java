@@ -16,12 +16,7 @@ package nl.gridline.leveldb.bindings;
 
 import static org.junit.Assert.assertEquals;
 
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.TestRule;
-
-import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
-import com.carrotsearch.junitbenchmarks.BenchmarkRule;
 
 /**
  * @author <a href="mailto:job@gridline.nl">Job</a>
@@ -31,11 +26,7 @@ public class ObjectSerializableBindingTest
 
 	private final String s = "This is a test String";
 
-	@Rule
-	public TestRule benchmarkRun = new BenchmarkRule();
-
 	@Test
-	@BenchmarkOptions(benchmarkRounds = 20000, warmupRounds = 1000)
 	public void testSerializeTwenty() throws Exception
 	{
 		ObjectSerializableBinding<SmallObjectSerializable> binding = new ObjectSerializableBinding<>();
@@ -52,7 +43,6 @@ public class ObjectSerializableBindingTest
 	}
 
 	@Test
-	@BenchmarkOptions(benchmarkRounds = 50000, warmupRounds = 1000)
 	public void testSerializeFifty() throws Exception
 	{
 		ObjectSerializableBinding<SmallObjectSerializable> binding = new ObjectSerializableBinding<>();
@@ -70,7 +60,6 @@ public class ObjectSerializableBindingTest
 	}
 
 	@Test
-	@BenchmarkOptions(benchmarkRounds = 100000, warmupRounds = 1000)
 	public void testSerializeHundred() throws Exception
 	{
 		ObjectSerializableBinding<SmallObjectSerializable> binding = new ObjectSerializableBinding<>();
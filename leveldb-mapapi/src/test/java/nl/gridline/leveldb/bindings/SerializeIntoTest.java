@@ -0,0 +1,130 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import nl.gridline.leveldb.EntryBinding;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Test that {@link EntryBinding#serializeInto(Object, FastOutputStream)} and
+ * {@link EntryBinding#deserialize(byte[], int, int)} agree with serialize() and deserialize() for every binding.
+ */
+public class SerializeIntoTest
+{
+
+	private static final byte[] PREFIX = { 7, 8, 9 };
+
+	private <T> T roundTrip(EntryBinding<T> binding, T value)
+	{
+		byte[] bytes = binding.serialize(value);
+
+		FastOutputStream out = new FastOutputStream(1);
+		out.write(PREFIX);
+		binding.serializeInto(value, out);
+		out.write(PREFIX);
+		byte[] framed = out.toArray();
+		assertArrayEquals(bytes, Arrays.copyOfRange(framed, PREFIX.length, PREFIX.length + bytes.length));
+
+		T result = binding.deserialize(framed, PREFIX.length, bytes.length);
+		assertEquals(binding.deserialize(bytes), result);
+		return result;
+	}
+
+	@Test
+	public void testPrimitiveBindings()
+	{
+		assertEquals(Integer.valueOf(-123456), roundTrip(new IntegerBinding(), -123456));
+		assertEquals(Long.valueOf(Long.MIN_VALUE + 3), roundTrip(new LongBinding(), Long.MIN_VALUE + 3));
+		assertEquals(Float.valueOf(-2.5f), roundTrip(new FloatBinding(), -2.5f));
+		assertEquals(Double.valueOf(Math.E), roundTrip(new DoubleBinding(), Math.E));
+		assertEquals("some string", roundTrip(new StringBinding(), "some string"));
+	}
+
+	@Test
+	public void testSortableBindings()
+	{
+		assertEquals(Integer.valueOf(-123456), roundTrip(new SortableIntegerBinding(), -123456));
+		assertEquals(Long.valueOf(42), roundTrip(new SortableLongBinding(), 42L));
+		assertEquals(Float.valueOf(-0.0f), roundTrip(new SortableFloatBinding(), -0.0f));
+		assertEquals(Double.valueOf(-1e300), roundTrip(new SortableDoubleBinding(), -1e300));
+		assertEquals("a\u0000b\u00e9\u20ac", roundTrip(new SortableStringBinding(), "a\u0000b\u00e9\u20ac"));
+		assertEquals("", roundTrip(new SortableStringBinding(), ""));
+	}
+
+	@Test
+	public void testObjectBindings()
+	{
+		assertEquals("serialized", roundTrip(new ObjectSerializableBinding<String>(), "serialized"));
+
+		EntryBinding<SmallObjectExternalizable> externalizable;
+		externalizable = new ObjectExternalizableBinding<SmallObjectExternalizable>(SmallObjectExternalizable.class);
+		FastOutputStream out = new FastOutputStream(1);
+		out.write(PREFIX);
+		externalizable.serializeInto(SmallObjectExternalizable.create("externalizable", 1, 2L), out);
+		byte[] framed = out.toArray();
+		SmallObjectExternalizable result = externalizable.deserialize(framed, PREFIX.length, framed.length
+				- PREFIX.length);
+		assertEquals("externalizable", result.getS());
+		assertEquals(2L, result.getL());
+
+		CompactBinding<SmallObjectCompact> compact = new CompactBinding<SmallObjectCompact>().register(1,
+				SmallObjectCompact.class);
+		byte[] bytes = compact.serialize(SmallObjectCompact.create("compact", 3, 4L));
+		framed = new byte[bytes.length + 2];
+		System.arraycopy(bytes, 0, framed, 1, bytes.length);
+		SmallObjectCompact compacted = compact.deserialize(framed, 1, bytes.length);
+		assertEquals("compact", compacted.getS());
+		assertEquals(4L, compacted.getL());
+	}
+
+	@Test
+	public void testPrefixedBinding()
+	{
+		PrefixedBinding<String> binding = new PrefixedBinding<String>(new byte[] { 1, 2 },
+				new PrefixedBinding<String>(new byte[] { 3 }, new SortableStringBinding()));
+		assertArrayEquals(new byte[] { 1, 2, 3, 'a', 0 }, binding.serialize("a"));
+		assertEquals("a", roundTrip(binding, "a"));
+	}
+
+	@Test
+	public void testThreadStream()
+	{
+		FastOutputStream first = FastOutputStream.acquire();
+		first.write(1);
+		// A nested acquire gets a new stream, so it does not overwrite the first
+		FastOutputStream nested = FastOutputStream.acquire();
+		assertNotSame(first, nested);
+		nested.release();
+		assertArrayEquals(new byte[] { 1 }, first.toArray());
+		assertNotSame(first.toArray(), first.toArray());
+		first.release();
+
+		FastOutputStream again = FastOutputStream.acquire();
+		assertSame(first, again);
+		assertEquals(0, again.getSize());
+		again.release();
+	}
+
+}
@@ -0,0 +1,61 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import nl.gridline.leveldb.bindings.CompactBinding.Tag;
+
+/**
+ * Small test object for the {@link CompactBinding}, with the same fields as {@link SmallObjectSerializable}
+ */
+public class SmallObjectCompact
+{
+
+	@Tag(1)
+	private String s;
+	@Tag(2)
+	private int i;
+	@Tag(3)
+	private long l;
+
+	public SmallObjectCompact()
+	{
+
+	}
+
+	public static SmallObjectCompact create(String s, int i, long l)
+	{
+		final SmallObjectCompact r = new SmallObjectCompact();
+		r.s = s;
+		r.i = i;
+		r.l = l;
+		return r;
+	}
+
+	public String getS()
+	{
+		return s;
+	}
+
+	public int getI()
+	{
+		return i;
+	}
+
+	public long getL()
+	{
+		return l;
+	}
+}
@@ -0,0 +1,59 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link SortableDoubleBinding} class.
+ */
+public class SortableDoubleBindingTest
+{
+
+	private final SortableDoubleBinding binding = new SortableDoubleBinding();
+	private final BytewiseDBComparator comparator = new BytewiseDBComparator();
+
+	// In ascending order
+	private final List<Double> values = Arrays.asList(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.5, -Double.MIN_VALUE, -0.0, 0.0, Double.MIN_VALUE, 1.0, 1.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY, Double.NaN);
+
+	@Test
+	public void testSerialize() throws Exception
+	{
+		for (Double value : values)
+		{
+			assertEquals(value, binding.deserialize(binding.serialize(value)));
+		}
+	}
+
+	@Test
+	public void testOrder() throws Exception
+	{
+		for (int i = 1; i < values.size(); i++)
+		{
+			byte[] lower = binding.serialize(values.get(i - 1));
+			byte[] higher = binding.serialize(values.get(i));
+			assertTrue(values.get(i - 1) + " < " + values.get(i), comparator.compare(lower, higher) < 0);
+		}
+	}
+
+}
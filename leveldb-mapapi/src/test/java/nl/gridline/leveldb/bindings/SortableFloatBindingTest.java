@@ -0,0 +1,59 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link SortableFloatBinding} class.
+ */
+public class SortableFloatBindingTest
+{
+
+	private final SortableFloatBinding binding = new SortableFloatBinding();
+	private final BytewiseDBComparator comparator = new BytewiseDBComparator();
+
+	// In ascending order
+	private final List<Float> values = Arrays.asList(Float.NEGATIVE_INFINITY, -Float.MAX_VALUE, -1.5f, -Float.MIN_VALUE, -0.0f, 0.0f, Float.MIN_VALUE, 1.0f, 1.5f, Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NaN);
+
+	@Test
+	public void testSerialize() throws Exception
+	{
+		for (Float value : values)
+		{
+			assertEquals(value, binding.deserialize(binding.serialize(value)));
+		}
+	}
+
+	@Test
+	public void testOrder() throws Exception
+	{
+		for (int i = 1; i < values.size(); i++)
+		{
+			byte[] lower = binding.serialize(values.get(i - 1));
+			byte[] higher = binding.serialize(values.get(i));
+			assertTrue(values.get(i - 1) + " < " + values.get(i), comparator.compare(lower, higher) < 0);
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link SortableVarIntegerBinding} class.
+ */
+public class SortableVarIntegerBindingTest
+{
+
+	private final SortableVarIntegerBinding binding = new SortableVarIntegerBinding();
+	private final BytewiseDBComparator comparator = new BytewiseDBComparator();
+
+	// In ascending order
+	private final List<Integer> values = Arrays.asList(Integer.MIN_VALUE, -65536, -257, -256, -255, -2, -1, 0, 1, 255,
+			256, 65536, Integer.MAX_VALUE);
+
+	@Test
+	public void testSerialize() throws Exception
+	{
+		for (Integer value : values)
+		{
+			assertEquals(value, binding.deserialize(binding.serialize(value)));
+		}
+	}
+
+	@Test
+	public void testOrder() throws Exception
+	{
+		for (int i = 1; i < values.size(); i++)
+		{
+			byte[] lower = binding.serialize(values.get(i - 1));
+			byte[] higher = binding.serialize(values.get(i));
+			assertTrue(values.get(i - 1) + " < " + values.get(i), comparator.compare(lower, higher) < 0);
+		}
+	}
+
+	@Test
+	public void testRandomOrder() throws Exception
+	{
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++)
+		{
+			// Random magnitudes, so all lengths are compared with each other
+			Integer a = random.nextInt() >> random.nextInt(32);
+			Integer b = random.nextInt() >> random.nextInt(32);
+			assertEquals(a + " " + b, Integer.signum(a.compareTo(b)),
+					Integer.signum(comparator.compare(binding.serialize(a), binding.serialize(b))));
+			assertEquals(b, binding.deserialize(binding.serialize(b)));
+		}
+	}
+
+	@Test
+	public void testSize() throws Exception
+	{
+		assertEquals(1, binding.serialize(0).length);
+		assertEquals(1, binding.serialize(-1).length);
+		assertEquals(2, binding.serialize(255).length);
+		assertEquals(2, binding.serialize(-256).length);
+		assertEquals(5, binding.serialize(Integer.MIN_VALUE).length);
+		assertEquals(5, binding.serialize(Integer.MAX_VALUE).length);
+	}
+
+}
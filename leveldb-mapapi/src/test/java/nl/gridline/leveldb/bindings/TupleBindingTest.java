@@ -0,0 +1,224 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import nl.gridline.leveldb.LevelDBMapFactory;
+import nl.gridline.leveldb.StoredSortedMap;
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+import org.iq80.leveldb.util.FileUtils;
+import org.junit.Test;
+
+public class TupleBindingTest
+{
+
+	private final TupleBinding binding = new TupleBinding();
+
+	private static Object randomElement(Random random)
+	{
+		switch (random.nextInt(5))
+		{
+			case 0:
+				byte[] b = new byte[random.nextInt(4)];
+				for (int i = 0; i < b.length; i++)
+				{
+					// Mostly zeroes and 0xFF, which are escaped and used as terminator
+					b[i] = (byte) new int[] { 0, 1, 0xFE, 0xFF }[random.nextInt(4)];
+				}
+				return b;
+			case 1:
+				char[] c = new char[random.nextInt(4)];
+				for (int i = 0; i < c.length; i++)
+				{
+					c[i] = new char[] { 0, 'a', '\u00ff', '\uffff', '\ud800' }[random.nextInt(5)];
+				}
+				return new String(c);
+			case 2:
+				return new int[] { Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE }[random.nextInt(5)];
+			case 3:
+				return new long[] { Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE }[random.nextInt(5)];
+			default:
+				return new double[] { Double.NEGATIVE_INFINITY, -1.5, -0.0, 0.0, 2.5, Double.NaN }[random.nextInt(6)];
+		}
+	}
+
+	private static Tuple randomTuple(Random random)
+	{
+		Object[] elements = new Object[random.nextInt(4)];
+		for (int i = 0; i < elements.length; i++)
+		{
+			elements[i] = randomElement(random);
+		}
+		return Tuple.of(elements);
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++)
+		{
+			Tuple tuple = randomTuple(random);
+			assertEquals(tuple, binding.deserialize(binding.serialize(tuple)));
+		}
+
+		Tuple tuple = Tuple.of("tenant", 1370000000000L, 42, 1.5, new byte[] { 0, 1 });
+		Tuple result = binding.deserialize(binding.serialize(tuple));
+		assertEquals("tenant", result.getString(0));
+		assertEquals(1370000000000L, result.getLong(1));
+		assertEquals(42, result.getInt(2));
+		assertEquals(1.5, result.getDouble(3), 0.0);
+		assertArrayEquals(new byte[] { 0, 1 }, result.getBytes(4));
+		assertEquals(Tuple.of(), binding.deserialize(new byte[0]));
+	}
+
+	@Test
+	public void testDeserializeWithOffset()
+	{
+		byte[] bytes = binding.serialize(Tuple.of("a", 1));
+		byte[] padded = new byte[bytes.length + 4];
+		System.arraycopy(bytes, 0, padded, 2, bytes.length);
+		assertEquals(Tuple.of("a", 1), binding.deserialize(padded, 2, bytes.length));
+	}
+
+	@Test
+	public void testOrder()
+	{
+		Random random = new Random(42);
+		BytewiseDBComparator comparator = new BytewiseDBComparator();
+		for (int i = 0; i < 100000; i++)
+		{
+			Tuple a = randomTuple(random);
+			Tuple b = random.nextBoolean() ? randomTuple(random) : a.prefix(random.nextInt(a.size() + 1));
+			if (random.nextInt(4) == 0)
+			{
+				b = b.prefixEnd();
+			}
+			int expected = Integer.signum(a.compareTo(b));
+			assertEquals(a + " " + b, expected, Integer.signum(comparator.compare(binding.serialize(a),
+					binding.serialize(b))));
+			assertEquals(a + " " + b, -expected, Integer.signum(b.compareTo(a)));
+		}
+	}
+
+	@Test
+	public void testPrefixEnd()
+	{
+		Tuple prefix = Tuple.of("b");
+		assertTrue(prefix.compareTo(Tuple.of("b", Long.MIN_VALUE)) < 0);
+		assertTrue(prefix.prefixEnd().compareTo(Tuple.of("b", new byte[] { -1 })) > 0);
+		assertTrue(prefix.prefixEnd().compareTo(Tuple.of("b\u0000")) < 0);
+		assertTrue(prefix.prefixEnd().compareTo(Tuple.of("ba")) < 0);
+		assertEquals(prefix.prefixEnd(), binding.deserialize(binding.serialize(prefix.prefixEnd())));
+		try
+		{
+			prefix.prefixEnd().add(1);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	@Test
+	public void testUnsupportedElements()
+	{
+		for (Object element : Arrays.asList(null, 'c', 1.5f, new Object()))
+		{
+			try
+			{
+				Tuple.of(element);
+				fail("Expected IllegalArgumentException for " + element);
+			}
+			catch (IllegalArgumentException expected)
+			{
+			}
+		}
+		for (byte[] corrupt : Arrays.asList(new byte[] { 9 }, new byte[] { Tuple.INT, 1 },
+				new byte[] { Tuple.STRING, 'a' }))
+		{
+			try
+			{
+				binding.deserialize(corrupt);
+				fail("Expected ObjectSerializeException");
+			}
+			catch (ObjectSerializeException expected)
+			{
+			}
+		}
+	}
+
+	@Test
+	public void testPrefixMap() throws IOException
+	{
+		File directory = Files.createTempDirectory(null).toFile();
+		StoredSortedMap<Tuple, String> map = LevelDBMapFactory.createSortedMap(directory, new TupleBinding(),
+				new StringBinding());
+		try
+		{
+			List<Tuple> keys = new ArrayList<Tuple>();
+			for (String tenant : new String[] { "a", "b", "b\u0000", "ba", "c" })
+			{
+				keys.add(Tuple.of(tenant));
+				for (long time = -2; time <= 2; time++)
+				{
+					keys.add(Tuple.of(tenant, time, "event" + time));
+				}
+			}
+			Collections.shuffle(keys, new Random(42));
+			for (Tuple key : keys)
+			{
+				map.put(key, key.toString());
+			}
+
+			StoredSortedMap<Tuple, String> tenant = TupleBinding.prefixMap(map, "b");
+			assertEquals(6, tenant.size());
+			assertEquals(Tuple.of("b"), tenant.firstKey());
+			assertEquals(Tuple.of("b", 2L, "event2"), tenant.lastKey());
+			for (Tuple key : tenant.keySet())
+			{
+				assertTrue(key.startsWith(Tuple.of("b")));
+			}
+
+			StoredSortedMap<Tuple, String> range = map.subMap(Tuple.of("b", -1L), Tuple.of("b", 2L));
+			assertEquals(Arrays.asList(Tuple.of("b", -1L, "event-1"), Tuple.of("b", 0L, "event0"),
+					Tuple.of("b", 1L, "event1")), new ArrayList<Tuple>(range.keySet()));
+
+			assertEquals(30, TupleBinding.prefixMap(map).size());
+		}
+		finally
+		{
+			map.close();
+			FileUtils.deleteRecursively(directory);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import nl.gridline.leveldb.comparators.BytewiseDBComparator;
+import nl.gridline.leveldb.io.FastOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link Utf8Binding} class.
+ */
+public class Utf8BindingTest
+{
+
+	private final Utf8Binding binding = new Utf8Binding();
+
+	private static String randomString(Random random, int maxLength)
+	{
+		StringBuilder sb = new StringBuilder();
+		int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++)
+		{
+			switch (random.nextInt(6))
+			{
+				case 0:
+					sb.append((char) random.nextInt(0x80));
+					break;
+				case 1:
+					sb.append((char) (0x80 + random.nextInt(0x780)));
+					break;
+				case 2:
+					sb.append((char) (0x800 + random.nextInt(0xD800 - 0x800)));
+					break;
+				case 3:
+					sb.append((char) (0xE000 + random.nextInt(0x2000)));
+					break;
+				case 4:
+					sb.appendCodePoint(0x10000 + random.nextInt(Character.MAX_CODE_POINT - 0xFFFF));
+					break;
+				default:
+					sb.append("key");
+			}
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testSameAsJdk()
+	{
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++)
+		{
+			String s = randomString(random, 20);
+			byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+			assertArrayEquals(s, expected, binding.serialize(s));
+
+			FastOutputStream out = new FastOutputStream(1);
+			out.write(7);
+			binding.serializeInto(s, out);
+			assertEquals(expected.length + 1, out.getSize());
+			assertEquals(s, binding.deserialize(out.getBuf(), 1, expected.length));
+			assertEquals(s, binding.deserialize(expected));
+		}
+	}
+
+	@Test
+	public void testUnpairedSurrogates()
+	{
+		for (String s : new String[] { "a\ud800", "\udc00b", "\udc00\ud800", "\ud800\ud800\udc00" })
+		{
+			byte[] expected = s.getBytes(StandardCharsets.UTF_8);
+			assertArrayEquals(expected, binding.serialize(s));
+			assertEquals(new String(expected, StandardCharsets.UTF_8), binding.deserialize(expected));
+		}
+	}
+
+	@Test
+	public void testMalformed()
+	{
+		byte[][] malformed = { { (byte) 0x80 }, { 'a', (byte) 0xC3 }, { (byte) 0xC0, (byte) 0x80 },
+				{ (byte) 0xE0, (byte) 0x80, (byte) 0x80 }, { (byte) 0xED, (byte) 0xA0, (byte) 0x80 },
+				{ (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80 }, { (byte) 0xFF, 'b' } };
+		for (byte[] bytes : malformed)
+		{
+			String s = binding.deserialize(bytes);
+			assertTrue(s, s.indexOf('\ufffd') >= 0);
+		}
+		assertEquals("a\ufffd", binding.deserialize(malformed[1]));
+		assertEquals("\ufffdb", binding.deserialize(malformed[6]));
+	}
+
+	@Test
+	public void testLongValues()
+	{
+		Random random = new Random(42);
+		for (int i = 0; i < 10; i++)
+		{
+			String s = randomString(random, 100000);
+			assertEquals(s, binding.deserialize(binding.serialize(s)));
+		}
+	}
+
+	@Test
+	public void testCodePointOrder()
+	{
+		Random random = new Random(42);
+		BytewiseDBComparator comparator = new BytewiseDBComparator();
+		for (int i = 0; i < 10000; i++)
+		{
+			String a = randomString(random, 3);
+			String b = randomString(random, 3);
+			int expected = Integer.signum(compareCodePoints(a, b));
+			assertEquals(a + " " + b, expected,
+					Integer.signum(comparator.compare(binding.serialize(a), binding.serialize(b))));
+		}
+	}
+
+	private static int compareCodePoints(String a, String b)
+	{
+		int i = 0;
+		int j = 0;
+		while (i < a.length() && j < b.length())
+		{
+			int ca = a.codePointAt(i);
+			int cb = b.codePointAt(j);
+			if (ca != cb)
+			{
+				return ca - cb;
+			}
+			i += Character.charCount(ca);
+			j += Character.charCount(cb);
+		}
+		return (a.length() - i) - (b.length() - j);
+	}
+
+	@Test
+	public void testDeduplication()
+	{
+		Utf8Binding deduplicating = new Utf8Binding(16);
+		byte[] bytes = deduplicating.serialize("hot key");
+		String first = deduplicating.deserialize(bytes);
+		assertSame(first, deduplicating.deserialize(bytes.clone()));
+
+		byte[] padded = new byte[bytes.length + 2];
+		System.arraycopy(bytes, 0, padded, 1, bytes.length);
+		assertSame(first, deduplicating.deserialize(padded, 1, bytes.length));
+
+		// Values that are too large are never kept
+		byte[] large = new byte[Utf8Binding.MAX_DEDUPLICATED_SIZE + 1];
+		assertNotSame(deduplicating.deserialize(large), deduplicating.deserialize(large));
+
+		// Without deduplication every String is new
+		assertNotSame(binding.deserialize(bytes), binding.deserialize(bytes));
+	}
+
+}
@@ -0,0 +1,81 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link VarIntegerBinding} class.
+ */
+public class VarIntegerBindingTest
+{
+
+	private final List<Integer> values = Arrays.asList(Integer.MIN_VALUE, -65, -64, -1, 0, 1, 63, 64, 127, 128,
+			Integer.MAX_VALUE);
+
+	@Test
+	public void testSerialize() throws Exception
+	{
+		for (VarIntegerBinding binding : Arrays.asList(new VarIntegerBinding(), new VarIntegerBinding(false)))
+		{
+			for (Integer value : values)
+			{
+				byte[] bytes = binding.serialize(value);
+				assertEquals(value, binding.deserialize(bytes));
+
+				byte[] padded = new byte[bytes.length + 2];
+				System.arraycopy(bytes, 0, padded, 1, bytes.length);
+				assertEquals(value, binding.deserialize(padded, 1, bytes.length));
+			}
+		}
+	}
+
+	@Test
+	public void testSize() throws Exception
+	{
+		VarIntegerBinding binding = new VarIntegerBinding();
+		assertEquals(1, binding.serialize(-64).length);
+		assertEquals(2, binding.serialize(64).length);
+		assertEquals(5, binding.serialize(Integer.MIN_VALUE).length);
+
+		VarIntegerBinding unsigned = new VarIntegerBinding(false);
+		assertEquals(1, unsigned.serialize(127).length);
+		assertEquals(5, unsigned.serialize(-1).length);
+	}
+
+	@Test
+	public void testNotAnInteger() throws Exception
+	{
+		byte[] bytes = new VarLongBinding().serialize(1L << 40);
+		try
+		{
+			new VarIntegerBinding().deserialize(bytes);
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+	}
+
+}
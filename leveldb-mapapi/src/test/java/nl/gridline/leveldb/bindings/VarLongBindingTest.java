@@ -0,0 +1,84 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package nl.gridline.leveldb.bindings;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.List;
+
+import nl.gridline.leveldb.exceptions.ObjectSerializeException;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link VarLongBinding} class.
+ */
+public class VarLongBindingTest
+{
+
+	private final List<Long> values = Arrays.asList(Long.MIN_VALUE, -1L << 35, -65L, -64L, -1L, 0L, 1L, 63L, 64L,
+			127L, 128L, 1L << 35, Long.MAX_VALUE);
+
+	@Test
+	public void testSerialize() throws Exception
+	{
+		for (VarLongBinding binding : Arrays.asList(new VarLongBinding(), new VarLongBinding(false)))
+		{
+			for (Long value : values)
+			{
+				byte[] bytes = binding.serialize(value);
+				assertEquals(value, binding.deserialize(bytes));
+
+				byte[] padded = new byte[bytes.length + 2];
+				System.arraycopy(bytes, 0, padded, 1, bytes.length);
+				assertEquals(value, binding.deserialize(padded, 1, bytes.length));
+			}
+		}
+	}
+
+	@Test
+	public void testSize() throws Exception
+	{
+		VarLongBinding binding = new VarLongBinding();
+		assertEquals(1, binding.serialize(0L).length);
+		assertEquals(1, binding.serialize(-64L).length);
+		assertEquals(1, binding.serialize(63L).length);
+		assertEquals(2, binding.serialize(64L).length);
+		assertEquals(3, binding.serialize(1000000L).length);
+		assertEquals(10, binding.serialize(Long.MIN_VALUE).length);
+
+		VarLongBinding unsigned = new VarLongBinding(false);
+		assertEquals(1, unsigned.serialize(127L).length);
+		assertEquals(2, unsigned.serialize(128L).length);
+		assertEquals(10, unsigned.serialize(-1L).length);
+	}
+
+	@Test
+	public void testMalformed() throws Exception
+	{
+		try
+		{
+			new VarLongBinding().deserialize(new byte[] { (byte) 0x80, (byte) 0x80 });
+			fail("Expected ObjectSerializeException");
+		}
+		catch (ObjectSerializeException expected)
+		{
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+// Copyright 2013 GridLine
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package nl.gridline.leveldb.comparators;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link BytewiseDBComparator} class.
+ */
+public class BytewiseDBComparatorTest
+{
+
+	private final BytewiseDBComparator comparator = new BytewiseDBComparator();
+
+	@Test
+	public void testCompare()
+	{
+		assertTrue(comparator.compare(bytes(1, 2), bytes(1, 3)) < 0);
+		assertTrue(comparator.compare(bytes(1, 2), bytes(1, 2, 0)) < 0);
+		assertTrue(comparator.compare(bytes(0x7F), bytes(0x80)) < 0);
+		assertTrue(comparator.compare(bytes(0xFF), bytes(0x01, 0x01)) > 0);
+		assertTrue(comparator.compare(bytes(1, 2), bytes(1, 2)) == 0);
+	}
+
+	@Test
+	public void testFindShortestSeparator()
+	{
+		assertArrayEquals("abd".getBytes(), comparator.findShortestSeparator("abcdefg".getBytes(), "abzz".getBytes()));
+		assertArrayEquals(bytes(0x81), comparator.findShortestSeparator(bytes(0x80, 5, 5), bytes(0xF0)));
+
+		// Nothing shorter between them
+		assertArrayEquals("abcd".getBytes(), comparator.findShortestSeparator("abcd".getBytes(), "abce".getBytes()));
+		assertArrayEquals("abcdef".getBytes(),
+				comparator.findShortestSeparator("abcdef".getBytes(), "abdxyz".getBytes()));
+		assertArrayEquals(bytes(1, 0xFF, 1), comparator.findShortestSeparator(bytes(1, 0xFF, 1), bytes(2)));
+
+		// Prefixes
+		assertArrayEquals("abc".getBytes(), comparator.findShortestSeparator("abc".getBytes(), "abcdef".getBytes()));
+		assertArrayEquals("abcdef".getBytes(), comparator.findShortestSeparator("abcdef".getBytes(), "abc".getBytes()));
+	}
+
+	@Test
+	public void testFindShortestSeparatorIsBetween()
+	{
+		byte[][] keys = { bytes(), bytes(0), bytes(0, 0xFF, 3), bytes(1, 2, 3, 4), bytes(1, 2, 9), bytes(1, 0xFE, 7),
+				bytes(1, 0xFF), bytes(0x80, 1, 1), bytes(0xFE, 0xFF, 0xFF), bytes(0xFF, 0xFF, 1) };
+		for (int i = 0; i < keys.length; i++)
+		{
+			for (int j = i + 1; j < keys.length; j++)
+			{
+				byte[] separator = comparator.findShortestSeparator(keys[i], keys[j]);
+				assertTrue(comparator.compare(keys[i], separator) <= 0);
+				assertTrue(comparator.compare(separator, keys[j]) < 0);
+				assertTrue(separator.length <= keys[i].length);
+			}
+		}
+	}
+
+	@Test
+	public void testFindShortSuccessor()
+	{
+		assertArrayEquals("b".getBytes(), comparator.findShortSuccessor("abcdef".getBytes()));
+		assertArrayEquals(bytes(0xFF, 0xFF, 0x02), comparator.findShortSuccessor(bytes(0xFF, 0xFF, 0x01, 0x00)));
+		assertArrayEquals(bytes(0xFF, 0xFF), comparator.findShortSuccessor(bytes(0xFF, 0xFF)));
+		assertArrayEquals(bytes(), comparator.findShortSuccessor(bytes()));
+	}
+
+	private static byte[] bytes(int... values)
+	{
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++)
+		{
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+
+}